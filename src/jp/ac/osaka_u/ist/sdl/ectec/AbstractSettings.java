@@ -50,6 +50,17 @@ public abstract class AbstractSettings implements PropertiesKeys {
 	 */
 	private int maxBatchCount;
 
+	/**
+	 * the maximum number of connections used to retrieve elements with ids
+	 */
+	private int maxLookupConnections;
+
+	/**
+	 * the maximum number of elements kept in each cache of elements in
+	 * combined revisions
+	 */
+	private long cacheCapacity;
+
 	/**
 	 * the header of id
 	 */
@@ -76,6 +87,14 @@ public abstract class AbstractSettings implements PropertiesKeys {
 		return this.maxBatchCount;
 	}
 
+	public final int getMaxLookupConnections() {
+		return this.maxLookupConnections;
+	}
+
+	public final long getCacheCapacity() {
+		return this.cacheCapacity;
+	}
+
 	public final short getHeaderOfId() {
 		return this.headerOfId;
 	}
@@ -160,6 +179,32 @@ public abstract class AbstractSettings implements PropertiesKeys {
 		logger.info("the maximum number of batched statements: "
 				+ maxBatchCount);
 
+		final String lookupConnectionsProp = propReader
+				.getProperty(DB_LOOKUP_CONNECTIONS);
+		maxLookupConnections = (lookupConnectionsProp != null) ? Integer
+				.parseInt(lookupConnectionsProp) : 1;
+
+		if (maxLookupConnections <= 0) {
+			throw new IllegalSettingValueException(
+					"the maximum number of lookup connections must be more than 0 but the specified value is "
+							+ maxLookupConnections);
+		}
+
+		logger.info("the maximum number of lookup connections: "
+				+ maxLookupConnections);
+
+		final String cacheCapacityProp = propReader.getProperty(CACHE_CAPACITY);
+		cacheCapacity = (cacheCapacityProp != null) ? Long
+				.parseLong(cacheCapacityProp) : 500000L;
+
+		if (cacheCapacity <= 0) {
+			throw new IllegalSettingValueException(
+					"the capacity of caches must be more than 0 but the specified value is "
+							+ cacheCapacity);
+		}
+
+		logger.info("the capacity of caches: " + cacheCapacity);
+
 		if (cmd.hasOption("id")) {
 			headerOfId = Short.parseShort(cmd.getOptionValue("id"));
 			if (headerOfId < 0) {
@@ -170,6 +215,35 @@ public abstract class AbstractSettings implements PropertiesKeys {
 			headerOfId = -1;
 		}
 
+		boolean bulkLoad = false;
+		final String bulkLoadProp = propReader.getProperty(DB_BULK_LOAD);
+		if (bulkLoadProp != null) {
+			if (bulkLoadProp.equalsIgnoreCase("y")
+					|| bulkLoadProp.equalsIgnoreCase("yes")) {
+				bulkLoad = true;
+			}
+		}
+
+		boolean connectionPool = false;
+		final String connectionPoolProp = propReader
+				.getProperty(DB_CONNECTION_POOL);
+		if (connectionPoolProp != null) {
+			if (connectionPoolProp.equalsIgnoreCase("y")
+					|| connectionPoolProp.equalsIgnoreCase("yes")) {
+				connectionPool = true;
+			}
+		}
+
+		boolean compressCrdTexts = false;
+		final String compressCrdTextsProp = propReader
+				.getProperty(DB_COMPRESS_CRD_TEXT);
+		if (compressCrdTextsProp != null) {
+			if (compressCrdTextsProp.equalsIgnoreCase("y")
+					|| compressCrdTextsProp.equalsIgnoreCase("yes")) {
+				compressCrdTexts = true;
+			}
+		}
+
 		dbConfig = null;
 		final String dbms = propReader.getProperty(DBMS);
 		if (dbms != null) {
@@ -180,7 +254,7 @@ public abstract class AbstractSettings implements PropertiesKeys {
 				final String dbPasswd = propReader.getProperty(DB_PASSWD);
 
 				dbConfig = new PostgreSQLDBConfig(this.dbPath, dbUserName,
-						dbPasswd);
+						dbPasswd, bulkLoad, connectionPool, compressCrdTexts);
 
 				String hiddenPasswd = "";
 				for (int count = 0; count < dbPasswd.length(); count++) {
@@ -194,10 +268,25 @@ public abstract class AbstractSettings implements PropertiesKeys {
 		}
 
 		if (dbConfig == null) {
-			dbConfig = new SQLiteDBConfig(this.dbPath);
+			dbConfig = new SQLiteDBConfig(this.dbPath, bulkLoad,
+					connectionPool, compressCrdTexts);
 			logger.info("the specified DBMS: SQLite");
 		}
 
+		if (bulkLoad) {
+			logger.info("elements will be registered with the bulk loader");
+		} else {
+			logger.info("elements will be registered with batched statements");
+		}
+
+		if (connectionPool) {
+			logger.info("each thread will use its own connection to retrieve elements");
+		}
+
+		if (compressCrdTexts) {
+			logger.info("full texts of crds will be compressed");
+		}
+
 		// initialize other settings
 		initializeParticularSettings(cmd, propReader);
 	}
@@ -35,6 +35,12 @@ public interface PropertiesKeys {
 
 	public static final String HASH_FOR_CLONE = "ectec.clone-hash";
 
+	public static final String HASH_FUNCTION = "ectec.clone-hash.function";
+
+	public static final String SINGLE_PASS_HASH = "ectec.clone-hash.single-pass";
+
+	public static final String MIN_HASH_SIGNATURE = "ectec.clone-hash.min-hash";
+
 	public static final String CRD_SIMILARITY = "ectec.crd-similarity";
 
 	public static final String FRAGMENT_LINK = "ectec.fragment-link";
@@ -49,6 +55,14 @@ public interface PropertiesKeys {
 
 	public static final String CROSS_PROJECT_LINKS = "ectec.cross-project-links";
 
+	public static final String INCREMENTAL_CLONE_DETECTION = "ectec.incremental-clone-detection";
+
+	public static final String NEAR_MISS_CLONE_DETECTION = "ectec.near-miss-clone-detection";
+
+	public static final String NEAR_MISS_SIMILARITY_THRESHOLD = "ectec.near-miss-similarity-threshold";
+
+	public static final String NEAR_MISS_BUCKET_LIMIT = "ectec.near-miss-bucket-limit";
+
 	public static final String LINK_ONLY_BEFORE_CLONE = "ectec.link-only-before-clone";
 	
 	public static final String FRAGMENT_SIZE_THRESHOLD = "ectec.fragment-size";
@@ -60,5 +74,19 @@ public interface PropertiesKeys {
 	public static final String DB_PASSWD = "ectec.db.passwd";
 	
 	public static final String DB_OVERWRITE = "ectec.db.overwrite";
+	
+	public static final String DB_BULK_LOAD = "ectec.db.bulk-load";
+	
+	public static final String DB_LOOKUP_CONNECTIONS = "ectec.db.lookup-connections";
+	
+	public static final String DB_CONNECTION_POOL = "ectec.db.connection-pool";
+	
+	public static final String DB_COMPRESS_CRD_TEXT = "ectec.db.compress-crd-text";
+	
+	public static final String CACHE_CAPACITY = "ectec.cache-capacity";
+
+	public static final String CONTENT_CACHE_CAPACITY = "ectec.content-cache-capacity";
+
+	public static final String FORK_JOIN = "ectec.fork-join";
 
 }
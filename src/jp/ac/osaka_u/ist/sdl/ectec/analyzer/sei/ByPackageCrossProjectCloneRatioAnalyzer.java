@@ -24,6 +24,7 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedCommitInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCommitInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBFileInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentSweep;
 
 import org.apache.log4j.Logger;
 
@@ -88,6 +89,9 @@ public class ByPackageCrossProjectCloneRatioAnalyzer {
 			final Map<Long, Map<String, Map<Long, Integer>>> clonedLinesByPackage = new TreeMap<Long, Map<String, Map<Long, Integer>>>();
 			final Map<Long, Map<String, Map<Long, Integer>>> locByPackage = new TreeMap<Long, Map<String, Map<Long, Integer>>>();
 
+			final CodeFragmentSweep sweep = dbManager.getFragmentRetriever()
+					.openSweep();
+
 			int count = 0;
 
 			for (final Map.Entry<Long, DBCombinedCommitInfo> entry : combinedCommits
@@ -103,10 +107,9 @@ public class ByPackageCrossProjectCloneRatioAnalyzer {
 						.retrieveElementsInSpecifiedRevision(combinedRevisionId);
 				logger.debug(clones.size() + " clones");
 
-				final Map<Long, DBCodeFragmentInfo> fragments = dbManager
-						.getFragmentRetriever()
-						.retrieveElementsInSpecifiedCombinedRevision(
-								combinedRevisionId);
+				sweep.advanceTo(combinedRevisionId);
+				final Map<Long, DBCodeFragmentInfo> fragments = sweep
+						.getLiveFragments().getElements();
 				logger.debug(fragments.size() + " fragments");
 
 				final Map<Long, DBCloneSetInfo> crossProjectClones = getCrossProjectClones(
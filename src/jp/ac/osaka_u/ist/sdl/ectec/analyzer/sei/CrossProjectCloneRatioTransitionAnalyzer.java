@@ -22,6 +22,7 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedCommitInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCommitInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBRepositoryInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentSweep;
 
 import org.apache.log4j.Logger;
 
@@ -54,6 +55,9 @@ public class CrossProjectCloneRatioTransitionAnalyzer {
 			final Map<Long, DBCommitInfo> commits = dbManager
 					.getCommitRetriever().retrieveAll();
 
+			final CodeFragmentSweep sweep = dbManager.getFragmentRetriever()
+					.openSweep();
+
 			int count = 0;
 
 			for (final Map.Entry<Long, DBCombinedCommitInfo> entry : combinedCommits
@@ -71,10 +75,9 @@ public class CrossProjectCloneRatioTransitionAnalyzer {
 						.retrieveElementsInSpecifiedRevision(combinedRevisionId);
 				logger.debug(clones.size() + " clones");
 
-				final Map<Long, DBCodeFragmentInfo> fragments = dbManager
-						.getFragmentRetriever()
-						.retrieveElementsInSpecifiedCombinedRevision(
-								combinedRevisionId);
+				sweep.advanceTo(combinedRevisionId);
+				final Map<Long, DBCodeFragmentInfo> fragments = sweep
+						.getLiveFragments().getElements();
 				logger.debug(fragments.size() + " fragments");
 
 				final Map<Long, DBCodeFragmentLinkInfo> fragmentLinks = dbManager
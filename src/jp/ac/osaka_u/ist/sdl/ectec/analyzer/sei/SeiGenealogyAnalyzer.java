@@ -14,6 +14,7 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.SQLiteDBConfig;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentGenealogyInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.ElementCursor;
 
 import org.apache.log4j.Logger;
 
@@ -37,82 +38,87 @@ public class SeiGenealogyAnalyzer {
 			final DBConnectionManager dbManager = new DBConnectionManager(
 					new SQLiteDBConfig(dbPath), 100000);
 
-			final Map<Long, DBCodeFragmentGenealogyInfo> genealogies = dbManager
-					.getFragmentGenealogyRetriever().retrieveAll();
-			logger.info(genealogies.size() + " genealogies have been retrieved");
-
-			int count = 0;
-			for (final DBCodeFragmentGenealogyInfo genealogy : genealogies
-					.values()) {
-				logger.debug("[" + (++count) + "/" + genealogies.size()
-						+ "] processing genealogy " + genealogy.getId());
-				final List<Long> elementIds = genealogy.getElements();
-				final List<Long> linkIds = genealogy.getLinks();
-
-				final Map<Long, DBCodeFragmentInfo> elements = dbManager
-						.getFragmentRetriever().retrieveWithIds(elementIds);
-				final Map<Long, DBCodeFragmentLinkInfo> links = dbManager
-						.getFragmentLinkRetriever().retrieveWithIds(linkIds);
-
-				final long branchedCombinedRevisionId = getBranchedCombinedRevisionId(elements
-						.values());
-
-				int elementsBeforeBranched = 0;
-				int elementsAfterBranchedInOrigin = 0;
-				int elementsAfterBranchedInDest = 0;
-				int modBeforeBranched = 0;
-				int modAfterBranchedInOrigin = 0;
-				int modAfterBranchedInDest = 0;
-
-				for (final DBCodeFragmentInfo fragment : elements.values()) {
-					for (long combinedRevisionId = fragment
-							.getStartCombinedRevisionId(); combinedRevisionId <= fragment
-							.getEndCombinedRevisionId(); combinedRevisionId++) {
-						if (combinedRevisionId < branchedCombinedRevisionId) {
-							elementsBeforeBranched++;
-						} else {
-							if (fragment.getOwnerRepositoryId() == 0) {
-								elementsAfterBranchedInOrigin++;
+			// genealogies are read one by one since they are scanned only once
+			final ElementCursor<DBCodeFragmentGenealogyInfo> genealogies = dbManager
+					.getFragmentGenealogyRetriever().openCursorForAll();
+
+			try {
+				DBCodeFragmentGenealogyInfo genealogy = null;
+				while ((genealogy = genealogies.next()) != null) {
+					logger.debug("[" + genealogies.getCount()
+							+ "] processing genealogy " + genealogy.getId());
+					final List<Long> elementIds = genealogy.getElements();
+					final List<Long> linkIds = genealogy.getLinks();
+
+					final Map<Long, DBCodeFragmentInfo> elements = dbManager
+							.getFragmentRetriever().retrieveWithIds(elementIds);
+					final Map<Long, DBCodeFragmentLinkInfo> links = dbManager
+							.getFragmentLinkRetriever().retrieveWithIds(linkIds);
+
+					final long branchedCombinedRevisionId = getBranchedCombinedRevisionId(elements
+							.values());
+
+					int elementsBeforeBranched = 0;
+					int elementsAfterBranchedInOrigin = 0;
+					int elementsAfterBranchedInDest = 0;
+					int modBeforeBranched = 0;
+					int modAfterBranchedInOrigin = 0;
+					int modAfterBranchedInDest = 0;
+
+					for (final DBCodeFragmentInfo fragment : elements.values()) {
+						for (long combinedRevisionId = fragment
+								.getStartCombinedRevisionId(); combinedRevisionId <= fragment
+								.getEndCombinedRevisionId(); combinedRevisionId++) {
+							if (combinedRevisionId < branchedCombinedRevisionId) {
+								elementsBeforeBranched++;
 							} else {
-								elementsAfterBranchedInDest++;
+								if (fragment.getOwnerRepositoryId() == 0) {
+									elementsAfterBranchedInOrigin++;
+								} else {
+									elementsAfterBranchedInDest++;
+								}
 							}
 						}
 					}
-				}
 
-				for (final DBCodeFragmentLinkInfo link : links.values()) {
-					if (link.isChanged()) {
-						if (link.getAfterCombinedRevisionId() < branchedCombinedRevisionId) {
-							modBeforeBranched++;
-						} else {
-							final DBCodeFragmentInfo beforeFragment = elements
-									.get(link.getBeforeElementId());
-							final DBCodeFragmentInfo afterFragment = elements
-									.get(link.getAfterElementId());
-
-							if (beforeFragment.getOwnerRepositoryId() == 0
-									&& afterFragment.getOwnerRepositoryId() == 0) {
-								modAfterBranchedInOrigin++;
+					for (final DBCodeFragmentLinkInfo link : links.values()) {
+						if (link.isChanged()) {
+							if (link.getAfterCombinedRevisionId() < branchedCombinedRevisionId) {
+								modBeforeBranched++;
 							} else {
-								modAfterBranchedInDest++;
+								final DBCodeFragmentInfo beforeFragment = elements
+										.get(link.getBeforeElementId());
+								final DBCodeFragmentInfo afterFragment = elements
+										.get(link.getAfterElementId());
+
+								if (beforeFragment.getOwnerRepositoryId() == 0
+										&& afterFragment.getOwnerRepositoryId() == 0) {
+									modAfterBranchedInOrigin++;
+								} else {
+									modAfterBranchedInDest++;
+								}
 							}
 						}
 					}
-				}
 
-				if (elementsBeforeBranched != 0
-						&& (elementsAfterBranchedInDest != 0 || elementsAfterBranchedInOrigin != 0)) {
-					pw.println(genealogy.getId() + ","
-							+ genealogy.getStartCombinedRevisionId() + ","
-							+ genealogy.getEndCombinedRevisionId() + ","
-							+ elementsBeforeBranched + ","
-							+ elementsAfterBranchedInOrigin + ","
-							+ elementsAfterBranchedInDest + ","
-							+ modBeforeBranched + ","
-							+ modAfterBranchedInOrigin + ","
-							+ modAfterBranchedInDest);
+					if (elementsBeforeBranched != 0
+							&& (elementsAfterBranchedInDest != 0 || elementsAfterBranchedInOrigin != 0)) {
+						pw.println(genealogy.getId() + ","
+								+ genealogy.getStartCombinedRevisionId() + ","
+								+ genealogy.getEndCombinedRevisionId() + ","
+								+ elementsBeforeBranched + ","
+								+ elementsAfterBranchedInOrigin + ","
+								+ elementsAfterBranchedInDest + ","
+								+ modBeforeBranched + ","
+								+ modAfterBranchedInOrigin + ","
+								+ modAfterBranchedInDest);
+					}
 				}
+			} finally {
+				genealogies.close();
 			}
+			logger.info(genealogies.getCount()
+					+ " genealogies have been processed");
 
 			pw.close();
 
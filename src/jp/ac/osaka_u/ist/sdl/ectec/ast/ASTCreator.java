@@ -19,9 +19,20 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 public class ASTCreator {
 
 	public static CompilationUnit createAST(final String sourceCode) {
+		return createAST(sourceCode.toCharArray());
+	}
+
+	/**
+	 * create an AST from the given contents <br>
+	 * the parser refers to the given array without copying it
+	 * 
+	 * @param sourceCode
+	 * @return
+	 */
+	public static CompilationUnit createAST(final char[] sourceCode) {
 		final ASTParser parser = ASTParser.newParser(AST.JLS4);
 
-		parser.setSource(sourceCode.toCharArray());
+		parser.setSource(sourceCode);
 
 		return (CompilationUnit) parser.createAST(new NullProgressMonitor());
 	}
@@ -1,11 +1,17 @@
 package jp.ac.osaka_u.ist.sdl.ectec.ast;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.Comment;
 
 /**
- * A visitor that counts the number of nodes
+ * A visitor that counts the number of nodes <br>
+ * it can also record the number of nodes in the subtree of each node during
+ * the same traversal, so that the sizes of nested nodes need not be counted
+ * again
  * 
  * @author k-hotta
  * 
@@ -14,19 +20,64 @@ public class NodeCountVisitor extends ASTVisitor {
 
 	private int nodeCount;
 
+	/**
+	 * the number of nodes counted before visiting each node, or null if the
+	 * sizes of subtrees are not recorded
+	 */
+	private final Map<ASTNode, Integer> countsBeforeVisit;
+
+	/**
+	 * the number of nodes in the subtree of each visited node
+	 */
+	private final Map<ASTNode, Integer> subtreeCounts;
+
 	public NodeCountVisitor() {
+		this(false);
+	}
+
+	public NodeCountVisitor(final boolean recordSubtrees) {
 		this.nodeCount = 0;
+		this.countsBeforeVisit = (recordSubtrees) ? new IdentityHashMap<ASTNode, Integer>()
+				: null;
+		this.subtreeCounts = (recordSubtrees) ? new IdentityHashMap<ASTNode, Integer>()
+				: null;
 	}
 
 	public int getNodeCount() {
 		return nodeCount;
 	}
 
+	/**
+	 * get the number of nodes in the subtree of the given node
+	 * 
+	 * @param node
+	 * @return the number, or -1 if the node has not been visited or subtrees
+	 *         are not recorded
+	 */
+	public int getNodeCount(final ASTNode node) {
+		if (subtreeCounts == null) {
+			return -1;
+		}
+		final Integer count = subtreeCounts.get(node);
+		return (count == null) ? -1 : count;
+	}
+
+	@Override
+	public void preVisit(ASTNode node) {
+		if (countsBeforeVisit != null) {
+			countsBeforeVisit.put(node, nodeCount);
+		}
+	}
+
 	@Override
 	public void postVisit(ASTNode node) {
 		if (isCountTarget(node)) {
 			nodeCount++;
 		}
+
+		if (countsBeforeVisit != null) {
+			subtreeCounts.put(node, nodeCount - countsBeforeVisit.remove(node));
+		}
 	}
 
 	private boolean isCountTarget(ASTNode node) {
@@ -4,6 +4,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneGenealogyInfo;
@@ -34,6 +40,7 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.FileRegisterer;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.RepositoryRegisterer;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.RevisionRegisterer;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CRDRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CRDTextRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CloneGenealogyElementRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CloneGenealogyLinkElementRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CloneGenealogyRetriever;
@@ -51,6 +58,7 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CommitRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.FileRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.RepositoryRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.RevisionRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.loader.IBulkLoader;
 
 import org.apache.log4j.Logger;
 
@@ -73,6 +81,39 @@ public final class DBConnectionManager {
 	 */
 	private Connection connection;
 
+	/**
+	 * the loader to register elements in bulk <br>
+	 * null if elements are registered with ordinary batched statements
+	 */
+	private final IBulkLoader bulkLoader;
+
+	/**
+	 * whether the durability of the db has been relaxed for the current
+	 * transaction by the bulk loader
+	 */
+	private boolean bulkTransaction;
+
+	/**
+	 * the connections used to retrieve elements with ids in addition to the
+	 * connection of the current thread <br>
+	 * they are read-only connections in the auto-commit mode, which see only
+	 * committed elements
+	 */
+	private final List<Connection> extraLookupConnections;
+
+	/**
+	 * the threads that retrieve elements over the extra lookup connections
+	 * <br>
+	 * null if there are no extra lookup connections
+	 */
+	private final ExecutorService lookupExecutor;
+
+	/**
+	 * the pool of read connections for each thread <br>
+	 * null if all the threads share the main connection
+	 */
+	private final ReadConnectionPool readConnectionPool;
+
 	private final RepositoryRegisterer repositoryRegisterer;
 
 	private final RevisionRegisterer revisionRegisterer;
@@ -125,6 +166,8 @@ public final class DBConnectionManager {
 
 	private final CRDRetriever crdRetriever;
 
+	private final CRDTextRetriever crdTextRetriever;
+
 	private final CloneGenealogyElementRetriever cloneGenealogyElementRetriever;
 
 	private final CloneGenealogyLinkElementRetriever cloneGenealogyLinkElementRetriever;
@@ -143,10 +186,57 @@ public final class DBConnectionManager {
 	 */
 	public DBConnectionManager(final IDBConfig dbConfig, final int maxBatchCount)
 			throws Exception {
+		this(dbConfig, maxBatchCount, 1);
+	}
+
+	/**
+	 * the constructor
+	 * 
+	 * @param dbConfig
+	 * @param maxBatchCount
+	 * @param maxLookupConnections
+	 *            the maximum number of connections used to retrieve elements
+	 *            with ids in parallel
+	 * @throws Exception
+	 */
+	public DBConnectionManager(final IDBConfig dbConfig,
+			final int maxBatchCount, final int maxLookupConnections)
+			throws Exception {
 		this.connection = dbConfig.init();
 
+		this.bulkLoader = dbConfig.createBulkLoader();
+		this.bulkTransaction = false;
+
+		if (dbConfig.usesConnectionPool()) {
+			dbConfig.configureForConcurrentReads(connection);
+			this.readConnectionPool = new ReadConnectionPool(dbConfig);
+			logger.info("each thread retrieves elements with its own connection");
+		} else {
+			this.readConnectionPool = null;
+		}
+
 		this.connection.setAutoCommit(false);
 
+		final List<Connection> extraLookupConnections = new ArrayList<Connection>();
+		for (int i = 1; i < maxLookupConnections; i++) {
+			final Connection lookupConnection = dbConfig.init();
+			lookupConnection.setReadOnly(true);
+			extraLookupConnections.add(lookupConnection);
+		}
+		this.extraLookupConnections = Collections
+				.unmodifiableList(extraLookupConnections);
+		this.lookupExecutor = (extraLookupConnections.isEmpty()) ? null
+				: Executors.newFixedThreadPool(extraLookupConnections.size(),
+						new ThreadFactory() {
+							@Override
+							public Thread newThread(final Runnable r) {
+								final Thread thread = new Thread(r,
+										"ectec-lookup");
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+
 		this.cloneGenealogyElementRetriever = new CloneGenealogyElementRetriever(
 				this);
 		this.cloneGenealogyLinkElementRetriever = new CloneGenealogyLinkElementRetriever(
@@ -178,7 +268,8 @@ public final class DBConnectionManager {
 				maxBatchCount);
 		this.fragmentGenealogyRegisterer = new CodeFragmentGenealogyRegisterer(
 				this, maxBatchCount);
-		this.crdRegisterer = new CRDRegisterer(this, maxBatchCount);
+		this.crdRegisterer = new CRDRegisterer(this, maxBatchCount,
+				dbConfig.compressesCrdTexts());
 		this.repositoryRetriever = new RepositoryRetriever(this);
 		this.revisionRetriever = new RevisionRetriever(this);
 		this.commitRetriever = new CommitRetriever(this);
@@ -193,6 +284,7 @@ public final class DBConnectionManager {
 		this.fragmentGenealogyRetriever = new CodeFragmentGenealogyRetriever(
 				this);
 		this.crdRetriever = new CRDRetriever(this);
+		this.crdTextRetriever = new CRDTextRetriever(this);
 	}
 
 	public final RepositoryRegisterer getRepositoryRegisterer() {
@@ -299,6 +391,10 @@ public final class DBConnectionManager {
 		return crdRetriever;
 	}
 
+	public final CRDTextRetriever getCrdTextRetriever() {
+		return crdTextRetriever;
+	}
+
 	public final CloneGenealogyElementRetriever getCloneGenealogyElementRetriever() {
 		return cloneGenealogyElementRetriever;
 	}
@@ -319,10 +415,85 @@ public final class DBConnectionManager {
 		return fragmentGenealogyLinkElementRetriever;
 	}
 
+	/**
+	 * get the connections used to retrieve elements with ids <br>
+	 * the first one is the connection for the current thread
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	public final List<Connection> getLookupConnections() throws SQLException {
+		final List<Connection> result = new ArrayList<Connection>();
+		result.add(getReadConnection());
+		result.addAll(extraLookupConnections);
+		return result;
+	}
+
+	/**
+	 * get the threads that retrieve elements over the extra lookup connections
+	 * 
+	 * @return null if there are no extra lookup connections
+	 */
+	public final ExecutorService getLookupExecutor() {
+		return lookupExecutor;
+	}
+
+	/**
+	 * get the connection with which the current thread retrieves elements
+	 * <br>
+	 * this is the main connection unless the connection pool is used <br>
+	 * the connection must be locked while it is used, so that threads sharing
+	 * the main connection use it one by one, while threads having their own
+	 * connections never wait for each other
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	public Connection getReadConnection() throws SQLException {
+		return (readConnectionPool == null) ? connection : readConnectionPool
+				.get();
+	}
+
+	/**
+	 * create a statement to retrieve elements on the connection of the
+	 * current thread
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	public Statement createReadStatement() throws SQLException {
+		return getReadConnection().createStatement();
+	}
+
 	/**
 	 * close the connection
 	 */
 	public void close() {
+		endBulkTransaction();
+		if (bulkLoader != null) {
+			bulkLoader.getStatistics().report(logger);
+		}
+
+		closeRetrievers();
+
+		if (lookupExecutor != null) {
+			lookupExecutor.shutdown();
+		}
+
+		if (readConnectionPool != null) {
+			logger.info(readConnectionPool.size()
+					+ " read connections have been used");
+			readConnectionPool.close();
+		}
+
+		for (final Connection lookupConnection : extraLookupConnections) {
+			try {
+				lookupConnection.close();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
 		try {
 			this.connection.close();
 			logger.info("db connection was closed");
@@ -331,10 +502,35 @@ public final class DBConnectionManager {
 		}
 	}
 
+	/**
+	 * close the statements cached by the retrievers
+	 */
+	private void closeRetrievers() {
+		repositoryRetriever.close();
+		revisionRetriever.close();
+		commitRetriever.close();
+		combinedRevisionRetriever.close();
+		combinedCommitRetriever.close();
+		fileRetriever.close();
+		fragmentRetriever.close();
+		cloneRetriever.close();
+		fragmentLinkRetriever.close();
+		cloneLinkRetriever.close();
+		cloneGenealogyRetriever.close();
+		fragmentGenealogyRetriever.close();
+		crdRetriever.close();
+		crdTextRetriever.close();
+		cloneGenealogyElementRetriever.close();
+		cloneGenealogyLinkElementRetriever.close();
+		cloneLinkFragmentLinkRetriever.close();
+		fragmentGenealogyElementRetriever.close();
+		fragmentGenealogyLinkElementRetriever.close();
+	}
+
 	/**
 	 * rollback
 	 */
-	public void rollback() {
+	public synchronized void rollback() {
 		try {
 			if (!this.connection.getAutoCommit()) {
 				this.connection.rollback();
@@ -343,6 +539,7 @@ public final class DBConnectionManager {
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		endBulkTransaction();
 	}
 
 	/**
@@ -376,6 +573,32 @@ public final class DBConnectionManager {
 		return result;
 	}
 
+	/**
+	 * create a statement to register elements with the specified insert query
+	 * <br>
+	 * the rows are loaded in bulk if the bulk loader is available, otherwise
+	 * this method is equivalent to createPreparedStatement(query) <br>
+	 * the current transaction becomes a bulk transaction if it is not yet
+	 * 
+	 * @param query
+	 * @return
+	 */
+	public PreparedStatement createInsertStatement(String query) {
+		if (bulkLoader == null) {
+			return createPreparedStatement(query);
+		}
+
+		beginBulkTransaction();
+
+		PreparedStatement result = null;
+		try {
+			result = bulkLoader.createStatement(connection, query);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return result;
+	}
+
 	/**
 	 * do commit
 	 */
@@ -390,6 +613,47 @@ public final class DBConnectionManager {
 			}
 			e1.printStackTrace();
 		}
+		endBulkTransaction();
+	}
+
+	/**
+	 * relax the durability of the db with the bulk loader until the current
+	 * transaction is committed or rolled back <br>
+	 * this does nothing if the bulk loader is not available or the current
+	 * transaction is already a bulk transaction <br>
+	 * the work done in the current transaction may be committed before it
+	 * becomes a bulk transaction, so that a registerer writing rows with
+	 * both ordinary and bulk statements in one transaction has to call this
+	 * method first
+	 */
+	public synchronized void beginBulkTransaction() {
+		if (bulkLoader == null || bulkTransaction) {
+			return;
+		}
+
+		try {
+			bulkLoader.relax(connection);
+			bulkTransaction = true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * restore the durability of the db relaxed for the bulk transaction
+	 */
+	private synchronized void endBulkTransaction() {
+		if (!bulkTransaction) {
+			return;
+		}
+
+		try {
+			bulkLoader.restore(connection);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			bulkTransaction = false;
+		}
 	}
 
 	/**
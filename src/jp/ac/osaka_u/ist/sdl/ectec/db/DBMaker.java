@@ -1,10 +1,18 @@
 package jp.ac.osaka_u.ist.sdl.ectec.db;
 
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.BlockType;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
 
 import org.apache.log4j.Logger;
 
@@ -27,6 +35,11 @@ public class DBMaker {
 	 */
 	private static final Logger eLogger = LoggingManager.getLogger("error");
 
+	/**
+	 * the number of crds migrated at once
+	 */
+	private static final int CRD_MIGRATION_CHUNK = 10000;
+
 	/**
 	 * the manager for the connection between the db
 	 */
@@ -85,7 +98,10 @@ public class DBMaker {
 				logger.info("checking whether the db exists");
 				final boolean exists = isDBExists();
 				if (exists) {
-					eLogger.warn("the db has already existed! DBMaker will do nothing.");
+					eLogger.warn("the db has already existed! DBMaker will only migrate legacy tables.");
+					migrateCombinedRevisions();
+					migrateCrds();
+					migrateCloneColumns();
 					return;
 				} else {
 					logger.info("confirmed that the db does not exist");
@@ -104,6 +120,10 @@ public class DBMaker {
 			logger.info("creating indexes");
 			createIndexes();
 
+			migrateCombinedRevisions();
+			migrateCrds();
+			migrateCloneColumns();
+
 			dbManager.setAutoCommit(false);
 		} catch (Exception e) {
 			dbManager.rollback();
@@ -134,6 +154,317 @@ public class DBMaker {
 		}
 	}
 
+	/**
+	 * migrate combined revisions stored in the legacy table, which has a row
+	 * for every pair of a combined revision and an original revision, into
+	 * the table of intervals <br>
+	 * this method does nothing if the legacy table does not exist
+	 *
+	 * @throws Exception
+	 */
+	public void migrateCombinedRevisions() throws Exception {
+		if (!isTableExists("COMBINED_REVISION")) {
+			return;
+		}
+
+		logger.info("migrating the legacy table of combined revisions");
+		final List<DBCombinedRevisionInfo> combinedRevisions = retrieveLegacyCombinedRevisions();
+		logger.info(combinedRevisions.size()
+				+ " combined revisions are found in the legacy table");
+
+		dropCombinedRevisionTableIndexes();
+		dbManager.executeUpdate("DROP TABLE IF EXISTS COMBINED_REVISION_INTERVAL");
+		dbManager.executeUpdate(getCombinedRevisionTableQuery());
+		createCombinedRevisionTableIndexes();
+
+		dbManager.setAutoCommit(false);
+		dbManager.getCombinedRevisionRegisterer().register(combinedRevisions);
+		dbManager.setAutoCommit(true);
+
+		dbManager.executeUpdate("DROP TABLE IF EXISTS COMBINED_REVISION");
+		logger.info("the legacy table of combined revisions has been migrated");
+	}
+
+	/**
+	 * migrate crds stored in the legacy table, which has the full text of
+	 * every crd, into the table of crds referring texts with their hash values
+	 * <br>
+	 * the tables are replaced in the same transaction as the first chunk of
+	 * migrated crds, and everything not yet committed is rolled back on
+	 * failure <br>
+	 * the migration is resumed from the last committed crd if the legacy table
+	 * has been left by an interrupted migration <br>
+	 * this method does nothing if the crd table is not the legacy one
+	 *
+	 * @throws Exception
+	 */
+	public void migrateCrds() throws Exception {
+		final boolean legacy = isColumnExists("CRD", "FULL_TEXT");
+		if (!legacy && !isTableExists("CRD_LEGACY")) {
+			return;
+		}
+
+		dbManager.setAutoCommit(false);
+		boolean completed = false;
+		try {
+			if (legacy) {
+				logger.info("migrating the legacy table of crds");
+
+				dropCrdTableIndexes();
+				dbManager.executeUpdate("DROP TABLE IF EXISTS CRD_LEGACY");
+				dbManager.executeUpdate("ALTER TABLE CRD RENAME TO CRD_LEGACY");
+				dbManager.executeUpdate(getCrdTextTableQuery());
+				dbManager.executeUpdate(getCrdQuery());
+				createCrdTableIndexes();
+			} else {
+				logger.info("resuming the interrupted migration of crds");
+			}
+
+			// every chunk is committed by the registerer, and crds committed
+			// before an interruption are skipped
+			long count = 0;
+			long lastId = getMaximumMigratedCrdId();
+			while (true) {
+				final List<DBCrdInfo> crds = retrieveLegacyCrds(lastId);
+				if (crds.isEmpty()) {
+					break;
+				}
+				dbManager.getCrdRegisterer().register(crds);
+				count += crds.size();
+				lastId = crds.get(crds.size() - 1).getId();
+			}
+
+			dbManager.executeUpdate("DROP TABLE IF EXISTS CRD_LEGACY");
+			dbManager.commit();
+			completed = true;
+			logger.info(count + " crds in the legacy table have been migrated");
+		} finally {
+			if (!completed) {
+				dbManager.rollback();
+			}
+			dbManager.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * add the columns for near-miss clones to the tables of code fragments
+	 * and clone sets if they do not have them <br>
+	 * the existing code fragments have no signatures, and the existing clone
+	 * sets are exact ones
+	 *
+	 * @throws Exception
+	 */
+	public void migrateCloneColumns() throws Exception {
+		if (isTableExists("CODE_FRAGMENT")
+				&& !isColumnExists("CODE_FRAGMENT", "SIGNATURE")) {
+			logger.info("adding signatures to the table of code fragments");
+			dbManager
+					.executeUpdate("ALTER TABLE CODE_FRAGMENT ADD COLUMN SIGNATURE TEXT");
+		}
+
+		if (isTableExists("CLONE_SET")
+				&& !isColumnExists("CLONE_SET", "SIMILARITY")) {
+			logger.info("adding similarities to the table of clone sets");
+			dbManager
+					.executeUpdate("ALTER TABLE CLONE_SET ADD COLUMN SIMILARITY DOUBLE PRECISION DEFAULT 1.0");
+		}
+	}
+
+	/**
+	 * get the maximum id of crds that have been migrated from the legacy
+	 * table
+	 *
+	 * @return Long.MIN_VALUE if no crds have been migrated
+	 * @throws SQLException
+	 */
+	private long getMaximumMigratedCrdId() throws SQLException {
+		final Statement stmt = dbManager.createStatement();
+		try {
+			final ResultSet rs = stmt.executeQuery("select MAX(CRD_ID) from CRD");
+			try {
+				if (!rs.next()) {
+					return Long.MIN_VALUE;
+				}
+				final long result = rs.getLong(1);
+				return (rs.wasNull()) ? Long.MIN_VALUE : result;
+			} finally {
+				rs.close();
+			}
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * retrieve crds whose ids are greater than the given one from the legacy
+	 * table
+	 *
+	 * @param lastId
+	 * @return at most CRD_MIGRATION_CHUNK crds in the ascending order of ids
+	 * @throws SQLException
+	 */
+	private List<DBCrdInfo> retrieveLegacyCrds(final long lastId)
+			throws SQLException {
+		final List<DBCrdInfo> result = new ArrayList<DBCrdInfo>();
+		final PreparedStatement pstmt = dbManager
+				.createPreparedStatement("select CRD_ID, TYPE, HEAD, ANCHOR, NORMALIZED_ANCHOR, CM, ANCESTORS, FULL_TEXT from CRD_LEGACY where CRD_ID > ? order by CRD_ID limit "
+						+ CRD_MIGRATION_CHUNK);
+		try {
+			pstmt.setLong(1, lastId);
+			final ResultSet rs = pstmt.executeQuery();
+			try {
+				while (rs.next()) {
+					int column = 0;
+					final long id = rs.getLong(++column);
+					final BlockType type = BlockType.valueOf(rs
+							.getString(++column));
+					final String head = rs.getString(++column);
+					final String anchor = rs.getString(++column);
+					final String normalizedAnchor = rs.getString(++column);
+					final int cm = rs.getInt(++column);
+					final List<Long> ancestors = new ArrayList<Long>();
+					StringUtils.convertStringToCollection(ancestors,
+							rs.getString(++column));
+					final String fullText = rs.getString(++column);
+
+					result.add(new DBCrdInfo(id, type, head, anchor,
+							normalizedAnchor, cm, ancestors, fullText));
+				}
+			} finally {
+				rs.close();
+			}
+		} finally {
+			pstmt.close();
+		}
+		return result;
+	}
+
+	/**
+	 * judge whether the table with the given name has the column with the
+	 * given name
+	 *
+	 * @param tableName
+	 * @param columnName
+	 * @return
+	 * @throws SQLException
+	 */
+	private boolean isColumnExists(final String tableName,
+			final String columnName) throws SQLException {
+		final Statement stmt = dbManager.createStatement();
+		try {
+			final DatabaseMetaData metaData = stmt.getConnection()
+					.getMetaData();
+			// PostgreSQL stores the names of tables in lower case
+			for (final String name : new String[] { tableName,
+					tableName.toLowerCase() }) {
+				final ResultSet rs = metaData.getColumns(null, null, name,
+						null);
+				try {
+					while (rs.next()) {
+						if (rs.getString("COLUMN_NAME").equalsIgnoreCase(
+								columnName)) {
+							return true;
+						}
+					}
+				} finally {
+					rs.close();
+				}
+			}
+			return false;
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * get the type of columns having binary data
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	private String getBinaryType() throws SQLException {
+		final Statement stmt = dbManager.createStatement();
+		try {
+			final String productName = stmt.getConnection().getMetaData()
+					.getDatabaseProductName();
+			return (productName.toLowerCase().contains("postgres")) ? "BYTEA"
+					: "BLOB";
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * judge whether the table with the given name exists
+	 *
+	 * @param tableName
+	 * @return
+	 * @throws SQLException
+	 */
+	private boolean isTableExists(final String tableName) throws SQLException {
+		final Statement stmt = dbManager.createStatement();
+		try {
+			final DatabaseMetaData metaData = stmt.getConnection()
+					.getMetaData();
+			// PostgreSQL stores the names of tables in lower case
+			for (final String name : new String[] { tableName,
+					tableName.toLowerCase() }) {
+				final ResultSet rs = metaData.getTables(null, null, name, null);
+				try {
+					if (rs.next()) {
+						return true;
+					}
+				} finally {
+					rs.close();
+				}
+			}
+			return false;
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * retrieve combined revisions from the legacy table
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	private List<DBCombinedRevisionInfo> retrieveLegacyCombinedRevisions()
+			throws SQLException {
+		final List<DBCombinedRevisionInfo> result = new ArrayList<DBCombinedRevisionInfo>();
+		final Statement stmt = dbManager.createStatement();
+		try {
+			final ResultSet rs = stmt
+					.executeQuery("select COMBINED_REVISION_ID, REVISION_ID from COMBINED_REVISION order by COMBINED_REVISION_ID, REVISION_ID");
+			try {
+				long currentId = 0;
+				List<Long> originalRevisions = null;
+				while (rs.next()) {
+					final long id = rs.getLong(1);
+					if (originalRevisions == null || id != currentId) {
+						if (originalRevisions != null) {
+							result.add(new DBCombinedRevisionInfo(currentId,
+									originalRevisions));
+						}
+						currentId = id;
+						originalRevisions = new ArrayList<Long>();
+					}
+					originalRevisions.add(rs.getLong(2));
+				}
+				if (originalRevisions != null) {
+					result.add(new DBCombinedRevisionInfo(currentId,
+							originalRevisions));
+				}
+			} finally {
+				rs.close();
+			}
+		} finally {
+			stmt.close();
+		}
+		return result;
+	}
+
 	/**
 	 * create new tables
 	 *
@@ -146,6 +477,7 @@ public class DBMaker {
 		dbManager.executeUpdate(getCombinedRevisionTableQuery());
 		dbManager.executeUpdate(getCombinedCommitTableQuery());
 		dbManager.executeUpdate(getFileTableQuery());
+		dbManager.executeUpdate(getCrdTextTableQuery());
 		dbManager.executeUpdate(getCrdQuery());
 		dbManager.executeUpdate(getCodeFragmentTableQuery());
 		dbManager.executeUpdate(getCloneSetTableQuery());
@@ -260,6 +592,12 @@ public class DBMaker {
 			// e.printStackTrace();
 		}
 
+		try {
+			dbManager.executeUpdate("DROP TABLE IF EXISTS CRD_TEXT");
+		} catch (Exception e) {
+			// e.printStackTrace();
+		}
+
 		try {
 			// dbManager.executeUpdate("VACUUM");
 		} catch (Exception e) {
@@ -577,10 +915,11 @@ public class DBMaker {
 	private String getCombinedRevisionTableQuery() {
 		final StringBuilder builder = new StringBuilder();
 
-		builder.append("create table if not exists COMBINED_REVISION(");
-		builder.append("COMBINED_REVISION_ID BIGINT,");
+		builder.append("create table if not exists COMBINED_REVISION_INTERVAL(");
 		builder.append("REVISION_ID BIGINT,");
-		builder.append("PRIMARY KEY(COMBINED_REVISION_ID, REVISION_ID)");
+		builder.append("START_COMBINED_REVISION_ID BIGINT,");
+		builder.append("END_COMBINED_REVISION_ID BIGINT,");
+		builder.append("PRIMARY KEY(REVISION_ID, START_COMBINED_REVISION_ID)");
 		// builder.append("FOREIGN KEY(REVISION_ID) REFERENCES REVISION(REVISION_ID)");
 		builder.append(")");
 
@@ -594,11 +933,9 @@ public class DBMaker {
 	 */
 	private void createCombinedRevisionTableIndexes() throws Exception {
 		dbManager
-				.executeUpdate("create index COMBINED_REVISION_ID_INDEX_COMBINED_REVISION on COMBINED_REVISION(COMBINED_REVISION_ID)");
+				.executeUpdate("create index START_COMBINED_REVISION_ID_INDEX_COMBINED_REVISION_INTERVAL on COMBINED_REVISION_INTERVAL(START_COMBINED_REVISION_ID)");
 		dbManager
-				.executeUpdate("create index REVISION_ID_INDEX_COMBINED_REVISION on COMBINED_REVISION(REVISION_ID)");
-		dbManager
-				.executeUpdate("create index COMBINED_REVISION_ID_REVISION_ID_INDEX_COMBINED_REVISION on COMBINED_REVISION(COMBINED_REVISION_ID,REVISION_ID)");
+				.executeUpdate("create index END_COMBINED_REVISION_ID_INDEX_COMBINED_REVISION_INTERVAL on COMBINED_REVISION_INTERVAL(END_COMBINED_REVISION_ID)");
 	}
 
 	/**
@@ -613,6 +950,10 @@ public class DBMaker {
 				.executeUpdate("drop index if exists REVISION_ID_INDEX_COMBINED_REVISION");
 		dbManager
 				.executeUpdate("drop index if exists COMBINED_REVISION_ID_REVISION_ID_INDEX_COMBINED_REVISION");
+		dbManager
+				.executeUpdate("drop index if exists START_COMBINED_REVISION_ID_INDEX_COMBINED_REVISION_INTERVAL");
+		dbManager
+				.executeUpdate("drop index if exists END_COMBINED_REVISION_ID_INDEX_COMBINED_REVISION_INTERVAL");
 	}
 
 	/**
@@ -739,7 +1080,27 @@ public class DBMaker {
 		builder.append("NORMALIZED_ANCHOR TEXT NOT NULL,");
 		builder.append("CM INTEGER,");
 		builder.append("ANCESTORS TEXT NOT NULL,");
-		builder.append("FULL_TEXT TEXT NOT NULL");
+		builder.append("FULL_TEXT_HASH TEXT NOT NULL");
+		builder.append(")");
+
+		return builder.toString();
+	}
+
+	/**
+	 * get the query to create the table for full texts of crds <br>
+	 * each text is stored only once with its hash value, and the content is
+	 * compressed with deflate if COMPRESSED is 1
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	private String getCrdTextTableQuery() throws SQLException {
+		final StringBuilder builder = new StringBuilder();
+
+		builder.append("create table if not exists CRD_TEXT(");
+		builder.append("TEXT_HASH TEXT PRIMARY KEY,");
+		builder.append("COMPRESSED INTEGER NOT NULL,");
+		builder.append("CONTENT " + getBinaryType() + " NOT NULL");
 		builder.append(")");
 
 		return builder.toString();
@@ -787,6 +1148,7 @@ public class DBMaker {
 		builder.append("SIZE INTEGER,");
 		builder.append("FILE_ADDED_AT_START INTEGER,");
 		builder.append("FILE_DELETED_AT_END INTEGER,");
+		builder.append("SIGNATURE TEXT,");
 		builder.append("FOREIGN KEY(OWNER_FILE_ID) REFERENCES FILE(FILE_ID)");
 		//builder.append("FOREIGN KEY(OWNER_REPOSITORY_ID) REFERENCES REPOSITORY(REPOSITORY_ID)");
 		//builder.append("FOREIGN KEY(CRD_ID) REFERENCES CRD(CRD_ID)");
@@ -861,6 +1223,7 @@ public class DBMaker {
 		builder.append("CLONE_SET_ID BIGINT,");
 		builder.append("OWNER_COMBINED_REVISION_ID BIGINT,");
 		builder.append("ELEMENT BIGINT,");
+		builder.append("SIMILARITY DOUBLE PRECISION DEFAULT 1.0,");
 		builder.append("PRIMARY KEY(CLONE_SET_ID, ELEMENT),");
 		// builder.append("FOREIGN KEY(OWNER_COMBINED_REVISION_ID) REFERENCES COMBINED_REVISION(OWNER_COMBINED_REVISION_ID),");
 		builder.append("FOREIGN KEY(ELEMENT) REFERENCES CODE_FRAGMENT(CODE_FRAGMENT_ID)");
@@ -1,6 +1,9 @@
 package jp.ac.osaka_u.ist.sdl.ectec.db;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.loader.IBulkLoader;
 
 public interface IDBConfig {
 
@@ -11,4 +14,37 @@ public interface IDBConfig {
 	 */
 	public Connection init() throws Exception;
 
+	/**
+	 * create the loader used to register elements in bulk <br>
+	 * null means that elements are registered with ordinary batched
+	 * statements
+	 * 
+	 * @return
+	 */
+	public IBulkLoader createBulkLoader();
+
+	/**
+	 * whether each thread retrieves elements with its own connection
+	 * 
+	 * @return
+	 */
+	public boolean usesConnectionPool();
+
+	/**
+	 * configure the db so that other connections can read it while elements
+	 * are registered with the given connection
+	 * 
+	 * @param connection
+	 * @throws SQLException
+	 */
+	public void configureForConcurrentReads(Connection connection)
+			throws SQLException;
+
+	/**
+	 * whether full texts of crds are compressed when they are registered
+	 * 
+	 * @return
+	 */
+	public boolean compressesCrdTexts();
+
 }
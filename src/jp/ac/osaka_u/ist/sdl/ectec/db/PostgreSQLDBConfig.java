@@ -2,8 +2,12 @@ package jp.ac.osaka_u.ist.sdl.ectec.db;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.Properties;
 
+import jp.ac.osaka_u.ist.sdl.ectec.db.loader.IBulkLoader;
+import jp.ac.osaka_u.ist.sdl.ectec.db.loader.PostgreSQLBulkLoader;
+
 public class PostgreSQLDBConfig implements IDBConfig {
 
 	// 決まり文句 (ドライバクラス)
@@ -25,11 +29,37 @@ public class PostgreSQLDBConfig implements IDBConfig {
 
 	private final String passwd;
 
+	private final boolean bulkLoad;
+
+	private final boolean connectionPool;
+
+	private final boolean compressCrdTexts;
+
 	public PostgreSQLDBConfig(final String dbPath, final String userName,
-			final String passwd) {
+			final String passwd, final boolean bulkLoad,
+			final boolean connectionPool, final boolean compressCrdTexts) {
 		this.dbPath = dbPath;
 		this.userName = (userName == null) ? "" : userName;
 		this.passwd = (passwd == null) ? "" : passwd;
+		this.bulkLoad = bulkLoad;
+		this.connectionPool = connectionPool;
+		this.compressCrdTexts = compressCrdTexts;
+	}
+
+	public PostgreSQLDBConfig(final String dbPath, final String userName,
+			final String passwd, final boolean bulkLoad,
+			final boolean connectionPool) {
+		this(dbPath, userName, passwd, bulkLoad, connectionPool, false);
+	}
+
+	public PostgreSQLDBConfig(final String dbPath, final String userName,
+			final String passwd, final boolean bulkLoad) {
+		this(dbPath, userName, passwd, bulkLoad, false);
+	}
+
+	public PostgreSQLDBConfig(final String dbPath, final String userName,
+			final String passwd) {
+		this(dbPath, userName, passwd, false);
 	}
 
 	@Override
@@ -48,4 +78,29 @@ public class PostgreSQLDBConfig implements IDBConfig {
 		}
 	}
 
+	@Override
+	public IBulkLoader createBulkLoader() {
+		return (bulkLoad) ? new PostgreSQLBulkLoader() : null;
+	}
+
+	@Override
+	public boolean usesConnectionPool() {
+		return connectionPool;
+	}
+
+	@Override
+	public boolean compressesCrdTexts() {
+		return compressCrdTexts;
+	}
+
+	/**
+	 * nothing to do, since readers and writers of PostgreSQL do not block
+	 * each other
+	 */
+	@Override
+	public void configureForConcurrentReads(final Connection connection)
+			throws SQLException {
+		// do nothing
+	}
+
 }
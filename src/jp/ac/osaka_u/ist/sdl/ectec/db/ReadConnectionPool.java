@@ -0,0 +1,103 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of read-only connections, each of which is owned by a thread <br>
+ * a connection is opened when a thread requests it for the first time, and
+ * all the connections are closed together with the pool
+ *
+ * @author k-hotta
+ *
+ */
+final class ReadConnectionPool {
+
+	/**
+	 * the configuration of db
+	 */
+	private final IDBConfig dbConfig;
+
+	/**
+	 * the connection of each thread
+	 */
+	private final ThreadLocal<Connection> connections;
+
+	/**
+	 * all the connections that have been opened
+	 */
+	private final List<Connection> openedConnections;
+
+	/**
+	 * whether the pool has been closed
+	 */
+	private boolean closed;
+
+	ReadConnectionPool(final IDBConfig dbConfig) {
+		this.dbConfig = dbConfig;
+		this.connections = new ThreadLocal<Connection>();
+		this.openedConnections = new ArrayList<Connection>();
+		this.closed = false;
+	}
+
+	/**
+	 * get the connection of the current thread
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	Connection get() throws SQLException {
+		Connection connection = connections.get();
+		if (connection == null) {
+			connection = open();
+			connections.set(connection);
+		}
+		return connection;
+	}
+
+	/**
+	 * get the number of connections that have been opened
+	 *
+	 * @return
+	 */
+	synchronized int size() {
+		return openedConnections.size();
+	}
+
+	/**
+	 * close all the connections
+	 */
+	synchronized void close() {
+		closed = true;
+		for (final Connection connection : openedConnections) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+		openedConnections.clear();
+	}
+
+	private synchronized Connection open() throws SQLException {
+		if (closed) {
+			throw new SQLException("the connection pool has been closed");
+		}
+
+		final Connection connection;
+		try {
+			connection = dbConfig.init();
+		} catch (SQLException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLException("cannot open a read connection", e);
+		}
+
+		connection.setReadOnly(true);
+		openedConnections.add(connection);
+		return connection;
+	}
+
+}
@@ -2,6 +2,12 @@ package jp.ac.osaka_u.ist.sdl.ectec.db;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.loader.IBulkLoader;
+import jp.ac.osaka_u.ist.sdl.ectec.db.loader.SQLiteBulkLoader;
 
 public class SQLiteDBConfig implements IDBConfig {
 
@@ -11,8 +17,31 @@ public class SQLiteDBConfig implements IDBConfig {
 
 	private final String dbPath;
 
-	public SQLiteDBConfig(final String dbPath) {
+	private final boolean bulkLoad;
+
+	private final boolean connectionPool;
+
+	private final boolean compressCrdTexts;
+
+	public SQLiteDBConfig(final String dbPath, final boolean bulkLoad,
+			final boolean connectionPool, final boolean compressCrdTexts) {
 		this.dbPath = dbPath;
+		this.bulkLoad = bulkLoad;
+		this.connectionPool = connectionPool;
+		this.compressCrdTexts = compressCrdTexts;
+	}
+
+	public SQLiteDBConfig(final String dbPath, final boolean bulkLoad,
+			final boolean connectionPool) {
+		this(dbPath, bulkLoad, connectionPool, false);
+	}
+
+	public SQLiteDBConfig(final String dbPath, final boolean bulkLoad) {
+		this(dbPath, bulkLoad, false);
+	}
+
+	public SQLiteDBConfig(final String dbPath) {
+		this(dbPath, false);
 	}
 
 	@Override
@@ -21,4 +50,41 @@ public class SQLiteDBConfig implements IDBConfig {
 		return DriverManager.getConnection(HEADER + dbPath);
 	}
 
+	@Override
+	public IBulkLoader createBulkLoader() {
+		return (bulkLoad) ? new SQLiteBulkLoader() : null;
+	}
+
+	@Override
+	public boolean usesConnectionPool() {
+		return connectionPool;
+	}
+
+	@Override
+	public boolean compressesCrdTexts() {
+		return compressCrdTexts;
+	}
+
+	/**
+	 * switch the journal to WAL, with which readers do not block the writer
+	 * and the writer does not block readers
+	 */
+	@Override
+	public void configureForConcurrentReads(final Connection connection)
+			throws SQLException {
+		final Statement stmt = connection.createStatement();
+		try {
+			final ResultSet rs = stmt.executeQuery("PRAGMA journal_mode = WAL");
+			try {
+				if (!rs.next() || !"wal".equalsIgnoreCase(rs.getString(1))) {
+					throw new SQLException("cannot enable WAL on " + dbPath);
+				}
+			} finally {
+				rs.close();
+			}
+		} finally {
+			stmt.close();
+		}
+	}
+
 }
@@ -0,0 +1,32 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.cache;
+
+/**
+ * An interface to load the elements in a combined revision into a
+ * RevisionElementCache
+ * 
+ * @author k-hotta
+ * 
+ * @param <V>
+ *            the type of the set of elements in a combined revision
+ */
+public interface IRevisionElementLoader<V> {
+
+	/**
+	 * load the elements in the given combined revision
+	 * 
+	 * @param combinedRevisionId
+	 * @return
+	 * @throws Exception
+	 */
+	public V load(final long combinedRevisionId) throws Exception;
+
+	/**
+	 * get the weight of the given elements, which is compared with the
+	 * capacity of the cache
+	 * 
+	 * @param elements
+	 * @return
+	 */
+	public long weigh(final V elements);
+
+}
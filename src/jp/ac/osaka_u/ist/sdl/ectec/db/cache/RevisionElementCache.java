@@ -0,0 +1,196 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jp.ac.osaka_u.ist.sdl.ectec.util.MemoizingLruCache;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A cache of sets of elements in combined revisions shared by threads <br>
+ * the least recently used sets are evicted when the total weight of the
+ * cached sets exceeds the capacity, and each set is loaded only once even if
+ * some threads request it at the same time
+ * 
+ * @author k-hotta
+ * 
+ * @param <V>
+ *            the type of the set of elements in a combined revision
+ */
+public class RevisionElementCache<V> {
+
+	/**
+	 * the name of this cache used in reports
+	 */
+	private final String name;
+
+	/**
+	 * the loader of sets of elements
+	 */
+	private final IRevisionElementLoader<V> loader;
+
+	/**
+	 * the cached sets
+	 */
+	private final MemoizingLruCache<Long, V> cache;
+
+	/**
+	 * the executor to prefetch sets <br>
+	 * it is created when a set is prefetched at the first time
+	 */
+	private ExecutorService prefetcher;
+
+	private final AtomicLong prefetches;
+
+	public RevisionElementCache(final String name,
+			final IRevisionElementLoader<V> loader, final long capacity) {
+		this.name = name;
+		this.loader = loader;
+		this.cache = new MemoizingLruCache<Long, V>(name, capacity) {
+			@Override
+			protected long weigh(final V elements) {
+				return loader.weigh(elements);
+			}
+		};
+		this.prefetcher = null;
+		this.prefetches = new AtomicLong(0);
+	}
+
+	/**
+	 * get the elements in the given combined revision <br>
+	 * they are loaded if they are not cached, and the current thread waits
+	 * for them if another thread is loading them
+	 * 
+	 * @param combinedRevisionId
+	 * @return
+	 * @throws Exception
+	 */
+	public V get(final long combinedRevisionId) throws Exception {
+		return cache.get(combinedRevisionId, createTask(combinedRevisionId));
+	}
+
+	/**
+	 * load the elements in the given combined revision in the background if
+	 * they are not cached
+	 * 
+	 * @param combinedRevisionId
+	 */
+	public void prefetch(final long combinedRevisionId) {
+		final Runnable task;
+		final ExecutorService executor;
+		synchronized (this) {
+			task = cache.reserve(combinedRevisionId,
+					createTask(combinedRevisionId));
+			if (task == null) {
+				return;
+			}
+
+			if (prefetcher == null) {
+				prefetcher = Executors
+						.newSingleThreadExecutor(new ThreadFactory() {
+							@Override
+							public Thread newThread(final Runnable r) {
+								final Thread thread = new Thread(r, name
+										+ " prefetcher");
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+			}
+			executor = prefetcher;
+		}
+
+		prefetches.incrementAndGet();
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// this cache has been closed
+			cache.cancel(combinedRevisionId);
+		}
+	}
+
+	/**
+	 * remove the elements in the given combined revision from this cache
+	 * 
+	 * @param combinedRevisionId
+	 */
+	public void invalidate(final long combinedRevisionId) {
+		cache.invalidate(combinedRevisionId);
+	}
+
+	private Callable<V> createTask(final long combinedRevisionId) {
+		return new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				return loader.load(combinedRevisionId);
+			}
+		};
+	}
+
+	/**
+	 * get the number of requests that have been answered with the cached sets
+	 * including ones being loaded
+	 * 
+	 * @return
+	 */
+	public final long getHits() {
+		return cache.getHits();
+	}
+
+	/**
+	 * get the number of requests that have loaded sets
+	 * 
+	 * @return
+	 */
+	public final long getMisses() {
+		return cache.getMisses();
+	}
+
+	public final long getPrefetches() {
+		return prefetches.get();
+	}
+
+	public final long getEvictions() {
+		return cache.getEvictions();
+	}
+
+	/**
+	 * write the statistics of this cache with the given logger
+	 * 
+	 * @param logger
+	 */
+	public void report(final Logger logger) {
+		final long hitCount = getHits();
+		final long requestCount = hitCount + getMisses();
+		final double hitRatio = (requestCount == 0) ? 0.0
+				: ((double) hitCount) * 100.0 / ((double) requestCount);
+
+		logger.info(name + ": " + hitCount + " hits, " + getMisses()
+				+ " misses (" + String.format("%.1f", hitRatio)
+				+ "% hit ratio), " + getPrefetches() + " prefetches, "
+				+ getEvictions() + " evictions");
+	}
+
+	/**
+	 * stop prefetching and remove all the cached sets <br>
+	 * the sets being loaded are cancelled
+	 */
+	public void close() {
+		final ExecutorService prefetcher;
+		synchronized (this) {
+			prefetcher = this.prefetcher;
+			this.prefetcher = null;
+			cache.clear();
+		}
+
+		if (prefetcher != null) {
+			prefetcher.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A class that has functions to store full texts of crds <br>
+ * each text is identified with the hex string of its SHA-1 digest, and its
+ * content is optionally compressed with deflate
+ * 
+ * @author k-hotta
+ * 
+ */
+public final class CRDTextCodec {
+
+	/**
+	 * the charset of stored texts
+	 */
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * the algorithm of digests
+	 */
+	private static final String DIGEST_ALGORITHM = "SHA-1";
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private CRDTextCodec() {
+	}
+
+	/**
+	 * get the hash value of the given text
+	 * 
+	 * @param text
+	 * @return
+	 */
+	public static String digest(final String text) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every implementation of the java platform supports SHA-1
+			throw new IllegalStateException(e);
+		}
+
+		final byte[] bytes = digest.digest(text.getBytes(CHARSET));
+		final char[] result = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			result[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+			result[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+		}
+		return new String(result);
+	}
+
+	/**
+	 * get the bytes of the given text
+	 * 
+	 * @param text
+	 * @return
+	 */
+	public static byte[] encode(final String text) {
+		return text.getBytes(CHARSET);
+	}
+
+	/**
+	 * compress the given bytes with deflate
+	 * 
+	 * @param bytes
+	 * @return the compressed bytes, or null if the compression does not make
+	 *         the bytes shorter
+	 */
+	public static byte[] compress(final byte[] bytes) {
+		final Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(
+					bytes.length);
+			final byte[] buffer = new byte[4096];
+			while (!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+				if (out.size() >= bytes.length) {
+					return null;
+				}
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * restore the text from the given bytes
+	 * 
+	 * @param bytes
+	 * @param compressed
+	 * @return
+	 * @throws DataFormatException
+	 *             if the compressed bytes are broken
+	 */
+	public static String decode(final byte[] bytes, final boolean compressed)
+			throws DataFormatException {
+		if (!compressed) {
+			return new String(bytes, CHARSET);
+		}
+
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(bytes);
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(
+					bytes.length * 4);
+			final byte[] buffer = new byte[4096];
+			while (!inflater.finished()) {
+				final int length = inflater.inflate(buffer);
+				if (length == 0
+						&& (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new DataFormatException(
+							"the compressed text is truncated");
+				}
+				out.write(buffer, 0, length);
+			}
+			return new String(out.toByteArray(), CHARSET);
+		} finally {
+			inflater.end();
+		}
+	}
+
+}
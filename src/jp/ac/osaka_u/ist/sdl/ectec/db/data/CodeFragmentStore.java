@@ -0,0 +1,469 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A columnar store of code fragments <br>
+ * the attributes of code fragments are kept in parallel primitive arrays in
+ * the ascending order of their ids, and each fragment is referred with its
+ * index in the arrays <br>
+ * instances of DBCodeFragmentInfo are created only when they are requested
+ * with getElement(int)
+ *
+ * @author k-hotta
+ *
+ */
+public class CodeFragmentStore {
+
+	/**
+	 * the default initial capacity
+	 */
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * the flag for fragments whose owner files were added at the start
+	 */
+	private static final byte FILE_ADDED_AT_START = 1;
+
+	/**
+	 * the flag for fragments whose owner files were deleted at the end
+	 */
+	private static final byte FILE_DELETED_AT_END = 2;
+
+	private long[] ids;
+
+	private long[] ownerFileIds;
+
+	private long[] ownerRepositoryIds;
+
+	private long[] crdIds;
+
+	private long[] startCombinedRevisionIds;
+
+	private long[] endCombinedRevisionIds;
+
+	private long[] hashes;
+
+	private long[] hashesForClone;
+
+	private int[] startLines;
+
+	private int[] endLines;
+
+	private int[] sizes;
+
+	private byte[] flags;
+
+	/**
+	 * the min-hash signatures, each of which can be null
+	 */
+	private int[][] signatures;
+
+	/**
+	 * the number of fragments in this store
+	 */
+	private int size;
+
+	public CodeFragmentStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public CodeFragmentStore(final int capacity) {
+		allocate(Math.max(capacity, 1));
+		this.size = 0;
+	}
+
+	/**
+	 * create a store having the given code fragments
+	 *
+	 * @param codeFragments
+	 * @return
+	 */
+	public static CodeFragmentStore of(
+			final Collection<DBCodeFragmentInfo> codeFragments) {
+		final SortedSet<DBCodeFragmentInfo> sortedFragments = new TreeSet<DBCodeFragmentInfo>(
+				codeFragments);
+		final CodeFragmentStore result = new CodeFragmentStore(
+				sortedFragments.size());
+		for (final DBCodeFragmentInfo codeFragment : sortedFragments) {
+			result.add(codeFragment);
+		}
+		return result;
+	}
+
+	/**
+	 * add a code fragment <br>
+	 * code fragments must be added in the ascending order of their ids
+	 *
+	 * @param id
+	 * @param ownerFileId
+	 * @param ownerRepositoryId
+	 * @param crdId
+	 * @param startCombinedRevisionId
+	 * @param endCombinedRevisionId
+	 * @param hash
+	 * @param hashForClone
+	 * @param startLine
+	 * @param endLine
+	 * @param fragmentSize
+	 * @param fileAddedAtStart
+	 * @param fileDeletedAtEnd
+	 */
+	public void add(final long id, final long ownerFileId,
+			final long ownerRepositoryId, final long crdId,
+			final long startCombinedRevisionId,
+			final long endCombinedRevisionId, final long hash,
+			final long hashForClone, final int startLine, final int endLine,
+			final int fragmentSize, final boolean fileAddedAtStart,
+			final boolean fileDeletedAtEnd) {
+		add(id, ownerFileId, ownerRepositoryId, crdId,
+				startCombinedRevisionId, endCombinedRevisionId, hash,
+				hashForClone, startLine, endLine, fragmentSize,
+				fileAddedAtStart, fileDeletedAtEnd, null);
+	}
+
+	/**
+	 * add a code fragment with its signature <br>
+	 * code fragments must be added in the ascending order of their ids
+	 *
+	 * @param id
+	 * @param ownerFileId
+	 * @param ownerRepositoryId
+	 * @param crdId
+	 * @param startCombinedRevisionId
+	 * @param endCombinedRevisionId
+	 * @param hash
+	 * @param hashForClone
+	 * @param startLine
+	 * @param endLine
+	 * @param fragmentSize
+	 * @param fileAddedAtStart
+	 * @param fileDeletedAtEnd
+	 * @param signature
+	 *            the min-hash signature, which can be null
+	 */
+	public void add(final long id, final long ownerFileId,
+			final long ownerRepositoryId, final long crdId,
+			final long startCombinedRevisionId,
+			final long endCombinedRevisionId, final long hash,
+			final long hashForClone, final int startLine, final int endLine,
+			final int fragmentSize, final boolean fileAddedAtStart,
+			final boolean fileDeletedAtEnd, final int[] signature) {
+		if (size > 0 && ids[size - 1] >= id) {
+			throw new IllegalArgumentException("the id " + id
+					+ " is not greater than the last id " + ids[size - 1]);
+		}
+
+		if (size == ids.length) {
+			allocate(size * 2);
+		}
+
+		ids[size] = id;
+		ownerFileIds[size] = ownerFileId;
+		ownerRepositoryIds[size] = ownerRepositoryId;
+		crdIds[size] = crdId;
+		startCombinedRevisionIds[size] = startCombinedRevisionId;
+		endCombinedRevisionIds[size] = endCombinedRevisionId;
+		hashes[size] = hash;
+		hashesForClone[size] = hashForClone;
+		startLines[size] = startLine;
+		endLines[size] = endLine;
+		sizes[size] = fragmentSize;
+		flags[size] = 0;
+		if (fileAddedAtStart) {
+			flags[size] |= FILE_ADDED_AT_START;
+		}
+		if (fileDeletedAtEnd) {
+			flags[size] |= FILE_DELETED_AT_END;
+		}
+		signatures[size] = signature;
+		size++;
+	}
+
+	/**
+	 * add a code fragment <br>
+	 * code fragments must be added in the ascending order of their ids
+	 *
+	 * @param codeFragment
+	 */
+	public void add(final DBCodeFragmentInfo codeFragment) {
+		add(codeFragment.getId(), codeFragment.getOwnerFileId(),
+				codeFragment.getOwnerRepositoryId(), codeFragment.getCrdId(),
+				codeFragment.getStartCombinedRevisionId(),
+				codeFragment.getEndCombinedRevisionId(),
+				codeFragment.getHash(), codeFragment.getHashForClone(),
+				codeFragment.getStartLine(), codeFragment.getEndLine(),
+				codeFragment.getSize(), codeFragment.isFileAddedAtStart(),
+				codeFragment.isFileDeletedAtEnd(), codeFragment.getSignature());
+	}
+
+	/**
+	 * add the code fragment at the given index of another store
+	 *
+	 * @param another
+	 * @param index
+	 */
+	public void add(final CodeFragmentStore another, final int index) {
+		add(another.ids[index], another.ownerFileIds[index],
+				another.ownerRepositoryIds[index], another.crdIds[index],
+				another.startCombinedRevisionIds[index],
+				another.endCombinedRevisionIds[index], another.hashes[index],
+				another.hashesForClone[index], another.startLines[index],
+				another.endLines[index], another.sizes[index],
+				another.isFileAddedAtStart(index),
+				another.isFileDeletedAtEnd(index), another.signatures[index]);
+	}
+
+	/**
+	 * release the unused capacity
+	 */
+	public void trimToSize() {
+		if (size < ids.length) {
+			allocate(Math.max(size, 1));
+		}
+	}
+
+	/**
+	 * get the number of code fragments in this store
+	 *
+	 * @return
+	 */
+	public final int size() {
+		return size;
+	}
+
+	public final boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * get the index of the code fragment having the given id
+	 *
+	 * @param id
+	 * @return the index, or a negative value if this store does not have the
+	 *         fragment
+	 */
+	public final int indexOf(final long id) {
+		return Arrays.binarySearch(ids, 0, size, id);
+	}
+
+	public final long getId(final int index) {
+		return ids[index];
+	}
+
+	public final long getOwnerFileId(final int index) {
+		return ownerFileIds[index];
+	}
+
+	public final long getOwnerRepositoryId(final int index) {
+		return ownerRepositoryIds[index];
+	}
+
+	public final long getCrdId(final int index) {
+		return crdIds[index];
+	}
+
+	public final long getStartCombinedRevisionId(final int index) {
+		return startCombinedRevisionIds[index];
+	}
+
+	public final long getEndCombinedRevisionId(final int index) {
+		return endCombinedRevisionIds[index];
+	}
+
+	public final long getHash(final int index) {
+		return hashes[index];
+	}
+
+	public final long getHashForClone(final int index) {
+		return hashesForClone[index];
+	}
+
+	public final int getStartLine(final int index) {
+		return startLines[index];
+	}
+
+	public final int getEndLine(final int index) {
+		return endLines[index];
+	}
+
+	public final int getSize(final int index) {
+		return sizes[index];
+	}
+
+	public final boolean isFileAddedAtStart(final int index) {
+		return (flags[index] & FILE_ADDED_AT_START) != 0;
+	}
+
+	public final boolean isFileDeletedAtEnd(final int index) {
+		return (flags[index] & FILE_DELETED_AT_END) != 0;
+	}
+
+	/**
+	 * get the min-hash signature of the code fragment at the given index
+	 *
+	 * @param index
+	 * @return the signature, or null if it has not been calculated
+	 */
+	public final int[] getSignature(final int index) {
+		return signatures[index];
+	}
+
+	/**
+	 * create an instance of the code fragment at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public DBCodeFragmentInfo getElement(final int index) {
+		return new DBCodeFragmentInfo(ids[index], ownerFileIds[index],
+				ownerRepositoryIds[index], crdIds[index],
+				startCombinedRevisionIds[index], endCombinedRevisionIds[index],
+				hashes[index], hashesForClone[index], startLines[index],
+				endLines[index], sizes[index], isFileAddedAtStart(index),
+				isFileDeletedAtEnd(index), signatures[index]);
+	}
+
+	/**
+	 * create instances of all the code fragments in this store
+	 *
+	 * @return a map whose keys are the ids of the fragments
+	 */
+	public SortedMap<Long, DBCodeFragmentInfo> getElements() {
+		final SortedMap<Long, DBCodeFragmentInfo> result = new TreeMap<Long, DBCodeFragmentInfo>();
+		for (int i = 0; i < size; i++) {
+			result.put(ids[i], getElement(i));
+		}
+		return Collections.unmodifiableSortedMap(result);
+	}
+
+	/**
+	 * create a store having the code fragments in this store and the added
+	 * store except the ones in the removed store <br>
+	 * neither this store nor the given stores are modified
+	 *
+	 * @param added
+	 *            fragments that must not be in this store
+	 * @param removed
+	 * @return
+	 */
+	public CodeFragmentStore update(final CodeFragmentStore added,
+			final CodeFragmentStore removed) {
+		final CodeFragmentStore result = new CodeFragmentStore(Math.max(size
+				+ added.size - removed.size, 1));
+
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < size || j < added.size) {
+			final boolean fromThis = (j >= added.size)
+					|| (i < size && ids[i] < added.ids[j]);
+			final CodeFragmentStore source = (fromThis) ? this : added;
+			final int index = (fromThis) ? i++ : j++;
+			final long id = source.ids[index];
+
+			while (k < removed.size && removed.ids[k] < id) {
+				k++;
+			}
+			if (k < removed.size && removed.ids[k] == id) {
+				continue;
+			}
+
+			result.add(source, index);
+		}
+
+		result.trimToSize();
+		return result;
+	}
+
+	/**
+	 * get the ids of the owner repositories without duplicates in ascending
+	 * order
+	 *
+	 * @return
+	 */
+	public long[] getRepositoryIds() {
+		return distinct(ownerRepositoryIds);
+	}
+
+	/**
+	 * get the ids of the crds without duplicates in ascending order
+	 *
+	 * @return
+	 */
+	public long[] getCrdIds() {
+		return distinct(crdIds);
+	}
+
+	/**
+	 * create a store having the code fragments in the given repository
+	 *
+	 * @param repositoryId
+	 * @return
+	 */
+	public CodeFragmentStore selectRepository(final long repositoryId) {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (ownerRepositoryIds[i] == repositoryId) {
+				count++;
+			}
+		}
+
+		final CodeFragmentStore result = new CodeFragmentStore(count);
+		for (int i = 0; i < size; i++) {
+			if (ownerRepositoryIds[i] == repositoryId) {
+				result.add(this, i);
+			}
+		}
+		return result;
+	}
+
+	private long[] distinct(final long[] values) {
+		final long[] sorted = Arrays.copyOf(values, size);
+		Arrays.sort(sorted);
+
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, count);
+	}
+
+	private void allocate(final int capacity) {
+		ids = (ids == null) ? new long[capacity] : Arrays.copyOf(ids,
+				capacity);
+		ownerFileIds = (ownerFileIds == null) ? new long[capacity] : Arrays
+				.copyOf(ownerFileIds, capacity);
+		ownerRepositoryIds = (ownerRepositoryIds == null) ? new long[capacity]
+				: Arrays.copyOf(ownerRepositoryIds, capacity);
+		crdIds = (crdIds == null) ? new long[capacity] : Arrays.copyOf(
+				crdIds, capacity);
+		startCombinedRevisionIds = (startCombinedRevisionIds == null) ? new long[capacity]
+				: Arrays.copyOf(startCombinedRevisionIds, capacity);
+		endCombinedRevisionIds = (endCombinedRevisionIds == null) ? new long[capacity]
+				: Arrays.copyOf(endCombinedRevisionIds, capacity);
+		hashes = (hashes == null) ? new long[capacity] : Arrays.copyOf(
+				hashes, capacity);
+		hashesForClone = (hashesForClone == null) ? new long[capacity]
+				: Arrays.copyOf(hashesForClone, capacity);
+		startLines = (startLines == null) ? new int[capacity] : Arrays
+				.copyOf(startLines, capacity);
+		endLines = (endLines == null) ? new int[capacity] : Arrays.copyOf(
+				endLines, capacity);
+		sizes = (sizes == null) ? new int[capacity] : Arrays.copyOf(sizes,
+				capacity);
+		flags = (flags == null) ? new byte[capacity] : Arrays.copyOf(flags,
+				capacity);
+		signatures = (signatures == null) ? new int[capacity][] : Arrays
+				.copyOf(signatures, capacity);
+	}
+
+}
@@ -0,0 +1,195 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An index to reconstruct combined revisions from the intervals in which
+ * each original revision is included <br>
+ * an original revision is included in every combined revision whose id is in
+ * [start, end] of one of its intervals, and every combined revision is the
+ * start of at least one interval <br>
+ * the set of active intervals is kept at every CHECKPOINT_SPAN combined
+ * revisions, so that the original revisions of a combined revision can be
+ * reconstructed without sweeping all the intervals
+ *
+ * @author k-hotta
+ *
+ */
+public class CombinedRevisionIntervalIndex {
+
+	/**
+	 * the number of combined revisions between two checkpoints
+	 */
+	private static final int CHECKPOINT_SPAN = 64;
+
+	/**
+	 * the ids of the combined revisions in ascending order
+	 */
+	private final long[] combinedRevisionIds;
+
+	/**
+	 * the ids of the original revisions of the intervals sorted by start
+	 */
+	private final long[] revisionIds;
+
+	/**
+	 * the starts of the intervals sorted by start
+	 */
+	private final long[] starts;
+
+	/**
+	 * the ends of the intervals sorted by start
+	 */
+	private final long[] ends;
+
+	/**
+	 * the indexes of the intervals that may be active at each checkpoint
+	 */
+	private final int[][] checkpoints;
+
+	/**
+	 * the index of the first interval that starts after each checkpoint
+	 */
+	private final int[] nextIntervals;
+
+	/**
+	 * the constructor
+	 *
+	 * @param revisionIds
+	 * @param starts
+	 * @param ends
+	 */
+	public CombinedRevisionIntervalIndex(final long[] revisionIds,
+			final long[] starts, final long[] ends) {
+		final int size = revisionIds.length;
+		final Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.valueOf(starts[o1]).compareTo(starts[o2]);
+			}
+		});
+
+		this.revisionIds = new long[size];
+		this.starts = new long[size];
+		this.ends = new long[size];
+		int distinctStarts = 0;
+		for (int i = 0; i < size; i++) {
+			this.revisionIds[i] = revisionIds[order[i]];
+			this.starts[i] = starts[order[i]];
+			this.ends[i] = ends[order[i]];
+			if (i == 0 || this.starts[i] != this.starts[i - 1]) {
+				distinctStarts++;
+			}
+		}
+
+		this.combinedRevisionIds = new long[distinctStarts];
+		int position = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || this.starts[i] != this.starts[i - 1]) {
+				this.combinedRevisionIds[position++] = this.starts[i];
+			}
+		}
+
+		final int numberOfCheckpoints = (distinctStarts + CHECKPOINT_SPAN - 1)
+				/ CHECKPOINT_SPAN;
+		this.checkpoints = new int[numberOfCheckpoints][];
+		this.nextIntervals = new int[numberOfCheckpoints];
+
+		final List<Integer> active = new ArrayList<Integer>();
+		int next = 0;
+		for (int k = 0; k < numberOfCheckpoints; k++) {
+			final long checkpointId = combinedRevisionIds[k * CHECKPOINT_SPAN];
+			while (next < size && this.starts[next] <= checkpointId) {
+				active.add(next++);
+			}
+
+			final List<Integer> stillActive = new ArrayList<Integer>();
+			for (final int interval : active) {
+				if (this.ends[interval] >= checkpointId) {
+					stillActive.add(interval);
+				}
+			}
+			active.clear();
+			active.addAll(stillActive);
+
+			final int[] checkpoint = new int[active.size()];
+			for (int i = 0; i < checkpoint.length; i++) {
+				checkpoint[i] = active.get(i);
+			}
+			this.checkpoints[k] = checkpoint;
+			this.nextIntervals[k] = next;
+		}
+	}
+
+	/**
+	 * get the number of combined revisions
+	 *
+	 * @return
+	 */
+	public final int size() {
+		return combinedRevisionIds.length;
+	}
+
+	/**
+	 * get the ids of all the combined revisions in ascending order
+	 *
+	 * @return
+	 */
+	public final long[] getCombinedRevisionIds() {
+		return combinedRevisionIds.clone();
+	}
+
+	/**
+	 * judge whether the given combined revision is in this index
+	 *
+	 * @param combinedRevisionId
+	 * @return
+	 */
+	public final boolean contains(final long combinedRevisionId) {
+		return Arrays.binarySearch(combinedRevisionIds, combinedRevisionId) >= 0;
+	}
+
+	/**
+	 * reconstruct the ids of the original revisions included in the given
+	 * combined revision
+	 *
+	 * @param combinedRevisionId
+	 * @return the ids in ascending order, or null if the combined revision is
+	 *         not in this index
+	 */
+	public List<Long> getOriginalRevisions(final long combinedRevisionId) {
+		final int position = Arrays.binarySearch(combinedRevisionIds,
+				combinedRevisionId);
+		if (position < 0) {
+			return null;
+		}
+
+		final int k = position / CHECKPOINT_SPAN;
+		final List<Long> result = new ArrayList<Long>();
+
+		for (final int interval : checkpoints[k]) {
+			if (ends[interval] >= combinedRevisionId) {
+				result.add(revisionIds[interval]);
+			}
+		}
+
+		for (int interval = nextIntervals[k]; interval < starts.length
+				&& starts[interval] <= combinedRevisionId; interval++) {
+			if (ends[interval] >= combinedRevisionId) {
+				result.add(revisionIds[interval]);
+			}
+		}
+
+		Collections.sort(result);
+		return result;
+	}
+
+}
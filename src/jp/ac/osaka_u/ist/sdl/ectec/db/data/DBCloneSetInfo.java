@@ -28,18 +28,38 @@ public class DBCloneSetInfo extends AbstractDBElement implements
 	 */
 	private final List<Long> elements;
 
+	/**
+	 * the similarity between the code fragments, which is 1.0 if they are
+	 * exact clones
+	 */
+	private final double similarity;
+
 	/**
 	 * the constructor for elements that are retrieved from the db
 	 * 
 	 * @param id
 	 * @param combinedRevisionId
 	 * @param elements
+	 * @param similarity
 	 */
 	public DBCloneSetInfo(final long id, final long combinedRevisionId,
-			final List<Long> elements) {
+			final List<Long> elements, final double similarity) {
 		super(id);
 		this.combinedRevisionId = combinedRevisionId;
 		this.elements = elements;
+		this.similarity = similarity;
+	}
+
+	/**
+	 * the constructor for exact clone sets that are retrieved from the db
+	 * 
+	 * @param id
+	 * @param combinedRevisionId
+	 * @param elements
+	 */
+	public DBCloneSetInfo(final long id, final long combinedRevisionId,
+			final List<Long> elements) {
+		this(id, combinedRevisionId, elements, 1.0);
 	}
 	
 	/**
@@ -59,7 +79,19 @@ public class DBCloneSetInfo extends AbstractDBElement implements
 	 * @param elements
 	 */
 	public DBCloneSetInfo(final long revisionId, final List<Long> elements) {
-		this(count.getAndIncrement(), revisionId, elements);
+		this(revisionId, elements, 1.0);
+	}
+
+	/**
+	 * the constructor for newly created elements with their similarities
+	 * 
+	 * @param revisionId
+	 * @param elements
+	 * @param similarity
+	 */
+	public DBCloneSetInfo(final long revisionId, final List<Long> elements,
+			final double similarity) {
+		this(count.getAndIncrement(), revisionId, elements, similarity);
 	}
 
 	/**
@@ -80,6 +112,15 @@ public class DBCloneSetInfo extends AbstractDBElement implements
 		return Collections.unmodifiableList(elements);
 	}
 
+	/**
+	 * get the similarity between the code fragments
+	 * 
+	 * @return 1.0 if this is a set of exact clones
+	 */
+	public final double getSimilarity() {
+		return this.similarity;
+	}
+
 	@Override
 	public int compareTo(DBCloneSetInfo another) {
 		return ((Long) this.getId()).compareTo(another.getId());
@@ -77,6 +77,12 @@ public class DBCodeFragmentInfo extends AbstractDBElement implements
 	 */
 	private final boolean fileDeletedAtEnd;
 
+	/**
+	 * the min-hash signature of the tokens of this fragment, or null if it
+	 * has not been calculated
+	 */
+	private final int[] signature;
+
 	/**
 	 * the constructor for elements that are retrieved from the db
 	 * 
@@ -101,6 +107,38 @@ public class DBCodeFragmentInfo extends AbstractDBElement implements
 			final long hashForClone, final int startLine, final int endLine,
 			final int size, final boolean fileAddedAtStart,
 			final boolean fileDeletedAtEnd) {
+		this(id, ownerFileId, ownerRepositoryId, crdId,
+				startCombinedRevisionId, endCombinedRevisionId, hash,
+				hashForClone, startLine, endLine, size, fileAddedAtStart,
+				fileDeletedAtEnd, null);
+	}
+
+	/**
+	 * the constructor for elements that are retrieved from the db with
+	 * their signatures
+	 * 
+	 * @param id
+	 * @param ownerFileId
+	 * @param ownerRepositoryId
+	 * @param crdId
+	 * @param startCombinedRevisionId
+	 * @param endCombinedRevisionId
+	 * @param hash
+	 * @param hashForClone
+	 * @param startLine
+	 * @param endLine
+	 * @param size
+	 * @param fileAddedAtStart
+	 * @param fileDeletedAtEnd
+	 * @param signature
+	 */
+	public DBCodeFragmentInfo(final long id, final long ownerFileId,
+			final long ownerRepositoryId, final long crdId,
+			final long startCombinedRevisionId,
+			final long endCombinedRevisionId, final long hash,
+			final long hashForClone, final int startLine, final int endLine,
+			final int size, final boolean fileAddedAtStart,
+			final boolean fileDeletedAtEnd, final int[] signature) {
 		super(id);
 		this.ownerFileId = ownerFileId;
 		this.ownerRepositoryId = ownerRepositoryId;
@@ -114,6 +152,7 @@ public class DBCodeFragmentInfo extends AbstractDBElement implements
 		this.size = size;
 		this.fileAddedAtStart = fileAddedAtStart;
 		this.fileDeletedAtEnd = fileDeletedAtEnd;
+		this.signature = signature;
 	}
 
 	/**
@@ -139,10 +178,39 @@ public class DBCodeFragmentInfo extends AbstractDBElement implements
 			final long hashForClone, final int startLine, final int endLine,
 			final int size, final boolean fileAddedAtStart,
 			final boolean fileDeletedAtEnd) {
+		this(ownerFileId, ownerRepositoryId, crdId, startCombinedRevisionId,
+				endCombinedRevisionId, hash, hashForClone, startLine, endLine,
+				size, fileAddedAtStart, fileDeletedAtEnd, null);
+	}
+
+	/**
+	 * the constructor for newly created elements with their signatures
+	 * 
+	 * @param ownerFileId
+	 * @param ownerRepositoryId
+	 * @param crdId
+	 * @param startCombinedRevisionId
+	 * @param endCombinedRevisionId
+	 * @param hash
+	 * @param hashForClone
+	 * @param startLine
+	 * @param endLine
+	 * @param size
+	 * @param fileAddedAtStart
+	 * @param fileDeletedAtEnd
+	 * @param signature
+	 */
+	public DBCodeFragmentInfo(final long ownerFileId,
+			final long ownerRepositoryId, final long crdId,
+			final long startCombinedRevisionId,
+			final long endCombinedRevisionId, final long hash,
+			final long hashForClone, final int startLine, final int endLine,
+			final int size, final boolean fileAddedAtStart,
+			final boolean fileDeletedAtEnd, final int[] signature) {
 		this(count.getAndIncrement(), ownerFileId, ownerRepositoryId, crdId,
 				startCombinedRevisionId, endCombinedRevisionId, hash,
 				hashForClone, startLine, endLine, size, fileAddedAtStart,
-				fileDeletedAtEnd);
+				fileDeletedAtEnd, signature);
 	}
 
 	/**
@@ -262,6 +330,15 @@ public class DBCodeFragmentInfo extends AbstractDBElement implements
 		return this.fileDeletedAtEnd;
 	}
 
+	/**
+	 * get the min-hash signature
+	 * 
+	 * @return the signature, or null if it has not been calculated
+	 */
+	public final int[] getSignature() {
+		return this.signature;
+	}
+
 	@Override
 	public int compareTo(DBCodeFragmentInfo another) {
 		return ((Long) this.getId()).compareTo(another.getId());
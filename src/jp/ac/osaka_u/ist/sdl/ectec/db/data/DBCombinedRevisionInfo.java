@@ -20,18 +20,42 @@ public class DBCombinedRevisionInfo extends AbstractDBElement implements
 
 	/**
 	 * a list that has ids of revisions included in this combined revision
+	 * <br>
+	 * this is null until it is reconstructed from the interval index
 	 */
-	private final List<Long> originalRevisions;
+	private volatile List<Long> originalRevisions;
 
 	/**
-	 * the constructor for elements that are retrieved from db
+	 * the index to reconstruct the original revisions lazily
+	 */
+	private final CombinedRevisionIntervalIndex intervalIndex;
+
+	/**
+	 * the constructor
 	 * 
 	 * @param id
+	 * @param originalRevisions
 	 */
 	public DBCombinedRevisionInfo(final long id,
 			final List<Long> originalRevisions) {
 		super(id);
 		this.originalRevisions = originalRevisions;
+		this.intervalIndex = null;
+	}
+
+	/**
+	 * the constructor for elements that are retrieved from db <br>
+	 * the original revisions are reconstructed from the given index when they
+	 * are requested for the first time
+	 * 
+	 * @param id
+	 * @param intervalIndex
+	 */
+	public DBCombinedRevisionInfo(final long id,
+			final CombinedRevisionIntervalIndex intervalIndex) {
+		super(id);
+		this.originalRevisions = null;
+		this.intervalIndex = intervalIndex;
 	}
 
 	/**
@@ -58,7 +82,12 @@ public class DBCombinedRevisionInfo extends AbstractDBElement implements
 	 * @return
 	 */
 	public final List<Long> getOriginalRevisions() {
-		return Collections.unmodifiableList(originalRevisions);
+		List<Long> result = originalRevisions;
+		if (result == null) {
+			result = intervalIndex.getOriginalRevisions(getId());
+			originalRevisions = result;
+		}
+		return Collections.unmodifiableList(result);
 	}
 
 	@Override
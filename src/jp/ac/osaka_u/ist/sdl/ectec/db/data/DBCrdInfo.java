@@ -49,12 +49,25 @@ public class DBCrdInfo extends AbstractDBElement implements
 	private final List<Long> ancestors;
 
 	/**
-	 * A full textual representation of this crd
+	 * A full textual representation of this crd <br>
+	 * null if the text is loaded lazily with the text loader
 	 */
 	private final String fullText;
 
 	/**
-	 * the constructor for elements that are retrieved from the db
+	 * the loader of the full text <br>
+	 * null if this crd has its full text
+	 */
+	private final ICRDTextLoader textLoader;
+
+	/**
+	 * the hash value of the full text, which is computed when it is requested
+	 * at the first time if this crd has its full text
+	 */
+	private volatile String fullTextHash;
+
+	/**
+	 * the constructor for elements whose full texts are given
 	 * 
 	 * @param id
 	 * @param type
@@ -75,6 +88,39 @@ public class DBCrdInfo extends AbstractDBElement implements
 		this.cm = cm;
 		this.ancestors = ancestors;
 		this.fullText = fullText;
+		this.textLoader = null;
+		this.fullTextHash = null;
+	}
+
+	/**
+	 * the constructor for elements that are retrieved from the db <br>
+	 * the full text is not kept in this crd but loaded with the given loader
+	 * whenever it is requested
+	 * 
+	 * @param id
+	 * @param type
+	 * @param head
+	 * @param anchor
+	 * @param normalizedAnchor
+	 * @param cm
+	 * @param ancestors
+	 * @param fullTextHash
+	 * @param textLoader
+	 */
+	public DBCrdInfo(final long id, final BlockType type, final String head,
+			final String anchor, final String normalizedAnchor, final int cm,
+			final List<Long> ancestors, final String fullTextHash,
+			final ICRDTextLoader textLoader) {
+		super(id);
+		this.type = type;
+		this.head = head;
+		this.anchor = anchor;
+		this.normalizedAnchor = normalizedAnchor;
+		this.cm = cm;
+		this.ancestors = ancestors;
+		this.fullText = null;
+		this.textLoader = textLoader;
+		this.fullTextHash = fullTextHash;
 	}
 
 	/**
@@ -158,12 +204,31 @@ public class DBCrdInfo extends AbstractDBElement implements
 	}
 
 	/**
-	 * get the full text of this crd
+	 * get the full text of this crd <br>
+	 * the text is loaded from the db if this crd does not have it
 	 * 
 	 * @return
 	 */
 	public final String getFullText() {
-		return this.fullText;
+		if (this.fullText != null) {
+			return this.fullText;
+		}
+		return this.textLoader.load(this.fullTextHash);
+	}
+
+	/**
+	 * get the hash value of the full text, which identifies the text in the
+	 * db
+	 * 
+	 * @return
+	 */
+	public final String getFullTextHash() {
+		String result = this.fullTextHash;
+		if (result == null) {
+			result = CRDTextCodec.digest(this.fullText);
+			this.fullTextHash = result;
+		}
+		return result;
 	}
 
 	@Override
@@ -0,0 +1,20 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data;
+
+/**
+ * An interface to load full texts of crds that are stored separately from
+ * the crds
+ * 
+ * @author k-hotta
+ * 
+ */
+public interface ICRDTextLoader {
+
+	/**
+	 * load the text having the given hash value
+	 * 
+	 * @param textHash
+	 * @return
+	 */
+	public String load(final String textHash);
+
+}
@@ -0,0 +1,77 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data;
+
+/**
+ * A class that has functions to store min-hash signatures of code fragments
+ * <br>
+ * each signature is stored as a string having eight hex digits for each
+ * value
+ * 
+ * @author k-hotta
+ * 
+ */
+public final class SignatureCodec {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * the number of digits for each value
+	 */
+	private static final int DIGITS = 8;
+
+	private SignatureCodec() {
+	}
+
+	/**
+	 * encode the given signature
+	 * 
+	 * @param signature
+	 * @return the encoded string, or null if the signature is null
+	 */
+	public static String encode(final int[] signature) {
+		if (signature == null) {
+			return null;
+		}
+
+		final char[] result = new char[signature.length * DIGITS];
+		for (int i = 0; i < signature.length; i++) {
+			for (int j = 0; j < DIGITS; j++) {
+				result[i * DIGITS + j] = HEX_DIGITS[(signature[i] >>> ((DIGITS
+						- j - 1) * 4)) & 0x0f];
+			}
+		}
+		return new String(result);
+	}
+
+	/**
+	 * decode the given string
+	 * 
+	 * @param str
+	 * @return the signature, or null if the string is null or empty
+	 */
+	public static int[] decode(final String str) {
+		if (str == null || str.isEmpty()) {
+			return null;
+		}
+
+		if (str.length() % DIGITS != 0) {
+			throw new IllegalArgumentException("illegal signature: " + str);
+		}
+
+		final int[] result = new int[str.length() / DIGITS];
+		for (int i = 0; i < result.length; i++) {
+			int value = 0;
+			for (int j = 0; j < DIGITS; j++) {
+				final int digit = Character.digit(str.charAt(i * DIGITS + j),
+						16);
+				if (digit < 0) {
+					throw new IllegalArgumentException("illegal signature: "
+							+ str);
+				}
+				value = (value << 4) | digit;
+			}
+			result[i] = value;
+		}
+		return result;
+	}
+
+}
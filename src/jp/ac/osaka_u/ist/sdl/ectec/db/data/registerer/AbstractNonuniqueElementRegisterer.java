@@ -26,7 +26,7 @@ public abstract class AbstractNonuniqueElementRegisterer<T extends AbstractDBEle
 	public synchronized void register(final Collection<T> elements)
 			throws SQLException {
 		final PreparedStatement pstmt = dbManager
-				.createPreparedStatement(createPreparedStatementQuery());
+				.createInsertStatement(createPreparedStatementQuery());
 
 		try {
 			int count = 0;
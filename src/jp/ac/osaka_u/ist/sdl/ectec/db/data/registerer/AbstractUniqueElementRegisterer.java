@@ -38,7 +38,7 @@ public abstract class AbstractUniqueElementRegisterer<T extends AbstractDBElemen
 	public synchronized void register(final Collection<T> elements)
 			throws SQLException {
 		final PreparedStatement pstmt = dbManager
-				.createPreparedStatement(createPreparedStatementQueue());
+				.createInsertStatement(createPreparedStatementQueue());
 
 		try {
 			int count = 0;
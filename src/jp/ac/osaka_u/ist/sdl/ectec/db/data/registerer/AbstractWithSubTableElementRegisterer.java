@@ -36,7 +36,7 @@ public abstract class AbstractWithSubTableElementRegisterer<T extends AbstractDB
 	public synchronized void register(final Collection<T> elements)
 			throws SQLException {
 		final PreparedStatement mainPstmt = dbManager
-				.createPreparedStatement(createMainPreparedStatementQuery());
+				.createInsertStatement(createMainPreparedStatementQuery());
 
 		final Map<String, PreparedStatement> subPstmts = makePreparedStatementsForSubElements();
 
@@ -97,7 +97,7 @@ public abstract class AbstractWithSubTableElementRegisterer<T extends AbstractDB
 		for (final Map.Entry<String, String> subPstmtQueryEntry : preparedStatementQueries
 				.entrySet()) {
 			final PreparedStatement subPstmt = dbManager
-					.createPreparedStatement(subPstmtQueryEntry.getValue());
+					.createInsertStatement(subPstmtQueryEntry.getValue());
 			subPstmts.put(subPstmtQueryEntry.getKey(), subPstmt);
 		}
 
@@ -2,27 +2,144 @@ package jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CRDTextCodec;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
 
 /**
- * A class that represents a registerer for crd
+ * A class that represents a registerer for crd <br>
+ * the full texts of crds are registered into another table with their hash
+ * values, so that a text shared by many crds is stored only once
  * 
  * @author k-hotta
  * 
  */
 public class CRDRegisterer extends AbstractUniqueElementRegisterer<DBCrdInfo> {
 
+	/**
+	 * the maximum number of hash values of texts that are remembered as
+	 * registered ones
+	 */
+	private static final int REGISTERED_TEXTS_CAPACITY = 16384;
+
+	/**
+	 * whether texts are compressed
+	 */
+	private final boolean compressTexts;
+
+	/**
+	 * the hash values of texts registered recently <br>
+	 * texts having these values are not registered again
+	 */
+	private final Map<String, Boolean> registeredTexts;
+
 	/**
 	 * the constructor
 	 * 
 	 * @param dbManager
 	 * @param maxBatchCount
+	 * @param compressTexts
 	 */
-	public CRDRegisterer(DBConnectionManager dbManager, int maxBatchCount) {
+	public CRDRegisterer(DBConnectionManager dbManager, int maxBatchCount,
+			boolean compressTexts) {
 		super(dbManager, maxBatchCount);
+		this.compressTexts = compressTexts;
+		this.registeredTexts = new LinkedHashMap<String, Boolean>(16, 0.75f,
+				true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, Boolean> eldest) {
+				return size() > REGISTERED_TEXTS_CAPACITY;
+			}
+
+		};
+	}
+
+	/**
+	 * the constructor
+	 * 
+	 * @param dbManager
+	 * @param maxBatchCount
+	 */
+	public CRDRegisterer(DBConnectionManager dbManager, int maxBatchCount) {
+		this(dbManager, maxBatchCount, false);
+	}
+
+	@Override
+	public synchronized void register(final Collection<DBCrdInfo> elements)
+			throws SQLException {
+		// the texts are registered with an ordinary statement in the bulk
+		// transaction of the crds
+		dbManager.beginBulkTransaction();
+		final Set<String> textHashes = registerTexts(elements);
+		super.register(elements);
+		for (final String textHash : textHashes) {
+			registeredTexts.put(textHash, Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * register the full texts of the given crds that have not been registered
+	 * yet <br>
+	 * the texts are committed together with the crds
+	 * 
+	 * @param elements
+	 * @return the hash values of the texts
+	 * @throws SQLException
+	 */
+	private Set<String> registerTexts(final Collection<DBCrdInfo> elements)
+			throws SQLException {
+		final Set<String> result = new HashSet<String>();
+
+		// texts must be checked one by one whether they have been registered,
+		// which bulk loaders cannot do
+		final PreparedStatement pstmt = dbManager
+				.createPreparedStatement("insert into CRD_TEXT select ?,?,? where not exists (select 1 from CRD_TEXT where TEXT_HASH = ?)");
+
+		try {
+			int count = 0;
+
+			for (final DBCrdInfo element : elements) {
+				final String textHash = element.getFullTextHash();
+				if (!result.add(textHash)
+						|| registeredTexts.containsKey(textHash)) {
+					continue;
+				}
+
+				final byte[] bytes = CRDTextCodec.encode(element
+						.getFullText());
+				final byte[] compressed = (compressTexts) ? CRDTextCodec
+						.compress(bytes) : null;
+
+				int column = 0;
+				pstmt.setString(++column, textHash);
+				pstmt.setInt(++column, (compressed == null) ? 0 : 1);
+				pstmt.setBytes(++column, (compressed == null) ? bytes
+						: compressed);
+				pstmt.setString(++column, textHash);
+				pstmt.addBatch();
+				if ((++count % maxBatchCount) == 0) {
+					pstmt.executeBatch();
+					pstmt.clearBatch();
+				}
+			}
+
+			pstmt.executeBatch();
+		} finally {
+			pstmt.close();
+		}
+
+		return result;
 	}
 
 	@Override
@@ -42,7 +159,7 @@ public class CRDRegisterer extends AbstractUniqueElementRegisterer<DBCrdInfo> {
 		pstmt.setInt(++column, element.getCm());
 		pstmt.setString(++column,
 				StringUtils.convertListToString(element.getAncestors()));
-		pstmt.setString(++column, element.getFullText());
+		pstmt.setString(++column, element.getFullTextHash());
 	}
 
 }
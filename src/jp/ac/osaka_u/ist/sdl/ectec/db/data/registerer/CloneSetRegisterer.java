@@ -28,7 +28,7 @@ public class CloneSetRegisterer extends
 
 	@Override
 	protected String createPreparedStatementQuery() {
-		return "insert into CLONE_SET values (?,?,?)";
+		return "insert into CLONE_SET values (?,?,?,?)";
 	}
 
 	@Override
@@ -37,12 +37,14 @@ public class CloneSetRegisterer extends
 		final long elementId = element.getId();
 		final long ownerCombinedRevisionId = element.getCombinedRevisionId();
 		final Collection<Long> codeFragments = element.getElements();
+		final double similarity = element.getSimilarity();
 
 		for (final long codeFragment : codeFragments) {
 			int column = 0;
 			pstmt.setLong(++column, elementId);
 			pstmt.setLong(++column, ownerCombinedRevisionId);
 			pstmt.setLong(++column, codeFragment);
+			pstmt.setDouble(++column, similarity);
 			pstmt.addBatch();
 		}
 
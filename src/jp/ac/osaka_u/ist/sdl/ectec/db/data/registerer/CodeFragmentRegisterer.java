@@ -2,9 +2,11 @@ package jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.SignatureCodec;
 
 /**
  * A class that represents a registerer for code fragments
@@ -28,7 +30,7 @@ public class CodeFragmentRegisterer extends
 
 	@Override
 	protected String createPreparedStatementQueue() {
-		return "insert into CODE_FRAGMENT values (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+		return "insert into CODE_FRAGMENT values (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
 	}
 
 	@Override
@@ -52,5 +54,12 @@ public class CodeFragmentRegisterer extends
 
 		final int fileDeletedAtEndInt = (element.isFileDeletedAtEnd()) ? 1 : 0;
 		pstmt.setInt(++column, fileDeletedAtEndInt);
+
+		final String signature = SignatureCodec.encode(element.getSignature());
+		if (signature == null) {
+			pstmt.setNull(++column, Types.VARCHAR);
+		} else {
+			pstmt.setString(++column, signature);
+		}
 	}
 }
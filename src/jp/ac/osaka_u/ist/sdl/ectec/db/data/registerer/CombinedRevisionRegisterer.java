@@ -3,18 +3,30 @@ package jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
 
 /**
- * A class that represents a registerer for combined revisions
- * 
+ * A class that represents a registerer for combined revisions <br>
+ * combined revisions are stored as the intervals of combined revisions in
+ * which each original revision is included, so that a combined revision that
+ * changes the revision of only one repository costs only one row <br>
+ * every combined revision starts at least one interval, and so all the
+ * combined revisions must be registered at once
+ *
  * @author k-hotta
- * 
+ *
  */
 public class CombinedRevisionRegisterer extends
-		AbstractNonuniqueElementRegisterer<DBCombinedRevisionInfo> {
+		AbstractElementRegisterer<DBCombinedRevisionInfo> {
 
 	public CombinedRevisionRegisterer(DBConnectionManager dbManager,
 			int maxBatchCount) {
@@ -22,25 +34,89 @@ public class CombinedRevisionRegisterer extends
 	}
 
 	@Override
-	protected String createPreparedStatementQuery() {
-		return "insert into COMBINED_REVISION values (?,?)";
-	}
+	public synchronized void register(
+			final Collection<DBCombinedRevisionInfo> elements)
+			throws SQLException {
+		final SortedSet<DBCombinedRevisionInfo> sortedElements = new TreeSet<DBCombinedRevisionInfo>(
+				elements);
+		final PreparedStatement pstmt = dbManager
+				.createInsertStatement("insert into COMBINED_REVISION_INTERVAL values (?,?,?)");
 
-	@Override
-	protected int fillPreparedStatement(PreparedStatement pstmt,
-			DBCombinedRevisionInfo element) throws SQLException {
-		final long elementId = element.getId();
-		final Collection<Long> originalRevisions = element.getOriginalRevisions();
-		
-		for (final long originalRevisionId : originalRevisions) {
-			int column = 0;
-			pstmt.setLong(++column, elementId);
-			pstmt.setLong(++column, originalRevisionId);
-			
-			pstmt.addBatch();
+		try {
+			// original revision -> the start of its open interval
+			final Map<Long, Long> openIntervals = new LinkedHashMap<Long, Long>();
+
+			int count = 0;
+			long previousId = -1;
+
+			for (final DBCombinedRevisionInfo element : sortedElements) {
+				final long id = element.getId();
+				final Set<Long> originalRevisions = new LinkedHashSet<Long>(
+						element.getOriginalRevisions());
+
+				final Iterator<Map.Entry<Long, Long>> it = openIntervals
+						.entrySet().iterator();
+				while (it.hasNext()) {
+					final Map.Entry<Long, Long> interval = it.next();
+					if (!originalRevisions.contains(interval.getKey())) {
+						count += addInterval(pstmt, interval.getKey(),
+								interval.getValue(), previousId);
+						it.remove();
+					}
+				}
+
+				boolean opened = false;
+				for (final long originalRevision : originalRevisions) {
+					if (!openIntervals.containsKey(originalRevision)) {
+						openIntervals.put(originalRevision, id);
+						opened = true;
+					}
+				}
+
+				if (!opened && !openIntervals.isEmpty()) {
+					// split an interval so that this revision starts one
+					final Map.Entry<Long, Long> interval = openIntervals
+							.entrySet().iterator().next();
+					count += addInterval(pstmt, interval.getKey(),
+							interval.getValue(), previousId);
+					interval.setValue(id);
+				}
+
+				previousId = id;
+
+				if (count >= maxBatchCount) {
+					pstmt.executeBatch();
+					pstmt.clearBatch();
+					count = 0;
+				}
+			}
+
+			for (final Map.Entry<Long, Long> interval : openIntervals
+					.entrySet()) {
+				count += addInterval(pstmt, interval.getKey(),
+						interval.getValue(), previousId);
+			}
+
+			if (count > 0) {
+				pstmt.executeBatch();
+			}
+
+			dbManager.commit();
+		} finally {
+			pstmt.close();
 		}
-		
-		return element.getOriginalRevisions().size();
+	}
+
+	private int addInterval(final PreparedStatement pstmt,
+			final long originalRevisionId, final long start, final long end)
+			throws SQLException {
+		int column = 0;
+		pstmt.setLong(++column, originalRevisionId);
+		pstmt.setLong(++column, start);
+		pstmt.setLong(++column, end);
+		pstmt.addBatch();
+
+		return 1;
 	}
 
 }
@@ -3,6 +3,7 @@ package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collections;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -37,6 +38,37 @@ public abstract class AbstractDBSubTableElementRetriever<T extends AbstractDBSub
 		return Collections.unmodifiableSortedMap(result);
 	}
 
+	/**
+	 * the keys of sub table elements are serial numbers in each result, so
+	 * they are re-numbered after all the parts are sorted together
+	 */
+	@Override
+	protected SortedMap<Long, T> merge(final List<SortedMap<Long, T>> parts) {
+		final SortedSet<T> elements = new TreeSet<T>(
+				new AbstractDBSubTableElementInfoComparator<T>());
+		for (final SortedMap<Long, T> part : parts) {
+			elements.addAll(part.values());
+		}
+
+		final SortedMap<Long, T> result = new TreeMap<Long, T>();
+		long count = 0;
+		for (T element : elements) {
+			result.put(count++, element);
+		}
+
+		return result;
+	}
+
+	@Override
+	protected ElementReader<T> createReader() {
+		return new ElementReader<T>() {
+			@Override
+			T read(final ResultSet rs) throws SQLException {
+				return (rs.next()) ? makeInstance(rs) : null;
+			}
+		};
+	}
+
 	protected abstract T makeInstance(ResultSet rs) throws SQLException;
 
 }
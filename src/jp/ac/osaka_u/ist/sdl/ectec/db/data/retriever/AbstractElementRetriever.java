@@ -1,20 +1,27 @@
 package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.AbstractDBElement;
+import jp.ac.osaka_u.ist.sdl.ectec.settings.Constants;
 
 /**
- * An abstract class to retrieve elements from db
+ * An abstract class to retrieve elements from db <br>
+ * retrievers can be called from multiple threads at the same time, and each
+ * thread retrieves elements with the connection given by
+ * DBConnectionManager.getReadConnection() while locking it <br>
+ * a cursor must be read by the thread that opened it
  * 
  * @author k-hotta
  * 
@@ -27,8 +34,14 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 	 */
 	protected final DBConnectionManager dbManager;
 
+	/**
+	 * the engine to retrieve elements with a large number of ids
+	 */
+	private final IdLookupEngine<T> lookupEngine;
+
 	public AbstractElementRetriever(final DBConnectionManager dbManager) {
 		this.dbManager = dbManager;
+		this.lookupEngine = new IdLookupEngine<T>(this, dbManager);
 	}
 
 	/**
@@ -38,24 +51,27 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, T> retrieve(final String query)
+	public SortedMap<Long, T> retrieve(final String query)
 			throws SQLException {
 		Statement stmt = null;
 		ResultSet rs = null;
 		SortedMap<Long, T> result = null;
 
-		try {
-			stmt = dbManager.createStatement();
-			rs = stmt.executeQuery(query);
-
-			result = instantiate(rs);
-		} finally {
-			if (stmt != null) {
-				stmt.close();
-			}
-
-			if (rs != null) {
-				rs.close();
+		final Connection connection = dbManager.getReadConnection();
+		synchronized (connection) {
+			try {
+				stmt = connection.createStatement();
+				rs = stmt.executeQuery(query);
+
+				result = instantiate(rs);
+			} finally {
+				if (stmt != null) {
+					stmt.close();
+				}
+
+				if (rs != null) {
+					rs.close();
+				}
 			}
 		}
 
@@ -66,41 +82,105 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 		}
 	}
 
+	/**
+	 * open a cursor to read elements with the given query one by one <br>
+	 * rows that compose an element must be consecutive in the result of the
+	 * query
+	 * 
+	 * @param query
+	 * @param fetchSize
+	 *            the number of rows fetched from the db at once
+	 * @return
+	 * @throws SQLException
+	 */
+	public ElementCursor<T> openCursor(final String query,
+			final int fetchSize) throws SQLException {
+		final Connection connection = dbManager.getReadConnection();
+		synchronized (connection) {
+			final Statement stmt = connection.createStatement();
+			ResultSet rs = null;
+
+			try {
+				stmt.setFetchSize(fetchSize);
+				rs = stmt.executeQuery(query);
+			} finally {
+				if (rs == null) {
+					stmt.close();
+				}
+			}
+
+			return new ElementCursor<T>(stmt, rs, createReader(), connection);
+		}
+	}
+
+	/**
+	 * open a cursor to read elements with the given query one by one with
+	 * the default fetch size
+	 * 
+	 * @param query
+	 * @return
+	 * @throws SQLException
+	 */
+	public ElementCursor<T> openCursor(final String query)
+			throws SQLException {
+		return openCursor(query, Constants.DEFAULT_FETCH_SIZE);
+	}
+
+	/**
+	 * open a cursor to read all the elements stored into the db one by one in
+	 * the order of their ids
+	 * 
+	 * @param fetchSize
+	 *            the number of rows fetched from the db at once
+	 * @return
+	 * @throws SQLException
+	 */
+	public ElementCursor<T> openCursorForAll(final int fetchSize)
+			throws SQLException {
+		final String query = "select * from " + getTableName() + " order by "
+				+ getIdColumnName();
+		return openCursor(query, fetchSize);
+	}
+
+	/**
+	 * open a cursor to read all the elements stored into the db one by one in
+	 * the order of their ids with the default fetch size
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	public ElementCursor<T> openCursorForAll()
+			throws SQLException {
+		return openCursorForAll(Constants.DEFAULT_FETCH_SIZE);
+	}
+
 	/**
 	 * retrieve all elements stored into the db
 	 * 
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, T> retrieveAll() throws SQLException {
+	public SortedMap<Long, T> retrieveAll() throws SQLException {
 		final String query = "select * from " + getTableName();
 		return retrieve(query);
 	}
 
 	/**
-	 * retrieve elements having one of the given id
+	 * retrieve elements having one of the given id <br>
+	 * the ids are bound to cached prepared statements chunk by chunk
 	 * 
 	 * @param ids
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, T> retrieveWithIds(
+	public SortedMap<Long, T> retrieveWithIds(
 			final Collection<Long> ids) throws SQLException {
 		if (ids.isEmpty()) {
 			return new TreeMap<Long, T>();
 		}
-		final StringBuilder builder = new StringBuilder();
-		builder.append("select * from " + getTableName() + " where "
-				+ getIdColumnName() + " in (");
-
-		for (final long id : ids) {
-			builder.append(id + ",");
-		}
 
-		builder.deleteCharAt(builder.length() - 1);
-		builder.append(")");
-
-		return retrieve(builder.toString());
+		return Collections.unmodifiableSortedMap(merge(lookupEngine
+				.retrieveWithIds(toUniqueArray(ids))));
 	}
 
 	/**
@@ -110,7 +190,7 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, T> retrieveWithIds(long... ids)
+	public SortedMap<Long, T> retrieveWithIds(long... ids)
 			throws SQLException {
 		final Set<Long> idSet = new HashSet<Long>();
 		for (final long id : ids) {
@@ -121,7 +201,9 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 	}
 
 	/**
-	 * retrieve elements NOT having one of the given id
+	 * retrieve elements NOT having one of the given id <br>
+	 * the ids are stored into a temporary table instead of being embedded in
+	 * the query
 	 * 
 	 * @param ids
 	 * @return
@@ -132,18 +214,8 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 		if (ids.isEmpty()) {
 			return new TreeMap<Long, T>();
 		}
-		final StringBuilder builder = new StringBuilder();
-		builder.append("select * from " + getTableName() + " where "
-				+ getIdColumnName() + " not in (");
-
-		for (final long id : ids) {
-			builder.append(id + ",");
-		}
 
-		builder.deleteCharAt(builder.length() - 1);
-		builder.append(")");
-
-		return retrieve(builder.toString());
+		return lookupEngine.retrieveWithoutIds(toUniqueArray(ids));
 	}
 
 	/**
@@ -163,13 +235,51 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 		return retrieveWithoutIds(idSet);
 	}
 
+	/**
+	 * merge the elements retrieved separately into one map
+	 * 
+	 * @param parts
+	 * @return
+	 */
+	protected SortedMap<Long, T> merge(final List<SortedMap<Long, T>> parts) {
+		final SortedMap<Long, T> result = new TreeMap<Long, T>();
+		for (final SortedMap<Long, T> part : parts) {
+			result.putAll(part);
+		}
+		return result;
+	}
+
+	/**
+	 * close the prepared statements cached by this retriever
+	 */
+	public synchronized void close() {
+		lookupEngine.close();
+	}
+
+	/**
+	 * convert the given ids into an array without duplicates
+	 * 
+	 * @param ids
+	 * @return
+	 */
+	private long[] toUniqueArray(final Collection<Long> ids) {
+		final Collection<Long> uniqueIds = (ids instanceof Set) ? ids
+				: new HashSet<Long>(ids);
+		final long[] result = new long[uniqueIds.size()];
+		int index = 0;
+		for (final long id : uniqueIds) {
+			result[index++] = id;
+		}
+		return result;
+	}
+
 	/**
 	 * get the maximum number of ID
 	 * 
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized long getMaximumId() throws SQLException {
+	public long getMaximumId() throws SQLException {
 		final String query = "select MAX(" + getIdColumnName() + ") from "
 				+ getTableName();
 		long result = 0;
@@ -177,17 +287,20 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 		Statement stmt = null;
 		ResultSet rs = null;
 
-		try {
-			stmt = dbManager.createStatement();
-			rs = stmt.executeQuery(query);
-
-			while (rs.next()) {
-				result = rs.getLong(1);
-				break;
+		final Connection connection = dbManager.getReadConnection();
+		synchronized (connection) {
+			try {
+				stmt = connection.createStatement();
+				rs = stmt.executeQuery(query);
+
+				while (rs.next()) {
+					result = rs.getLong(1);
+					break;
+				}
+			} finally {
+				stmt.close();
+				rs.close();
 			}
-		} finally {
-			stmt.close();
-			rs.close();
 		}
 
 		return result;
@@ -203,6 +316,13 @@ public abstract class AbstractElementRetriever<T extends AbstractDBElement> {
 	public abstract SortedMap<Long, T> instantiate(final ResultSet rs)
 			throws SQLException;
 
+	/**
+	 * create a reader to build elements one by one for a cursor
+	 * 
+	 * @return
+	 */
+	protected abstract ElementReader<T> createReader();
+
 	/**
 	 * get the name of the table
 	 * 
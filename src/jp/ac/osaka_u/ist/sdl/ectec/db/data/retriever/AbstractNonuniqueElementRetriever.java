@@ -32,9 +32,10 @@ public abstract class AbstractNonuniqueElementRetriever<T extends AbstractDBElem
 	public SortedMap<Long, T> instantiate(ResultSet rs) throws SQLException {
 		final SortedMap<Long, T> result = new TreeMap<Long, T>();
 		final SortedMap<Long, List<U>> rows = new TreeMap<Long, List<U>>();
+		final int columnCount = rs.getMetaData().getColumnCount();
 		
 		while (rs.next()) {
-			final U rowInstance = makeRowInstance(rs);
+			final U rowInstance = makeRowInstance(rs, columnCount);
 			final long id = rowInstance.getId();
 			
 			if (rows.containsKey(id)) {
@@ -54,7 +55,77 @@ public abstract class AbstractNonuniqueElementRetriever<T extends AbstractDBElem
 		return Collections.unmodifiableSortedMap(result);
 	}
 
+	/**
+	 * create a reader that collects consecutive rows having the same id into
+	 * an element
+	 */
+	@Override
+	protected ElementReader<T> createReader() {
+		return new ElementReader<T>() {
+
+			/**
+			 * the first row of the next element, which has already been read
+			 */
+			private U pendingRow = null;
+
+			/**
+			 * whether all the rows have been read
+			 */
+			private boolean exhausted = false;
+
+			/**
+			 * the number of columns, which is read with the first row
+			 */
+			private int columnCount = -1;
+
+			@Override
+			T read(final ResultSet rs) throws SQLException {
+				final List<U> rows = new ArrayList<U>();
+
+				if (pendingRow != null) {
+					rows.add(pendingRow);
+					pendingRow = null;
+				}
+
+				while (!exhausted) {
+					if (!rs.next()) {
+						exhausted = true;
+						break;
+					}
+
+					if (columnCount < 0) {
+						columnCount = rs.getMetaData().getColumnCount();
+					}
+					final U rowInstance = makeRowInstance(rs, columnCount);
+					if (!rows.isEmpty()
+							&& rows.get(0).getId() != rowInstance.getId()) {
+						pendingRow = rowInstance;
+						break;
+					}
+					rows.add(rowInstance);
+				}
+
+				return (rows.isEmpty()) ? null : createElement(rows);
+			}
+		};
+	}
+
 	protected abstract U makeRowInstance(ResultSet rs) throws SQLException;
+
+	/**
+	 * make an instance of row data with the number of columns in the result
+	 * set, which is read only once for each result set <br>
+	 * retrievers of tables having optional columns override this
+	 * 
+	 * @param rs
+	 * @param columnCount
+	 * @return
+	 * @throws SQLException
+	 */
+	protected U makeRowInstance(final ResultSet rs, final int columnCount)
+			throws SQLException {
+		return makeRowInstance(rs);
+	}
 	
 	protected abstract T createElement(Collection<U> rows);
 
@@ -27,15 +27,38 @@ public abstract class AbstractUniqueElementRetriever<T extends AbstractDBElement
 	public SortedMap<Long, T> instantiate(final ResultSet rs)
 			throws SQLException {
 		final SortedMap<Long, T> result = new TreeMap<Long, T>();
+		final int columnCount = rs.getMetaData().getColumnCount();
 
 		while (rs.next()) {
-			final T element = createElement(rs);
+			final T element = createElement(rs, columnCount);
 			result.put(element.getId(), element);
 		}
 
 		return Collections.unmodifiableSortedMap(result);
 	}
 
+	@Override
+	protected ElementReader<T> createReader() {
+		return new ElementReader<T>() {
+
+			/**
+			 * the number of columns, which is read with the first row
+			 */
+			private int columnCount = -1;
+
+			@Override
+			T read(final ResultSet rs) throws SQLException {
+				if (!rs.next()) {
+					return null;
+				}
+				if (columnCount < 0) {
+					columnCount = rs.getMetaData().getColumnCount();
+				}
+				return createElement(rs, columnCount);
+			}
+		};
+	}
+
 	/**
 	 * build an instance of element from the given record
 	 * 
@@ -45,4 +68,20 @@ public abstract class AbstractUniqueElementRetriever<T extends AbstractDBElement
 	 */
 	protected abstract T createElement(ResultSet rs) throws SQLException;
 
+	/**
+	 * build an instance of element from the given record with the number of
+	 * columns in the result set, which is read only once for each result set
+	 * <br>
+	 * retrievers of tables having optional columns override this
+	 * 
+	 * @param rs
+	 * @param columnCount
+	 * @return
+	 * @throws SQLException
+	 */
+	protected T createElement(final ResultSet rs, final int columnCount)
+			throws SQLException {
+		return createElement(rs);
+	}
+
 }
@@ -11,7 +11,9 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
 
 /**
- * A class for retrieving CRDs
+ * A class for retrieving CRDs <br>
+ * the full texts of the retrieved CRDs are loaded lazily with the text
+ * retriever
  * 
  * @author k-hotta
  * 
@@ -32,14 +34,14 @@ public class CRDRetriever extends AbstractUniqueElementRetriever<DBCrdInfo> {
 		final String normalizedAnchor = rs.getString(++column);
 		final int cm = rs.getInt(++column);
 		final String ancestorsStr = rs.getString(++column);
-		final String fullText = rs.getString(++column);
+		final String fullTextHash = rs.getString(++column);
 
 		final BlockType type = BlockType.valueOf(typeStr);
 		final List<Long> ancestors = new ArrayList<Long>();
 		StringUtils.convertStringToCollection(ancestors, ancestorsStr);
 
-		return new DBCrdInfo(id, type, head, anchor, normalizedAnchor, cm, ancestors,
-				fullText);
+		return new DBCrdInfo(id, type, head, anchor, normalizedAnchor, cm,
+				ancestors, fullTextHash, dbManager.getCrdTextRetriever());
 	}
 
 	@Override
@@ -0,0 +1,129 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CRDTextCodec;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.ICRDTextLoader;
+
+/**
+ * A class for retrieving full texts of crds <br>
+ * texts that have been retrieved recently are cached, because the same text
+ * is usually requested many times while crds are compared with each other
+ * 
+ * @author k-hotta
+ * 
+ */
+public class CRDTextRetriever implements ICRDTextLoader {
+
+	/**
+	 * the maximum number of cached texts
+	 */
+	private static final int CACHE_CAPACITY = 4096;
+
+	/**
+	 * the manager of the db connection
+	 */
+	private final DBConnectionManager dbManager;
+
+	/**
+	 * the texts retrieved recently
+	 */
+	private final Map<String, String> cache;
+
+	public CRDTextRetriever(final DBConnectionManager dbManager) {
+		this.dbManager = dbManager;
+		this.cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, String> eldest) {
+				return size() > CACHE_CAPACITY;
+			}
+
+		};
+	}
+
+	/**
+	 * load the text having the given hash value
+	 * 
+	 * @throws IllegalStateException
+	 *             if the text cannot be retrieved from the db
+	 */
+	@Override
+	public String load(final String textHash) {
+		synchronized (cache) {
+			final String cached = cache.get(textHash);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		final String text;
+		try {
+			text = retrieve(textHash);
+		} catch (Exception e) {
+			throw new IllegalStateException("cannot retrieve the text "
+					+ textHash, e);
+		}
+
+		synchronized (cache) {
+			cache.put(textHash, text);
+		}
+		return text;
+	}
+
+	/**
+	 * retrieve the text having the given hash value from the db
+	 * 
+	 * @param textHash
+	 * @return
+	 * @throws SQLException
+	 * @throws DataFormatException
+	 */
+	public String retrieve(final String textHash) throws SQLException,
+			DataFormatException {
+		final Connection connection = dbManager.getReadConnection();
+
+		// threads share the main connection unless the connection pool is
+		// used
+		synchronized (connection) {
+			final PreparedStatement pstmt = connection
+					.prepareStatement("select COMPRESSED, CONTENT from CRD_TEXT where TEXT_HASH = ?");
+			try {
+				pstmt.setString(1, textHash);
+				final ResultSet rs = pstmt.executeQuery();
+				try {
+					if (!rs.next()) {
+						throw new SQLException("the text " + textHash
+								+ " is not found");
+					}
+					final boolean compressed = rs.getInt(1) != 0;
+					return CRDTextCodec.decode(rs.getBytes(2), compressed);
+				} finally {
+					rs.close();
+				}
+			} finally {
+				pstmt.close();
+			}
+		}
+	}
+
+	/**
+	 * clear the cached texts
+	 */
+	public void close() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+}
@@ -82,7 +82,7 @@ public class CloneGenealogyRetriever extends
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, DBCloneGenealogyInfo> retrieveElementsInSpecifiedRevision(
+	public SortedMap<Long, DBCloneGenealogyInfo> retrieveElementsInSpecifiedRevision(
 			final long revisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getStartRevisionIdColumnName() + " <= " + revisionId
@@ -78,7 +78,7 @@ public class CloneSetLinkRetriever extends
 	 * @throws SQLException
 	 */
 	@Override
-	public synchronized SortedMap<Long, DBCloneSetLinkInfo> retrieveElementsWithBeforeCombinedRevision(
+	public SortedMap<Long, DBCloneSetLinkInfo> retrieveElementsWithBeforeCombinedRevision(
 			final long beforeRevisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getBeforeRevisionIdColumnName() + " = " + beforeRevisionId;
@@ -94,7 +94,7 @@ public class CloneSetLinkRetriever extends
 	 * @throws SQLException
 	 */
 	@Override
-	public synchronized SortedMap<Long, DBCloneSetLinkInfo> retrieveElementsWithAfterCombinedRevision(
+	public SortedMap<Long, DBCloneSetLinkInfo> retrieveElementsWithAfterCombinedRevision(
 			final long afterRevisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getAfterRevisionIdColumnName() + " = " + afterRevisionId;
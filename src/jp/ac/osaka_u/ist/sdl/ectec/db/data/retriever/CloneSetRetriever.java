@@ -56,12 +56,23 @@ public class CloneSetRetriever extends
 
 	@Override
 	protected CloneSetRowData makeRowInstance(ResultSet rs) throws SQLException {
+		return makeRowInstance(rs, rs.getMetaData().getColumnCount());
+	}
+
+	@Override
+	protected CloneSetRowData makeRowInstance(final ResultSet rs,
+			final int columnCount) throws SQLException {
 		int column = 0;
 		final long id = rs.getLong(++column);
 		final long ownerCombinedRevisionId = rs.getLong(++column);
 		final long elementId = rs.getLong(++column);
+		// tables created before similarities were stored have only exact
+		// clones
+		final double similarity = (column < columnCount) ? rs
+				.getDouble(++column) : 1.0;
 
-		return new CloneSetRowData(id, ownerCombinedRevisionId, elementId);
+		return new CloneSetRowData(id, ownerCombinedRevisionId, elementId,
+				similarity);
 	}
 
 	@Override
@@ -85,6 +96,7 @@ public class CloneSetRetriever extends
 		final long ownerCombinedRevisionId = aRow.getOwnerCombinedRevisionId();
 		final List<Long> listOfElementIds = new ArrayList<Long>(elementIds);
 
-		return new DBCloneSetInfo(id, ownerCombinedRevisionId, listOfElementIds);
+		return new DBCloneSetInfo(id, ownerCombinedRevisionId,
+				listOfElementIds, aRow.getSimilarity());
 	}
 }
@@ -12,11 +12,14 @@ class CloneSetRowData extends AbstractRowData {
 
 	private final long elementId;
 
+	private final double similarity;
+
 	CloneSetRowData(final long id, final long ownerCombinedRevisionId,
-			final long elementId) {
+			final long elementId, final double similarity) {
 		super(id);
 		this.ownerCombinedRevisionId = ownerCombinedRevisionId;
 		this.elementId = elementId;
+		this.similarity = similarity;
 	}
 
 	final long getOwnerCombinedRevisionId() {
@@ -27,4 +30,8 @@ class CloneSetRowData extends AbstractRowData {
 		return elementId;
 	}
 
+	final double getSimilarity() {
+		return similarity;
+	}
+
 }
@@ -85,7 +85,7 @@ public class CodeFragmentGenealogyRetriever extends
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, DBCodeFragmentGenealogyInfo> retrieveElementsInSpecifiedRevision(
+	public SortedMap<Long, DBCodeFragmentGenealogyInfo> retrieveElementsInSpecifiedRevision(
 			final long revisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getStartRevisionIdColumnName() + " <= " + revisionId
@@ -64,7 +64,7 @@ public class CodeFragmentLinkRetriever extends
 	 * @throws SQLException
 	 */
 	@Override
-	public synchronized SortedMap<Long, DBCodeFragmentLinkInfo> retrieveElementsWithBeforeCombinedRevision(
+	public SortedMap<Long, DBCodeFragmentLinkInfo> retrieveElementsWithBeforeCombinedRevision(
 			final long beforeRevisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getBeforeRevisionIdColumnName() + " = " + beforeRevisionId;
@@ -80,7 +80,7 @@ public class CodeFragmentLinkRetriever extends
 	 * @throws SQLException
 	 */
 	@Override
-	public synchronized SortedMap<Long, DBCodeFragmentLinkInfo> retrieveElementsWithAfterCombinedRevision(
+	public SortedMap<Long, DBCodeFragmentLinkInfo> retrieveElementsWithAfterCombinedRevision(
 			final long afterRevisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getAfterRevisionIdColumnName() + " = " + afterRevisionId;
@@ -1,11 +1,15 @@
 package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.SortedMap;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.SignatureCodec;
 
 /**
  * A class for retrieving code fragments from db
@@ -23,6 +27,12 @@ public class CodeFragmentRetriever extends
 	@Override
 	protected DBCodeFragmentInfo createElement(ResultSet rs)
 			throws SQLException {
+		return createElement(rs, rs.getMetaData().getColumnCount());
+	}
+
+	@Override
+	protected DBCodeFragmentInfo createElement(final ResultSet rs,
+			final int columnCount) throws SQLException {
 		int column = 0;
 		final long id = rs.getLong(++column);
 		final long ownerFileId = rs.getLong(++column);
@@ -38,13 +48,34 @@ public class CodeFragmentRetriever extends
 		final int fileAddedAtStartInt = rs.getInt(++column);
 		final int fileDeletedAtEndInt = rs.getInt(++column);
 
+		final int[] signature = getSignature(rs, ++column, columnCount);
+
 		final boolean fileAddedAtStart = (fileAddedAtStartInt == 1);
 		final boolean fileDeletedAtEnd = (fileDeletedAtEndInt == 1);
 
 		return new DBCodeFragmentInfo(id, ownerFileId, ownerRepositoryId,
 				crdId, startCombinedRevisionId, endCombinedRevisionId, hash,
 				hashForClone, startLine, endLine, size, fileAddedAtStart,
-				fileDeletedAtEnd);
+				fileDeletedAtEnd, signature);
+	}
+
+	/**
+	 * get the signature in the given column
+	 * 
+	 * @param rs
+	 * @param column
+	 * @param columnCount
+	 *            the number of columns in the result set
+	 * @return the signature, or null if it is not stored or the table does
+	 *         not have the column
+	 * @throws SQLException
+	 */
+	private int[] getSignature(final ResultSet rs, final int column,
+			final int columnCount) throws SQLException {
+		if (column > columnCount) {
+			return null;
+		}
+		return SignatureCodec.decode(rs.getString(column));
 	}
 
 	protected String getStartRevisionIdColumnName() {
@@ -72,7 +103,7 @@ public class CodeFragmentRetriever extends
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, DBCodeFragmentInfo> retrieveElementsInSpecifiedCombinedRevision(
+	public SortedMap<Long, DBCodeFragmentInfo> retrieveElementsInSpecifiedCombinedRevision(
 			final long combinedRevisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getStartRevisionIdColumnName() + " <= " + combinedRevisionId
@@ -82,4 +113,91 @@ public class CodeFragmentRetriever extends
 		return retrieve(query);
 	}
 
+	/**
+	 * retrieve elements that exist in the specified revision into a columnar
+	 * store without creating an instance for each of them
+	 * 
+	 * @param combinedRevisionId
+	 * @return
+	 * @throws SQLException
+	 */
+	public CodeFragmentStore retrieveStoreInSpecifiedCombinedRevision(
+			final long combinedRevisionId) throws SQLException {
+		final String query = "select * from " + getTableName() + " where "
+				+ getStartRevisionIdColumnName() + " <= " + combinedRevisionId
+				+ " AND " + getEndRevisionIdColumnName() + " >= "
+				+ combinedRevisionId + " order by " + getIdColumnName();
+
+		return retrieveStore(query);
+	}
+
+	/**
+	 * create a sweep that walks combined revisions with this retriever
+	 * 
+	 * @return
+	 */
+	public CodeFragmentSweep openSweep() {
+		return new CodeFragmentSweep(this);
+	}
+
+	/**
+	 * retrieve elements with the given query into a columnar store <br>
+	 * the result of the query must be sorted by the ids of elements
+	 * 
+	 * @param query
+	 * @return
+	 * @throws SQLException
+	 */
+	public CodeFragmentStore retrieveStore(final String query)
+			throws SQLException {
+		final CodeFragmentStore result = new CodeFragmentStore();
+		Statement stmt = null;
+		ResultSet rs = null;
+
+		final Connection connection = dbManager.getReadConnection();
+		synchronized (connection) {
+			try {
+				stmt = connection.createStatement();
+				rs = stmt.executeQuery(query);
+				final int columnCount = rs.getMetaData().getColumnCount();
+
+				while (rs.next()) {
+					int column = 0;
+					final long id = rs.getLong(++column);
+					final long ownerFileId = rs.getLong(++column);
+					final long ownerRepositoryId = rs.getLong(++column);
+					final long crdId = rs.getLong(++column);
+					final long startCombinedRevisionId = rs.getLong(++column);
+					final long endCombinedRevisionId = rs.getLong(++column);
+					final long hash = rs.getLong(++column);
+					final long hashForClone = rs.getLong(++column);
+					final int startLine = rs.getInt(++column);
+					final int endLine = rs.getInt(++column);
+					final int size = rs.getInt(++column);
+					final int fileAddedAtStartInt = rs.getInt(++column);
+					final int fileDeletedAtEndInt = rs.getInt(++column);
+					final int[] signature = getSignature(rs, ++column,
+							columnCount);
+
+					result.add(id, ownerFileId, ownerRepositoryId, crdId,
+							startCombinedRevisionId, endCombinedRevisionId,
+							hash, hashForClone, startLine, endLine, size,
+							fileAddedAtStartInt == 1,
+							fileDeletedAtEndInt == 1, signature);
+				}
+			} finally {
+				if (rs != null) {
+					rs.close();
+				}
+
+				if (stmt != null) {
+					stmt.close();
+				}
+			}
+		}
+
+		result.trimToSize();
+		return result;
+	}
+
 }
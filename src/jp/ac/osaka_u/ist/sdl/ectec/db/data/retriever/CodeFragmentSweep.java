@@ -0,0 +1,260 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
+
+/**
+ * A class that walks combined revisions in ascending order and keeps the code
+ * fragments alive in the current combined revision <br>
+ * each step retrieves only the fragments that have started or ended since
+ * the previous step with the indexes on the start and end combined
+ * revisions, instead of scanning all the fragments alive in the revision
+ * <br>
+ * the set of live fragments is updated only when it is requested, so that
+ * consumers that need only the differences do not pay for it <br>
+ * the pending differences are folded into the live fragments once they get as
+ * large as the live ones, which bounds the memory used by them <br>
+ * this class is not thread-safe
+ * 
+ * @author k-hotta
+ * 
+ */
+public class CodeFragmentSweep {
+
+	/**
+	 * the retriever for code fragments
+	 */
+	private final CodeFragmentRetriever retriever;
+
+	/**
+	 * whether this sweep has visited any combined revision
+	 */
+	private boolean positioned;
+
+	/**
+	 * the id of the current combined revision
+	 */
+	private long currentCombinedRevisionId;
+
+	/**
+	 * the fragments started at the current step
+	 */
+	private CodeFragmentStore startedFragments;
+
+	/**
+	 * the fragments ended at the current step
+	 */
+	private CodeFragmentStore endedFragments;
+
+	/**
+	 * the live fragments without the pending differences
+	 */
+	private CodeFragmentStore liveFragments;
+
+	/**
+	 * the started fragments that have not been applied to the live ones
+	 */
+	private final List<CodeFragmentStore> pendingStartedFragments;
+
+	/**
+	 * the ended fragments that have not been applied to the live ones
+	 */
+	private final List<CodeFragmentStore> pendingEndedFragments;
+
+	/**
+	 * the total number of fragments in the pending differences
+	 */
+	private long pendingCount;
+
+	public CodeFragmentSweep(final CodeFragmentRetriever retriever) {
+		this.retriever = retriever;
+		this.pendingStartedFragments = new ArrayList<CodeFragmentStore>();
+		this.pendingEndedFragments = new ArrayList<CodeFragmentStore>();
+		reset();
+	}
+
+	/**
+	 * move to the given combined revision <br>
+	 * if the given revision precedes the current one, this sweep starts over
+	 * from the given revision, which means that all the live fragments are
+	 * regarded as started ones
+	 * 
+	 * @param combinedRevisionId
+	 * @throws SQLException
+	 */
+	public void advanceTo(final long combinedRevisionId) throws SQLException {
+		if (positioned && combinedRevisionId == currentCombinedRevisionId) {
+			startedFragments = new CodeFragmentStore(1);
+			endedFragments = new CodeFragmentStore(1);
+			return;
+		}
+
+		if (!positioned || combinedRevisionId < currentCombinedRevisionId) {
+			reset();
+			startedFragments = retriever
+					.retrieveStoreInSpecifiedCombinedRevision(combinedRevisionId);
+			liveFragments = startedFragments;
+		} else {
+			startedFragments = retriever.retrieveStore(getStartedQuery(
+					currentCombinedRevisionId, combinedRevisionId));
+			endedFragments = retriever.retrieveStore(getEndedQuery(
+					currentCombinedRevisionId, combinedRevisionId));
+			pendingStartedFragments.add(startedFragments);
+			pendingEndedFragments.add(endedFragments);
+			pendingCount += startedFragments.size() + endedFragments.size();
+
+			// folding the differences at this point costs no more than the
+			// steps that have made them
+			if (pendingCount >= liveFragments.size()) {
+				applyPendingFragments();
+			}
+		}
+
+		positioned = true;
+		currentCombinedRevisionId = combinedRevisionId;
+	}
+
+	/**
+	 * whether this sweep has visited any combined revision
+	 * 
+	 * @return
+	 */
+	public boolean isPositioned() {
+		return positioned;
+	}
+
+	/**
+	 * get the id of the current combined revision
+	 * 
+	 * @return
+	 * @throws IllegalStateException
+	 *             if this sweep has not visited any combined revision
+	 */
+	public long getCurrentCombinedRevisionId() {
+		checkPositioned();
+		return currentCombinedRevisionId;
+	}
+
+	/**
+	 * whether this sweep can move to the given combined revision without
+	 * starting over <br>
+	 * this is always true before visiting any combined revision
+	 * 
+	 * @param combinedRevisionId
+	 * @return
+	 */
+	public boolean canAdvanceTo(final long combinedRevisionId) {
+		return !positioned || combinedRevisionId >= currentCombinedRevisionId;
+	}
+
+	/**
+	 * get the fragments that are alive in the current combined revision but
+	 * not in the previous one
+	 * 
+	 * @return
+	 */
+	public CodeFragmentStore getStartedFragments() {
+		checkPositioned();
+		return startedFragments;
+	}
+
+	/**
+	 * get the fragments that were alive in the previous combined revision but
+	 * are not in the current one
+	 * 
+	 * @return
+	 */
+	public CodeFragmentStore getEndedFragments() {
+		checkPositioned();
+		return endedFragments;
+	}
+
+	/**
+	 * get the fragments alive in the current combined revision <br>
+	 * the returned store is never modified by this sweep
+	 * 
+	 * @return
+	 */
+	public CodeFragmentStore getLiveFragments() {
+		checkPositioned();
+		applyPendingFragments();
+		return liveFragments;
+	}
+
+	/**
+	 * apply the pending differences to the live fragments
+	 */
+	private void applyPendingFragments() {
+		if (!pendingStartedFragments.isEmpty()) {
+			CodeFragmentStore started = new CodeFragmentStore(1);
+			for (final CodeFragmentStore pending : pendingStartedFragments) {
+				started = started.update(pending, new CodeFragmentStore(1));
+			}
+			CodeFragmentStore ended = new CodeFragmentStore(1);
+			for (final CodeFragmentStore pending : pendingEndedFragments) {
+				ended = ended.update(pending, new CodeFragmentStore(1));
+			}
+
+			liveFragments = liveFragments.update(started, ended);
+			pendingStartedFragments.clear();
+			pendingEndedFragments.clear();
+			pendingCount = 0;
+		}
+	}
+
+	private void reset() {
+		positioned = false;
+		currentCombinedRevisionId = 0;
+		startedFragments = new CodeFragmentStore(1);
+		endedFragments = new CodeFragmentStore(1);
+		liveFragments = new CodeFragmentStore(1);
+		pendingStartedFragments.clear();
+		pendingEndedFragments.clear();
+		pendingCount = 0;
+	}
+
+	private void checkPositioned() {
+		if (!positioned) {
+			throw new IllegalStateException(
+					"the sweep has not visited any combined revision");
+		}
+	}
+
+	/**
+	 * get the query to retrieve fragments alive in the current revision but
+	 * not in the previous one
+	 * 
+	 * @param previous
+	 * @param current
+	 * @return
+	 */
+	private String getStartedQuery(final long previous, final long current) {
+		return "select * from " + retriever.getTableName() + " where "
+				+ retriever.getStartRevisionIdColumnName() + " > " + previous
+				+ " AND " + retriever.getStartRevisionIdColumnName() + " <= "
+				+ current + " AND " + retriever.getEndRevisionIdColumnName()
+				+ " >= " + current + " order by "
+				+ retriever.getIdColumnName();
+	}
+
+	/**
+	 * get the query to retrieve fragments alive in the previous revision but
+	 * not in the current one
+	 * 
+	 * @param previous
+	 * @param current
+	 * @return
+	 */
+	private String getEndedQuery(final long previous, final long current) {
+		return "select * from " + retriever.getTableName() + " where "
+				+ retriever.getEndRevisionIdColumnName() + " >= " + previous
+				+ " AND " + retriever.getEndRevisionIdColumnName() + " < "
+				+ current + " AND " + retriever.getStartRevisionIdColumnName()
+				+ " <= " + previous + " order by "
+				+ retriever.getIdColumnName();
+	}
+
+}
@@ -4,22 +4,28 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CombinedRevisionIntervalIndex;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
 
 /**
- * A class for retrieving combined revisions
- * 
+ * A class for retrieving combined revisions <br>
+ * combined revisions are stored as the intervals in which each original
+ * revision is included, and the original revisions of each combined revision
+ * are reconstructed lazily from the intervals
+ *
  * @author k-hotta
- * 
+ *
  */
-public class CombinedRevisionRetriever
-		extends
-		AbstractNonuniqueElementRetriever<DBCombinedRevisionInfo, CombinedRevisionRowData> {
+public class CombinedRevisionRetriever extends
+		AbstractElementRetriever<DBCombinedRevisionInfo> {
 
 	public CombinedRevisionRetriever(final DBConnectionManager dbManager) {
 		super(dbManager);
@@ -27,47 +33,139 @@ public class CombinedRevisionRetriever
 
 	@Override
 	protected String getTableName() {
-		return "COMBINED_REVISION";
+		return "COMBINED_REVISION_INTERVAL";
 	}
 
 	@Override
 	protected String getIdColumnName() {
-		return "COMBINED_REVISION_ID";
+		return "START_COMBINED_REVISION_ID";
 	}
 
 	@Override
-	protected CombinedRevisionRowData makeRowInstance(ResultSet rs)
-			throws SQLException {
-		int column = 0;
-		final long id = rs.getLong(++column);
-		final long originalRevisionId = rs.getLong(++column);
+	public SortedMap<Long, DBCombinedRevisionInfo> instantiate(
+			final ResultSet rs) throws SQLException {
+		final CombinedRevisionIntervalIndex index = readIndex(rs);
+		final SortedMap<Long, DBCombinedRevisionInfo> result = new TreeMap<Long, DBCombinedRevisionInfo>();
+
+		for (final long id : index.getCombinedRevisionIds()) {
+			result.put(id, new DBCombinedRevisionInfo(id, index));
+		}
+
+		return Collections.unmodifiableSortedMap(result);
+	}
+
+	/**
+	 * create a reader that reads all the intervals at the first call, and
+	 * then returns the combined revisions one by one
+	 */
+	@Override
+	protected ElementReader<DBCombinedRevisionInfo> createReader() {
+		return new ElementReader<DBCombinedRevisionInfo>() {
 
-		return new CombinedRevisionRowData(id, originalRevisionId);
+			private CombinedRevisionIntervalIndex index = null;
+
+			private long[] ids = null;
+
+			private int position = 0;
+
+			@Override
+			DBCombinedRevisionInfo read(final ResultSet rs)
+					throws SQLException {
+				if (index == null) {
+					index = readIndex(rs);
+					ids = index.getCombinedRevisionIds();
+				}
+
+				if (position >= ids.length) {
+					return null;
+				}
+
+				final long id = ids[position++];
+				return new DBCombinedRevisionInfo(id, index);
+			}
+		};
 	}
 
+	/**
+	 * retrieve combined revisions having one of the given ids <br>
+	 * only the intervals overlapping the range of the given ids are read
+	 */
 	@Override
-	protected DBCombinedRevisionInfo createElement(
-			Collection<CombinedRevisionRowData> rows) {
-		CombinedRevisionRowData aRow = null;
-		final Set<Long> originalRevisionIds = new TreeSet<Long>();
-
-		for (final CombinedRevisionRowData row : rows) {
-			if (aRow == null) {
-				aRow = row;
+	public SortedMap<Long, DBCombinedRevisionInfo> retrieveWithIds(
+			final Collection<Long> ids) throws SQLException {
+		if (ids.isEmpty()) {
+			return new TreeMap<Long, DBCombinedRevisionInfo>();
+		}
+
+		final long min = Collections.min(ids);
+		final long max = Collections.max(ids);
+		final SortedMap<Long, DBCombinedRevisionInfo> candidates = retrieve("select * from "
+				+ getTableName()
+				+ " where START_COMBINED_REVISION_ID <= "
+				+ max + " and END_COMBINED_REVISION_ID >= " + min);
+
+		final SortedMap<Long, DBCombinedRevisionInfo> result = new TreeMap<Long, DBCombinedRevisionInfo>();
+		for (final long id : ids) {
+			final DBCombinedRevisionInfo element = candidates.get(id);
+			if (element != null) {
+				result.put(id, element);
 			}
+		}
+
+		return Collections.unmodifiableSortedMap(result);
+	}
+
+	/**
+	 * retrieve combined revisions NOT having any of the given ids <br>
+	 * the table of intervals is small enough to be read entirely
+	 */
+	@Override
+	public synchronized SortedMap<Long, DBCombinedRevisionInfo> retrieveWithoutIds(
+			final Collection<Long> ids) throws SQLException {
+		if (ids.isEmpty()) {
+			return new TreeMap<Long, DBCombinedRevisionInfo>();
+		}
 
-			originalRevisionIds.add(row.getOriginalRevisionId());
+		final Set<Long> idSet = new HashSet<Long>(ids);
+		final SortedMap<Long, DBCombinedRevisionInfo> result = new TreeMap<Long, DBCombinedRevisionInfo>();
+		for (final DBCombinedRevisionInfo element : retrieveAll().values()) {
+			if (!idSet.contains(element.getId())) {
+				result.put(element.getId(), element);
+			}
 		}
-		
-		if (aRow == null) {
-			return null;
+
+		return Collections.unmodifiableSortedMap(result);
+	}
+
+	/**
+	 * read all the intervals in the given result set into an index
+	 *
+	 * @param rs
+	 * @return
+	 * @throws SQLException
+	 */
+	private CombinedRevisionIntervalIndex readIndex(final ResultSet rs)
+			throws SQLException {
+		final List<long[]> rows = new ArrayList<long[]>();
+		while (rs.next()) {
+			int column = 0;
+			final long revisionId = rs.getLong(++column);
+			final long start = rs.getLong(++column);
+			final long end = rs.getLong(++column);
+			rows.add(new long[] { revisionId, start, end });
 		}
 
-		final long id = aRow.getId();
-		final List<Long> listOfOriginalRevisionIds = new ArrayList<Long>(
-				originalRevisionIds);
+		final long[] revisionIds = new long[rows.size()];
+		final long[] starts = new long[rows.size()];
+		final long[] ends = new long[rows.size()];
+		for (int i = 0; i < rows.size(); i++) {
+			final long[] row = rows.get(i);
+			revisionIds[i] = row[0];
+			starts[i] = row[1];
+			ends[i] = row[2];
+		}
 
-		return new DBCombinedRevisionInfo(id, listOfOriginalRevisionIds);
+		return new CombinedRevisionIntervalIndex(revisionIds, starts, ends);
 	}
 
 }
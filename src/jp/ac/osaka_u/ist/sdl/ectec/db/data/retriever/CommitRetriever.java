@@ -1,5 +1,6 @@
 package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -93,16 +94,19 @@ public class CommitRetriever extends
 	}
 
 	private int getIntWithQuery(final String query) throws SQLException {
-		final Statement stmt = dbManager.createStatement();
-		final ResultSet rs = stmt.executeQuery(query);
+		final Connection connection = dbManager.getReadConnection();
+		synchronized (connection) {
+			final Statement stmt = connection.createStatement();
+			final ResultSet rs = stmt.executeQuery(query);
 
-		rs.next();
-		final int result = rs.getInt(1);
+			rs.next();
+			final int result = rs.getInt(1);
 
-		stmt.close();
-		rs.close();
+			stmt.close();
+			rs.close();
 
-		return result;
+			return result;
+		}
 	}
 
 }
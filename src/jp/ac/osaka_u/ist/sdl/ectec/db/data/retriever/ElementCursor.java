@@ -0,0 +1,128 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.AbstractDBElement;
+
+/**
+ * A class to read elements one by one from an open result set <br>
+ * elements are instantiated only when they are requested, so that a scan over
+ * a large table does not need to keep all the elements in memory <br>
+ * a cursor must be closed after use <br>
+ * the connection of the cursor is locked whenever rows are read from it
+ *
+ * <pre>
+ * final ElementCursor&lt;DBCodeFragmentInfo&gt; cursor = retriever.openCursorForAll();
+ * try {
+ * 	DBCodeFragmentInfo fragment = null;
+ * 	while ((fragment = cursor.next()) != null) {
+ * 		...
+ * 	}
+ * } finally {
+ * 	cursor.close();
+ * }
+ * </pre>
+ *
+ * @author k-hotta
+ *
+ * @param <T>
+ */
+public class ElementCursor<T extends AbstractDBElement> {
+
+	/**
+	 * the statement
+	 */
+	private final Statement stmt;
+
+	/**
+	 * the result set
+	 */
+	private final ResultSet rs;
+
+	/**
+	 * the reader to build elements from rows
+	 */
+	private final ElementReader<T> reader;
+
+	/**
+	 * the object locked while the result set is used
+	 */
+	private final Object lock;
+
+	/**
+	 * the number of elements that have been read
+	 */
+	private long count;
+
+	/**
+	 * whether this cursor has been closed
+	 */
+	private boolean closed;
+
+	ElementCursor(final Statement stmt, final ResultSet rs,
+			final ElementReader<T> reader, final Object lock) {
+		this.stmt = stmt;
+		this.rs = rs;
+		this.reader = reader;
+		this.lock = lock;
+		this.count = 0;
+		this.closed = false;
+	}
+
+	/**
+	 * read the next element
+	 *
+	 * @return the next element, or null if there are no more elements
+	 * @throws SQLException
+	 */
+	public T next() throws SQLException {
+		if (closed) {
+			return null;
+		}
+
+		final T element;
+		synchronized (lock) {
+			element = reader.read(rs);
+		}
+		if (element == null) {
+			close();
+		} else {
+			count++;
+		}
+
+		return element;
+	}
+
+	/**
+	 * get the number of elements that have been read
+	 *
+	 * @return
+	 */
+	public final long getCount() {
+		return count;
+	}
+
+	/**
+	 * close the cursor <br>
+	 * calling this method more than once has no effect
+	 *
+	 * @throws SQLException
+	 */
+	public void close() throws SQLException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		synchronized (lock) {
+			try {
+				rs.close();
+			} finally {
+				stmt.close();
+			}
+		}
+	}
+
+}
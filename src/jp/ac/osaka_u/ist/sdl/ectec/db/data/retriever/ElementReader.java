@@ -0,0 +1,28 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.AbstractDBElement;
+
+/**
+ * An abstract class to build elements one by one from a result set <br>
+ * an instance is created for each cursor, so that it can keep the state of
+ * reading
+ *
+ * @author k-hotta
+ *
+ * @param <T>
+ */
+abstract class ElementReader<T extends AbstractDBElement> {
+
+	/**
+	 * read rows needed to build the next element and build it
+	 *
+	 * @param rs
+	 * @return the next element, or null if there are no more rows
+	 * @throws SQLException
+	 */
+	abstract T read(final ResultSet rs) throws SQLException;
+
+}
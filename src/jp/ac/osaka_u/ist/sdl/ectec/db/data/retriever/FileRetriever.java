@@ -62,7 +62,7 @@ public class FileRetriever extends AbstractUniqueElementRetriever<DBFileInfo> {
 	 * @return
 	 * @throws SQLException
 	 */
-	public synchronized SortedMap<Long, DBFileInfo> retrieveElementsInSpecifiedRevision(
+	public SortedMap<Long, DBFileInfo> retrieveElementsInSpecifiedRevision(
 			final long revisionId) throws SQLException {
 		final String query = "select * from " + getTableName() + " where "
 				+ getStartRevisionIdColumnName() + " <= " + revisionId
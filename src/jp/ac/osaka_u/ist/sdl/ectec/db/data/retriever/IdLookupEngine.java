@@ -0,0 +1,353 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.AbstractDBElement;
+
+/**
+ * A class to retrieve elements with a large number of ids <br>
+ * ids are split into chunks of a fixed size, and each chunk is retrieved with
+ * a prepared statement that is cached for each connection <br>
+ * if the db manager has more than one connection for lookups, the chunks are
+ * retrieved in parallel over the connections with the threads owned by the db
+ * manager <br>
+ * elements NOT having any of given ids are retrieved by joining a temporary
+ * table having the ids
+ *
+ * @author k-hotta
+ *
+ * @param <T>
+ */
+class IdLookupEngine<T extends AbstractDBElement> {
+
+	/**
+	 * the number of ids in a chunk <br>
+	 * this must not exceed the maximum number of host parameters of SQLite
+	 * (999)
+	 */
+	static final int CHUNK_SIZE = 500;
+
+	/**
+	 * the connection with which the current thread is retrieving chunks <br>
+	 * lookups nested in instantiating elements reuse it, so that they never
+	 * wait for the connections locked by other threads
+	 */
+	private static final ThreadLocal<Connection> CURRENT_CONNECTION = new ThreadLocal<Connection>();
+
+	/**
+	 * the retriever that uses this engine
+	 */
+	private final AbstractElementRetriever<T> retriever;
+
+	/**
+	 * the manager of the connection between db
+	 */
+	private final DBConnectionManager dbManager;
+
+	/**
+	 * the cached prepared statements for each connection
+	 */
+	private final Map<Connection, PreparedStatement> cachedStatements;
+
+	/**
+	 * the connections in which the temporary table has been created
+	 */
+	private final Set<Connection> tempTableConnections;
+
+	IdLookupEngine(final AbstractElementRetriever<T> retriever,
+			final DBConnectionManager dbManager) {
+		this.retriever = retriever;
+		this.dbManager = dbManager;
+		this.cachedStatements = new HashMap<Connection, PreparedStatement>();
+		this.tempTableConnections = new HashSet<Connection>();
+	}
+
+	/**
+	 * retrieve elements having one of the given ids <br>
+	 * the given ids must not be empty
+	 *
+	 * @param ids
+	 * @return the elements retrieved for each chunk
+	 * @throws SQLException
+	 */
+	List<SortedMap<Long, T>> retrieveWithIds(final long[] ids)
+			throws SQLException {
+		final List<long[]> chunks = split(ids);
+		final Connection currentConnection = CURRENT_CONNECTION.get();
+		if (currentConnection != null) {
+			return retrieveChunks(currentConnection, chunks, 0, 1);
+		}
+
+		final List<Connection> connections = dbManager.getLookupConnections();
+		final int parallelism = Math.min(connections.size(), chunks.size());
+
+		if (parallelism <= 1) {
+			return retrieveChunks(connections.get(0), chunks, 0, 1);
+		}
+
+		// the current thread takes the share of its own connection, and the
+		// others are taken by the threads of the extra lookup connections
+		final ExecutorService executor = dbManager.getLookupExecutor();
+		final List<Future<List<SortedMap<Long, T>>>> futures = new ArrayList<Future<List<SortedMap<Long, T>>>>();
+		for (int i = 1; i < parallelism; i++) {
+			final Connection connection = connections.get(i);
+			final int offset = i;
+			futures.add(executor.submit(new Callable<List<SortedMap<Long, T>>>() {
+				@Override
+				public List<SortedMap<Long, T>> call() throws Exception {
+					return retrieveChunks(connection, chunks, offset,
+							parallelism);
+				}
+			}));
+		}
+
+		final List<SortedMap<Long, T>> result = new ArrayList<SortedMap<Long, T>>();
+		result.addAll(retrieveChunks(connections.get(0), chunks, 0,
+				parallelism));
+
+		try {
+			for (final Future<List<SortedMap<Long, T>>> future : futures) {
+				result.addAll(future.get());
+			}
+			return result;
+
+		} catch (InterruptedException e) {
+			throw new SQLException("interrupted while retrieving elements", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			throw new SQLException("failed to retrieve elements", cause);
+		}
+	}
+
+	/**
+	 * retrieve elements NOT having any of the given ids <br>
+	 * the given ids must not be duplicated
+	 *
+	 * @param ids
+	 * @return
+	 * @throws SQLException
+	 */
+	SortedMap<Long, T> retrieveWithoutIds(final long[] ids)
+			throws SQLException {
+		// the temporary table is visible only in the connection creating it,
+		// so that all the statements are executed on the same connection
+		final Connection connection = dbManager.getReadConnection();
+		final String tempTableName = getTempTableName();
+
+		synchronized (connection) {
+			prepareTempTable(connection, tempTableName);
+
+			try {
+				final PreparedStatement pstmt = connection
+						.prepareStatement("insert into " + tempTableName
+								+ " values (?)");
+				try {
+					int count = 0;
+					for (final long id : ids) {
+						pstmt.setLong(1, id);
+						pstmt.addBatch();
+						if ((++count % CHUNK_SIZE) == 0) {
+							pstmt.executeBatch();
+							pstmt.clearBatch();
+						}
+					}
+					pstmt.executeBatch();
+				} finally {
+					pstmt.close();
+				}
+
+				final Statement stmt = connection.createStatement();
+				try {
+					final ResultSet rs = stmt.executeQuery("select * from "
+							+ retriever.getTableName() + " where "
+							+ retriever.getIdColumnName()
+							+ " not in (select ID from " + tempTableName + ")");
+					try {
+						return Collections.unmodifiableSortedMap(retriever
+								.instantiate(rs));
+					} finally {
+						rs.close();
+					}
+				} finally {
+					stmt.close();
+				}
+			} finally {
+				final Statement stmt = connection.createStatement();
+				try {
+					stmt.executeUpdate("delete from " + tempTableName);
+				} finally {
+					stmt.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * close all the cached statements
+	 */
+	synchronized void close() {
+		for (final PreparedStatement pstmt : cachedStatements.values()) {
+			try {
+				pstmt.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+		cachedStatements.clear();
+
+		synchronized (tempTableConnections) {
+			tempTableConnections.clear();
+		}
+	}
+
+	/**
+	 * retrieve every step-th chunk starting from the offset with the given
+	 * connection
+	 *
+	 * @param connection
+	 * @param chunks
+	 * @param offset
+	 * @param step
+	 * @return
+	 * @throws SQLException
+	 */
+	private List<SortedMap<Long, T>> retrieveChunks(
+			final Connection connection, final List<long[]> chunks,
+			final int offset, final int step) throws SQLException {
+		final List<SortedMap<Long, T>> result = new ArrayList<SortedMap<Long, T>>();
+		final PreparedStatement pstmt = getStatement(connection);
+
+		// the connection and its statement are shared by threads
+		synchronized (connection) {
+			final Connection outerConnection = CURRENT_CONNECTION.get();
+			CURRENT_CONNECTION.set(connection);
+			try {
+				for (int i = offset; i < chunks.size(); i += step) {
+					final long[] chunk = chunks.get(i);
+					for (int j = 0; j < CHUNK_SIZE; j++) {
+						// the last chunk is padded with its last id
+						pstmt.setLong(j + 1,
+								chunk[Math.min(j, chunk.length - 1)]);
+					}
+
+					final ResultSet rs = pstmt.executeQuery();
+					try {
+						result.add(retriever.instantiate(rs));
+					} finally {
+						rs.close();
+					}
+				}
+			} finally {
+				CURRENT_CONNECTION.set(outerConnection);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * get the cached statement for the given connection, or create it if it
+	 * has not been created
+	 *
+	 * @param connection
+	 * @return
+	 * @throws SQLException
+	 */
+	private synchronized PreparedStatement getStatement(
+			final Connection connection) throws SQLException {
+		PreparedStatement pstmt = cachedStatements.get(connection);
+		if (pstmt == null) {
+			final StringBuilder builder = new StringBuilder();
+			builder.append("select * from " + retriever.getTableName()
+					+ " where " + retriever.getIdColumnName() + " in (");
+			for (int i = 0; i < CHUNK_SIZE; i++) {
+				builder.append((i == 0) ? "?" : ",?");
+			}
+			builder.append(")");
+
+			pstmt = connection.prepareStatement(builder.toString());
+			cachedStatements.put(connection, pstmt);
+		}
+		return pstmt;
+	}
+
+	/**
+	 * create the temporary table in the given connection if it has not been
+	 * created
+	 *
+	 * @param connection
+	 * @param tempTableName
+	 * @throws SQLException
+	 */
+	private void prepareTempTable(final Connection connection,
+			final String tempTableName) throws SQLException {
+		synchronized (tempTableConnections) {
+			if (tempTableConnections.contains(connection)) {
+				return;
+			}
+
+			// some dbms refuse to create even temporary tables with
+			// read-only connections
+			final boolean readOnly = connection.isReadOnly();
+			if (readOnly) {
+				connection.setReadOnly(false);
+			}
+			try {
+				final Statement stmt = connection.createStatement();
+				try {
+					stmt.executeUpdate("create temporary table if not exists "
+							+ tempTableName + "(ID BIGINT PRIMARY KEY)");
+				} finally {
+					stmt.close();
+				}
+			} finally {
+				if (readOnly) {
+					connection.setReadOnly(true);
+				}
+			}
+			tempTableConnections.add(connection);
+		}
+	}
+
+	private String getTempTableName() {
+		return "TEMP_IDS_" + retriever.getTableName();
+	}
+
+	/**
+	 * split the given ids into chunks
+	 *
+	 * @param ids
+	 * @return
+	 */
+	private static List<long[]> split(final long[] ids) {
+		final List<long[]> result = new ArrayList<long[]>();
+		for (int from = 0; from < ids.length; from += CHUNK_SIZE) {
+			final int to = Math.min(from + CHUNK_SIZE, ids.length);
+			final long[] chunk = new long[to - from];
+			System.arraycopy(ids, from, chunk, 0, chunk.length);
+			result.add(chunk);
+		}
+		return result;
+	}
+
+}
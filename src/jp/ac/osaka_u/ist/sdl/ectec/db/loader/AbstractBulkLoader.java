@@ -0,0 +1,163 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.loader;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An abstract class having common functions of bulk loaders <br>
+ * each subclass has only to implement how to load buffered rows into a table
+ *
+ * @author k-hotta
+ *
+ */
+public abstract class AbstractBulkLoader implements IBulkLoader {
+
+	/**
+	 * the logger
+	 */
+	protected static final Logger logger = LoggingManager
+			.getLogger(AbstractBulkLoader.class.getName());
+
+	/**
+	 * the pattern of insert queries that can be loaded in bulk
+	 */
+	private static final Pattern INSERT_PATTERN = Pattern
+			.compile(
+					"\\s*insert\\s+into\\s+(\\w+)\\s*(\\([^)]*\\))?\\s*values\\s*\\(([\\s?,]*)\\)\\s*",
+					Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * the statistics of loaded rows
+	 */
+	private final BulkLoadStatistics statistics;
+
+	public AbstractBulkLoader() {
+		this.statistics = new BulkLoadStatistics();
+	}
+
+	@Override
+	public final BulkLoadStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public PreparedStatement createStatement(final Connection connection,
+			final String query) throws SQLException {
+		final Matcher matcher = INSERT_PATTERN.matcher(query);
+
+		if (!matcher.matches()) {
+			// the query cannot be loaded in bulk
+			return connection.prepareStatement(query);
+		}
+
+		final String tableName = matcher.group(1);
+		final String columns = (matcher.group(2) == null) ? "" : matcher
+				.group(2);
+		final int columnCount = countPlaceholders(matcher.group(3));
+
+		final BulkLoadTarget target = new BulkLoadTarget(tableName, columns,
+				columnCount);
+		final BufferedInsertStatementHandler handler = new BufferedInsertStatementHandler(
+				this, connection, query, target);
+
+		return (PreparedStatement) Proxy.newProxyInstance(
+				PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, handler);
+	}
+
+	/**
+	 * load the given rows into the given target, and record its statistics
+	 *
+	 * @param connection
+	 * @param target
+	 * @param rows
+	 * @throws SQLException
+	 */
+	final void loadAndRecord(final Connection connection,
+			final BulkLoadTarget target, final List<Object[]> rows)
+			throws SQLException {
+		if (rows.isEmpty()) {
+			return;
+		}
+
+		final long start = System.nanoTime();
+		load(connection, target, rows);
+		final long elapsedTime = System.nanoTime() - start;
+
+		statistics.record(target.getTableName(), rows.size(), elapsedTime);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(rows.size()
+					+ " rows have been loaded into "
+					+ target.getTableName()
+					+ " ("
+					+ String.format("%.1f", BulkLoadStatistics
+							.calcRowsPerSecond((long) rows.size(), elapsedTime))
+					+ " rows/sec)");
+		}
+	}
+
+	/**
+	 * load the given rows into the given target <br>
+	 * each element of rows has values for all the columns of the target in
+	 * order, and each value is Long, Integer, Double, String, or null
+	 *
+	 * @param connection
+	 * @param target
+	 * @param rows
+	 * @throws SQLException
+	 */
+	protected abstract void load(final Connection connection,
+			final BulkLoadTarget target, final List<Object[]> rows)
+			throws SQLException;
+
+	/**
+	 * bind the given value of a buffered row to the given statement
+	 *
+	 * @param pstmt
+	 * @param column
+	 * @param value
+	 * @throws SQLException
+	 */
+	static void bindValue(final PreparedStatement pstmt, final int column,
+			final Object value) throws SQLException {
+		if (value == null) {
+			pstmt.setNull(column, Types.NULL);
+		} else if (value instanceof Long) {
+			pstmt.setLong(column, (Long) value);
+		} else if (value instanceof Integer) {
+			pstmt.setInt(column, (Integer) value);
+		} else if (value instanceof Double) {
+			pstmt.setDouble(column, (Double) value);
+		} else {
+			pstmt.setString(column, value.toString());
+		}
+	}
+
+	/**
+	 * count the number of '?' in the given string
+	 *
+	 * @param str
+	 * @return
+	 */
+	private static int countPlaceholders(final String str) {
+		int count = 0;
+		for (int i = 0; i < str.length(); i++) {
+			if (str.charAt(i) == '?') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,242 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.loader;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An invocation handler that makes a proxy of PreparedStatement buffer
+ * batched rows and load them in bulk with a bulk loader <br>
+ * values of Long, Integer, Double, and String are buffered, and the first
+ * call of any other setter or method replaces the buffer with an ordinary
+ * prepared statement, into which the buffered rows are added before the call
+ * is passed through
+ *
+ * @author k-hotta
+ *
+ */
+class BufferedInsertStatementHandler implements InvocationHandler {
+
+	/**
+	 * the loader that actually loads rows
+	 */
+	private final AbstractBulkLoader loader;
+
+	/**
+	 * the connection
+	 */
+	private final Connection connection;
+
+	/**
+	 * the insert query
+	 */
+	private final String query;
+
+	/**
+	 * the table into which rows are loaded
+	 */
+	private final BulkLoadTarget target;
+
+	/**
+	 * the buffered rows
+	 */
+	private final List<Object[]> rows;
+
+	/**
+	 * the values of the current row
+	 */
+	private Object[] currentRow;
+
+	/**
+	 * whether each value of the current row has been set
+	 */
+	private boolean[] assigned;
+
+	/**
+	 * the ordinary statement to which all the calls are passed through, or
+	 * null if rows are still buffered
+	 */
+	private PreparedStatement delegate;
+
+	/**
+	 * whether the statement has been closed
+	 */
+	private boolean closed;
+
+	BufferedInsertStatementHandler(final AbstractBulkLoader loader,
+			final Connection connection, final String query,
+			final BulkLoadTarget target) {
+		this.loader = loader;
+		this.connection = connection;
+		this.query = query;
+		this.target = target;
+		this.rows = new ArrayList<Object[]>();
+		this.currentRow = new Object[target.getColumnCount()];
+		this.assigned = new boolean[target.getColumnCount()];
+		this.delegate = null;
+		this.closed = false;
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method,
+			final Object[] args) throws Throwable {
+		final String name = method.getName();
+
+		if (name.equals("toString") && args == null) {
+			return "bulk insert into " + target.getTableName();
+		} else if (name.equals("hashCode") && args == null) {
+			return System.identityHashCode(proxy);
+		} else if (name.equals("equals") && args != null && args.length == 1) {
+			return proxy == args[0];
+		}
+
+		if (delegate != null) {
+			return invokeDelegate(method, args);
+		}
+
+		if ((name.equals("setLong") || name.equals("setInt")
+				|| name.equals("setDouble") || name.equals("setString"))
+				&& args.length == 2) {
+			setValue((Integer) args[0], args[1]);
+			return null;
+		} else if (name.equals("setObject") && args.length == 2
+				&& isBufferable(args[1])) {
+			setValue((Integer) args[0], args[1]);
+			return null;
+		} else if (name.equals("setShort")) {
+			setValue((Integer) args[0], ((Short) args[1]).intValue());
+			return null;
+		} else if (name.equals("setBoolean")) {
+			setValue((Integer) args[0], ((Boolean) args[1]) ? 1 : 0);
+			return null;
+		} else if (name.equals("setNull")) {
+			setValue((Integer) args[0], null);
+			return null;
+		} else if (name.equals("addBatch") && args == null) {
+			rows.add(currentRow);
+			clearCurrentRow();
+			return null;
+		} else if (name.equals("clearParameters")) {
+			clearCurrentRow();
+			return null;
+		} else if (name.equals("clearBatch")) {
+			rows.clear();
+			return null;
+		} else if (name.equals("executeBatch")) {
+			return executeBatch();
+		} else if (name.equals("close")) {
+			closed = true;
+			rows.clear();
+			return null;
+		} else if (name.equals("isClosed")) {
+			return closed;
+		} else if (name.equals("getConnection")) {
+			return connection;
+		}
+
+		switchToDelegate(name);
+		return invokeDelegate(method, args);
+	}
+
+	/**
+	 * whether the given value can be buffered
+	 *
+	 * @param value
+	 * @return
+	 */
+	private boolean isBufferable(final Object value) {
+		return value == null || value instanceof Long
+				|| value instanceof Integer || value instanceof Double
+				|| value instanceof String;
+	}
+
+	private void setValue(final int column, final Object value)
+			throws SQLException {
+		if (closed) {
+			throw new SQLException("the statement has already been closed");
+		}
+		if (column < 1 || column > currentRow.length) {
+			throw new SQLException("column index out of range: " + column);
+		}
+		currentRow[column - 1] = value;
+		assigned[column - 1] = true;
+	}
+
+	private void clearCurrentRow() {
+		currentRow = new Object[target.getColumnCount()];
+		assigned = new boolean[target.getColumnCount()];
+	}
+
+	private int[] executeBatch() throws SQLException {
+		if (closed) {
+			throw new SQLException("the statement has already been closed");
+		}
+
+		final int[] result = new int[rows.size()];
+		Arrays.fill(result, Statement.SUCCESS_NO_INFO);
+
+		try {
+			loader.loadAndRecord(connection, target, rows);
+		} finally {
+			rows.clear();
+		}
+
+		return result;
+	}
+
+	/**
+	 * replace the buffer with an ordinary prepared statement that has the
+	 * buffered rows and the values of the current row
+	 *
+	 * @param name
+	 *            the name of the method that cannot be buffered
+	 * @throws SQLException
+	 */
+	private void switchToDelegate(final String name) throws SQLException {
+		if (closed) {
+			throw new SQLException("the statement has already been closed");
+		}
+
+		final PreparedStatement pstmt = connection.prepareStatement(query);
+		try {
+			for (final Object[] row : rows) {
+				for (int i = 0; i < row.length; i++) {
+					AbstractBulkLoader.bindValue(pstmt, i + 1, row[i]);
+				}
+				pstmt.addBatch();
+			}
+			for (int i = 0; i < currentRow.length; i++) {
+				if (assigned[i]) {
+					AbstractBulkLoader.bindValue(pstmt, i + 1, currentRow[i]);
+				}
+			}
+		} catch (SQLException e) {
+			pstmt.close();
+			throw e;
+		}
+
+		rows.clear();
+		delegate = pstmt;
+
+		AbstractBulkLoader.logger.info(name
+				+ " is not supported in bulk loading, rows are inserted into "
+				+ target.getTableName() + " with an ordinary statement");
+	}
+
+	private Object invokeDelegate(final Method method, final Object[] args)
+			throws Throwable {
+		try {
+			return method.invoke(delegate, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+}
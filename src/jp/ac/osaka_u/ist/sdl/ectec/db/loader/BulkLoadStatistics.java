@@ -0,0 +1,107 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.loader;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A class to keep the numbers of rows loaded into each table and the time
+ * spent for loading them
+ *
+ * @author k-hotta
+ *
+ */
+public class BulkLoadStatistics {
+
+	/**
+	 * the number of loaded rows for each table
+	 */
+	private final Map<String, Long> rows;
+
+	/**
+	 * the elapsed time in nano seconds for each table
+	 */
+	private final Map<String, Long> elapsedTimes;
+
+	public BulkLoadStatistics() {
+		this.rows = new TreeMap<String, Long>();
+		this.elapsedTimes = new TreeMap<String, Long>();
+	}
+
+	/**
+	 * record that the given number of rows were loaded into the given table
+	 *
+	 * @param tableName
+	 * @param loadedRows
+	 * @param elapsedTime
+	 *            elapsed time in nano seconds
+	 */
+	public synchronized void record(final String tableName,
+			final long loadedRows, final long elapsedTime) {
+		final Long currentRows = rows.get(tableName);
+		final Long currentTime = elapsedTimes.get(tableName);
+
+		rows.put(tableName, (currentRows == null) ? loadedRows : currentRows
+				+ loadedRows);
+		elapsedTimes.put(tableName, (currentTime == null) ? elapsedTime
+				: currentTime + elapsedTime);
+	}
+
+	/**
+	 * get the number of rows loaded into the given table
+	 *
+	 * @param tableName
+	 * @return
+	 */
+	public synchronized long getRows(final String tableName) {
+		final Long result = rows.get(tableName);
+		return (result == null) ? 0 : result;
+	}
+
+	/**
+	 * get the number of rows loaded per second into the given table
+	 *
+	 * @param tableName
+	 * @return
+	 */
+	public synchronized double getRowsPerSecond(final String tableName) {
+		final Long loadedRows = rows.get(tableName);
+		final Long elapsedTime = elapsedTimes.get(tableName);
+
+		return calcRowsPerSecond(loadedRows, elapsedTime);
+	}
+
+	/**
+	 * write the statistics of all the tables with the given logger
+	 *
+	 * @param logger
+	 */
+	public synchronized void report(final Logger logger) {
+		for (final Map.Entry<String, Long> entry : rows.entrySet()) {
+			final String tableName = entry.getKey();
+			logger.info(tableName + ": " + entry.getValue()
+					+ " rows have been loaded ("
+					+ String.format("%.1f", getRowsPerSecond(tableName))
+					+ " rows/sec)");
+		}
+	}
+
+	/**
+	 * calculate the number of rows per second
+	 *
+	 * @param loadedRows
+	 * @param elapsedTime
+	 *            elapsed time in nano seconds
+	 * @return
+	 */
+	static double calcRowsPerSecond(final Long loadedRows,
+			final Long elapsedTime) {
+		if (loadedRows == null || elapsedTime == null || elapsedTime <= 0) {
+			return 0.0;
+		}
+
+		return ((double) loadedRows) * 1000000000.0 / ((double) elapsedTime);
+	}
+
+}
@@ -0,0 +1,46 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.loader;
+
+/**
+ * A class that represents a table into which rows are loaded in bulk
+ *
+ * @author k-hotta
+ *
+ */
+public class BulkLoadTarget {
+
+	/**
+	 * the name of the table
+	 */
+	private final String tableName;
+
+	/**
+	 * the list of columns like "(A,B,C)" <br>
+	 * this is an empty string if no columns are specified
+	 */
+	private final String columns;
+
+	/**
+	 * the number of values in a row
+	 */
+	private final int columnCount;
+
+	BulkLoadTarget(final String tableName, final String columns,
+			final int columnCount) {
+		this.tableName = tableName;
+		this.columns = columns;
+		this.columnCount = columnCount;
+	}
+
+	public final String getTableName() {
+		return tableName;
+	}
+
+	public final String getColumns() {
+		return columns;
+	}
+
+	public final int getColumnCount() {
+		return columnCount;
+	}
+
+}
@@ -0,0 +1,57 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.loader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * An interface for DBMS specific strategies to load a large number of rows
+ * into the db
+ *
+ * @author k-hotta
+ *
+ */
+public interface IBulkLoader {
+
+	/**
+	 * relax the durability of the db for the transaction that loads rows in
+	 * bulk <br>
+	 * this method is called before the first statement of the transaction is
+	 * created, and restore(connection) is called when it has been committed
+	 * or rolled back
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	public void relax(final Connection connection) throws SQLException;
+
+	/**
+	 * restore the durability relaxed by relax(connection)
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	public void restore(final Connection connection) throws SQLException;
+
+	/**
+	 * create a statement for the given insert query <br>
+	 * the returned statement accepts rows in the same way as an ordinary
+	 * prepared statement (setXXX and addBatch), but the batched rows are
+	 * loaded in bulk when executeBatch() is called
+	 *
+	 * @param connection
+	 * @param query
+	 * @return
+	 * @throws SQLException
+	 */
+	public PreparedStatement createStatement(final Connection connection,
+			final String query) throws SQLException;
+
+	/**
+	 * get the statistics of loaded rows
+	 *
+	 * @return
+	 */
+	public BulkLoadStatistics getStatistics();
+
+}
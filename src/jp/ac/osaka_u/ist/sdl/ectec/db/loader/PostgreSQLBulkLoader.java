@@ -0,0 +1,159 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * A bulk loader for PostgreSQL <br>
+ * this loader streams rows with "COPY ... FROM STDIN" in the binary format
+ * <br>
+ * the copy API of the JDBC driver is looked up reflectively so that the
+ * driver is required only at runtime, in the same way as the driver class
+ * itself
+ *
+ * @author k-hotta
+ *
+ */
+public class PostgreSQLBulkLoader extends AbstractBulkLoader {
+
+	/**
+	 * the name of the interface of connections in the JDBC driver
+	 */
+	private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+
+	/**
+	 * the signature of the binary copy format
+	 */
+	private static final byte[] SIGNATURE = new byte[] { 'P', 'G', 'C', 'O',
+			'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0 };
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * the setting is local to the current transaction, so that PostgreSQL
+	 * itself restores it when the transaction ends
+	 */
+	@Override
+	public void relax(final Connection connection) throws SQLException {
+		final Statement stmt = connection.createStatement();
+		try {
+			stmt.execute("SET LOCAL synchronous_commit TO OFF");
+		} finally {
+			stmt.close();
+		}
+	}
+
+	@Override
+	public void restore(final Connection connection) throws SQLException {
+		// do nothing
+	}
+
+	@Override
+	protected void load(final Connection connection,
+			final BulkLoadTarget target, final List<Object[]> rows)
+			throws SQLException {
+		final byte[] data;
+		try {
+			data = encode(target, rows);
+		} catch (IOException e) {
+			throw new SQLException("cannot encode rows for "
+					+ target.getTableName(), e);
+		}
+
+		final String query = "COPY " + target.getTableName()
+				+ target.getColumns() + " FROM STDIN (FORMAT binary)";
+
+		copyIn(connection, query, new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * encode the given rows in the binary copy format
+	 *
+	 * @param target
+	 * @param rows
+	 * @return
+	 * @throws IOException
+	 */
+	private byte[] encode(final BulkLoadTarget target, final List<Object[]> rows)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+
+		// header
+		out.write(SIGNATURE);
+		out.writeInt(0); // flags
+		out.writeInt(0); // length of header extension
+
+		// tuples
+		for (final Object[] row : rows) {
+			out.writeShort(target.getColumnCount());
+			for (final Object value : row) {
+				if (value == null) {
+					out.writeInt(-1);
+				} else if (value instanceof Long) {
+					out.writeInt(8);
+					out.writeLong((Long) value);
+				} else if (value instanceof Integer) {
+					out.writeInt(4);
+					out.writeInt((Integer) value);
+				} else if (value instanceof Double) {
+					out.writeInt(8);
+					out.writeDouble((Double) value);
+				} else {
+					final byte[] str = value.toString().getBytes(UTF8);
+					out.writeInt(str.length);
+					out.write(str);
+				}
+			}
+		}
+
+		// trailer
+		out.writeShort(-1);
+		out.flush();
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * perform CopyManager.copyIn(query, input) of the JDBC driver
+	 *
+	 * @param connection
+	 * @param query
+	 * @param input
+	 * @throws SQLException
+	 */
+	private void copyIn(final Connection connection, final String query,
+			final InputStream input) throws SQLException {
+		try {
+			final Class<?> pgConnectionClass = Class.forName(PG_CONNECTION);
+			final Object pgConnection = connection.unwrap(pgConnectionClass);
+			final Object copyManager = pgConnectionClass.getMethod(
+					"getCopyAPI").invoke(pgConnection);
+			final Method copyInMethod = copyManager.getClass().getMethod(
+					"copyIn", String.class, InputStream.class);
+			copyInMethod.invoke(copyManager, query, input);
+		} catch (InvocationTargetException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			throw new SQLException("COPY failed: " + query, cause);
+		} catch (SQLException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLException(
+					"the copy API of the JDBC driver is not available", e);
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.loader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * A bulk loader for SQLite <br>
+ * this loader relaxes the journaling and synchronization of the db while a
+ * bulk transaction is running, and inserts multiple rows with a single
+ * statement inside the transaction opened by registerers <br>
+ * SQLite cannot change these settings inside a transaction, and the driver
+ * always keeps one open unless auto commit is enabled, so that they are
+ * changed with auto commit enabled for a moment, which commits the work done
+ * before <br>
+ * rows are combined with "select ... union all select ..." instead of
+ * multi-row VALUES because the bundled SQLite (3.7.2) does not support the
+ * latter
+ *
+ * @author k-hotta
+ *
+ */
+public class SQLiteBulkLoader extends AbstractBulkLoader {
+
+	/**
+	 * the maximum number of host parameters in a statement
+	 * (SQLITE_MAX_VARIABLE_NUMBER)
+	 */
+	private static final int MAX_VARIABLES = 999;
+
+	/**
+	 * the maximum number of terms in a compound select
+	 * (SQLITE_MAX_COMPOUND_SELECT)
+	 */
+	private static final int MAX_COMPOUND_SELECT = 500;
+
+	/**
+	 * the value of "PRAGMA synchronous" before relaxed
+	 */
+	private String synchronous;
+
+	/**
+	 * the value of "PRAGMA journal_mode" before relaxed, or null if it has
+	 * not been changed
+	 */
+	private String journalMode;
+
+	@Override
+	public void relax(final Connection connection) throws SQLException {
+		final boolean autoCommit = connection.getAutoCommit();
+		if (!autoCommit) {
+			connection.setAutoCommit(true);
+		}
+
+		final Statement stmt = connection.createStatement();
+		try {
+			synchronous = queryPragma(stmt, "synchronous");
+			final String currentJournalMode = queryPragma(stmt, "journal_mode");
+
+			stmt.execute("PRAGMA synchronous = OFF");
+			// WAL, which is used with the connection pool, cannot be left
+			// while other connections are open
+			if (!currentJournalMode.equalsIgnoreCase("wal")) {
+				journalMode = currentJournalMode;
+				queryPragma(stmt, "journal_mode = MEMORY");
+			}
+		} finally {
+			stmt.close();
+			if (!autoCommit) {
+				connection.setAutoCommit(false);
+			}
+		}
+	}
+
+	@Override
+	public void restore(final Connection connection) throws SQLException {
+		final boolean autoCommit = connection.getAutoCommit();
+		if (!autoCommit) {
+			connection.setAutoCommit(true);
+		}
+
+		final Statement stmt = connection.createStatement();
+		try {
+			stmt.execute("PRAGMA synchronous = " + synchronous);
+			if (journalMode != null) {
+				queryPragma(stmt, "journal_mode = " + journalMode);
+				journalMode = null;
+			}
+		} finally {
+			stmt.close();
+			if (!autoCommit) {
+				connection.setAutoCommit(false);
+			}
+		}
+	}
+
+	/**
+	 * execute the given pragma and get the value returned by it
+	 *
+	 * @param stmt
+	 * @param pragma
+	 * @return
+	 * @throws SQLException
+	 */
+	private String queryPragma(final Statement stmt, final String pragma)
+			throws SQLException {
+		final ResultSet rs = stmt.executeQuery("PRAGMA " + pragma);
+		try {
+			if (!rs.next()) {
+				throw new SQLException("PRAGMA " + pragma
+						+ " returned no value");
+			}
+			return rs.getString(1);
+		} finally {
+			rs.close();
+		}
+	}
+
+	@Override
+	protected void load(final Connection connection,
+			final BulkLoadTarget target, final List<Object[]> rows)
+			throws SQLException {
+		final int columnCount = target.getColumnCount();
+		final int rowsPerStatement = Math.max(1, Math.min(
+				MAX_COMPOUND_SELECT, MAX_VARIABLES / Math.max(1, columnCount)));
+
+		PreparedStatement fullStmt = null;
+		try {
+			int index = 0;
+			while (rows.size() - index >= rowsPerStatement) {
+				if (fullStmt == null) {
+					fullStmt = connection.prepareStatement(createQuery(target,
+							rowsPerStatement));
+				}
+				bind(fullStmt, rows, index, rowsPerStatement, columnCount);
+				fullStmt.executeUpdate();
+				index += rowsPerStatement;
+			}
+
+			final int remaining = rows.size() - index;
+			if (remaining > 0) {
+				final PreparedStatement lastStmt = connection
+						.prepareStatement(createQuery(target, remaining));
+				try {
+					bind(lastStmt, rows, index, remaining, columnCount);
+					lastStmt.executeUpdate();
+				} finally {
+					lastStmt.close();
+				}
+			}
+		} finally {
+			if (fullStmt != null) {
+				fullStmt.close();
+			}
+		}
+	}
+
+	/**
+	 * create a query inserting the given number of rows at once
+	 *
+	 * @param target
+	 * @param numberOfRows
+	 * @return
+	 */
+	private String createQuery(final BulkLoadTarget target,
+			final int numberOfRows) {
+		final StringBuilder row = new StringBuilder();
+		row.append("select ");
+		for (int i = 0; i < target.getColumnCount(); i++) {
+			row.append((i == 0) ? "?" : ",?");
+		}
+
+		final StringBuilder builder = new StringBuilder();
+		builder.append("insert into " + target.getTableName()
+				+ target.getColumns() + " ");
+		for (int i = 0; i < numberOfRows; i++) {
+			if (i > 0) {
+				builder.append(" union all ");
+			}
+			builder.append(row);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * bind the values of the specified rows to the given statement
+	 *
+	 * @param pstmt
+	 * @param rows
+	 * @param from
+	 * @param numberOfRows
+	 * @param columnCount
+	 * @throws SQLException
+	 */
+	private void bind(final PreparedStatement pstmt, final List<Object[]> rows,
+			final int from, final int numberOfRows, final int columnCount)
+			throws SQLException {
+		int column = 0;
+		for (int i = from; i < from + numberOfRows; i++) {
+			final Object[] row = rows.get(i);
+			for (int j = 0; j < columnCount; j++) {
+				bindValue(pstmt, ++column, row[j]);
+			}
+		}
+	}
+
+}
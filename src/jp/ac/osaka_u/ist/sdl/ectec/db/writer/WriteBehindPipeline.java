@@ -0,0 +1,250 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.AbstractDBElement;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.AbstractElementRegisterer;
+import jp.ac.osaka_u.ist.sdl.ectec.settings.Constants;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A class to register elements detected by worker threads into db behind
+ * them <br>
+ * workers put elements into the queues created by this pipeline, and a
+ * dedicated writer thread registers them in fixed-size batches <br>
+ * the writer is woken up when a queue has a full batch, and the remaining
+ * elements are registered when the pipeline is closed
+ *
+ * <pre>
+ * final WriteBehindPipeline pipeline = new WriteBehindPipeline(batchSize);
+ * final WriteBehindQueue&lt;DBCrdInfo&gt; crdQueue = pipeline.createQueue(&quot;CRD&quot;,
+ * 		crdRegisterer);
+ * pipeline.start();
+ * ... (run workers putting elements into crdQueue)
+ * pipeline.close();
+ * </pre>
+ *
+ * @author k-hotta
+ *
+ */
+public class WriteBehindPipeline {
+
+	/**
+	 * the logger
+	 */
+	private static final Logger logger = LoggingManager
+			.getLogger(WriteBehindPipeline.class.getName());
+
+	/**
+	 * the logger for errors
+	 */
+	private static final Logger eLogger = LoggingManager.getLogger("error");
+
+	/**
+	 * the number of elements registered at once
+	 */
+	private final int batchSize;
+
+	/**
+	 * the capacity of each queue
+	 */
+	private final int capacity;
+
+	/**
+	 * the queues in the order of creation
+	 */
+	private final List<WriteBehindQueue<?>> queues;
+
+	/**
+	 * the lock used to wake up the writer
+	 */
+	private final Object signalLock;
+
+	/**
+	 * whether the writer has been signaled
+	 */
+	private boolean signaled;
+
+	/**
+	 * whether the pipeline is being closed
+	 */
+	private volatile boolean closing;
+
+	/**
+	 * the error that has stopped the writer thread, or null if it is alive
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * the writer thread
+	 */
+	private Thread writer;
+
+	/**
+	 * create a pipeline whose queues can hold two batches
+	 *
+	 * @param batchSize
+	 */
+	public WriteBehindPipeline(final int batchSize) {
+		this(batchSize, batchSize * 2);
+	}
+
+	public WriteBehindPipeline(final int batchSize, final int capacity) {
+		if (batchSize <= 0 || capacity < batchSize) {
+			throw new IllegalArgumentException("illegal batch size "
+					+ batchSize + " or capacity " + capacity);
+		}
+		this.batchSize = batchSize;
+		this.capacity = capacity;
+		this.queues = new ArrayList<WriteBehindQueue<?>>();
+		this.signalLock = new Object();
+		this.signaled = false;
+		this.closing = false;
+		this.failure = null;
+		this.writer = null;
+	}
+
+	/**
+	 * create a queue whose elements are registered with the given registerer
+	 * <br>
+	 * queues must be created before the pipeline starts
+	 *
+	 * @param name
+	 * @param registerer
+	 * @return
+	 */
+	public synchronized <T extends AbstractDBElement> WriteBehindQueue<T> createQueue(
+			final String name, final AbstractElementRegisterer<T> registerer) {
+		if (writer != null) {
+			throw new IllegalStateException(
+					"the pipeline has already been started");
+		}
+
+		final WriteBehindQueue<T> queue = new WriteBehindQueue<T>(name,
+				registerer, this, batchSize, capacity);
+		queues.add(queue);
+		return queue;
+	}
+
+	/**
+	 * start the writer thread
+	 */
+	public synchronized void start() {
+		if (writer != null) {
+			throw new IllegalStateException(
+					"the pipeline has already been started");
+		}
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					write();
+				} catch (Throwable e) {
+					failure = e;
+					eLogger.fatal("the writer thread has stopped\n", e);
+				}
+			}
+		}, "write-behind-writer");
+		writer.start();
+		logger.info("writer thread started (batch size: " + batchSize
+				+ ", capacity: " + capacity + ")");
+	}
+
+	/**
+	 * register all the remaining elements and stop the writer thread <br>
+	 * this method must be called after all the workers have finished
+	 *
+	 * @throws InterruptedException
+	 * @throws IllegalStateException
+	 *             if the writer thread has stopped because of an error
+	 */
+	public void close() throws InterruptedException {
+		closing = true;
+		signal();
+		writer.join();
+
+		if (failure == null) {
+			logger.info("all the elements have been registered into db");
+		}
+		for (final WriteBehindQueue<?> queue : queues) {
+			queue.report(logger);
+		}
+		checkWriter();
+	}
+
+	/**
+	 * throw an exception if the writer thread has stopped because of an error
+	 * <br>
+	 * this keeps workers from waiting for a writer that never takes elements
+	 *
+	 * @throws IllegalStateException
+	 */
+	void checkWriter() {
+		final Throwable cause = failure;
+		if (cause != null) {
+			throw new IllegalStateException(
+					"the writer thread has stopped because of an error", cause);
+		}
+	}
+
+	/**
+	 * wake up the writer thread
+	 */
+	void signal() {
+		synchronized (signalLock) {
+			signaled = true;
+			signalLock.notifyAll();
+		}
+	}
+
+	/**
+	 * the main loop of the writer thread
+	 */
+	private void write() {
+		while (true) {
+			final boolean finishing = closing;
+
+			boolean flushed = false;
+			for (final WriteBehindQueue<?> queue : queues) {
+				while (queue.flush(finishing, eLogger)) {
+					flushed = true;
+					logger.debug(queue.getName() + ": "
+							+ queue.getRegisteredCount()
+							+ " elements registered, " + queue.getDepth()
+							+ " waiting");
+				}
+			}
+
+			if (finishing) {
+				break;
+			}
+
+			if (!flushed) {
+				awaitSignal();
+			}
+		}
+	}
+
+	/**
+	 * wait until a queue has a full batch or the pipeline is closed <br>
+	 * the timeout is a safety net, since signals are sent on both events
+	 */
+	private void awaitSignal() {
+		synchronized (signalLock) {
+			try {
+				if (!signaled) {
+					signalLock.wait(Constants.MONITORING_INTERVAL);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				closing = true;
+			}
+			signaled = false;
+		}
+	}
+
+}
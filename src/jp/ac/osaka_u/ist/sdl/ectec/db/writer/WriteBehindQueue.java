@@ -0,0 +1,283 @@
+package jp.ac.osaka_u.ist.sdl.ectec.db.writer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.AbstractDBElement;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.AbstractElementRegisterer;
+import jp.ac.osaka_u.ist.sdl.ectec.settings.Constants;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A bounded queue of elements waiting to be registered into db <br>
+ * worker threads put elements into this queue, and the writer thread of the
+ * pipeline registers them in fixed-size batches <br>
+ * putting an element blocks while the queue is full, which keeps the workers
+ * from running ahead of db
+ *
+ * @author k-hotta
+ *
+ * @param <T>
+ */
+public class WriteBehindQueue<T extends AbstractDBElement> {
+
+	/**
+	 * the name of this queue used in the log
+	 */
+	private final String name;
+
+	/**
+	 * the registerer of elements
+	 */
+	private final AbstractElementRegisterer<T> registerer;
+
+	/**
+	 * the pipeline that has this queue
+	 */
+	private final WriteBehindPipeline pipeline;
+
+	/**
+	 * the queue
+	 */
+	private final BlockingQueue<T> queue;
+
+	/**
+	 * the number of elements registered at once
+	 */
+	private final int batchSize;
+
+	/**
+	 * the maximum depth of the queue
+	 */
+	private final AtomicInteger maxDepth;
+
+	/**
+	 * the number of puts that had to wait for the writer
+	 */
+	private final AtomicLong blockedPuts;
+
+	/**
+	 * the number of registered elements
+	 */
+	private volatile long registeredCount;
+
+	/**
+	 * the number of elements whose registration failed
+	 */
+	private volatile long failedCount;
+
+	/**
+	 * the number of flushes
+	 */
+	private volatile long flushCount;
+
+	/**
+	 * the total time spent for flushes in nano seconds
+	 */
+	private volatile long totalFlushTime;
+
+	/**
+	 * the longest time spent for a flush in nano seconds
+	 */
+	private volatile long maxFlushTime;
+
+	WriteBehindQueue(final String name,
+			final AbstractElementRegisterer<T> registerer,
+			final WriteBehindPipeline pipeline, final int batchSize,
+			final int capacity) {
+		this.name = name;
+		this.registerer = registerer;
+		this.pipeline = pipeline;
+		this.queue = new ArrayBlockingQueue<T>(capacity);
+		this.batchSize = batchSize;
+		this.maxDepth = new AtomicInteger(0);
+		this.blockedPuts = new AtomicLong(0);
+		this.registeredCount = 0;
+		this.failedCount = 0;
+		this.flushCount = 0;
+		this.totalFlushTime = 0;
+		this.maxFlushTime = 0;
+	}
+
+	/**
+	 * put an element into the queue <br>
+	 * this method blocks while the queue is full
+	 *
+	 * @param element
+	 * @throws InterruptedException
+	 * @throws IllegalStateException
+	 *             if the writer thread has stopped because of an error
+	 */
+	public void put(final T element) throws InterruptedException {
+		pipeline.checkWriter();
+		if (!queue.offer(element)) {
+			blockedPuts.incrementAndGet();
+			pipeline.signal();
+			// the writer is checked periodically so that this does not wait
+			// forever for a writer that has died
+			while (!queue.offer(element, Constants.MONITORING_INTERVAL,
+					TimeUnit.MILLISECONDS)) {
+				pipeline.checkWriter();
+			}
+		}
+
+		final int depth = queue.size();
+		int currentMax = maxDepth.get();
+		while (depth > currentMax
+				&& !maxDepth.compareAndSet(currentMax, depth)) {
+			currentMax = maxDepth.get();
+		}
+
+		if (depth >= batchSize) {
+			pipeline.signal();
+		}
+	}
+
+	/**
+	 * put all the given elements into the queue
+	 *
+	 * @param elements
+	 * @throws InterruptedException
+	 * @throws IllegalStateException
+	 *             if the writer thread has stopped because of an error
+	 */
+	public void putAll(final Collection<? extends T> elements)
+			throws InterruptedException {
+		for (final T element : elements) {
+			put(element);
+		}
+	}
+
+	/**
+	 * register a batch of elements if a full batch is available, or if
+	 * the given flag is true and there is any element
+	 *
+	 * @param force
+	 * @param eLogger
+	 *            the logger for errors
+	 * @return whether any element has been taken from the queue
+	 */
+	boolean flush(final boolean force, final Logger eLogger) {
+		if (queue.size() < batchSize && (!force || queue.isEmpty())) {
+			return false;
+		}
+
+		final List<T> batch = new ArrayList<T>(Math.min(batchSize,
+				queue.size()));
+		queue.drainTo(batch, batchSize);
+		if (batch.isEmpty()) {
+			return false;
+		}
+
+		final long start = System.nanoTime();
+		try {
+			registerer.register(batch);
+			registeredCount += batch.size();
+		} catch (SQLException e) {
+			failedCount += batch.size();
+			eLogger.warn("failed to register " + batch.size() + " " + name
+					+ " elements\n", e);
+			eLogger.warn("error code: " + e.getErrorCode());
+
+			SQLException ne = e;
+			while ((ne = ne.getNextException()) != null) {
+				eLogger.warn("next exception: ", ne);
+			}
+		} catch (RuntimeException e) {
+			failedCount += batch.size();
+			eLogger.warn("failed to register " + batch.size() + " " + name
+					+ " elements\n", e);
+		}
+		final long elapsed = System.nanoTime() - start;
+
+		flushCount++;
+		totalFlushTime += elapsed;
+		if (elapsed > maxFlushTime) {
+			maxFlushTime = elapsed;
+		}
+
+		return true;
+	}
+
+	public final String getName() {
+		return name;
+	}
+
+	/**
+	 * get the current number of elements waiting in the queue
+	 *
+	 * @return
+	 */
+	public final int getDepth() {
+		return queue.size();
+	}
+
+	public final int getMaxDepth() {
+		return maxDepth.get();
+	}
+
+	public final long getBlockedPuts() {
+		return blockedPuts.get();
+	}
+
+	public final long getRegisteredCount() {
+		return registeredCount;
+	}
+
+	public final long getFailedCount() {
+		return failedCount;
+	}
+
+	public final long getFlushCount() {
+		return flushCount;
+	}
+
+	/**
+	 * get the average time spent for a flush in milli seconds
+	 *
+	 * @return
+	 */
+	public final double getAverageFlushMillis() {
+		final long flushes = flushCount;
+		return (flushes == 0) ? 0.0 : ((double) totalFlushTime)
+				/ ((double) flushes) / 1000000.0;
+	}
+
+	/**
+	 * get the longest time spent for a flush in milli seconds
+	 *
+	 * @return
+	 */
+	public final double getMaxFlushMillis() {
+		return ((double) maxFlushTime) / 1000000.0;
+	}
+
+	/**
+	 * write the metrics of this queue with the given logger
+	 *
+	 * @param logger
+	 */
+	void report(final Logger logger) {
+		logger.info(name + ": " + registeredCount
+				+ " elements have been registered in " + flushCount
+				+ " batches (average "
+				+ String.format("%.1f", getAverageFlushMillis())
+				+ " ms, max " + String.format("%.1f", getMaxFlushMillis())
+				+ " ms per batch)");
+		logger.info(name + ": max queue depth " + maxDepth.get() + ", "
+				+ blockedPuts.get() + " puts waited for the writer");
+		if (failedCount > 0) {
+			logger.warn(name + ": " + failedCount
+					+ " elements could not be registered");
+		}
+	}
+
+}
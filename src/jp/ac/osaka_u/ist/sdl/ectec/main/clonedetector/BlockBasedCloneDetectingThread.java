@@ -1,14 +1,14 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.clonedetector;
 
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentSweep;
 
 import org.apache.log4j.Logger;
 
@@ -42,9 +42,9 @@ public class BlockBasedCloneDetectingThread implements Runnable {
 	private final ConcurrentMap<Long, DBCloneSetInfo> detectedClones;
 
 	/**
-	 * the retriever for code fragments
+	 * the sweep over the target combined revisions shared by threads
 	 */
-	private final CodeFragmentRetriever retriever;
+	private final CodeFragmentSweep sweep;
 
 	/**
 	 * the index
@@ -61,39 +61,76 @@ public class BlockBasedCloneDetectingThread implements Runnable {
 	 */
 	private final boolean detectCrossProjectClones;
 
+	/**
+	 * the comparator shared by threads to detect clones incrementally, or
+	 * null if clones are detected from scratch in each combined revision
+	 * <br>
+	 * it is guarded by the lock of the sweep
+	 */
+	private final IncrementalFragmentComparator incrementalComparator;
+
+	/**
+	 * the comparator to detect near-miss clones, or null if only exact clones
+	 * are detected
+	 */
+	private final NearMissFragmentComparator nearMissComparator;
+
 	public BlockBasedCloneDetectingThread(
 			final DBCombinedRevisionInfo[] targetCombinedRevisions,
 			final ConcurrentMap<Long, DBCloneSetInfo> detectedClones,
-			final CodeFragmentRetriever retriever, final AtomicInteger index,
-			final int cloneSizeThreshold, final boolean detectCrossProjectClones) {
+			final CodeFragmentSweep sweep, final AtomicInteger index,
+			final int cloneSizeThreshold,
+			final boolean detectCrossProjectClones,
+			final IncrementalFragmentComparator incrementalComparator,
+			final NearMissFragmentComparator nearMissComparator) {
 		this.targetCombinedRevisions = targetCombinedRevisions;
 		this.detectedClones = detectedClones;
-		this.retriever = retriever;
+		this.sweep = sweep;
 		this.index = index;
 		this.cloneSizeThreshold = cloneSizeThreshold;
 		this.detectCrossProjectClones = detectCrossProjectClones;
+		this.incrementalComparator = incrementalComparator;
+		this.nearMissComparator = nearMissComparator;
 	}
 
 	@Override
 	public void run() {
+		if (incrementalComparator != null) {
+			runIncrementally();
+			return;
+		}
+
 		while (true) {
-			final int currentIndex = index.getAndIncrement();
+			final int currentIndex;
+			final DBCombinedRevisionInfo targetCombinedRevision;
+			final CodeFragmentStore codeFragments;
 
-			if (currentIndex >= targetCombinedRevisions.length) {
-				break;
-			}
+			// the revisions are taken in order so that the sweep moves forward
+			synchronized (sweep) {
+				currentIndex = index.getAndIncrement();
 
-			final DBCombinedRevisionInfo targetCombinedRevision = targetCombinedRevisions[currentIndex];
+				if (currentIndex >= targetCombinedRevisions.length) {
+					break;
+				}
+
+				targetCombinedRevision = targetCombinedRevisions[currentIndex];
 
-			logger.info("[" + (currentIndex + 1) + "/"
-					+ targetCombinedRevisions.length
-					+ "] analyzing combined revision "
-					+ targetCombinedRevision.getId());
+				logger.info("[" + (currentIndex + 1) + "/"
+						+ targetCombinedRevisions.length
+						+ "] analyzing combined revision "
+						+ targetCombinedRevision.getId());
+
+				try {
+					sweep.advanceTo(targetCombinedRevision.getId());
+					codeFragments = sweep.getLiveFragments();
+				} catch (Exception e) {
+					eLogger.warn("something is wrong when retrieving fragments in combined revision "
+							+ targetCombinedRevision.getId());
+					continue;
+				}
+			}
 
 			try {
-				final Map<Long, DBCodeFragmentInfo> codeFragments = retriever
-						.retrieveElementsInSpecifiedCombinedRevision(targetCombinedRevision
-								.getId());
 				final FragmentComparator detector = new FragmentComparator(
 						targetCombinedRevision.getId(), cloneSizeThreshold);
 
@@ -105,10 +142,89 @@ public class BlockBasedCloneDetectingThread implements Runnable {
 					detectedClones.putAll(byRepositoryComparator
 							.detectClones(codeFragments));
 				}
+
+				if (nearMissComparator != null) {
+					detectedClones.putAll(nearMissComparator.detectClones(
+							targetCombinedRevision.getId(), codeFragments));
+				}
 			} catch (Exception e) {
 				eLogger.warn("something is wrong when analyzing combined revision "
 						+ targetCombinedRevision.getId());
 			}
 		}
 	}
+
+	/**
+	 * detect clones with the comparator that follows the sweep <br>
+	 * only the differences between combined revisions are processed while
+	 * holding the lock, and clone sets are created outside of it
+	 */
+	private void runIncrementally() {
+		while (true) {
+			final int currentIndex;
+			final DBCombinedRevisionInfo targetCombinedRevision;
+			final List<List<Long>> cloneSets;
+			final CodeFragmentStore codeFragments;
+
+			synchronized (sweep) {
+				currentIndex = index.getAndIncrement();
+
+				if (currentIndex >= targetCombinedRevisions.length) {
+					break;
+				}
+
+				targetCombinedRevision = targetCombinedRevisions[currentIndex];
+				final long combinedRevisionId = targetCombinedRevision.getId();
+
+				logger.info("[" + (currentIndex + 1) + "/"
+						+ targetCombinedRevisions.length
+						+ "] analyzing combined revision " + combinedRevisionId);
+
+				try {
+					// the comparator can follow the sweep only if both of
+					// them are at the same revision
+					final boolean consecutive = sweep.isPositioned()
+							&& sweep.canAdvanceTo(combinedRevisionId)
+							&& incrementalComparator.isAt(sweep
+									.getCurrentCombinedRevisionId());
+
+					sweep.advanceTo(combinedRevisionId);
+
+					if (consecutive) {
+						incrementalComparator.update(combinedRevisionId,
+								sweep.getStartedFragments(),
+								sweep.getEndedFragments());
+					} else {
+						incrementalComparator.rebuild(combinedRevisionId,
+								sweep.getLiveFragments());
+					}
+					cloneSets = incrementalComparator.getCloneSets();
+					codeFragments = (nearMissComparator == null) ? null
+							: sweep.getLiveFragments();
+				} catch (Exception e) {
+					incrementalComparator.reset();
+					eLogger.warn("something is wrong when analyzing combined revision "
+							+ combinedRevisionId);
+					continue;
+				}
+			}
+
+			for (final List<Long> elements : cloneSets) {
+				final DBCloneSetInfo cloneSet = new DBCloneSetInfo(
+						targetCombinedRevision.getId(), elements);
+				detectedClones.put(cloneSet.getId(), cloneSet);
+			}
+
+			if (codeFragments != null) {
+				try {
+					detectedClones.putAll(nearMissComparator.detectClones(
+							targetCombinedRevision.getId(), codeFragments));
+				} catch (Exception e) {
+					eLogger.warn("something is wrong when detecting near-miss clones in combined revision "
+							+ targetCombinedRevision.getId());
+				}
+			}
+		}
+	}
+
 }
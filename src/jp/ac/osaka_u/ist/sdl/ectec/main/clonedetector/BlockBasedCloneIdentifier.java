@@ -9,6 +9,7 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.CloneSetRegisterer;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentSweep;
 
 /**
  * A class for managing threads that detect clones
@@ -53,13 +54,38 @@ public class BlockBasedCloneIdentifier {
 	 */
 	private final boolean detectCrossProjectClones;
 
+	/**
+	 * whether detect clones incrementally or not
+	 */
+	private final boolean detectIncrementally;
+
+	/**
+	 * whether detect near-miss clones or not
+	 */
+	private final boolean detectNearMissClones;
+
+	/**
+	 * the lowest similarity between near-miss clones
+	 */
+	private final double nearMissSimilarityThreshold;
+
+	/**
+	 * the maximum number of groups compared with each group in a bucket of
+	 * near-miss clone detection, 0 means no limit
+	 */
+	private final int nearMissBucketLimit;
+
 	public BlockBasedCloneIdentifier(
 			final Map<Long, DBCombinedRevisionInfo> combinedRevisions,
 			final int threadsCount,
 			final CodeFragmentRetriever fragmentRetriever,
 			final CloneSetRegisterer cloneRegisterer,
 			final int maxElementsCount, final int cloneSizeThreshold,
-			final boolean detectCrossProjectClones) {
+			final boolean detectCrossProjectClones,
+			final boolean detectIncrementally,
+			final boolean detectNearMissClones,
+			final double nearMissSimilarityThreshold,
+			final int nearMissBucketLimit) {
 		this.combinedRevisions = combinedRevisions;
 		this.threadsCount = threadsCount;
 		this.fragmentRetriever = fragmentRetriever;
@@ -67,6 +93,10 @@ public class BlockBasedCloneIdentifier {
 		this.maxElementsCount = maxElementsCount;
 		this.cloneSizeThreshold = cloneSizeThreshold;
 		this.detectCrossProjectClones = detectCrossProjectClones;
+		this.detectIncrementally = detectIncrementally;
+		this.detectNearMissClones = detectNearMissClones;
+		this.nearMissSimilarityThreshold = nearMissSimilarityThreshold;
+		this.nearMissBucketLimit = nearMissBucketLimit;
 	}
 
 	public void run() throws Exception {
@@ -79,12 +109,19 @@ public class BlockBasedCloneIdentifier {
 
 		final ConcurrentMap<Long, DBCloneSetInfo> detectedClones = new ConcurrentHashMap<Long, DBCloneSetInfo>();
 		final AtomicInteger index = new AtomicInteger(0);
+		final CodeFragmentSweep sweep = fragmentRetriever.openSweep();
+		final IncrementalFragmentComparator incrementalComparator = (detectIncrementally) ? new IncrementalFragmentComparator(
+				cloneSizeThreshold, !detectCrossProjectClones) : null;
+		final NearMissFragmentComparator nearMissComparator = (detectNearMissClones) ? new NearMissFragmentComparator(
+				cloneSizeThreshold, nearMissSimilarityThreshold,
+				!detectCrossProjectClones, nearMissBucketLimit) : null;
 
 		final Thread[] threads = new Thread[tailoredThreadsCount - 1];
 		for (int i = 0; i < tailoredThreadsCount - 1; i++) {
 			threads[i] = new Thread(new BlockBasedCloneDetectingThread(
-					revisionsArray, detectedClones, fragmentRetriever, index,
-					cloneSizeThreshold, detectCrossProjectClones));
+					revisionsArray, detectedClones, sweep, index,
+					cloneSizeThreshold, detectCrossProjectClones,
+					incrementalComparator, nearMissComparator));
 			threads[i].start();
 		}
 
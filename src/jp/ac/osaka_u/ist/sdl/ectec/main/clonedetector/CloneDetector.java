@@ -61,7 +61,11 @@ public class CloneDetector {
 				dbManager.getFragmentRetriever(),
 				dbManager.getCloneRegisterer(), settings.getMaxBatchCount(),
 				settings.getCloneSizeThreshold(),
-				settings.isDetectCrossProjectClones());
+				settings.isDetectCrossProjectClones(),
+				settings.isDetectIncrementally(),
+				settings.isDetectNearMissClones(),
+				settings.getNearMissSimilarityThreshold(),
+				settings.getNearMissBucketLimit());
 		identifier.run();
 		logger.info("complete");
 	}
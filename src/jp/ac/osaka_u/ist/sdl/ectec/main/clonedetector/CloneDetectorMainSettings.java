@@ -21,6 +21,17 @@ import org.apache.commons.cli.Options;
  */
 public class CloneDetectorMainSettings extends AbstractSettings {
 
+	/**
+	 * the default lowest similarity between near-miss clones
+	 */
+	private static final double DEFAULT_NEAR_MISS_SIMILARITY_THRESHOLD = 0.8;
+
+	/**
+	 * the default maximum number of groups compared with each group in a
+	 * bucket of near-miss clone detection
+	 */
+	private static final int DEFAULT_NEAR_MISS_BUCKET_LIMIT = 32;
+
 	/**
 	 * the list of combined revision ids
 	 */
@@ -36,6 +47,27 @@ public class CloneDetectorMainSettings extends AbstractSettings {
 	 */
 	private int cloneSizeThreshold;
 
+	/**
+	 * whether detect clones incrementally or not
+	 */
+	private boolean detectIncrementally;
+
+	/**
+	 * whether detect near-miss clones or not
+	 */
+	private boolean detectNearMissClones;
+
+	/**
+	 * the lowest similarity between near-miss clones
+	 */
+	private double nearMissSimilarityThreshold;
+
+	/**
+	 * the maximum number of groups compared with each group in a bucket of
+	 * near-miss clone detection, 0 means no limit
+	 */
+	private int nearMissBucketLimit;
+
 	/**
 	 * get the list of combined revision ids
 	 * 
@@ -63,6 +95,43 @@ public class CloneDetectorMainSettings extends AbstractSettings {
 		return cloneSizeThreshold;
 	}
 
+	/**
+	 * get whether detect clones incrementally or not
+	 * 
+	 * @return
+	 */
+	public final boolean isDetectIncrementally() {
+		return detectIncrementally;
+	}
+
+	/**
+	 * get whether detect near-miss clones or not
+	 * 
+	 * @return
+	 */
+	public final boolean isDetectNearMissClones() {
+		return detectNearMissClones;
+	}
+
+	/**
+	 * get the lowest similarity between near-miss clones
+	 * 
+	 * @return
+	 */
+	public final double getNearMissSimilarityThreshold() {
+		return nearMissSimilarityThreshold;
+	}
+
+	/**
+	 * get the maximum number of groups compared with each group in a bucket
+	 * of near-miss clone detection
+	 * 
+	 * @return the limit, or 0 if there is no limit
+	 */
+	public final int getNearMissBucketLimit() {
+		return nearMissBucketLimit;
+	}
+
 	@Override
 	protected Options addParticularOptions(Options options) {
 		{
@@ -89,6 +158,39 @@ public class CloneDetectorMainSettings extends AbstractSettings {
 			options.addOption(cst);
 		}
 
+		{
+			final Option inc = new Option("inc", "incremental", true,
+					"whether detect clones incrementally");
+			inc.setArgs(1);
+			inc.setRequired(false);
+			options.addOption(inc);
+		}
+
+		{
+			final Option nm = new Option("nm", "near-miss", true,
+					"whether detect near-miss clones");
+			nm.setArgs(1);
+			nm.setRequired(false);
+			options.addOption(nm);
+		}
+
+		{
+			final Option nms = new Option("nms", "near-miss-similarity", true,
+					"the lowest similarity between near-miss clones");
+			nms.setArgs(1);
+			nms.setRequired(false);
+			options.addOption(nms);
+		}
+
+		{
+			final Option nmb = new Option("nmb", "near-miss-bucket-limit",
+					true,
+					"the maximum number of groups compared with each group in a bucket of near-miss clone detection, 0 means no limit");
+			nmb.setArgs(1);
+			nmb.setRequired(false);
+			options.addOption(nmb);
+		}
+
 		return options;
 	}
 
@@ -130,5 +232,72 @@ public class CloneDetectorMainSettings extends AbstractSettings {
 					+ " for -cst, it must be an integer value");
 		}
 		logger.info("clone size threshold: " + cloneSizeThreshold);
+
+		final String incStr = (cmd.hasOption("inc")) ? cmd
+				.getOptionValue("inc") : propReader
+				.getProperty(INCREMENTAL_CLONE_DETECTION);
+		if (incStr == null || incStr.equalsIgnoreCase("no")) {
+			detectIncrementally = false;
+		} else if (incStr.equalsIgnoreCase("yes")) {
+			detectIncrementally = true;
+		} else {
+			throw new IllegalSettingValueException("illegal value " + incStr
+					+ " for -inc");
+		}
+		logger.info("detect clones incrementally: " + detectIncrementally);
+
+		final String nmStr = (cmd.hasOption("nm")) ? cmd.getOptionValue("nm")
+				: propReader.getProperty(NEAR_MISS_CLONE_DETECTION);
+		if (nmStr == null || nmStr.equalsIgnoreCase("no")) {
+			detectNearMissClones = false;
+		} else if (nmStr.equalsIgnoreCase("yes")) {
+			detectNearMissClones = true;
+		} else {
+			throw new IllegalSettingValueException("illegal value " + nmStr
+					+ " for -nm");
+		}
+		logger.info("detect near-miss clones: " + detectNearMissClones);
+
+		if (detectNearMissClones) {
+			final String nmsStr = (cmd.hasOption("nms")) ? cmd
+					.getOptionValue("nms") : propReader
+					.getProperty(NEAR_MISS_SIMILARITY_THRESHOLD);
+			try {
+				nearMissSimilarityThreshold = (nmsStr == null) ? DEFAULT_NEAR_MISS_SIMILARITY_THRESHOLD
+						: Double.parseDouble(nmsStr);
+			} catch (Exception e) {
+				throw new IllegalSettingValueException("illegal value "
+						+ nmsStr
+						+ " was specified with -nms, it must be a double value");
+			}
+			if (nearMissSimilarityThreshold <= 0.0
+					|| nearMissSimilarityThreshold > 1.0) {
+				throw new IllegalSettingValueException("illegal value "
+						+ nmsStr
+						+ " was specified with -nms, it must be in (0.0, 1.0]");
+			}
+			logger.info("similarity threshold for near-miss clones: "
+					+ nearMissSimilarityThreshold);
+
+			final String nmbStr = (cmd.hasOption("nmb")) ? cmd
+					.getOptionValue("nmb") : propReader
+					.getProperty(NEAR_MISS_BUCKET_LIMIT);
+			try {
+				nearMissBucketLimit = (nmbStr == null) ? DEFAULT_NEAR_MISS_BUCKET_LIMIT
+						: Integer.parseInt(nmbStr);
+			} catch (Exception e) {
+				throw new IllegalSettingValueException("illegal value "
+						+ nmbStr
+						+ " was specified with -nmb, it must be an integer value");
+			}
+			if (nearMissBucketLimit < 0) {
+				throw new IllegalSettingValueException("illegal value "
+						+ nmbStr
+						+ " was specified with -nmb, it must not be negative");
+			}
+			logger.info("bucket limit for near-miss clones: "
+					+ ((nearMissBucketLimit == 0) ? "none" : Integer
+							.toString(nearMissBucketLimit)));
+		}
 	}
 }
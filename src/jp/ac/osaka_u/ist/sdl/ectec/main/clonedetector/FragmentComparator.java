@@ -2,21 +2,19 @@ package jp.ac.osaka_u.ist.sdl.ectec.main.clonedetector;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.SortedSet;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.util.IntComparator;
 
 /**
- * A class to detect code clones
+ * A class to detect code clones <br>
+ * code fragments are referred with their indexes in a columnar store, and
+ * fragments having the same hash value are gathered by sorting the indexes,
+ * and groups that may subsume each other are gathered by sorting the groups
  * 
  * @author k-hotta
  * 
@@ -46,75 +44,75 @@ public class FragmentComparator {
 	 * @return
 	 */
 	public Map<Long, DBCloneSetInfo> detectClones(
-			final Map<Long, DBCodeFragmentInfo> codeFragments) {
-		// sort fragments with their hash values
-		final Map<Long, Set<DBCodeFragmentInfo>> codeFragmentsSortedByHash = new HashMap<Long, Set<DBCodeFragmentInfo>>();
-		for (final Map.Entry<Long, DBCodeFragmentInfo> entry : codeFragments
-				.entrySet()) {
-			final DBCodeFragmentInfo codeFragment = entry.getValue();
-			if (codeFragment.getSize() < sizeThreshold) {
-				continue;
-			}
+			final CodeFragmentStore codeFragments) {
+		return detectClones(codeFragments, false);
+	}
 
-			final long hash = codeFragment.getHashForClone();
-			if (codeFragmentsSortedByHash.containsKey(hash)) {
-				codeFragmentsSortedByHash.get(hash).add(codeFragment);
-			} else {
-				final Set<DBCodeFragmentInfo> newSet = new HashSet<DBCodeFragmentInfo>();
-				newSet.add(codeFragment);
-				codeFragmentsSortedByHash.put(hash, newSet);
+	/**
+	 * detect clones
+	 * 
+	 * @param codeFragments
+	 * @param separateRepositories
+	 *            if true, fragments in different repositories are never
+	 *            regarded as clones of each other
+	 * @return
+	 */
+	Map<Long, DBCloneSetInfo> detectClones(
+			final CodeFragmentStore codeFragments,
+			final boolean separateRepositories) {
+		// sort fragments with their hash values and their locations
+		final int[] sortedIndexes = getTargetIndexes(codeFragments);
+		new FragmentSorter(codeFragments).sort(sortedIndexes);
+
+		// each group is sortedIndexes[groupStarts[i], groupStarts[i + 1])
+		final int[] groupStarts = splitIntoGroups(codeFragments,
+				sortedIndexes, separateRepositories);
+		final int numberOfGroups = groupStarts.length - 1;
+
+		final boolean[] toBeRemoved = new boolean[numberOfGroups];
+		for (int group = 0; group < numberOfGroups; group++) {
+			if (groupStarts[group + 1] - groupStarts[group] < 2) {
+				toBeRemoved[group] = true;
 			}
 		}
 
-		final Set<Long> processedHash = new TreeSet<Long>();
-		final Set<Long> toBeRemovedHash = new TreeSet<Long>();
-
-		for (final Map.Entry<Long, Set<DBCodeFragmentInfo>> entry1 : codeFragmentsSortedByHash
-				.entrySet()) {
-			if (processedHash.contains(entry1.getKey())) {
-				continue;
-			}
-			processedHash.add(entry1.getKey());
-
-			final Set<DBCodeFragmentInfo> fragments1 = entry1.getValue();
-			if (fragments1.size() < 2) {
-				toBeRemovedHash.add(entry1.getKey());
-				continue;
+		// a group can be subsumed only by groups having the same size and
+		// the same files in the same order, which are adjacent after sorting
+		final int[] candidates = getCandidateGroups(groupStarts, toBeRemoved);
+		final GroupSorter groupSorter = new GroupSorter(codeFragments,
+				sortedIndexes, groupStarts);
+		groupSorter.sort(candidates);
+
+		int classStart = 0;
+		while (classStart < candidates.length) {
+			int classEnd = classStart + 1;
+			while (classEnd < candidates.length
+					&& groupSorter.haveSameFiles(candidates[classStart],
+							candidates[classEnd])) {
+				classEnd++;
 			}
 
-			for (final Map.Entry<Long, Set<DBCodeFragmentInfo>> entry2 : codeFragmentsSortedByHash
-					.entrySet()) {
-				if (processedHash.contains(entry2.getKey())) {
-					continue;
-				}
-
-				final Set<DBCodeFragmentInfo> fragments2 = entry2.getValue();
-				if (fragments1.size() != fragments2.size()) {
-					continue;
-				}
-
-				if (subsume(fragments1, fragments2)) {
-					toBeRemovedHash.add(entry2.getKey());
-					processedHash.add(entry2.getKey());
-				} else if (subsume(fragments2, fragments1)) {
-					toBeRemovedHash.add(entry1.getKey());
+			for (int i = classStart; i < classEnd; i++) {
+				if (isSubsumed(codeFragments, sortedIndexes, groupStarts,
+						candidates, classStart, classEnd, candidates[i])) {
+					toBeRemoved[candidates[i]] = true;
 				}
 			}
-		}
 
-		for (final long toBeRemoved : toBeRemovedHash) {
-			codeFragmentsSortedByHash.remove(toBeRemoved);
+			classStart = classEnd;
 		}
 
 		// create instances of clone sets
 		final Map<Long, DBCloneSetInfo> result = new TreeMap<Long, DBCloneSetInfo>();
 
-		for (final Map.Entry<Long, Set<DBCodeFragmentInfo>> entry : codeFragmentsSortedByHash
-				.entrySet()) {
-			final Set<DBCodeFragmentInfo> fragmentsSet = entry.getValue();
+		for (int group = 0; group < numberOfGroups; group++) {
+			if (toBeRemoved[group]) {
+				continue;
+			}
+
 			final List<Long> elements = new ArrayList<Long>();
-			for (final DBCodeFragmentInfo element : fragmentsSet) {
-				elements.add(element.getId());
+			for (int i = groupStarts[group]; i < groupStarts[group + 1]; i++) {
+				elements.add(codeFragments.getId(sortedIndexes[i]));
 			}
 
 			if (elements.size() > 1) {
@@ -127,27 +125,159 @@ public class FragmentComparator {
 		return Collections.unmodifiableMap(result);
 	}
 
-	private boolean subsume(final Set<DBCodeFragmentInfo> fragments1,
-			final Set<DBCodeFragmentInfo> fragments2) {
-		assert fragments1.size() == fragments2.size();
+	/**
+	 * get the indexes of fragments whose sizes are not less than the
+	 * threshold
+	 * 
+	 * @param codeFragments
+	 * @return
+	 */
+	private int[] getTargetIndexes(final CodeFragmentStore codeFragments) {
+		int count = 0;
+		for (int i = 0; i < codeFragments.size(); i++) {
+			if (codeFragments.getSize(i) >= sizeThreshold) {
+				count++;
+			}
+		}
+
+		final int[] result = new int[count];
+		int position = 0;
+		for (int i = 0; i < codeFragments.size(); i++) {
+			if (codeFragments.getSize(i) >= sizeThreshold) {
+				result[position++] = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * split the sorted indexes into groups of fragments having the same hash
+	 * value
+	 * 
+	 * @param codeFragments
+	 * @param sortedIndexes
+	 * @param separateRepositories
+	 * @return the start of each group followed by the length of the indexes
+	 */
+	private int[] splitIntoGroups(final CodeFragmentStore codeFragments,
+			final int[] sortedIndexes, final boolean separateRepositories) {
+		final int[] starts = new int[sortedIndexes.length + 1];
+		int count = 0;
+
+		for (int i = 0; i < sortedIndexes.length; i++) {
+			if (i == 0) {
+				starts[count++] = i;
+				continue;
+			}
+
+			final int previous = sortedIndexes[i - 1];
+			final int current = sortedIndexes[i];
+			if (codeFragments.getHashForClone(previous) != codeFragments
+					.getHashForClone(current)
+					|| (separateRepositories && codeFragments
+							.getOwnerRepositoryId(previous) != codeFragments
+							.getOwnerRepositoryId(current))) {
+				starts[count++] = i;
+			}
+		}
+		starts[count++] = sortedIndexes.length;
+
+		final int[] result = new int[count];
+		System.arraycopy(starts, 0, result, 0, count);
+		return result;
+	}
 
-		final SortedSet<DBCodeFragmentInfo> fragments1Sorted = new TreeSet<DBCodeFragmentInfo>(
-				new FragmentSorter());
-		fragments1Sorted.addAll(fragments1);
-		final SortedSet<DBCodeFragmentInfo> fragments2Sorted = new TreeSet<DBCodeFragmentInfo>(
-				new FragmentSorter());
-		fragments2Sorted.addAll(fragments2);
+	/**
+	 * get the groups having two or more fragments
+	 * 
+	 * @param groupStarts
+	 * @param toBeRemoved
+	 * @return
+	 */
+	private int[] getCandidateGroups(final int[] groupStarts,
+			final boolean[] toBeRemoved) {
+		int count = 0;
+		for (int group = 0; group < toBeRemoved.length; group++) {
+			if (!toBeRemoved[group]) {
+				count++;
+			}
+		}
 
-		final DBCodeFragmentInfo[] fragments1Array = fragments1Sorted
-				.toArray(new DBCodeFragmentInfo[0]);
-		final DBCodeFragmentInfo[] fragments2Array = fragments2Sorted
-				.toArray(new DBCodeFragmentInfo[0]);
+		final int[] result = new int[count];
+		int position = 0;
+		for (int group = 0; group < toBeRemoved.length; group++) {
+			if (!toBeRemoved[group]) {
+				result[position++] = group;
+			}
+		}
+		return result;
+	}
 
-		for (int i = 0; i < fragments1Array.length; i++) {
-			final DBCodeFragmentInfo fragment1 = fragments1Array[i];
-			final DBCodeFragmentInfo fragment2 = fragments2Array[i];
+	/**
+	 * judge whether another group in candidates[classStart, classEnd)
+	 * subsumes the given group <br>
+	 * the candidates are sorted by the start lines of their first fragments,
+	 * so that only the ones starting at or before the given group are
+	 * examined <br>
+	 * if two groups subsume each other, the former one in the sorted indexes
+	 * survives
+	 * 
+	 * @param codeFragments
+	 * @param sortedIndexes
+	 * @param groupStarts
+	 * @param candidates
+	 * @param classStart
+	 * @param classEnd
+	 * @param group
+	 * @return
+	 */
+	private boolean isSubsumed(final CodeFragmentStore codeFragments,
+			final int[] sortedIndexes, final int[] groupStarts,
+			final int[] candidates, final int classStart, final int classEnd,
+			final int group) {
+		final int length = groupStarts[group + 1] - groupStarts[group];
+		final int startLine = codeFragments
+				.getStartLine(sortedIndexes[groupStarts[group]]);
+
+		for (int i = classStart; i < classEnd; i++) {
+			final int another = candidates[i];
+			if (codeFragments.getStartLine(sortedIndexes[groupStarts[another]]) > startLine) {
+				break;
+			}
+			if (another == group) {
+				continue;
+			}
 
-			if (!subsume(fragment1, fragment2)) {
+			if (subsume(codeFragments, sortedIndexes, groupStarts[another],
+					groupStarts[group], length)
+					&& (another < group || !subsume(codeFragments,
+							sortedIndexes, groupStarts[group],
+							groupStarts[another], length))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * judge whether every fragment in the first group subsumes the
+	 * corresponding fragment in the second group <br>
+	 * fragments in each group are sorted by their locations
+	 * 
+	 * @param codeFragments
+	 * @param sortedIndexes
+	 * @param start1
+	 * @param start2
+	 * @param length
+	 * @return
+	 */
+	private boolean subsume(final CodeFragmentStore codeFragments,
+			final int[] sortedIndexes, final int start1, final int start2,
+			final int length) {
+		for (int i = 0; i < length; i++) {
+			if (!subsume(codeFragments, sortedIndexes[start1 + i],
+					sortedIndexes[start2 + i])) {
 				return false;
 			}
 		}
@@ -155,50 +285,175 @@ public class FragmentComparator {
 		return true;
 	}
 
-	private boolean subsume(final DBCodeFragmentInfo fragment1,
-			final DBCodeFragmentInfo fragment2) {
-		if (fragment1.getOwnerRepositoryId() != fragment2
-				.getOwnerRepositoryId()) {
+	private boolean subsume(final CodeFragmentStore codeFragments,
+			final int fragment1, final int fragment2) {
+		if (codeFragments.getOwnerRepositoryId(fragment1) != codeFragments
+				.getOwnerRepositoryId(fragment2)) {
 			return false;
 		}
 
-		if (fragment1.getOwnerFileId() != fragment2.getOwnerFileId()) {
+		if (codeFragments.getOwnerFileId(fragment1) != codeFragments
+				.getOwnerFileId(fragment2)) {
 			return false;
 		}
 
-		final int start1 = fragment1.getStartLine();
-		final int start2 = fragment2.getStartLine();
-		final int end1 = fragment1.getEndLine();
-		final int end2 = fragment2.getEndLine();
+		final int start1 = codeFragments.getStartLine(fragment1);
+		final int start2 = codeFragments.getStartLine(fragment2);
+		final int end1 = codeFragments.getEndLine(fragment1);
+		final int end2 = codeFragments.getEndLine(fragment2);
 
 		return (start1 <= start2 && end1 >= end2);
 	}
 
-	private class FragmentSorter implements Comparator<DBCodeFragmentInfo> {
+	/**
+	 * a comparator to sort groups with their sizes, the files of their
+	 * fragments, and the location of their first fragments
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private class GroupSorter extends IntComparator {
+
+		private final CodeFragmentStore codeFragments;
+
+		private final int[] sortedIndexes;
+
+		private final int[] groupStarts;
+
+		private GroupSorter(final CodeFragmentStore codeFragments,
+				final int[] sortedIndexes, final int[] groupStarts) {
+			this.codeFragments = codeFragments;
+			this.sortedIndexes = sortedIndexes;
+			this.groupStarts = groupStarts;
+		}
 
 		@Override
-		public int compare(DBCodeFragmentInfo o1, DBCodeFragmentInfo o2) {
-			if (o1.getOwnerRepositoryId() < o2.getOwnerRepositoryId()) {
-				return -1;
-			} else if (o1.getOwnerRepositoryId() > o2.getOwnerRepositoryId()) {
-				return 1;
+		public int compare(int g1, int g2) {
+			int result = compareFiles(g1, g2);
+			if (result != 0) {
+				return result;
 			}
 
-			if (o1.getOwnerFileId() < o2.getOwnerFileId()) {
-				return -1;
-			} else if (o1.getOwnerFileId() > o2.getOwnerFileId()) {
-				return 1;
+			final int first1 = sortedIndexes[groupStarts[g1]];
+			final int first2 = sortedIndexes[groupStarts[g2]];
+
+			result = compareValues(codeFragments.getStartLine(first1),
+					codeFragments.getStartLine(first2));
+			if (result != 0) {
+				return result;
+			}
+
+			result = compareValues(codeFragments.getEndLine(first2),
+					codeFragments.getEndLine(first1));
+			if (result != 0) {
+				return result;
 			}
 
-			if (o1.getStartLine() < o2.getStartLine()) {
+			return compareValues(g1, g2);
+		}
+
+		/**
+		 * judge whether the given groups have the same size and the same
+		 * files in the same order
+		 * 
+		 * @param g1
+		 * @param g2
+		 * @return
+		 */
+		private boolean haveSameFiles(final int g1, final int g2) {
+			return compareFiles(g1, g2) == 0;
+		}
+
+		private int compareFiles(final int g1, final int g2) {
+			final int length1 = groupStarts[g1 + 1] - groupStarts[g1];
+			final int length2 = groupStarts[g2 + 1] - groupStarts[g2];
+			int result = compareValues(length1, length2);
+			if (result != 0) {
+				return result;
+			}
+
+			for (int i = 0; i < length1; i++) {
+				final int fragment1 = sortedIndexes[groupStarts[g1] + i];
+				final int fragment2 = sortedIndexes[groupStarts[g2] + i];
+
+				result = compareValues(
+						codeFragments.getOwnerRepositoryId(fragment1),
+						codeFragments.getOwnerRepositoryId(fragment2));
+				if (result != 0) {
+					return result;
+				}
+
+				result = compareValues(codeFragments.getOwnerFileId(fragment1),
+						codeFragments.getOwnerFileId(fragment2));
+				if (result != 0) {
+					return result;
+				}
+			}
+
+			return 0;
+		}
+
+		private int compareValues(final long l1, final long l2) {
+			if (l1 < l2) {
 				return -1;
-			} else if (o1.getStartLine() > o2.getStartLine()) {
+			} else if (l1 > l2) {
 				return 1;
 			}
 
-			if (o1.getEndLine() < o2.getEndLine()) {
+			return 0;
+		}
+
+	}
+
+	/**
+	 * a comparator to sort indexes of fragments with their hash values and
+	 * their locations
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private class FragmentSorter extends IntComparator {
+
+		private final CodeFragmentStore codeFragments;
+
+		private FragmentSorter(final CodeFragmentStore codeFragments) {
+			this.codeFragments = codeFragments;
+		}
+
+		@Override
+		public int compare(int i1, int i2) {
+			int result = compareValues(codeFragments.getHashForClone(i1),
+					codeFragments.getHashForClone(i2));
+			if (result != 0) {
+				return result;
+			}
+
+			result = compareValues(codeFragments.getOwnerRepositoryId(i1),
+					codeFragments.getOwnerRepositoryId(i2));
+			if (result != 0) {
+				return result;
+			}
+
+			result = compareValues(codeFragments.getOwnerFileId(i1),
+					codeFragments.getOwnerFileId(i2));
+			if (result != 0) {
+				return result;
+			}
+
+			result = compareValues(codeFragments.getStartLine(i1),
+					codeFragments.getStartLine(i2));
+			if (result != 0) {
+				return result;
+			}
+
+			return compareValues(codeFragments.getEndLine(i1),
+					codeFragments.getEndLine(i2));
+		}
+
+		private int compareValues(final long l1, final long l2) {
+			if (l1 < l2) {
 				return -1;
-			} else if (o1.getEndLine() > o2.getEndLine()) {
+			} else if (l1 > l2) {
 				return 1;
 			}
 
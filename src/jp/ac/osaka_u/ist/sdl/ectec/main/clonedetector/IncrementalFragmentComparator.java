@@ -0,0 +1,503 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.clonedetector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
+
+/**
+ * A class to detect code clones incrementally over consecutive combined
+ * revisions <br>
+ * this class keeps buckets of code fragments having the same hash value, and
+ * updates only the buckets that have fragments started or ended in each
+ * combined revision <br>
+ * the clone sets it detects are the same as the ones detected by
+ * FragmentComparator: each bucket having two or more fragments is a clone
+ * set unless another bucket of the same size subsumes it <br>
+ * as a bucket can be subsumed only by another one having the same size and
+ * the same first file, whether a bucket is subsumed is re-evaluated only for
+ * buckets sharing such a signature with changed ones <br>
+ * this class is not thread-safe
+ *
+ * @author k-hotta
+ *
+ */
+public class IncrementalFragmentComparator {
+
+	/**
+	 * the threshold of the size of clones
+	 */
+	private final int sizeThreshold;
+
+	/**
+	 * whether fragments in different repositories are never regarded as
+	 * clones of each other
+	 */
+	private final boolean separateRepositories;
+
+	/**
+	 * the buckets with their keys
+	 */
+	private final Map<BucketKey, Bucket> buckets;
+
+	/**
+	 * the buckets having two or more fragments with their signatures
+	 */
+	private final Map<Signature, Set<Bucket>> bucketsBySignature;
+
+	/**
+	 * the buckets regarded as clone sets
+	 */
+	private final Set<Bucket> cloneBuckets;
+
+	/**
+	 * the id of the combined revision whose fragments are in the buckets, or
+	 * null if the buckets are not up to date with any combined revision
+	 */
+	private Long combinedRevisionId;
+
+	public IncrementalFragmentComparator(final int sizeThreshold,
+			final boolean separateRepositories) {
+		this.sizeThreshold = sizeThreshold;
+		this.separateRepositories = separateRepositories;
+		this.buckets = new HashMap<BucketKey, Bucket>();
+		this.bucketsBySignature = new HashMap<Signature, Set<Bucket>>();
+		this.cloneBuckets = new HashSet<Bucket>();
+		this.combinedRevisionId = null;
+	}
+
+	/**
+	 * whether the buckets have the fragments alive in the given combined
+	 * revision
+	 *
+	 * @param combinedRevisionId
+	 * @return
+	 */
+	public boolean isAt(final long combinedRevisionId) {
+		return this.combinedRevisionId != null
+				&& this.combinedRevisionId == combinedRevisionId;
+	}
+
+	/**
+	 * discard all the buckets
+	 */
+	public void reset() {
+		buckets.clear();
+		bucketsBySignature.clear();
+		cloneBuckets.clear();
+		combinedRevisionId = null;
+	}
+
+	/**
+	 * rebuild the buckets with all the fragments alive in the given combined
+	 * revision
+	 *
+	 * @param combinedRevisionId
+	 * @param liveFragments
+	 */
+	public void rebuild(final long combinedRevisionId,
+			final CodeFragmentStore liveFragments) {
+		reset();
+		apply(combinedRevisionId, liveFragments, new CodeFragmentStore(1));
+	}
+
+	/**
+	 * move the buckets from the current combined revision to the given one
+	 *
+	 * @param combinedRevisionId
+	 * @param startedFragments
+	 *            fragments alive in the given revision but not in the
+	 *            current one
+	 * @param endedFragments
+	 *            fragments alive in the current revision but not in the
+	 *            given one
+	 */
+	public void update(final long combinedRevisionId,
+			final CodeFragmentStore startedFragments,
+			final CodeFragmentStore endedFragments) {
+		if (this.combinedRevisionId == null) {
+			throw new IllegalStateException(
+					"the buckets are not up to date with any combined revision");
+		}
+		apply(combinedRevisionId, startedFragments, endedFragments);
+	}
+
+	/**
+	 * get the ids of the fragments in each clone set <br>
+	 * the lists of buckets that have not changed are shared with the ones
+	 * returned before
+	 *
+	 * @return
+	 */
+	public List<List<Long>> getCloneSets() {
+		final List<List<Long>> result = new ArrayList<List<Long>>(
+				cloneBuckets.size());
+		for (final Bucket bucket : cloneBuckets) {
+			result.add(bucket.getElements());
+		}
+		return result;
+	}
+
+	private void apply(final long combinedRevisionId,
+			final CodeFragmentStore startedFragments,
+			final CodeFragmentStore endedFragments) {
+		// the buckets lose their states until they are re-evaluated
+		this.combinedRevisionId = null;
+
+		final Set<Bucket> changedBuckets = new LinkedHashSet<Bucket>();
+		final Set<Signature> affectedSignatures = new HashSet<Signature>();
+
+		for (int i = 0; i < endedFragments.size(); i++) {
+			if (endedFragments.getSize(i) < sizeThreshold) {
+				continue;
+			}
+			final Bucket bucket = buckets.get(getKey(endedFragments, i));
+			if (bucket == null) {
+				continue;
+			}
+			markChanged(bucket, changedBuckets, affectedSignatures);
+			bucket.members.remove(new Member(endedFragments, i));
+		}
+
+		for (int i = 0; i < startedFragments.size(); i++) {
+			if (startedFragments.getSize(i) < sizeThreshold) {
+				continue;
+			}
+			final BucketKey key = getKey(startedFragments, i);
+			Bucket bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = new Bucket(key);
+				buckets.put(key, bucket);
+			}
+			markChanged(bucket, changedBuckets, affectedSignatures);
+			bucket.members.add(new Member(startedFragments, i));
+		}
+
+		for (final Bucket bucket : changedBuckets) {
+			bucket.elements = null;
+			if (bucket.members.isEmpty()) {
+				buckets.remove(bucket.key);
+			} else if (bucket.members.size() > 1) {
+				final Signature signature = bucket.getSignature();
+				Set<Bucket> sameSignatureBuckets = bucketsBySignature
+						.get(signature);
+				if (sameSignatureBuckets == null) {
+					sameSignatureBuckets = new HashSet<Bucket>();
+					bucketsBySignature.put(signature, sameSignatureBuckets);
+				}
+				sameSignatureBuckets.add(bucket);
+				affectedSignatures.add(signature);
+			}
+		}
+
+		// buckets whose subsumers may have changed
+		for (final Signature signature : affectedSignatures) {
+			final Set<Bucket> sameSignatureBuckets = bucketsBySignature
+					.get(signature);
+			if (sameSignatureBuckets == null) {
+				continue;
+			}
+			for (final Bucket bucket : sameSignatureBuckets) {
+				if (isSubsumed(bucket, sameSignatureBuckets)) {
+					cloneBuckets.remove(bucket);
+				} else {
+					cloneBuckets.add(bucket);
+				}
+			}
+		}
+
+		this.combinedRevisionId = combinedRevisionId;
+	}
+
+	/**
+	 * detach the given bucket from the index of signatures when it changes
+	 * for the first time in the current update
+	 *
+	 * @param bucket
+	 * @param changedBuckets
+	 * @param affectedSignatures
+	 */
+	private void markChanged(final Bucket bucket,
+			final Set<Bucket> changedBuckets,
+			final Set<Signature> affectedSignatures) {
+		if (!changedBuckets.add(bucket)) {
+			return;
+		}
+
+		cloneBuckets.remove(bucket);
+
+		if (bucket.members.size() > 1) {
+			final Signature signature = bucket.getSignature();
+			final Set<Bucket> sameSignatureBuckets = bucketsBySignature
+					.get(signature);
+			sameSignatureBuckets.remove(bucket);
+			if (sameSignatureBuckets.isEmpty()) {
+				bucketsBySignature.remove(signature);
+			}
+			affectedSignatures.add(signature);
+		}
+	}
+
+	/**
+	 * judge whether another bucket subsumes the given one <br>
+	 * if two buckets subsume each other, the one that FragmentComparator
+	 * sorts first survives
+	 *
+	 * @param bucket
+	 * @param candidates
+	 * @return
+	 */
+	private boolean isSubsumed(final Bucket bucket,
+			final Set<Bucket> candidates) {
+		for (final Bucket another : candidates) {
+			if (another == bucket || !subsume(another, bucket)) {
+				continue;
+			}
+			if (another.key.compareTo(bucket.key) < 0
+					|| !subsume(bucket, another)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * judge whether every fragment in the first bucket subsumes the
+	 * corresponding fragment in the second bucket
+	 *
+	 * @param bucket1
+	 * @param bucket2
+	 * @return
+	 */
+	private boolean subsume(final Bucket bucket1, final Bucket bucket2) {
+		if (bucket1.members.size() != bucket2.members.size()) {
+			return false;
+		}
+
+		final Iterator<Member> iterator1 = bucket1.members.iterator();
+		final Iterator<Member> iterator2 = bucket2.members.iterator();
+		while (iterator1.hasNext()) {
+			if (!iterator1.next().subsume(iterator2.next())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private BucketKey getKey(final CodeFragmentStore codeFragments,
+			final int index) {
+		return new BucketKey(codeFragments.getHashForClone(index),
+				(separateRepositories) ? codeFragments
+						.getOwnerRepositoryId(index) : 0);
+	}
+
+	/**
+	 * the key of a bucket
+	 *
+	 * @author k-hotta
+	 *
+	 */
+	private static class BucketKey implements Comparable<BucketKey> {
+
+		private final long hash;
+
+		private final long repositoryId;
+
+		private BucketKey(final long hash, final long repositoryId) {
+			this.hash = hash;
+			this.repositoryId = repositoryId;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof BucketKey)) {
+				return false;
+			}
+			final BucketKey another = (BucketKey) o;
+			return hash == another.hash
+					&& repositoryId == another.repositoryId;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (hash ^ (hash >>> 32)) * 31
+					+ (int) (repositoryId ^ (repositoryId >>> 32));
+		}
+
+		@Override
+		public int compareTo(final BucketKey another) {
+			if (hash != another.hash) {
+				return (hash < another.hash) ? -1 : 1;
+			}
+			if (repositoryId != another.repositoryId) {
+				return (repositoryId < another.repositoryId) ? -1 : 1;
+			}
+			return 0;
+		}
+
+	}
+
+	/**
+	 * the size and the location of the first fragment of a bucket, which
+	 * must be shared by buckets subsuming each other
+	 *
+	 * @author k-hotta
+	 *
+	 */
+	private static class Signature {
+
+		private final int size;
+
+		private final long repositoryId;
+
+		private final long fileId;
+
+		private Signature(final int size, final long repositoryId,
+				final long fileId) {
+			this.size = size;
+			this.repositoryId = repositoryId;
+			this.fileId = fileId;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Signature)) {
+				return false;
+			}
+			final Signature another = (Signature) o;
+			return size == another.size
+					&& repositoryId == another.repositoryId
+					&& fileId == another.fileId;
+		}
+
+		@Override
+		public int hashCode() {
+			return (size * 31 + (int) (repositoryId ^ (repositoryId >>> 32)))
+					* 31 + (int) (fileId ^ (fileId >>> 32));
+		}
+
+	}
+
+	/**
+	 * a bucket of fragments having the same hash value <br>
+	 * the fragments are sorted in the same order as FragmentComparator
+	 *
+	 * @author k-hotta
+	 *
+	 */
+	private static class Bucket {
+
+		private final BucketKey key;
+
+		private final TreeSet<Member> members;
+
+		/**
+		 * the ids of the members, or null if they have not been listed since
+		 * the last change
+		 */
+		private List<Long> elements;
+
+		private Bucket(final BucketKey key) {
+			this.key = key;
+			this.members = new TreeSet<Member>();
+			this.elements = null;
+		}
+
+		private Signature getSignature() {
+			final Member first = members.first();
+			return new Signature(members.size(), first.repositoryId,
+					first.fileId);
+		}
+
+		private List<Long> getElements() {
+			if (elements == null) {
+				final List<Long> ids = new ArrayList<Long>(members.size());
+				for (final Member member : members) {
+					ids.add(member.id);
+				}
+				elements = Collections.unmodifiableList(ids);
+			}
+			return elements;
+		}
+
+	}
+
+	/**
+	 * a fragment in a bucket
+	 *
+	 * @author k-hotta
+	 *
+	 */
+	private static class Member implements Comparable<Member> {
+
+		private final long id;
+
+		private final long repositoryId;
+
+		private final long fileId;
+
+		private final int startLine;
+
+		private final int endLine;
+
+		private Member(final CodeFragmentStore codeFragments, final int index) {
+			this.id = codeFragments.getId(index);
+			this.repositoryId = codeFragments.getOwnerRepositoryId(index);
+			this.fileId = codeFragments.getOwnerFileId(index);
+			this.startLine = codeFragments.getStartLine(index);
+			this.endLine = codeFragments.getEndLine(index);
+		}
+
+		private boolean subsume(final Member another) {
+			return repositoryId == another.repositoryId
+					&& fileId == another.fileId
+					&& startLine <= another.startLine
+					&& endLine >= another.endLine;
+		}
+
+		@Override
+		public int compareTo(final Member another) {
+			int result = compareValues(repositoryId, another.repositoryId);
+			if (result != 0) {
+				return result;
+			}
+
+			result = compareValues(fileId, another.fileId);
+			if (result != 0) {
+				return result;
+			}
+
+			result = compareValues(startLine, another.startLine);
+			if (result != 0) {
+				return result;
+			}
+
+			result = compareValues(endLine, another.endLine);
+			if (result != 0) {
+				return result;
+			}
+
+			return compareValues(id, another.id);
+		}
+
+		private int compareValues(final long l1, final long l2) {
+			if (l1 < l2) {
+				return -1;
+			} else if (l1 > l2) {
+				return 1;
+			}
+
+			return 0;
+		}
+
+	}
+
+}
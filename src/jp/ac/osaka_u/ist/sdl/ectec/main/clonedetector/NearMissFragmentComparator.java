@@ -0,0 +1,420 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.clonedetector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.util.IntComparator;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A class to detect near-miss clones with min-hash signatures of code
+ * fragments <br>
+ * fragments having the same hash value are gathered into a group as exact
+ * clones, and the signatures of the groups are split into bands <br>
+ * two groups become a candidate pair if they have the same values in a band
+ * (locality sensitive hashing), and the candidate pairs whose signatures are
+ * similar enough make clone sets consisting of the fragments in both the
+ * groups <br>
+ * instances of this class have no states, so that they can be shared by
+ * threads
+ * 
+ * @author k-hotta
+ * 
+ */
+public class NearMissFragmentComparator {
+
+	/**
+	 * the logger
+	 */
+	private static final Logger logger = LoggingManager
+			.getLogger(NearMissFragmentComparator.class.getName());
+
+	/**
+	 * the number of bands in a signature
+	 */
+	private static final int BANDS = 8;
+
+	/**
+	 * the threshold of the size of clones
+	 */
+	private final int sizeThreshold;
+
+	/**
+	 * the lowest similarity between near-miss clones
+	 */
+	private final double similarityThreshold;
+
+	/**
+	 * whether fragments in different repositories are never regarded as
+	 * clones of each other
+	 */
+	private final boolean separateRepositories;
+
+	/**
+	 * the maximum number of groups compared with each group in a bucket, or 0
+	 * if there is no limit <br>
+	 * this keeps the number of candidate pairs linear to the number of groups
+	 * even if a lot of groups fall into the same bucket
+	 */
+	private final int maxComparisonsInBucket;
+
+	public NearMissFragmentComparator(final int sizeThreshold,
+			final double similarityThreshold,
+			final boolean separateRepositories,
+			final int maxComparisonsInBucket) {
+		this.sizeThreshold = sizeThreshold;
+		this.similarityThreshold = similarityThreshold;
+		this.separateRepositories = separateRepositories;
+		this.maxComparisonsInBucket = maxComparisonsInBucket;
+	}
+
+	/**
+	 * detect near-miss clones <br>
+	 * fragments without signatures are ignored
+	 * 
+	 * @param combinedRevisionId
+	 * @param codeFragments
+	 * @return
+	 */
+	public Map<Long, DBCloneSetInfo> detectClones(
+			final long combinedRevisionId,
+			final CodeFragmentStore codeFragments) {
+		// gather exact clones into groups
+		final int[] sortedIndexes = getTargetIndexes(codeFragments);
+		new FragmentSorter(codeFragments).sort(sortedIndexes);
+
+		// each group is sortedIndexes[groupStarts[i], groupStarts[i + 1])
+		final int[] groupStarts = splitIntoGroups(codeFragments, sortedIndexes);
+		final int numberOfGroups = groupStarts.length - 1;
+
+		final Map<Long, DBCloneSetInfo> result = new TreeMap<Long, DBCloneSetInfo>();
+		if (numberOfGroups < 2) {
+			return Collections.unmodifiableMap(result);
+		}
+
+		final int[][] signatures = new int[numberOfGroups][];
+		for (int group = 0; group < numberOfGroups; group++) {
+			signatures[group] = codeFragments
+					.getSignature(sortedIndexes[groupStarts[group]]);
+		}
+
+		final long[] bandKeys = new long[numberOfGroups];
+		final int[] groups = new int[numberOfGroups];
+		final BucketSorter bucketSorter = new BucketSorter(bandKeys);
+		long skippedComparisons = 0;
+
+		for (int band = 0; band < BANDS; band++) {
+			for (int group = 0; group < numberOfGroups; group++) {
+				bandKeys[group] = getBandKey(signatures[group], band);
+				groups[group] = group;
+			}
+			bucketSorter.sort(groups);
+
+			int bucketStart = 0;
+			while (bucketStart < numberOfGroups) {
+				int bucketEnd = bucketStart + 1;
+				while (bucketEnd < numberOfGroups
+						&& bandKeys[groups[bucketEnd]] == bandKeys[groups[bucketStart]]) {
+					bucketEnd++;
+				}
+
+				for (int i = bucketStart; i < bucketEnd; i++) {
+					int limit = bucketEnd;
+					if (maxComparisonsInBucket > 0
+							&& bucketEnd - (i + 1) > maxComparisonsInBucket) {
+						limit = i + 1 + maxComparisonsInBucket;
+						skippedComparisons += bucketEnd - limit;
+					}
+					for (int j = i + 1; j < limit; j++) {
+						final DBCloneSetInfo cloneSet = compare(
+								combinedRevisionId, codeFragments,
+								sortedIndexes, groupStarts, signatures,
+								groups[i], groups[j], band);
+						if (cloneSet != null) {
+							result.put(cloneSet.getId(), cloneSet);
+						}
+					}
+				}
+
+				bucketStart = bucketEnd;
+			}
+		}
+
+		if (skippedComparisons > 0) {
+			logger.info(skippedComparisons
+					+ " candidate pairs were not compared in combined revision "
+					+ combinedRevisionId + " because of the bucket limit "
+					+ maxComparisonsInBucket);
+		}
+
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * compare the given candidate pair of groups
+	 * 
+	 * @return a clone set, or null if the groups are not near-miss clones or
+	 *         the pair has already been compared in a former band
+	 */
+	private DBCloneSetInfo compare(final long combinedRevisionId,
+			final CodeFragmentStore codeFragments, final int[] sortedIndexes,
+			final int[] groupStarts, final int[][] signatures,
+			final int group1, final int group2, final int band) {
+		final int[] signature1 = signatures[group1];
+		final int[] signature2 = signatures[group2];
+
+		// keys of different bands can collide
+		if (signature1.length != signature2.length
+				|| !isSameBand(signature1, signature2, band)) {
+			return null;
+		}
+
+		// the pair has been compared in the first band they share
+		for (int former = 0; former < band; former++) {
+			if (isSameBand(signature1, signature2, former)) {
+				return null;
+			}
+		}
+
+		if (separateRepositories
+				&& codeFragments.getOwnerRepositoryId(sortedIndexes[groupStarts[group1]]) != codeFragments
+						.getOwnerRepositoryId(sortedIndexes[groupStarts[group2]])) {
+			return null;
+		}
+
+		final double similarity = calcSimilarity(signature1, signature2);
+		if (similarity < similarityThreshold) {
+			return null;
+		}
+
+		// a block is similar to its enclosing block having a few more
+		// statements, but they are not clones
+		for (int i = groupStarts[group1]; i < groupStarts[group1 + 1]; i++) {
+			for (int j = groupStarts[group2]; j < groupStarts[group2 + 1]; j++) {
+				if (overlap(codeFragments, sortedIndexes[i], sortedIndexes[j])) {
+					return null;
+				}
+			}
+		}
+
+		final List<Long> elements = new ArrayList<Long>();
+		for (int i = groupStarts[group1]; i < groupStarts[group1 + 1]; i++) {
+			elements.add(codeFragments.getId(sortedIndexes[i]));
+		}
+		for (int i = groupStarts[group2]; i < groupStarts[group2 + 1]; i++) {
+			elements.add(codeFragments.getId(sortedIndexes[i]));
+		}
+		Collections.sort(elements);
+
+		return new DBCloneSetInfo(combinedRevisionId, elements, similarity);
+	}
+
+	/**
+	 * calculate the ratio of the same values in the given signatures <br>
+	 * the calculation stops as soon as the ratio turns out to be less than
+	 * the threshold
+	 * 
+	 * @param signature1
+	 * @param signature2
+	 * @return the ratio, or a value less than the threshold
+	 */
+	private double calcSimilarity(final int[] signature1,
+			final int[] signature2) {
+		final int length = signature1.length;
+		final int allowedMismatches = (int) Math.floor(length
+				* (1.0 - similarityThreshold) + 1e-9);
+
+		int mismatches = 0;
+		for (int i = 0; i < length; i++) {
+			if (signature1[i] != signature2[i]) {
+				mismatches++;
+				if (mismatches > allowedMismatches) {
+					return -1.0;
+				}
+			}
+		}
+
+		return (double) (length - mismatches) / length;
+	}
+
+	private boolean isSameBand(final int[] signature1, final int[] signature2,
+			final int band) {
+		final int rows = signature1.length / BANDS;
+		for (int i = band * rows; i < (band + 1) * rows; i++) {
+			if (signature1[i] != signature2[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long getBandKey(final int[] signature, final int band) {
+		final int rows = signature.length / BANDS;
+		long key = band;
+		for (int i = band * rows; i < (band + 1) * rows; i++) {
+			key = key * 0x9E3779B97F4A7C15L + signature[i];
+		}
+		return key;
+	}
+
+	private boolean overlap(final CodeFragmentStore codeFragments,
+			final int fragment1, final int fragment2) {
+		return codeFragments.getOwnerRepositoryId(fragment1) == codeFragments
+				.getOwnerRepositoryId(fragment2)
+				&& codeFragments.getOwnerFileId(fragment1) == codeFragments
+						.getOwnerFileId(fragment2)
+				&& codeFragments.getStartLine(fragment1) <= codeFragments
+						.getEndLine(fragment2)
+				&& codeFragments.getStartLine(fragment2) <= codeFragments
+						.getEndLine(fragment1);
+	}
+
+	/**
+	 * get the indexes of fragments that have signatures and whose sizes are
+	 * not less than the threshold
+	 * 
+	 * @param codeFragments
+	 * @return
+	 */
+	private int[] getTargetIndexes(final CodeFragmentStore codeFragments) {
+		int count = 0;
+		for (int i = 0; i < codeFragments.size(); i++) {
+			if (isTarget(codeFragments, i)) {
+				count++;
+			}
+		}
+
+		final int[] result = new int[count];
+		int position = 0;
+		for (int i = 0; i < codeFragments.size(); i++) {
+			if (isTarget(codeFragments, i)) {
+				result[position++] = i;
+			}
+		}
+		return result;
+	}
+
+	private boolean isTarget(final CodeFragmentStore codeFragments,
+			final int index) {
+		final int[] signature = codeFragments.getSignature(index);
+		return codeFragments.getSize(index) >= sizeThreshold
+				&& signature != null && signature.length >= BANDS;
+	}
+
+	/**
+	 * split the sorted indexes into groups of fragments having the same hash
+	 * value
+	 * 
+	 * @param codeFragments
+	 * @param sortedIndexes
+	 * @return the start of each group followed by the length of the indexes
+	 */
+	private int[] splitIntoGroups(final CodeFragmentStore codeFragments,
+			final int[] sortedIndexes) {
+		final int[] starts = new int[sortedIndexes.length + 1];
+		int count = 0;
+
+		for (int i = 0; i < sortedIndexes.length; i++) {
+			if (i == 0) {
+				starts[count++] = i;
+				continue;
+			}
+
+			final int previous = sortedIndexes[i - 1];
+			final int current = sortedIndexes[i];
+			if (codeFragments.getHashForClone(previous) != codeFragments
+					.getHashForClone(current)
+					|| (separateRepositories && codeFragments
+							.getOwnerRepositoryId(previous) != codeFragments
+							.getOwnerRepositoryId(current))) {
+				starts[count++] = i;
+			}
+		}
+		starts[count++] = sortedIndexes.length;
+
+		final int[] result = new int[count];
+		System.arraycopy(starts, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * a comparator to sort groups with their keys of a band
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private static class BucketSorter extends IntComparator {
+
+		private final long[] bandKeys;
+
+		private BucketSorter(final long[] bandKeys) {
+			this.bandKeys = bandKeys;
+		}
+
+		@Override
+		public int compare(int g1, int g2) {
+			if (bandKeys[g1] < bandKeys[g2]) {
+				return -1;
+			} else if (bandKeys[g1] > bandKeys[g2]) {
+				return 1;
+			}
+
+			return (g1 < g2) ? -1 : ((g1 == g2) ? 0 : 1);
+		}
+
+	}
+
+	/**
+	 * a comparator to sort indexes of fragments with their hash values and
+	 * their ids
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private class FragmentSorter extends IntComparator {
+
+		private final CodeFragmentStore codeFragments;
+
+		private FragmentSorter(final CodeFragmentStore codeFragments) {
+			this.codeFragments = codeFragments;
+		}
+
+		@Override
+		public int compare(int i1, int i2) {
+			int result = compareValues(codeFragments.getHashForClone(i1),
+					codeFragments.getHashForClone(i2));
+			if (result != 0) {
+				return result;
+			}
+
+			if (separateRepositories) {
+				result = compareValues(codeFragments.getOwnerRepositoryId(i1),
+						codeFragments.getOwnerRepositoryId(i2));
+				if (result != 0) {
+					return result;
+				}
+			}
+
+			return compareValues(i1, i2);
+		}
+
+		private int compareValues(final long l1, final long l2) {
+			if (l1 < l2) {
+				return -1;
+			} else if (l1 > l2) {
+				return 1;
+			}
+
+			return 0;
+		}
+
+	}
+
+}
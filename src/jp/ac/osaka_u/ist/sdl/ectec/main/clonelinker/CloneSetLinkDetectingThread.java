@@ -1,18 +1,18 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.clonelinker;
 
-import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.cache.RevisionElementCache;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetLinkInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedCommitInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CloneSetRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentLinkRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindQueue;
 
 import org.apache.log4j.Logger;
 
@@ -41,30 +41,37 @@ public class CloneSetLinkDetectingThread implements Runnable {
 	private final DBCombinedCommitInfo[] targetCombinedCommits;
 
 	/**
-	 * a map having detected links of clones
+	 * the queue of detected links of clones to be registered
 	 */
-	private final ConcurrentMap<Long, DBCloneSetLinkInfo> detectedCloneLinks;
+	private final WriteBehindQueue<DBCloneSetLinkInfo> cloneLinkQueue;
 
 	/**
-	 * the map between revision id and clone sets including in the revision
+	 * the cache of clone sets included in each revision
 	 */
-	private final ConcurrentMap<Long, Map<Long, DBCloneSetInfo>> cloneSets;
+	private final RevisionElementCache<Map<Long, DBCloneSetInfo>> cloneSets;
 
 	/**
-	 * the retriever for code fragment links
+	 * the distance between the combined commit being processed and the one
+	 * whose clone sets are prefetched
 	 */
-	private final CodeFragmentLinkRetriever fragmentLinkRetriever;
+	private final int prefetchDistance;
 
 	/**
-	 * the retriever for clones
+	 * the retriever for code fragment links
 	 */
-	private final CloneSetRetriever cloneRetriever;
+	private final CodeFragmentLinkRetriever fragmentLinkRetriever;
 
 	/**
 	 * already processed combined commits
 	 */
 	private final ConcurrentMap<Long, DBCombinedCommitInfo> processedCombinedCommits;
 
+	/**
+	 * id of a combined revision and a collection of ids of combined commits
+	 * that relates to the revision
+	 */
+	private final Map<Long, Collection<Long>> combinedRevisionAndRelatedCombinedCommits;
+
 	/**
 	 * a counter that points the current state of the processing
 	 */
@@ -72,18 +79,20 @@ public class CloneSetLinkDetectingThread implements Runnable {
 
 	public CloneSetLinkDetectingThread(
 			final DBCombinedCommitInfo[] targetCombinedCommits,
-			final ConcurrentMap<Long, DBCloneSetLinkInfo> detectedCloneLinks,
-			final ConcurrentMap<Long, Map<Long, DBCloneSetInfo>> cloneSets,
+			final WriteBehindQueue<DBCloneSetLinkInfo> cloneLinkQueue,
+			final RevisionElementCache<Map<Long, DBCloneSetInfo>> cloneSets,
+			final int prefetchDistance,
 			final CodeFragmentLinkRetriever fragmentLinkRetriever,
-			final CloneSetRetriever cloneRetriever,
 			final ConcurrentMap<Long, DBCombinedCommitInfo> processedCombinedCommits,
+			final Map<Long, Collection<Long>> combinedRevisionAndRelatedCombinedCommits,
 			final AtomicInteger index) {
 		this.targetCombinedCommits = targetCombinedCommits;
-		this.detectedCloneLinks = detectedCloneLinks;
+		this.cloneLinkQueue = cloneLinkQueue;
 		this.cloneSets = cloneSets;
+		this.prefetchDistance = prefetchDistance;
 		this.fragmentLinkRetriever = fragmentLinkRetriever;
-		this.cloneRetriever = cloneRetriever;
 		this.processedCombinedCommits = processedCombinedCommits;
+		this.combinedRevisionAndRelatedCombinedCommits = combinedRevisionAndRelatedCombinedCommits;
 		this.index = index;
 	}
 
@@ -97,12 +106,15 @@ public class CloneSetLinkDetectingThread implements Runnable {
 			}
 
 			final DBCombinedCommitInfo targetCombinedCommit = targetCombinedCommits[currentIndex];
+			prefetchElements(currentIndex + prefetchDistance);
 
 			final long beforeCombinedRevisionId = targetCombinedCommit
 					.getBeforeCombinedRevisionId();
 			if (beforeCombinedRevisionId == -1) {
 				processedCombinedCommits.put(targetCombinedCommit.getId(),
 						targetCombinedCommit);
+				releaseElements(targetCombinedCommit
+						.getAfterCombinedRevisionId());
 				logger.info("[" + processedCombinedCommits.size() + "/"
 						+ targetCombinedCommits.length
 						+ "] processed the combined commit "
@@ -112,28 +124,41 @@ public class CloneSetLinkDetectingThread implements Runnable {
 			final long afterCombinedRevisionId = targetCombinedCommit
 					.getAfterCombinedRevisionId();
 
+			Map<Long, DBCloneSetLinkInfo> cloneLinks = null;
 			try {
-				// retrieve necessary elements
-				retrieveElements(beforeCombinedRevisionId);
-				retrieveElements(afterCombinedRevisionId);
-
 				final Map<Long, DBCodeFragmentLinkInfo> fragmentLinks = fragmentLinkRetriever
 						.retrieveElementsWithBeforeCombinedRevision(beforeCombinedRevisionId);
 
 				final CloneSetLinker linker = new CloneSetLinker();
-				detectedCloneLinks.putAll(linker.detectCloneSetLinks(cloneSets
-						.get(beforeCombinedRevisionId).values(),
+				cloneLinks = linker.detectCloneSetLinks(
+						cloneSets.get(beforeCombinedRevisionId).values(),
 						cloneSets.get(afterCombinedRevisionId).values(),
 						fragmentLinks, beforeCombinedRevisionId,
-						afterCombinedRevisionId));
+						afterCombinedRevisionId);
 
 			} catch (Exception e) {
-				eLogger.warn("something is wrong in processing the combined commit "
-						+ targetCombinedCommit.getId());
+				eLogger.warn(
+						"something is wrong in processing the combined commit "
+								+ targetCombinedCommit.getId(), e);
+			}
+
+			// an IllegalStateException thrown by the queue means that the
+			// writer has stopped, so that it stops this worker too
+			if (cloneLinks != null) {
+				try {
+					cloneLinkQueue.putAll(cloneLinks.values());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(
+							"interrupted while registering the links of the combined commit "
+									+ targetCombinedCommit.getId(), e);
+				}
 			}
 
 			processedCombinedCommits.put(targetCombinedCommit.getId(),
 					targetCombinedCommit);
+			releaseElements(beforeCombinedRevisionId);
+			releaseElements(afterCombinedRevisionId);
 			logger.info("[" + processedCombinedCommits.size() + "/"
 					+ targetCombinedCommits.length
 					+ "] processed the combined commit "
@@ -142,21 +167,41 @@ public class CloneSetLinkDetectingThread implements Runnable {
 	}
 
 	/**
-	 * retrieve elements if they have not been stored into the maps
+	 * start loading clones in the combined revisions of the combined commit at
+	 * the given index in the background
 	 * 
-	 * @param combinedRevisionId
-	 * @throws SQLException
+	 * @param commitIndex
 	 */
-	private void retrieveElements(final long combinedRevisionId)
-			throws Exception {
-		synchronized (cloneSets) {
-			if (!cloneSets.containsKey(combinedRevisionId)) {
-				final Map<Long, DBCloneSetInfo> retrievedClones = cloneRetriever
-						.retrieveElementsInSpecifiedRevision(combinedRevisionId);
-				final Map<Long, DBCloneSetInfo> concurrentRetrievedClones = new ConcurrentHashMap<Long, DBCloneSetInfo>();
-				concurrentRetrievedClones.putAll(retrievedClones);
-				cloneSets.put(combinedRevisionId, concurrentRetrievedClones);
+	private void prefetchElements(final int commitIndex) {
+		if (commitIndex >= targetCombinedCommits.length) {
+			return;
+		}
+
+		final DBCombinedCommitInfo combinedCommit = targetCombinedCommits[commitIndex];
+		for (final long combinedRevisionId : new long[] {
+				combinedCommit.getBeforeCombinedRevisionId(),
+				combinedCommit.getAfterCombinedRevisionId() }) {
+			if (combinedRevisionId != -1) {
+				cloneSets.prefetch(combinedRevisionId);
 			}
 		}
 	}
+
+	/**
+	 * remove clones in the given combined revision from the cache if all the
+	 * combined commits related to the revision have been processed
+	 * 
+	 * @param combinedRevisionId
+	 */
+	private void releaseElements(final long combinedRevisionId) {
+		final Collection<Long> relatedCombinedCommits = combinedRevisionAndRelatedCombinedCommits
+				.get(combinedRevisionId);
+		if (relatedCombinedCommits == null
+				|| !processedCombinedCommits.keySet().containsAll(
+						relatedCombinedCommits)) {
+			return;
+		}
+
+		cloneSets.invalidate(combinedRevisionId);
+	}
 }
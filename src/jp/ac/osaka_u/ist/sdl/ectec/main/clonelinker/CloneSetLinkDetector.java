@@ -61,7 +61,8 @@ public class CloneSetLinkDetector {
 				targetCombinedCommits, settings.getThreads(),
 				dbManager.getFragmentLinkRetriever(),
 				dbManager.getCloneRetriever(),
-				dbManager.getCloneLinkRegisterer(), settings.getMaxBatchCount());
+				dbManager.getCloneLinkRegisterer(), settings.getMaxBatchCount(),
+				settings.getCacheCapacity());
 		identifier.run();
 		logger.info("complete");
 	}
@@ -76,7 +76,8 @@ public class CloneSetLinkDetectorMain {
 			final CloneSetLinkDetectorMainSettings settings) throws Exception {
 		// make a connection between the db file
 		dbManager = new DBConnectionManager(settings.getDBConfig(),
-				settings.getMaxBatchCount());
+				settings.getMaxBatchCount(),
+				settings.getMaxLookupConnections());
 		logger.info("connected to the db");
 
 		dbManager.initializeElementCounters(settings.getHeaderOfId());
@@ -8,12 +8,19 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.cache.IRevisionElementLoader;
+import jp.ac.osaka_u.ist.sdl.ectec.db.cache.RevisionElementCache;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetLinkInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedCommitInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.CloneSetLinkRegisterer;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CloneSetRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentLinkRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindPipeline;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindQueue;
+
+import org.apache.log4j.Logger;
 
 /**
  * A class for managing clone set link detectors
@@ -23,6 +30,12 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentLinkRetriever;
  */
 public class CloneSetLinkIdentifier {
 
+	/**
+	 * the logger
+	 */
+	private static final Logger logger = LoggingManager
+			.getLogger(CloneSetLinkIdentifier.class.getName());
+
 	/**
 	 * the target commits
 	 */
@@ -49,23 +62,29 @@ public class CloneSetLinkIdentifier {
 	private final CloneSetLinkRegisterer cloneLinkRegisterer;
 
 	/**
-	 * the threshold for storing elements
+	 * the number of elements registered into db at once
 	 */
 	private final int maxElementsCount;
 
+	/**
+	 * the maximum number of elements kept in the cache of clone sets
+	 */
+	private final long cacheCapacity;
+
 	public CloneSetLinkIdentifier(
 			final Map<Long, DBCombinedCommitInfo> combinedCommits,
 			final int threadsCount,
 			final CodeFragmentLinkRetriever fragmentLinkRetriever,
 			final CloneSetRetriever cloneRetriever,
 			final CloneSetLinkRegisterer cloneLinkRegisterer,
-			final int maxElementsCount) {
+			final int maxElementsCount, final long cacheCapacity) {
 		this.combinedCommits = combinedCommits;
 		this.threadsCount = threadsCount;
 		this.fragmentLinkRetriever = fragmentLinkRetriever;
 		this.cloneRetriever = cloneRetriever;
 		this.cloneLinkRegisterer = cloneLinkRegisterer;
 		this.maxElementsCount = maxElementsCount;
+		this.cacheCapacity = cacheCapacity;
 	}
 
 	public void run() throws Exception {
@@ -78,26 +97,53 @@ public class CloneSetLinkIdentifier {
 
 		final Map<Long, Collection<Long>> combinedRevisionAndRelatedCombinedCommits = detectCombinedRevisionAndRelatedCombinedCommits();
 
-		final ConcurrentMap<Long, DBCloneSetLinkInfo> detectedCloneLinks = new ConcurrentHashMap<Long, DBCloneSetLinkInfo>();
-		final ConcurrentMap<Long, Map<Long, DBCloneSetInfo>> cloneSets = new ConcurrentHashMap<Long, Map<Long, DBCloneSetInfo>>();
+		final RevisionElementCache<Map<Long, DBCloneSetInfo>> cloneSets = new RevisionElementCache<Map<Long, DBCloneSetInfo>>(
+				"Clone Set", new IRevisionElementLoader<Map<Long, DBCloneSetInfo>>() {
+					@Override
+					public Map<Long, DBCloneSetInfo> load(
+							final long combinedRevisionId) throws Exception {
+						return cloneRetriever
+								.retrieveElementsInSpecifiedRevision(combinedRevisionId);
+					}
+
+					@Override
+					public long weigh(final Map<Long, DBCloneSetInfo> elements) {
+						long result = 0;
+						for (final DBCloneSetInfo cloneSet : elements.values()) {
+							result += cloneSet.getElements().size();
+						}
+						return result;
+					}
+				}, cacheCapacity);
 		final ConcurrentMap<Long, DBCombinedCommitInfo> processedCombinedCommits = new ConcurrentHashMap<Long, DBCombinedCommitInfo>();
 		final AtomicInteger index = new AtomicInteger(0);
 
+		final WriteBehindPipeline pipeline = new WriteBehindPipeline(
+				maxElementsCount);
+		final WriteBehindQueue<DBCloneSetLinkInfo> cloneLinkQueue = pipeline
+				.createQueue("Clone Link", cloneLinkRegisterer);
+		pipeline.start();
+
 		final Thread[] threads = new Thread[tailoredThreadsCount - 1];
 		for (int i = 0; i < tailoredThreadsCount - 1; i++) {
 			threads[i] = new Thread(new CloneSetLinkDetectingThread(
-					combinedCommitsArray, detectedCloneLinks, cloneSets,
-					fragmentLinkRetriever, cloneRetriever,
-					processedCombinedCommits, index));
+					combinedCommitsArray, cloneLinkQueue, cloneSets,
+					threads.length, fragmentLinkRetriever,
+					processedCombinedCommits,
+					combinedRevisionAndRelatedCombinedCommits, index));
 			threads[i].start();
 		}
 
-		final CloneSetLinkDetectingThreadMonitor monitor = new CloneSetLinkDetectingThreadMonitor(
-				detectedCloneLinks, cloneLinkRegisterer, cloneSets,
-				processedCombinedCommits,
-				combinedRevisionAndRelatedCombinedCommits, maxElementsCount,
-				threads);
-		monitor.monitor();
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		logger.info("all threads have finished their work");
+		cloneSets.report(logger);
+		cloneSets.close();
+
+		logger.info("registering all the remaining elements into db ");
+		pipeline.close();
 	}
 
 	private Map<Long, Collection<Long>> detectCombinedRevisionAndRelatedCombinedCommits() {
@@ -83,7 +83,8 @@ public class CombinerMain {
 	private static void preprocess(final CombinerMainSettings settings)
 			throws Exception {
 		dbManager = new DBConnectionManager(settings.getDBConfig(),
-				settings.getMaxBatchCount());
+				settings.getMaxBatchCount(),
+				settings.getMaxLookupConnections());
 		logger.info("connected to the database");
 
 		dbManager.initializeElementCounters(settings.getHeaderOfId());
@@ -94,7 +94,8 @@ public class FileDetectorMain {
 			throws Exception {
 		// make a connection between the db file
 		dbManager = new DBConnectionManager(settings.getDBConfig(),
-				settings.getMaxBatchCount());
+				settings.getMaxBatchCount(),
+				settings.getMaxLookupConnections());
 		logger.info("connected to the db");
 
 		dbManager.initializeElementCounters(settings.getHeaderOfId());
@@ -24,8 +24,13 @@ import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.crd.SwitchStatementCRDC
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.crd.SynchronizedStatementCRDCreator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.crd.TryStatementCRDCreator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.crd.WhileStatementCRDCreator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.DefaultHashCalculator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.IHashCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.MinHashCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.PrefixHashTable;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer.NormalizerCreator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer.StringCreateVisitor;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer.StringSlice;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.AnalyzeGranularity;
 
 import org.eclipse.jdt.core.dom.ASTNode;
@@ -109,6 +114,12 @@ public class ASTParser extends ASTVisitor {
 	 */
 	private final IHashCalculator hashCalculator;
 
+	/**
+	 * the calculator for min-hash signatures, or null if signatures are not
+	 * calculated
+	 */
+	private final MinHashCalculator signatureCalculator;
+
 	/**
 	 * the calculator for hash values for clone detection
 	 */
@@ -134,13 +145,50 @@ public class ASTParser extends ASTVisitor {
 	 */
 	private final boolean fileDeletedAtEnd;
 
+	/**
+	 * whether the sizes and strings of all the blocks are created in a few
+	 * visits of the whole compilation unit instead of visiting each block
+	 */
+	private final boolean singlePass;
+
+	/**
+	 * the sizes of all the nodes, which is used only in the single-pass mode
+	 */
+	private NodeCountVisitor sizeRecorder;
+
+	/**
+	 * the raw strings of all the blocks, which is used only in the
+	 * single-pass mode
+	 */
+	private StringCreateVisitor rawStringRecorder;
+
+	/**
+	 * the strings for clone detection of all the blocks, which is used only
+	 * in the single-pass mode and is null if the normalizer cannot record them
+	 */
+	private StringCreateVisitor cloneStringRecorder;
+
+	/**
+	 * the hash values of the prefixes of the raw strings recorded in the
+	 * single-pass mode, which is null if the hash function cannot compose them
+	 */
+	private PrefixHashTable rawHashTable;
+
+	/**
+	 * the hash values of the prefixes of the strings for clone detection
+	 * recorded in the single-pass mode, which is null if the hash function
+	 * cannot compose them
+	 */
+	private PrefixHashTable cloneHashTable;
+
 	public ASTParser(final long ownerFileId, final long ownerRepositoryId,
 			final long startRevisionId, final long endRevisionId,
 			final IHashCalculator hashCalculator, final CompilationUnit root,
 			final AnalyzeGranularity granularity,
 			final NormalizerCreator cloneHashCalculatorCreator,
 			final int fragmentSizeThreshold, final boolean fileAddedAtStart,
-			final boolean fileDeletedAtEnd) {
+			final boolean fileDeletedAtEnd, final boolean singlePass,
+			final MinHashCalculator signatureCalculator) {
 		this.detectedCrds = new TreeMap<Long, DBCrdInfo>();
 		this.detectedFragments = new TreeMap<Long, DBCodeFragmentInfo>();
 		this.ownerFileId = ownerFileId;
@@ -157,6 +205,13 @@ public class ASTParser extends ASTVisitor {
 		this.fragmentSizeThreshold = fragmentSizeThreshold;
 		this.fileAddedAtStart = fileAddedAtStart;
 		this.fileDeletedAtEnd = fileDeletedAtEnd;
+		this.singlePass = singlePass;
+		this.signatureCalculator = signatureCalculator;
+		this.sizeRecorder = null;
+		this.rawStringRecorder = null;
+		this.cloneStringRecorder = null;
+		this.rawHashTable = null;
+		this.cloneHashTable = null;
 	}
 
 	/**
@@ -218,14 +273,39 @@ public class ASTParser extends ASTVisitor {
 	 * @return
 	 */
 	private final DBCodeFragmentInfo createCodeFragment(final int startLine,
-			final int endLine, final String rawStr, final int size,
-			final long crdId, final String strForClone) {
-		final long hash = hashCalculator.calcHashValue(rawStr.toString());
-		final long hashForClone = hashCalculator.calcHashValue(strForClone);
+			final int endLine, final CharSequence rawStr, final int size,
+			final long crdId, final CharSequence strForClone) {
+		final long hash = calcHashValue(rawStr, rawHashTable);
+		final long hashForClone = calcHashValue(strForClone, cloneHashTable);
+		final int[] signature = (signatureCalculator == null) ? null
+				: signatureCalculator.calcSignature(strForClone);
 
 		return new DBCodeFragmentInfo(ownerFileId, ownerRepositoryId, crdId,
 				startRevisionId, endRevisionId, hash, hashForClone, startLine,
-				endLine, size, fileAddedAtStart, fileDeletedAtEnd);
+				endLine, size, fileAddedAtStart, fileDeletedAtEnd, signature);
+	}
+
+	/**
+	 * calculate the hash value of the given string <br>
+	 * the value of a string recorded in the single-pass mode is composed from
+	 * the hash values of the prefixes, so that the string of each block is
+	 * not read again for each of its ancestors
+	 * 
+	 * @param str
+	 * @param table
+	 *            the hash values of the prefixes of the recorded strings, or
+	 *            null if they are not available
+	 * @return
+	 */
+	private long calcHashValue(final CharSequence str,
+			final PrefixHashTable table) {
+		if (table != null && str instanceof StringSlice) {
+			final StringSlice slice = (StringSlice) str;
+			if (slice.getSource() == table.getSource()) {
+				return table.getHashValue(slice.getStart(), slice.getEnd());
+			}
+		}
+		return hashCalculator.calcHashValue(str);
 	}
 
 	/**
@@ -240,6 +320,108 @@ public class ASTParser extends ASTVisitor {
 		return visitor.getNodeCount();
 	}
 
+	/**
+	 * get the number of nodes in the subtree of the given node, which has
+	 * been recorded in the single-pass mode
+	 * 
+	 * @param node
+	 * @return
+	 */
+	private int getSize(final ASTNode node) {
+		if (sizeRecorder != null) {
+			final int size = sizeRecorder.getNodeCount(node);
+			if (size >= 0) {
+				return size;
+			}
+		}
+		return countSize(node);
+	}
+
+	/**
+	 * get the raw string of the given node
+	 * 
+	 * @param node
+	 * @return
+	 */
+	private CharSequence getRawString(final ASTNode node) {
+		if (!singlePass) {
+			return node.toString();
+		}
+
+		final CharSequence result = rawStringRecorder.getRecordedString(node,
+				node);
+		if (result != null) {
+			return result;
+		}
+		return createRecordedString(new StringCreateVisitor(), node, node,
+				node);
+	}
+
+	/**
+	 * get the string for clone detection of a block from the start of the
+	 * first node to the end of the last node
+	 * 
+	 * @param first
+	 * @param last
+	 * @param owner
+	 *            the node that has both the first and the last nodes
+	 * @return the string, or null if it is created by the block analyzer
+	 */
+	private CharSequence getCloneString(final ASTNode first,
+			final ASTNode last, final ASTNode owner) {
+		if (cloneStringRecorder == null) {
+			return null;
+		}
+
+		final CharSequence result = cloneStringRecorder.getRecordedString(
+				first, last);
+		if (result != null) {
+			return result;
+		}
+		// the normalizer did not visit the nodes in the compilation unit
+		return createRecordedString(
+				cloneHashCalculatorCreator.createNewCalculator(), first, last,
+				owner);
+	}
+
+	/**
+	 * visit only the owner node with the given visitor to get the string from
+	 * the first node to the last node
+	 * 
+	 * @param visitor
+	 * @param first
+	 * @param last
+	 * @param owner
+	 * @return
+	 */
+	private CharSequence createRecordedString(
+			final StringCreateVisitor visitor, final ASTNode first,
+			final ASTNode last, final ASTNode owner) {
+		visitor.recordRanges();
+		owner.accept(visitor);
+
+		final CharSequence result = visitor.getRecordedString(first, last);
+		if (result == null) {
+			throw new IllegalStateException("cannot create the string of "
+					+ owner.getClass().getSimpleName() + " at line "
+					+ getStartLine(owner));
+		}
+		return result;
+	}
+
+	/**
+	 * create a visitor for the block analyzer to create the string for clone
+	 * detection
+	 * 
+	 * @return the visitor, or null if the string has been recorded
+	 */
+	private StringCreateVisitor createCloneStringVisitor() {
+		if (cloneStringRecorder != null) {
+			return null;
+		}
+		return cloneHashCalculatorCreator.createNewCalculator();
+	}
+
 	/**
 	 * detect and store both crd and fragment
 	 * 
@@ -248,7 +430,8 @@ public class ASTParser extends ASTVisitor {
 	 * @return the crd
 	 */
 	private final DBCrdInfo detectCrd(final int startLine, final int endLine,
-			final String rawStr, final int size,
+			final CharSequence rawStr, final int size,
+			final CharSequence strForClone,
 			final AbstractBlockAnalyzer<?> analyzer) {
 		analyzer.analyze();
 		final DBCrdInfo crd = analyzer.getCreatedCrd();
@@ -258,13 +441,46 @@ public class ASTParser extends ASTVisitor {
 		if (bType.isInterested(granularity) && size >= fragmentSizeThreshold) {
 			final DBCodeFragmentInfo fragment = createCodeFragment(startLine,
 					endLine, rawStr, size, crd.getId(),
-					analyzer.getStringForCloneDetection());
+					(strForClone != null) ? strForClone : analyzer
+							.getStringForCloneDetection());
 			detectedFragments.put(fragment.getId(), fragment);
 		}
 
 		return crd;
 	}
 
+	@Override
+	public boolean visit(CompilationUnit node) {
+		if (singlePass) {
+			// count all the nodes and create all the strings at once
+			sizeRecorder = new NodeCountVisitor(true);
+			node.accept(sizeRecorder);
+
+			rawStringRecorder = new StringCreateVisitor();
+			rawStringRecorder.recordRanges();
+			node.accept(rawStringRecorder);
+
+			if (cloneHashCalculatorCreator.canRecordRanges()) {
+				cloneStringRecorder = cloneHashCalculatorCreator
+						.createNewCalculator();
+				cloneStringRecorder.recordRanges();
+				node.accept(cloneStringRecorder);
+			}
+
+			// only String.hashCode() can be composed from prefixes
+			if (hashCalculator instanceof DefaultHashCalculator) {
+				rawHashTable = new PrefixHashTable(
+						rawStringRecorder.getRecordedResult());
+				if (cloneStringRecorder != null) {
+					cloneHashTable = new PrefixHashTable(
+							cloneStringRecorder.getRecordedResult());
+				}
+			}
+		}
+
+		return true;
+	}
+
 	@Override
 	public boolean visit(TypeDeclaration node) {
 		// do nothing and do not parse the children of this node any longer
@@ -274,9 +490,10 @@ public class ASTParser extends ASTVisitor {
 		}
 
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new ClassCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -286,9 +503,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(MethodDeclaration node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new MethodCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -303,9 +521,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(EnhancedForStatement node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new EnhancedForStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -320,9 +539,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(ForStatement node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new ForStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -337,9 +557,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(WhileStatement node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new WhileStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -354,9 +575,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(DoStatement node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new DoStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -371,9 +593,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(SwitchStatement node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new SwitchStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -388,9 +611,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(SynchronizedStatement node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new SynchronizedStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -406,10 +630,11 @@ public class ASTParser extends ASTVisitor {
 	public boolean visit(TryStatement node) {
 		// +1 for the size goes to "try" itself
 		final DBCrdInfo crd = detectCrd(getStartLine(node),
-				getEndLine(node.getBody()), node.getBody().toString(),
-				countSize(node.getBody()) + 1,
+				getEndLine(node.getBody()), getRawString(node.getBody()),
+				getSize(node.getBody()) + 1,
+				getCloneString(node, node.getBody(), node),
 				new TryStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// keep the finally block if it exists
@@ -435,9 +660,10 @@ public class ASTParser extends ASTVisitor {
 	@Override
 	public boolean visit(CatchClause node) {
 		final DBCrdInfo crd = detectCrd(getStartLine(node), getEndLine(node),
-				node.toString(), countSize(node),
+				getRawString(node), getSize(node),
+				getCloneString(node, node, node),
 				new CatchClauseCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// visit the children
@@ -455,11 +681,12 @@ public class ASTParser extends ASTVisitor {
 		final DBCrdInfo crd = detectCrd(
 				getStartLine(node),
 				getEndLine(node.getThenStatement()),
-				node.toString(),
-				countSize(node.getThenStatement())
-						+ countSize(node.getExpression()) + 1,
+				getRawString(node),
+				getSize(node.getThenStatement())
+						+ getSize(node.getExpression()) + 1,
+				getCloneString(node, node.getThenStatement(), node),
 				new IfStatementCRDCreator(node, peekCrdStack(),
-						cloneHashCalculatorCreator.createNewCalculator()));
+						createCloneStringVisitor()));
 		parentCrds.push(crd);
 
 		// keep the else block if it exists
@@ -495,18 +722,20 @@ public class ASTParser extends ASTVisitor {
 		// finally
 		if (this.optionalFinallyBlocks.containsValue(node)) {
 			final DBCrdInfo crd = detectCrd(getStartLine(node),
-					getEndLine(node), node.toString(), countSize(node),
+					getEndLine(node), getRawString(node), getSize(node),
+					getCloneString(node, node, node),
 					new FinallyBlockCRDCreator(node, peekCrdStack(),
-							cloneHashCalculatorCreator.createNewCalculator()));
+							createCloneStringVisitor()));
 			parentCrds.push(crd);
 		}
 
 		// else
 		else if (this.optionalElseBlocks.containsValue(node)) {
 			final DBCrdInfo crd = detectCrd(getStartLine(node),
-					getEndLine(node), node.toString(), countSize(node),
+					getEndLine(node), getRawString(node), getSize(node),
+					getCloneString(node, node, node),
 					new ElseStatementCRDCreator(node, peekCrdStack(),
-							cloneHashCalculatorCreator.createNewCalculator()));
+							createCloneStringVisitor()));
 			parentCrds.push(crd);
 		}
 
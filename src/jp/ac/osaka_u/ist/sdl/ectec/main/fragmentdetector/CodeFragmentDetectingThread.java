@@ -10,7 +10,9 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBFileInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBRevisionInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindQueue;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.IHashCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.MinHashCalculator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer.NormalizerCreator;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.AnalyzeGranularity;
 import jp.ac.osaka_u.ist.sdl.ectec.vcs.AbstractRepositoryManager;
@@ -38,14 +40,14 @@ public class CodeFragmentDetectingThread implements Runnable {
 	private static final Logger eLogger = LoggingManager.getLogger("error");
 
 	/**
-	 * a map having detected crds
+	 * the queue of detected crds to be registered
 	 */
-	private final ConcurrentMap<Long, DBCrdInfo> detectedCrds;
+	private final WriteBehindQueue<DBCrdInfo> crdQueue;
 
 	/**
-	 * a map having detected fragments
+	 * the queue of detected fragments to be registered
 	 */
-	private final ConcurrentMap<Long, DBCodeFragmentInfo> detectedFragments;
+	private final WriteBehindQueue<DBCodeFragmentInfo> fragmentQueue;
 
 	/**
 	 * a array of target files
@@ -92,9 +94,20 @@ public class CodeFragmentDetectingThread implements Runnable {
 	 */
 	private final int fragmentSizeThreshold;
 
+	/**
+	 * whether the sizes and strings of blocks are created in a single pass
+	 */
+	private final boolean singlePass;
+
+	/**
+	 * the calculator for min-hash signatures, or null if signatures are not
+	 * calculated
+	 */
+	private final MinHashCalculator signatureCalculator;
+
 	public CodeFragmentDetectingThread(
-			final ConcurrentMap<Long, DBCrdInfo> detectedCrds,
-			final ConcurrentMap<Long, DBCodeFragmentInfo> detectedFragments,
+			final WriteBehindQueue<DBCrdInfo> crdQueue,
+			final WriteBehindQueue<DBCodeFragmentInfo> fragmentQueue,
 			final DBFileInfo[] targetFiles,
 			final AtomicInteger index,
 			final ConcurrentMap<Long, AbstractRepositoryManager> repositoryManagers,
@@ -103,9 +116,10 @@ public class CodeFragmentDetectingThread implements Runnable {
 			final AnalyzeGranularity granularity,
 			final NormalizerCreator blockAnalyzerCreator,
 			final IHashCalculator hashCalculator,
-			final int fragmentSizeThreshold) {
-		this.detectedCrds = detectedCrds;
-		this.detectedFragments = detectedFragments;
+			final int fragmentSizeThreshold, final boolean singlePass,
+			final MinHashCalculator signatureCalculator) {
+		this.crdQueue = crdQueue;
+		this.fragmentQueue = fragmentQueue;
 		this.targetFiles = targetFiles;
 		this.index = index;
 		this.repositoryManagers = repositoryManagers;
@@ -115,6 +129,8 @@ public class CodeFragmentDetectingThread implements Runnable {
 		this.granularity = granularity;
 		this.hashCalculator = hashCalculator;
 		this.fragmentSizeThreshold = fragmentSizeThreshold;
+		this.singlePass = singlePass;
+		this.signatureCalculator = signatureCalculator;
 	}
 
 	@Override
@@ -133,6 +149,7 @@ public class CodeFragmentDetectingThread implements Runnable {
 			final long repositoryId = targetFile.getOwnerRepositoryId();
 			final DBCombinedRevisionInfo startCombinedRevision = combinedRevisions
 					.get(targetFile.getStartCombinedRevisionId());
+			final ASTParser parser;
 			try {
 				final AbstractRepositoryManager repositoryManager = repositoryManagers
 						.get(repositoryId);
@@ -150,23 +167,35 @@ public class CodeFragmentDetectingThread implements Runnable {
 						originalRevision.getIdentifier(), targetFile.getPath());
 				final CompilationUnit root = ASTCreator.createAST(src);
 
-				final ASTParser parser = new ASTParser(targetFile.getId(),
-						repositoryId, targetFile.getStartCombinedRevisionId(),
+				parser = new ASTParser(targetFile.getId(), repositoryId,
+						targetFile.getStartCombinedRevisionId(),
 						targetFile.getEndCombinedRevisionId(), hashCalculator,
 						root, granularity, blockAnalyzerCreator,
 						fragmentSizeThreshold, targetFile.isAddedAtStart(),
-						targetFile.isDeletedAtEnd());
+						targetFile.isDeletedAtEnd(), singlePass,
+						signatureCalculator);
 
 				root.accept(parser);
 
-				this.detectedCrds.putAll(parser.getDetectedCrds());
-				this.detectedFragments.putAll(parser.getDetectedFragments());
-
 			} catch (Exception e) {
 				eLogger.warn("something is wrong in processing "
 						+ targetFile.getPath() + " in repository "
 						+ repositoryId + " at combined revision "
-						+ startCombinedRevision.getId());
+						+ startCombinedRevision.getId(), e);
+				continue;
+			}
+
+			// an IllegalStateException thrown by a queue means that the
+			// writer has stopped, so that it stops this worker too
+			try {
+				this.crdQueue.putAll(parser.getDetectedCrds().values());
+				this.fragmentQueue.putAll(parser.getDetectedFragments()
+						.values());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(
+						"interrupted while registering the elements in "
+								+ targetFile.getPath(), e);
 			}
 		}
 	}
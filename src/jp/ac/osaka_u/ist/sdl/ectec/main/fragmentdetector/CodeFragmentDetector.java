@@ -10,8 +10,9 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBFileInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBRevisionInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.DefaultHashCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.HashCalculatorCreator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.IHashCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.MinHashCalculator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer.NormalizerCreator;
 import jp.ac.osaka_u.ist.sdl.ectec.vcs.RepositoryManagerManager;
 
@@ -81,7 +82,8 @@ public class CodeFragmentDetector {
 		logger.info(combinedRevisions.size()
 				+ " combined revisions have been retrieved");
 
-		final IHashCalculator hashCalculator = new DefaultHashCalculator();
+		final IHashCalculator hashCalculator = new HashCalculatorCreator(
+				settings.getHashFunction()).createNewCalculator();
 
 		logger.info("identifying code fragments ... ");
 		final CodeFragmentIdentifier identifier = new CodeFragmentIdentifier(
@@ -91,7 +93,9 @@ public class CodeFragmentDetector {
 				repositoryManagerManager.getRepositoryManagers(),
 				settings.getGranularity(), new NormalizerCreator(
 						settings.getCloneHashMode()), hashCalculator,
-				settings.getFragmentSizeThreshold());
+				settings.getFragmentSizeThreshold(), settings.isSinglePass(),
+				(settings.isCalculateSignatures()) ? new MinHashCalculator()
+						: null);
 		identifier.run();
 		logger.info("complete");
 	}
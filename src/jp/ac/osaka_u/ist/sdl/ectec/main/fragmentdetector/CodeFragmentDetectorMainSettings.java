@@ -8,6 +8,7 @@ import jp.ac.osaka_u.ist.sdl.ectec.AbstractSettings;
 import jp.ac.osaka_u.ist.sdl.ectec.PropertiesReader;
 import jp.ac.osaka_u.ist.sdl.ectec.main.IllegalSettingValueException;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.AnalyzeGranularity;
+import jp.ac.osaka_u.ist.sdl.ectec.settings.HashFunction;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.IDStringReader;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.StringNormalizeMode;
 
@@ -32,6 +33,21 @@ public class CodeFragmentDetectorMainSettings extends AbstractSettings {
 	 */
 	private StringNormalizeMode cloneHashMode;
 
+	/**
+	 * the function to calculate hash values
+	 */
+	private HashFunction hashFunction;
+
+	/**
+	 * whether the sizes and strings of blocks are created in a single pass
+	 */
+	private boolean singlePass;
+
+	/**
+	 * whether min-hash signatures of fragments are calculated
+	 */
+	private boolean calculateSignatures;
+
 	/**
 	 * the lowest value of size to be considered
 	 */
@@ -64,6 +80,34 @@ public class CodeFragmentDetectorMainSettings extends AbstractSettings {
 		return this.cloneHashMode;
 	}
 
+	/**
+	 * get the function to calculate hash values
+	 * 
+	 * @return
+	 */
+	public final HashFunction getHashFunction() {
+		return this.hashFunction;
+	}
+
+	/**
+	 * get whether the sizes and strings of blocks are created in a single
+	 * pass
+	 * 
+	 * @return
+	 */
+	public final boolean isSinglePass() {
+		return this.singlePass;
+	}
+
+	/**
+	 * get whether min-hash signatures of fragments are calculated
+	 * 
+	 * @return
+	 */
+	public final boolean isCalculateSignatures() {
+		return this.calculateSignatures;
+	}
+
 	/**
 	 * get the lowest value of size to be considered
 	 * 
@@ -104,6 +148,30 @@ public class CodeFragmentDetectorMainSettings extends AbstractSettings {
 			options.addOption(ch);
 		}
 
+		{
+			final Option hf = new Option("hf", "hash-function", true,
+					"the function to calculate hash values");
+			hf.setArgs(1);
+			hf.setRequired(false);
+			options.addOption(hf);
+		}
+
+		{
+			final Option sp = new Option("sp", "single-pass", true,
+					"whether to create the strings of all blocks in a single pass");
+			sp.setArgs(1);
+			sp.setRequired(false);
+			options.addOption(sp);
+		}
+
+		{
+			final Option mh = new Option("mh", "min-hash", true,
+					"whether to calculate min-hash signatures for near-miss clones");
+			mh.setArgs(1);
+			mh.setRequired(false);
+			options.addOption(mh);
+		}
+
 		{
 			final Option fst = new Option("fst", "fragment-size-threshold", true,
 					"the lowest value of size to be considered");
@@ -158,6 +226,41 @@ public class CodeFragmentDetectorMainSettings extends AbstractSettings {
 		logger.info("normalize mode for clone detection: "
 				+ cloneHashMode.toString());
 
+		final String hashFunctionStr = cmd.hasOption("hf") ? cmd
+				.getOptionValue("hf") : propReader.getProperty(HASH_FUNCTION);
+		hashFunction = (hashFunctionStr == null) ? HashFunction.DEFAULT
+				: HashFunction.getCorrespondingFunction(hashFunctionStr);
+		if (hashFunction == null) {
+			throw new IllegalSettingValueException("unknown hash function: "
+					+ hashFunctionStr);
+		}
+		logger.info("hash function: " + hashFunction.toString());
+
+		final String spStr = cmd.hasOption("sp") ? cmd.getOptionValue("sp")
+				: propReader.getProperty(SINGLE_PASS_HASH);
+		if (spStr == null || spStr.equalsIgnoreCase("no")) {
+			singlePass = false;
+		} else if (spStr.equalsIgnoreCase("yes")) {
+			singlePass = true;
+		} else {
+			throw new IllegalSettingValueException("illegal value " + spStr
+					+ " for -sp");
+		}
+		logger.info("create strings of blocks in a single pass: "
+				+ singlePass);
+
+		final String mhStr = cmd.hasOption("mh") ? cmd.getOptionValue("mh")
+				: propReader.getProperty(MIN_HASH_SIGNATURE);
+		if (mhStr == null || mhStr.equalsIgnoreCase("no")) {
+			calculateSignatures = false;
+		} else if (mhStr.equalsIgnoreCase("yes")) {
+			calculateSignatures = true;
+		} else {
+			throw new IllegalSettingValueException("illegal value " + mhStr
+					+ " for -mh");
+		}
+		logger.info("calculate min-hash signatures: " + calculateSignatures);
+
 		final String sizeThresholdStr = cmd.hasOption("fst") ? cmd
 				.getOptionValue("fst") : propReader
 				.getProperty(FRAGMENT_SIZE_THRESHOLD);
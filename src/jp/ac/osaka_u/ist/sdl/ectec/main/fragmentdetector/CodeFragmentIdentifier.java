@@ -1,7 +1,6 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector;
 
 import java.util.Collection;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -13,7 +12,10 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBFileInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBRevisionInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.CRDRegisterer;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.CodeFragmentRegisterer;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindPipeline;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindQueue;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.IHashCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.MinHashCalculator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer.NormalizerCreator;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.AnalyzeGranularity;
 import jp.ac.osaka_u.ist.sdl.ectec.vcs.AbstractRepositoryManager;
@@ -65,7 +67,7 @@ public class CodeFragmentIdentifier {
 	private final CodeFragmentRegisterer fragmentRegisterer;
 
 	/**
-	 * the threshold for storing elements
+	 * the number of elements registered into db at once
 	 */
 	private final int maxElementsCount;
 
@@ -94,6 +96,17 @@ public class CodeFragmentIdentifier {
 	 */
 	private final int fragmentSizeThreshold;
 
+	/**
+	 * whether the sizes and strings of blocks are created in a single pass
+	 */
+	private final boolean singlePass;
+
+	/**
+	 * the calculator for min-hash signatures, or null if signatures are not
+	 * calculated
+	 */
+	private final MinHashCalculator signatureCalculator;
+
 	public CodeFragmentIdentifier(
 			final Collection<DBFileInfo> targetFiles,
 			final ConcurrentMap<Long, DBRevisionInfo> originalRevisions,
@@ -106,7 +119,8 @@ public class CodeFragmentIdentifier {
 			final AnalyzeGranularity granularity,
 			final NormalizerCreator blockAnalyzerCreator,
 			final IHashCalculator hashCalculator,
-			final int fragmentSizeThreshold) {
+			final int fragmentSizeThreshold, final boolean singlePass,
+			final MinHashCalculator signatureCalculator) {
 		this.targetFiles = targetFiles;
 		this.originalRevisions = originalRevisions;
 		this.combinedRevisions = combinedRevisions;
@@ -119,6 +133,8 @@ public class CodeFragmentIdentifier {
 		this.blockAnalyzerCreator = blockAnalyzerCreator;
 		this.hashCalculator = hashCalculator;
 		this.fragmentSizeThreshold = fragmentSizeThreshold;
+		this.singlePass = singlePass;
+		this.signatureCalculator = signatureCalculator;
 	}
 
 	public void run() throws Exception {
@@ -130,26 +146,33 @@ public class CodeFragmentIdentifier {
 
 		final Thread[] threads = new Thread[tailoredThreadsCount - 1];
 
-		final ConcurrentMap<Long, DBCrdInfo> detectedCrds = new ConcurrentHashMap<Long, DBCrdInfo>();
-		final ConcurrentMap<Long, DBCodeFragmentInfo> detectedFragments = new ConcurrentHashMap<Long, DBCodeFragmentInfo>();
+		final WriteBehindPipeline pipeline = new WriteBehindPipeline(
+				maxElementsCount);
+		final WriteBehindQueue<DBCrdInfo> crdQueue = pipeline.createQueue(
+				"CRD", crdRegisterer);
+		final WriteBehindQueue<DBCodeFragmentInfo> fragmentQueue = pipeline
+				.createQueue("Fragment", fragmentRegisterer);
+		pipeline.start();
 
 		final AtomicInteger index = new AtomicInteger(0);
 
 		for (int i = 0; i < tailoredThreadsCount - 1; i++) {
 			threads[i] = new Thread(new CodeFragmentDetectingThread(
-					detectedCrds, detectedFragments, filesArray, index,
+					crdQueue, fragmentQueue, filesArray, index,
 					repositoryManagers, originalRevisions, combinedRevisions,
 					granularity, blockAnalyzerCreator, hashCalculator,
-					fragmentSizeThreshold));
+					fragmentSizeThreshold, singlePass, signatureCalculator));
 			threads[i].start();
 			logger.info("thread " + threads[i].getName() + " started");
 		}
 
-		final CodeFragmentDetectingThreadMonitor monitor = new CodeFragmentDetectingThreadMonitor(
-				detectedCrds, detectedFragments, maxElementsCount,
-				crdRegisterer, fragmentRegisterer, threads);
-		logger.info("monitoring thread started");
-		monitor.monitor();
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		logger.info("all threads have finished their work");
+		logger.info("registering all the remaining elements into db ");
+		pipeline.close();
 	}
 
 }
@@ -33,7 +33,8 @@ public abstract class AbstractBlockAnalyzer<T extends ASTNode> {
 	protected final BlockType bType;
 
 	/**
-	 * the visitor to create string for clone detection
+	 * the visitor to create string for clone detection, or null if the
+	 * string is not needed
 	 */
 	protected final StringCreateVisitor visitor;
 
@@ -90,11 +91,13 @@ public abstract class AbstractBlockAnalyzer<T extends ASTNode> {
 		final String fullText = (parent == null) ? thisCrdStr : parent
 				.getFullText() + "\n" + thisCrdStr;
 
-		node.accept(visitor);
-
 		createdCrd = new DBCrdInfo(bType, head, anchor, normalizedAnchor, cm,
 				ancestorIds, fullText);
-		stringForCloneDetection = visitor.getString();
+
+		if (visitor != null) {
+			node.accept(visitor);
+			stringForCloneDetection = visitor.getString();
+		}
 	}
 
 	/**
@@ -67,13 +67,15 @@ public class IfStatementCRDCreator extends AbstractBlockAnalyzer<IfStatement> {
 		final String fullText = (parent == null) ? thisCrdStr : parent
 				.getFullText() + "\n" + thisCrdStr;
 
-		visitor.getBuffer().append("if ");
-		node.getExpression().accept(visitor);
-		visitor.getBuffer().append(" ");
-		node.getThenStatement().accept(visitor);
-
 		createdCrd = new DBCrdInfo(bType, head, anchor, normalizedAnchor, cm,
 				ancestorIds, fullText);
-		stringForCloneDetection = visitor.getString();
+
+		if (visitor != null) {
+			visitor.getBuffer().append("if ");
+			node.getExpression().accept(visitor);
+			visitor.getBuffer().append(" ");
+			node.getThenStatement().accept(visitor);
+			stringForCloneDetection = visitor.getString();
+		}
 	}
 }
@@ -85,11 +85,13 @@ public class TryStatementCRDCreator extends AbstractBlockAnalyzer<TryStatement>
 		final String fullText = (parent == null) ? thisCrdStr : parent
 				.getFullText() + "\n" + thisCrdStr;
 
-		node.getBody().accept(visitor);
-
 		createdCrd = new DBCrdInfo(bType, head, anchor, normalizedAnchor, cm,
 				ancestorIds, fullText);
-		stringForCloneDetection = "try " + visitor.getString();
+
+		if (visitor != null) {
+			node.getBody().accept(visitor);
+			stringForCloneDetection = "try " + visitor.getString();
+		}
 	}
 
 }
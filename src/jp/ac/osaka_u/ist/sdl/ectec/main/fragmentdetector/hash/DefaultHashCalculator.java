@@ -1,10 +1,27 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
 
+/**
+ * A hash calculator that returns the same values as String.hashCode() <br>
+ * the values have only 32 bits, but they are kept as the default to be
+ * compatible with existing databases
+ * 
+ * @author k-hotta
+ * 
+ */
 public class DefaultHashCalculator implements IHashCalculator {
 
 	@Override
-	public long calcHashValue(String str) {
-		return (long) str.hashCode();
+	public long calcHashValue(final CharSequence str) {
+		if (str instanceof String) {
+			return (long) str.hashCode();
+		}
+
+		int hash = 0;
+		final int length = str.length();
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + str.charAt(i);
+		}
+		return (long) hash;
 	}
 
 }
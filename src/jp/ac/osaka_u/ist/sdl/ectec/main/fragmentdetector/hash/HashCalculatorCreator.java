@@ -0,0 +1,32 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
+
+import jp.ac.osaka_u.ist.sdl.ectec.settings.HashFunction;
+
+/**
+ * A class to create instances of hash calculators
+ * 
+ * @author k-hotta
+ * 
+ */
+public class HashCalculatorCreator {
+
+	private final HashFunction function;
+
+	public HashCalculatorCreator(final HashFunction function) {
+		this.function = function;
+	}
+
+	public IHashCalculator createNewCalculator() {
+		switch (function) {
+		case DEFAULT:
+			return new DefaultHashCalculator();
+		case XXHASH64:
+			return new XXHash64Calculator();
+		case MURMUR3_128:
+			return new Murmur3Hash128Calculator();
+		default:
+			return null;
+		}
+	}
+
+}
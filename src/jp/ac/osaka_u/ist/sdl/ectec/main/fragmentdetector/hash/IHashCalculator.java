@@ -1,7 +1,15 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
 
+/**
+ * An interface to calculate hash values of strings <br>
+ * implementations read the given characters directly, so that callers can
+ * pass their buffers without creating copies as strings
+ * 
+ * @author k-hotta
+ * 
+ */
 public interface IHashCalculator {
 
-	public long calcHashValue(final String str);
-	
+	public long calcHashValue(final CharSequence str);
+
 }
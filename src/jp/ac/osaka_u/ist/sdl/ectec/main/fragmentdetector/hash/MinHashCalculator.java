@@ -0,0 +1,138 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
+
+/**
+ * A class to calculate min-hash signatures of strings <br>
+ * a string is split into tokens, each of which is an identifier, a number,
+ * or another character except white spaces, and the signature is created
+ * from the shingles of consecutive tokens <br>
+ * the ratio of the same values in two signatures estimates the Jaccard
+ * similarity between the sets of the shingles
+ * 
+ * @author k-hotta
+ * 
+ */
+public class MinHashCalculator {
+
+	/**
+	 * the number of values in a signature
+	 */
+	public static final int SIGNATURE_LENGTH = 32;
+
+	/**
+	 * the number of tokens in a shingle
+	 */
+	private static final int SHINGLE_LENGTH = 3;
+
+	/**
+	 * the multiplier to combine hash values of tokens
+	 */
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * the seeds of the hash functions
+	 */
+	private final long[] seeds;
+
+	public MinHashCalculator() {
+		this.seeds = new long[SIGNATURE_LENGTH];
+		long seed = 0L;
+		for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+			seed += MULTIPLIER;
+			seeds[i] = mix(seed);
+		}
+	}
+
+	/**
+	 * calculate the signature of the given string
+	 * 
+	 * @param str
+	 * @return the signature, or null if the string has no tokens
+	 */
+	public int[] calcSignature(final CharSequence str) {
+		final int[] signature = new int[SIGNATURE_LENGTH];
+		for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+			signature[i] = Integer.MAX_VALUE;
+		}
+
+		// the hash values of the last tokens
+		final long[] window = new long[SHINGLE_LENGTH];
+		int tokens = 0;
+
+		final int length = str.length();
+		int position = 0;
+		while (position < length) {
+			final char c = str.charAt(position);
+			if (Character.isWhitespace(c)) {
+				position++;
+				continue;
+			}
+
+			long tokenHash = c;
+			position++;
+			if (Character.isJavaIdentifierPart(c)) {
+				while (position < length
+						&& Character.isJavaIdentifierPart(str.charAt(position))) {
+					tokenHash = tokenHash * 31 + str.charAt(position);
+					position++;
+				}
+			}
+
+			window[tokens % SHINGLE_LENGTH] = mix(tokenHash);
+			tokens++;
+
+			if (tokens >= SHINGLE_LENGTH) {
+				update(signature, window, tokens);
+			}
+		}
+
+		if (tokens == 0) {
+			return null;
+		}
+
+		// a string shorter than a shingle is a shingle by itself
+		if (tokens < SHINGLE_LENGTH) {
+			update(signature, window, tokens);
+		}
+
+		return signature;
+	}
+
+	/**
+	 * update the signature with the shingle ending at the last token
+	 * 
+	 * @param signature
+	 * @param window
+	 * @param tokens
+	 *            the number of tokens so far
+	 */
+	private void update(final int[] signature, final long[] window,
+			final int tokens) {
+		long shingle = 0L;
+		for (int i = Math.max(tokens - SHINGLE_LENGTH, 0); i < tokens; i++) {
+			shingle = shingle * MULTIPLIER + window[i % SHINGLE_LENGTH];
+		}
+
+		for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+			final int value = (int) (mix(shingle ^ seeds[i]) >>> 33);
+			if (value < signature[i]) {
+				signature[i] = value;
+			}
+		}
+	}
+
+	/**
+	 * the finalization mix of MurmurHash3
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value >>> 33;
+		value *= 0xC4CEB9FE1A85EC53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+}
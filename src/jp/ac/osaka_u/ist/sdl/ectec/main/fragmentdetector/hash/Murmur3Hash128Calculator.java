@@ -0,0 +1,129 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
+
+/**
+ * A hash calculator with 128-bit MurmurHash3 (x64 variant) <br>
+ * the characters are hashed as UTF-16LE bytes, and each 16-byte block is
+ * composed directly from eight characters <br>
+ * calcHashValue returns the first 64 bits of the 128-bit value, which is what
+ * fits in the columns of hash values, and calcHashValues returns both halves
+ * 
+ * @author k-hotta
+ * 
+ */
+public class Murmur3Hash128Calculator implements IHashCalculator {
+
+	private static final long C1 = 0x87C37B91114253D5L;
+
+	private static final long C2 = 0x4CF5AD432745937FL;
+
+	/**
+	 * the seed
+	 */
+	private final long seed;
+
+	public Murmur3Hash128Calculator(final long seed) {
+		this.seed = seed;
+	}
+
+	public Murmur3Hash128Calculator() {
+		this(0L);
+	}
+
+	@Override
+	public long calcHashValue(final CharSequence str) {
+		return calcHashValues(str)[0];
+	}
+
+	/**
+	 * calculate the 128-bit hash value of the given characters
+	 * 
+	 * @param str
+	 * @return the lower and the upper 64 bits
+	 */
+	public long[] calcHashValues(final CharSequence str) {
+		final int length = str.length();
+		long h1 = seed;
+		long h2 = seed;
+		int position = 0;
+
+		// 16 bytes are 8 characters
+		while (position + 8 <= length) {
+			h1 ^= mixK1(getLane(str, position, 4));
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52DCE729;
+
+			h2 ^= mixK2(getLane(str, position + 4, 4));
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495AB5;
+
+			position += 8;
+		}
+
+		final int rest = length - position;
+		if (rest > 4) {
+			h2 ^= mixK2(getLane(str, position + 4, rest - 4));
+		}
+		if (rest > 0) {
+			h1 ^= mixK1(getLane(str, position, Math.min(rest, 4)));
+		}
+
+		final long byteLength = (long) length * 2;
+		h1 ^= byteLength;
+		h2 ^= byteLength;
+
+		h1 += h2;
+		h2 += h1;
+
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+
+		h1 += h2;
+		h2 += h1;
+
+		return new long[] { h1, h2 };
+	}
+
+	/**
+	 * get the little-endian bytes of the given number (up to four) of
+	 * characters from the given position
+	 * 
+	 * @param str
+	 * @param position
+	 * @param count
+	 * @return
+	 */
+	private static long getLane(final CharSequence str, final int position,
+			final int count) {
+		long result = 0;
+		for (int i = count - 1; i >= 0; i--) {
+			result = (result << 16) | str.charAt(position + i);
+		}
+		return result;
+	}
+
+	private static long mixK1(long k1) {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, 31);
+		k1 *= C2;
+		return k1;
+	}
+
+	private static long mixK2(long k2) {
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, 33);
+		k2 *= C1;
+		return k2;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xFF51AFD7ED558CCDL;
+		k ^= k >>> 33;
+		k *= 0xC4CEB9FE1A85EC53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+}
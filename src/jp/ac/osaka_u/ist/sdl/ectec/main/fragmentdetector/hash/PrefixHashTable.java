@@ -0,0 +1,90 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
+
+/**
+ * A table of the values of String.hashCode() of all the prefixes of a string
+ * <br>
+ * String.hashCode() is a polynomial of the characters, so that the value of
+ * any part of the string is composed from two prefixes without reading the
+ * characters in the part <br>
+ * xxHash and MurmurHash3 mix their states non-linearly for each block of
+ * bytes and at the end, so that their values of a string cannot be composed
+ * from the values of its parts and they must read the whole part
+ * 
+ * @author k-hotta
+ * 
+ */
+public class PrefixHashTable {
+
+	private static final int BASE = 31;
+
+	/**
+	 * the string
+	 */
+	private final String source;
+
+	/**
+	 * the hash values of the prefixes, whose i-th element is for the first i
+	 * characters
+	 */
+	private final int[] prefixHashes;
+
+	public PrefixHashTable(final String source) {
+		this.source = source;
+		this.prefixHashes = new int[source.length() + 1];
+
+		int hash = 0;
+		for (int i = 0; i < source.length(); i++) {
+			hash = BASE * hash + source.charAt(i);
+			prefixHashes[i + 1] = hash;
+		}
+	}
+
+	/**
+	 * get the string of this table
+	 * 
+	 * @return
+	 */
+	public final String getSource() {
+		return source;
+	}
+
+	/**
+	 * get the hash value of the part of the string from start (inclusive) to
+	 * end (exclusive), which equals the one calculated by
+	 * DefaultHashCalculator
+	 * 
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public long getHashValue(final int start, final int end) {
+		if (start < 0 || end > source.length() || start > end) {
+			throw new IndexOutOfBoundsException("[" + start + ", " + end
+					+ ") is out of the string whose length is "
+					+ source.length());
+		}
+
+		// int arithmetic wraps around in the same way as String.hashCode()
+		return (long) (prefixHashes[end] - prefixHashes[start]
+				* power(end - start));
+	}
+
+	/**
+	 * calculate the base to the power of the given exponent
+	 * 
+	 * @param exponent
+	 * @return
+	 */
+	private static int power(final int exponent) {
+		int result = 1;
+		int base = BASE;
+		for (int e = exponent; e > 0; e >>= 1) {
+			if ((e & 1) != 0) {
+				result *= base;
+			}
+			base *= base;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,123 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
+
+/**
+ * A hash calculator with 64-bit xxHash (XXH64) <br>
+ * the characters are hashed as UTF-16LE bytes, and each 8-byte lane is
+ * composed directly from four characters
+ * 
+ * @author k-hotta
+ * 
+ */
+public class XXHash64Calculator implements IHashCalculator {
+
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+	/**
+	 * the seed
+	 */
+	private final long seed;
+
+	public XXHash64Calculator(final long seed) {
+		this.seed = seed;
+	}
+
+	public XXHash64Calculator() {
+		this(0L);
+	}
+
+	@Override
+	public long calcHashValue(final CharSequence str) {
+		final int length = str.length();
+		int position = 0;
+		long hash;
+
+		// 32 bytes are 16 characters
+		if (length >= 16) {
+			long v1 = seed + PRIME1 + PRIME2;
+			long v2 = seed + PRIME2;
+			long v3 = seed;
+			long v4 = seed - PRIME1;
+
+			final int limit = length - 16;
+			do {
+				v1 = round(v1, getLane(str, position));
+				v2 = round(v2, getLane(str, position + 4));
+				v3 = round(v3, getLane(str, position + 8));
+				v4 = round(v4, getLane(str, position + 12));
+				position += 16;
+			} while (position <= limit);
+
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+					+ Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			hash = mergeRound(hash, v1);
+			hash = mergeRound(hash, v2);
+			hash = mergeRound(hash, v3);
+			hash = mergeRound(hash, v4);
+		} else {
+			hash = seed + PRIME5;
+		}
+
+		hash += (long) length * 2;
+
+		while (position + 4 <= length) {
+			hash ^= round(0, getLane(str, position));
+			hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+			position += 4;
+		}
+
+		if (position + 2 <= length) {
+			final long word = (str.charAt(position) | ((long) str
+					.charAt(position + 1) << 16)) & 0xFFFFFFFFL;
+			hash ^= word * PRIME1;
+			hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+			position += 2;
+		}
+
+		if (position < length) {
+			final char c = str.charAt(position);
+			hash ^= (c & 0xFF) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+			hash ^= ((c >>> 8) & 0xFF) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+
+		return hash;
+	}
+
+	/**
+	 * get the little-endian 8 bytes of the four characters from the given
+	 * position
+	 * 
+	 * @param str
+	 * @param position
+	 * @return
+	 */
+	private static long getLane(final CharSequence str, final int position) {
+		return str.charAt(position) | ((long) str.charAt(position + 1) << 16)
+				| ((long) str.charAt(position + 2) << 32)
+				| ((long) str.charAt(position + 3) << 48);
+	}
+
+	private static long round(final long accumulator, final long input) {
+		return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+	}
+
+	private static long mergeRound(final long accumulator, final long value) {
+		return (accumulator ^ round(0, value)) * PRIME1 + PRIME4;
+	}
+
+}
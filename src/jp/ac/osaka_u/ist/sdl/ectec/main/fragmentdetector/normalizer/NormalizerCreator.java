@@ -29,4 +29,16 @@ public class NormalizerCreator {
 		}
 	}
 
+	/**
+	 * whether a visitor created by this creator can record the strings of
+	 * all the blocks in one visit <br>
+	 * this is not the case when sub-blocks are normalized, since the string
+	 * of a block depends on which node the visit starts from
+	 * 
+	 * @return
+	 */
+	public boolean canRecordRanges() {
+		return mode != StringNormalizeMode.SUBBLOCK_NORMALIZED;
+	}
+
 }
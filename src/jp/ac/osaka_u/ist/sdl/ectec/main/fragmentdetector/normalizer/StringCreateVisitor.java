@@ -1,9 +1,28 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.Statement;
+
 public class StringCreateVisitor extends MyNaiveAstFlattener {
 
 	private String str = null;
 
+	/**
+	 * the start and end positions in the buffer of statements, declarations,
+	 * and catch clauses, or null if they are not recorded
+	 */
+	private Map<ASTNode, int[]> ranges = null;
+
+	/**
+	 * the whole result, which is created when a recorded range is requested
+	 */
+	private String result = null;
+
 	public StringCreateVisitor() {
 		super();
 	}
@@ -19,6 +38,84 @@ public class StringCreateVisitor extends MyNaiveAstFlattener {
 		return super.buffer;
 	}
 
+	/**
+	 * record where each statement, declaration, and catch clause is written
+	 * in the buffer <br>
+	 * indents are not written while recording, so that the string of a node
+	 * in the buffer does not depend on its ancestors and equals the one
+	 * created by visiting only the node
+	 */
+	public void recordRanges() {
+		ranges = new IdentityHashMap<ASTNode, int[]>();
+	}
+
+	/**
+	 * get the recorded string from the start of the first node to the end of
+	 * the last node without copying it
+	 * 
+	 * @param first
+	 * @param last
+	 * @return the string, or null if either of the nodes has not been visited
+	 *         while recording
+	 */
+	public CharSequence getRecordedString(final ASTNode first,
+			final ASTNode last) {
+		if (ranges == null) {
+			return null;
+		}
+
+		final int[] firstRange = ranges.get(first);
+		final int[] lastRange = ranges.get(last);
+		if (firstRange == null || lastRange == null || firstRange[1] < 0
+				|| lastRange[1] < 0) {
+			return null;
+		}
+
+		return new StringSlice(getRecordedResult(), firstRange[0],
+				lastRange[1]);
+	}
+
+	/**
+	 * get the whole string that has the recorded strings
+	 * 
+	 * @return
+	 */
+	public String getRecordedResult() {
+		if (result == null || result.length() != buffer.length()) {
+			result = buffer.toString();
+		}
+		return result;
+	}
+
+	@Override
+	void printIndent() {
+		if (ranges == null) {
+			super.printIndent();
+		}
+	}
+
+	@Override
+	public void preVisit(ASTNode node) {
+		if (ranges != null && isRecorded(node)) {
+			ranges.put(node, new int[] { buffer.length(), -1 });
+		}
+	}
+
+	@Override
+	public void postVisit(ASTNode node) {
+		if (ranges != null && isRecorded(node)) {
+			final int[] range = ranges.get(node);
+			if (range != null) {
+				range[1] = buffer.length();
+			}
+		}
+	}
+
+	private boolean isRecorded(final ASTNode node) {
+		return node instanceof Statement || node instanceof BodyDeclaration
+				|| node instanceof CatchClause;
+	}
+
 	protected String getStringWhiteSpacesRemoved() {
 		// String before = builder.toString();
 		String before = buffer.toString();
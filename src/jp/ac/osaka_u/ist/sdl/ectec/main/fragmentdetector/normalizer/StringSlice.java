@@ -0,0 +1,73 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer;
+
+/**
+ * A view of a part of a string, which does not copy the characters
+ * 
+ * @author k-hotta
+ * 
+ */
+public class StringSlice implements CharSequence {
+
+	private final String str;
+
+	private final int start;
+
+	private final int end;
+
+	StringSlice(final String str, final int start, final int end) {
+		if (start < 0 || end > str.length() || start > end) {
+			throw new IndexOutOfBoundsException("[" + start + ", " + end
+					+ ") is out of the string whose length is "
+					+ str.length());
+		}
+		this.str = str;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * get the whole string that has this slice
+	 * 
+	 * @return
+	 */
+	public final String getSource() {
+		return str;
+	}
+
+	public final int getStart() {
+		return start;
+	}
+
+	public final int getEnd() {
+		return end;
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(final int index) {
+		if (index < 0 || index >= end - start) {
+			throw new IndexOutOfBoundsException("index " + index
+					+ " is out of the slice whose length is " + (end - start));
+		}
+		return str.charAt(start + index);
+	}
+
+	@Override
+	public CharSequence subSequence(final int from, final int to) {
+		if (from < 0 || to > end - start || from > to) {
+			throw new IndexOutOfBoundsException("[" + from + ", " + to
+					+ ") is out of the slice whose length is " + (end - start));
+		}
+		return new StringSlice(str, start + from, start + to);
+	}
+
+	@Override
+	public String toString() {
+		return str.substring(start, end);
+	}
+
+}
@@ -1,9 +1,13 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.linker;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
@@ -12,6 +16,12 @@ import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ICRDSimilarityCalculat
 
 public abstract class AbstractLocationLimitedCodeFragmentLinkMaker {
 
+	/**
+	 * the maximum number of requests processed in a fork-join subtask without
+	 * splitting them
+	 */
+	private static final int REQUESTS_PER_TASK = 8;
+
 	protected final Map<Long, DBCodeFragmentLinkInfo> links;
 
 	protected final FragmentLinkConditionUmpire umpire;
@@ -26,18 +36,32 @@ public abstract class AbstractLocationLimitedCodeFragmentLinkMaker {
 
 	protected final long afterRevisionId;
 
+	/**
+	 * whether the requested fragments are processed as fork-join subtasks
+	 * <br>
+	 * it is true if this maker is created in a worker of a fork-join pool
+	 */
+	private final boolean forks;
+
+	/**
+	 * the requests that have not been processed yet
+	 */
+	private final List<Request> requests;
+
 	public AbstractLocationLimitedCodeFragmentLinkMaker(
 			FragmentLinkConditionUmpire umpire,
 			ICRDSimilarityCalculator similarityCalculator,
 			double similarityThreshold, Map<Long, DBCrdInfo> crds,
 			long beforeRevisionId, long afterRevisionId) {
-		this.links = new TreeMap<Long, DBCodeFragmentLinkInfo>();
+		this.links = new ConcurrentSkipListMap<Long, DBCodeFragmentLinkInfo>();
 		this.umpire = umpire;
 		this.similarityCalculator = similarityCalculator;
 		this.similarityThreshold = similarityThreshold;
 		this.crds = crds;
 		this.beforeRevisionId = beforeRevisionId;
 		this.afterRevisionId = afterRevisionId;
+		this.forks = ForkJoinTask.inForkJoinPool();
+		this.requests = new ArrayList<Request>();
 	}
 
 	public final Map<Long, DBCodeFragmentLinkInfo> getDetectedLinks() {
@@ -48,6 +72,40 @@ public abstract class AbstractLocationLimitedCodeFragmentLinkMaker {
 			final Collection<DBCodeFragmentInfo> pairCandidateFragments,
 			final boolean reversed);
 
+	/**
+	 * request to process the given fragment with its candidates <br>
+	 * the fragment is processed immediately unless this maker forks, otherwise
+	 * it is processed in processRequests()
+	 * 
+	 * @param fragment
+	 * @param pairCandidateFragments
+	 * @param reversed
+	 */
+	public final void request(final DBCodeFragmentInfo fragment,
+			final Collection<DBCodeFragmentInfo> pairCandidateFragments,
+			final boolean reversed) {
+		if (forks) {
+			requests.add(new Request(fragment, pairCandidateFragments,
+					reversed));
+		} else {
+			processFragment(fragment, pairCandidateFragments, reversed);
+		}
+	}
+
+	/**
+	 * process all the pending requests as fork-join subtasks, so that idle
+	 * workers steal the fragments of a large commit <br>
+	 * processFragment() must be thread-safe if this maker forks
+	 */
+	public final void processRequests() {
+		if (requests.isEmpty()) {
+			return;
+		}
+
+		new RequestProcessingTask(0, requests.size()).invoke();
+		requests.clear();
+	}
+
 	protected final boolean match(final DBCrdInfo beforeCrd,
 			final DBCodeFragmentInfo beforeFragment, final DBCrdInfo afterCrd,
 			final DBCodeFragmentInfo afterFragment) {
@@ -60,7 +118,8 @@ public abstract class AbstractLocationLimitedCodeFragmentLinkMaker {
 		}
 
 		final double similarity = similarityCalculator.calcSimilarity(
-				beforeCrd, beforeFragment, afterCrd, afterFragment);
+				beforeCrd, beforeFragment, afterCrd, afterFragment,
+				similarityThreshold);
 
 		if (umpire.satisfyAllConditions(beforeCrd, afterCrd, similarity)) {
 			return true;
@@ -101,4 +160,66 @@ public abstract class AbstractLocationLimitedCodeFragmentLinkMaker {
 				changed);
 	}
 
+	/**
+	 * A request to process a fragment with its candidates
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private static class Request {
+
+		private final DBCodeFragmentInfo fragment;
+
+		private final Collection<DBCodeFragmentInfo> pairCandidateFragments;
+
+		private final boolean reversed;
+
+		private Request(final DBCodeFragmentInfo fragment,
+				final Collection<DBCodeFragmentInfo> pairCandidateFragments,
+				final boolean reversed) {
+			this.fragment = fragment;
+			this.pairCandidateFragments = pairCandidateFragments;
+			this.reversed = reversed;
+		}
+
+	}
+
+	/**
+	 * A task to process the requests in a range, which is split into halves
+	 * while it is large
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private class RequestProcessingTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+
+		private final int to;
+
+		private RequestProcessingTask(final int from, final int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= REQUESTS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					final Request request = requests.get(i);
+					processFragment(request.fragment,
+							request.pairCandidateFragments, request.reversed);
+				}
+				return;
+			}
+
+			final int middle = (from + to) >>> 1;
+			invokeAll(new RequestProcessingTask(from, middle),
+					new RequestProcessingTask(middle, to));
+		}
+
+	}
+
 }
@@ -1,7 +1,8 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.linker;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -11,6 +12,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.BlockType;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
@@ -36,10 +38,22 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 			final Map<BlockType, Map<Integer, List<DBCodeFragmentInfo>>> afterFragmentsSorted,
 			final Map<Long, DBCrdInfo> crds);
 
+	/**
+	 * whether detectLinks() uses the fragments that stay in both the
+	 * revisions <br>
+	 * if false, the maps of those fragments given to detectLinks() are empty
+	 * and instances of them are never created
+	 * 
+	 * @return
+	 */
+	protected boolean usesStayedFragments() {
+		return true;
+	}
+
 	@Override
 	public Map<Long, DBCodeFragmentLinkInfo> detectFragmentPairs(
-			Map<Long, DBCodeFragmentInfo> beforeFragments,
-			Map<Long, DBCodeFragmentInfo> afterFragments,
+			CodeFragmentStore beforeFragments,
+			CodeFragmentStore afterFragments,
 			ICRDSimilarityCalculator similarityCalculator,
 			double similarityThreshold, Map<Long, DBCrdInfo> crds,
 			long beforeRevisionId, long afterRevisionId,
@@ -48,33 +62,68 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 		final FragmentLinkConditionUmpire umpire = new FragmentLinkConditionUmpire(
 				similarityThreshold);
 
-		final Map<Long, DBCodeFragmentInfo> targetBeforeFragments = getTargetFragmentsInBeforeRevision(
-				beforeFragments, clonesInBeforeRevision,
-				onlyFragmentInClonesInBeforeRevision);
+		final long[] fragmentIdsInClones = (onlyFragmentInClonesInBeforeRevision) ? getFragmentIdsInClones(clonesInBeforeRevision)
+				: null;
+		final boolean usesStayedFragments = usesStayedFragments();
+
+		final List<DBCodeFragmentInfo> stayedBeforeFragments = new ArrayList<DBCodeFragmentInfo>();
+		final List<DBCodeFragmentInfo> deletedBeforeFragments = new ArrayList<DBCodeFragmentInfo>();
+		final List<DBCodeFragmentInfo> addedAfterFragments = new ArrayList<DBCodeFragmentInfo>();
+		final List<DBCodeFragmentInfo> allAfterFragments = new ArrayList<DBCodeFragmentInfo>();
+
+		// both the stores are sorted by ids, so that common fragments are
+		// found by walking through them at once
+		final int beforeSize = beforeFragments.size();
+		final int afterSize = afterFragments.size();
+		int beforeIndex = 0;
+		int afterIndex = 0;
+
+		while (beforeIndex < beforeSize || afterIndex < afterSize) {
+			final long beforeId = (beforeIndex < beforeSize) ? beforeFragments
+					.getId(beforeIndex) : Long.MAX_VALUE;
+			final long afterId = (afterIndex < afterSize) ? afterFragments
+					.getId(afterIndex) : Long.MAX_VALUE;
+
+			if (afterIndex >= afterSize
+					|| (beforeIndex < beforeSize && beforeId < afterId)) {
+				// deleted
+				if (isTarget(beforeId, fragmentIdsInClones)) {
+					deletedBeforeFragments.add(beforeFragments
+							.getElement(beforeIndex));
+				}
+				beforeIndex++;
+				continue;
+			}
 
-		final Map<Long, DBCodeFragmentInfo> stayedBeforeFragments = new TreeMap<Long, DBCodeFragmentInfo>();
+			final boolean stayed = (beforeIndex < beforeSize && beforeId == afterId);
+			final boolean target = stayed
+					&& isTarget(beforeId, fragmentIdsInClones);
 
-		final Map<Long, DBCodeFragmentInfo> deletedBeforeFragments = new TreeMap<Long, DBCodeFragmentInfo>();
-		deletedBeforeFragments.putAll(targetBeforeFragments);
+			if (!target || usesStayedFragments) {
+				final DBCodeFragmentInfo afterFragment = afterFragments
+						.getElement(afterIndex);
 
-		final Map<Long, DBCodeFragmentInfo> addedAfterFragments = new TreeMap<Long, DBCodeFragmentInfo>();
-		addedAfterFragments.putAll(afterFragments);
+				if (target) {
+					stayedBeforeFragments.add(afterFragment);
+				} else {
+					// fragments that are not targets in the before revision
+					// are regarded as added ones
+					addedAfterFragments.add(afterFragment);
+				}
 
-		final Set<Long> commonFragmentIds = new HashSet<Long>();
-		commonFragmentIds.addAll(targetBeforeFragments.keySet());
-		commonFragmentIds.retainAll(afterFragments.keySet());
+				if (usesStayedFragments) {
+					allAfterFragments.add(afterFragment);
+				}
+			}
 
-		for (final long commonFragmentId : commonFragmentIds) {
-			if (targetBeforeFragments.containsKey(commonFragmentId)) {
-				stayedBeforeFragments.put(commonFragmentId,
-						targetBeforeFragments.get(commonFragmentId));
+			if (stayed) {
+				beforeIndex++;
 			}
-			deletedBeforeFragments.remove(commonFragmentId);
-			addedAfterFragments.remove(commonFragmentId);
+			afterIndex++;
 		}
 
 		final Map<BlockType, Map<Integer, List<DBCodeFragmentInfo>>> afterFragmentsSorted = sortFragments(
-				afterFragments, crds);
+				allAfterFragments, crds);
 
 		final Map<BlockType, Map<Integer, List<DBCodeFragmentInfo>>> fragmentsStayed = sortFragments(
 				stayedBeforeFragments, crds);
@@ -89,6 +138,8 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 
 		detectLinks(maker, fragmentsStayed, fragmentsDeleted, fragmentsAdded,
 				afterFragmentsSorted, crds);
+		// the requests that detectLinks() has left are processed here
+		maker.processRequests();
 
 		return maker.getDetectedLinks();
 	}
@@ -105,13 +156,13 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 			final DBCrdInfo beforeCrd = crds.get(beforeClass.getCrdId());
 
 			if (beforeClass.isFileDeletedAtEnd()) {
-				maker.processFragment(beforeClass, afterClasses, false);
+				maker.request(beforeClass, afterClasses, false);
 			} else {
 				final String name = beforeCrd.getAnchor();
 				final int hash = name.hashCode();
 
 				if (afterClassesByName.containsKey(hash)) {
-					maker.processFragment(beforeClass,
+					maker.request(beforeClass,
 							afterClassesByName.get(hash), false);
 				}
 			}
@@ -130,13 +181,13 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 			final DBCrdInfo afterCrd = crds.get(afterClass.getCrdId());
 
 			if (afterClass.isFileAddedAtStart()) {
-				maker.processFragment(afterClass, beforeClasses, true);
+				maker.request(afterClass, beforeClasses, true);
 			} else {
 				final String name = afterCrd.getAnchor();
 				final int hash = name.hashCode();
 
 				if (beforeClassesByName.containsKey(hash)) {
-					maker.processFragment(afterClass,
+					maker.request(afterClass,
 							beforeClassesByName.get(hash), true);
 				}
 			}
@@ -208,7 +259,7 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 						.get(parametersHash));
 			}
 
-			maker.processFragment(beforeMethod, afterCandidateMethods, false);
+			maker.request(beforeMethod, afterCandidateMethods, false);
 		}
 	}
 
@@ -231,19 +282,17 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 					.get(identifyingNumber);
 
 			for (final DBCodeFragmentInfo beforeCandidate : beforeCandidates) {
-				maker.processFragment(beforeCandidate, afterCandidates, false);
+				maker.request(beforeCandidate, afterCandidates, false);
 			}
 		}
 	}
 
 	protected Map<BlockType, Map<Integer, List<DBCodeFragmentInfo>>> sortFragments(
-			final Map<Long, DBCodeFragmentInfo> fragments,
+			final Collection<DBCodeFragmentInfo> fragments,
 			final Map<Long, DBCrdInfo> crds) {
 		final Map<BlockType, Map<Integer, List<DBCodeFragmentInfo>>> result = new HashMap<BlockType, Map<Integer, List<DBCodeFragmentInfo>>>();
 
-		for (final Map.Entry<Long, DBCodeFragmentInfo> entry : fragments
-				.entrySet()) {
-			final DBCodeFragmentInfo block = entry.getValue();
+		for (final DBCodeFragmentInfo block : fragments) {
 			final DBCrdInfo crd = crds.get(block.getCrdId());
 			final BlockType bType = crd.getType();
 
@@ -304,32 +353,41 @@ public abstract class AbstractLocationLimitedCodeFragmentLinker implements
 		return anchor.substring(leftParenIndex + 1, rightParenIndex);
 	}
 
-	public Map<Long, DBCodeFragmentInfo> getTargetFragmentsInBeforeRevision(
-			final Map<Long, DBCodeFragmentInfo> codeFragmentsInBeforeRevision,
-			final Map<Long, DBCloneSetInfo> clonesInBeforeRevision,
-			final boolean onlyFragmentInClonesInBeforeRevision) {
-		final Map<Long, DBCodeFragmentInfo> result = new TreeMap<Long, DBCodeFragmentInfo>();
-
-		if (onlyFragmentInClonesInBeforeRevision) {
-			final Set<Long> fragmentIdsInClones = new TreeSet<Long>();
-			for (final Map.Entry<Long, DBCloneSetInfo> cloneEntry : clonesInBeforeRevision
-					.entrySet()) {
-				fragmentIdsInClones.addAll(cloneEntry.getValue().getElements());
-			}
-
-			for (final Map.Entry<Long, DBCodeFragmentInfo> fragmentEntry : codeFragmentsInBeforeRevision
-					.entrySet()) {
-				final long fragmentId = fragmentEntry.getKey();
-				if (fragmentIdsInClones.contains(fragmentId)) {
-					result.put(fragmentEntry.getKey(), fragmentEntry.getValue());
-				}
-			}
+	/**
+	 * get the ids of the fragments included in the given clones in ascending
+	 * order
+	 * 
+	 * @param clones
+	 * @return
+	 */
+	private long[] getFragmentIdsInClones(final Map<Long, DBCloneSetInfo> clones) {
+		final Set<Long> fragmentIdsInClones = new TreeSet<Long>();
+		for (final Map.Entry<Long, DBCloneSetInfo> cloneEntry : clones
+				.entrySet()) {
+			fragmentIdsInClones.addAll(cloneEntry.getValue().getElements());
+		}
 
-		} else {
-			result.putAll(codeFragmentsInBeforeRevision);
+		final long[] result = new long[fragmentIdsInClones.size()];
+		int index = 0;
+		for (final long fragmentId : fragmentIdsInClones) {
+			result[index++] = fragmentId;
 		}
+		return result;
+	}
 
-		return Collections.unmodifiableMap(result);
+	/**
+	 * judge whether the fragment in the before revision is a target of
+	 * linking
+	 * 
+	 * @param fragmentId
+	 * @param fragmentIdsInClones
+	 *            null if all the fragments are targets
+	 * @return
+	 */
+	private boolean isTarget(final long fragmentId,
+			final long[] fragmentIdsInClones) {
+		return fragmentIdsInClones == null
+				|| Arrays.binarySearch(fragmentIdsInClones, fragmentId) >= 0;
 	}
 
 	protected void retainCommonFragments(
@@ -1,26 +1,22 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.linker;
 
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.cache.RevisionElementCache;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedCommitInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CRDRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CloneSetRetriever;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindQueue;
 import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ICRDSimilarityCalculator;
 
 import org.apache.log4j.Logger;
@@ -45,9 +41,9 @@ public class CodeFragmentLinkDetectingThread implements Runnable {
 	private static final Logger eLogger = LoggingManager.getLogger("error");
 
 	/**
-	 * a map having detected links
+	 * the queue of detected links to be registered
 	 */
-	private final ConcurrentMap<Long, DBCodeFragmentLinkInfo> detectedLinks;
+	private final WriteBehindQueue<DBCodeFragmentLinkInfo> linkQueue;
 
 	/**
 	 * the target combined commits
@@ -55,34 +51,36 @@ public class CodeFragmentLinkDetectingThread implements Runnable {
 	private final DBCombinedCommitInfo[] targetCombinedCommits;
 
 	/**
-	 * the retriever for code fragments
+	 * the retriever for clones
 	 */
-	private final CodeFragmentRetriever fragmentRetriever;
+	private final CloneSetRetriever cloneRetriever;
 
 	/**
-	 * the retriever for crds
+	 * the cache of code fragments included in each revision
 	 */
-	private final CRDRetriever crdRetriever;
+	private final RevisionElementCache<CodeFragmentStore> codeFragments;
 
 	/**
-	 * the retriever for clones
+	 * the cache of crds included in each revision
 	 */
-	private final CloneSetRetriever cloneRetriever;
+	private final RevisionElementCache<Map<Long, DBCrdInfo>> crds;
 
 	/**
-	 * the map between revision id and code fragments included in the revision
+	 * the distance between the combined commit being processed and the one
+	 * whose elements are prefetched
 	 */
-	private final ConcurrentMap<Long, Map<Long, DBCodeFragmentInfo>> codeFragments;
+	private final int prefetchDistance;
 
 	/**
-	 * the map between revision id and crds included in the revision
+	 * already processed combined commits
 	 */
-	private final ConcurrentMap<Long, Map<Long, DBCrdInfo>> crds;
+	private final ConcurrentMap<Long, DBCombinedCommitInfo> processedCombinedCommits;
 
 	/**
-	 * already processed combined commits
+	 * id of a combined revision and a collection of ids of combined commits
+	 * that relates to the revision
 	 */
-	private final ConcurrentMap<Long, DBCombinedCommitInfo> processedCombinedCommits;
+	private final Map<Long, Collection<Long>> combinedRevisionAndRelatedCombinedCommits;
 
 	/**
 	 * a counter that points the current state of the processing
@@ -110,32 +108,40 @@ public class CodeFragmentLinkDetectingThread implements Runnable {
 	 */
 	private final boolean onlyFragmentInClonesInBeforeRevision;
 
+	/**
+	 * the pool in which links are detected as fork-join subtasks <br>
+	 * null if links are detected in this thread
+	 */
+	private final ForkJoinPool pool;
+
 	public CodeFragmentLinkDetectingThread(
-			final ConcurrentMap<Long, DBCodeFragmentLinkInfo> detectedLinks,
+			final WriteBehindQueue<DBCodeFragmentLinkInfo> linkQueue,
 			final DBCombinedCommitInfo[] targetCombinedCommits,
-			final CodeFragmentRetriever fragmentRetriever,
-			final CRDRetriever crdRetriever,
 			final CloneSetRetriever cloneRetriever,
-			final ConcurrentMap<Long, Map<Long, DBCodeFragmentInfo>> codeFragments,
-			final ConcurrentMap<Long, Map<Long, DBCrdInfo>> crds,
+			final RevisionElementCache<CodeFragmentStore> codeFragments,
+			final RevisionElementCache<Map<Long, DBCrdInfo>> crds,
+			final int prefetchDistance,
 			final ConcurrentMap<Long, DBCombinedCommitInfo> processedCombinedCommits,
+			final Map<Long, Collection<Long>> combinedRevisionAndRelatedCombinedCommits,
 			final AtomicInteger index, final ICodeFragmentLinker linker,
 			final double similarityThreshold,
 			final ICRDSimilarityCalculator similarityCalculator,
-			final boolean onlyFragmentInClonesInBeforeRevision) {
-		this.detectedLinks = detectedLinks;
+			final boolean onlyFragmentInClonesInBeforeRevision,
+			final ForkJoinPool pool) {
+		this.linkQueue = linkQueue;
 		this.targetCombinedCommits = targetCombinedCommits;
-		this.fragmentRetriever = fragmentRetriever;
-		this.crdRetriever = crdRetriever;
 		this.cloneRetriever = cloneRetriever;
 		this.codeFragments = codeFragments;
 		this.crds = crds;
+		this.prefetchDistance = prefetchDistance;
 		this.processedCombinedCommits = processedCombinedCommits;
+		this.combinedRevisionAndRelatedCombinedCommits = combinedRevisionAndRelatedCombinedCommits;
 		this.index = index;
 		this.linker = linker;
 		this.similarityThreshold = similarityThreshold;
 		this.similarityCalculator = similarityCalculator;
 		this.onlyFragmentInClonesInBeforeRevision = onlyFragmentInClonesInBeforeRevision;
+		this.pool = pool;
 	}
 
 	@Override
@@ -148,26 +154,26 @@ public class CodeFragmentLinkDetectingThread implements Runnable {
 			}
 
 			final DBCombinedCommitInfo targetCombinedCommit = targetCombinedCommits[currentIndex];
+			prefetchElements(currentIndex + prefetchDistance);
 
-			try {
-				final long beforeCombinedRevisionId = targetCombinedCommit
-						.getBeforeCombinedRevisionId();
-				if (beforeCombinedRevisionId == -1) {
-					processedCombinedCommits.put(targetCombinedCommit.getId(),
-							targetCombinedCommit);
-					logger.info("[" + processedCombinedCommits.size() + "/"
-							+ targetCombinedCommits.length
-							+ "] processed the combined commit "
-							+ targetCombinedCommit.getId());
-					continue;
-				}
-				final long afterCombinedRevisionId = targetCombinedCommit
-						.getAfterCombinedRevisionId();
-
-				// retrieve necessary elements
-				retrieveElements(beforeCombinedRevisionId);
-				retrieveElements(afterCombinedRevisionId);
+			final long beforeCombinedRevisionId = targetCombinedCommit
+					.getBeforeCombinedRevisionId();
+			if (beforeCombinedRevisionId == -1) {
+				processedCombinedCommits.put(targetCombinedCommit.getId(),
+						targetCombinedCommit);
+				releaseElements(targetCombinedCommit
+						.getAfterCombinedRevisionId());
+				logger.info("[" + processedCombinedCommits.size() + "/"
+						+ targetCombinedCommits.length
+						+ "] processed the combined commit "
+						+ targetCombinedCommit.getId());
+				continue;
+			}
+			final long afterCombinedRevisionId = targetCombinedCommit
+					.getAfterCombinedRevisionId();
 
+			final Map<Long, DBCodeFragmentLinkInfo> links;
+			try {
 				final Map<Long, DBCrdInfo> currentCrds = new TreeMap<Long, DBCrdInfo>();
 				currentCrds.putAll(crds.get(beforeCombinedRevisionId));
 				currentCrds.putAll(crds.get(afterCombinedRevisionId));
@@ -180,104 +186,128 @@ public class CodeFragmentLinkDetectingThread implements Runnable {
 									.retrieveElementsInSpecifiedRevision(beforeCombinedRevisionId));
 				}
 
-				final Map<Long, DBCodeFragmentInfo> beforeFragments = new TreeMap<Long, DBCodeFragmentInfo>();
-				beforeFragments.putAll(codeFragments
-						.get(beforeCombinedRevisionId));
-				final Map<Long, DBCodeFragmentInfo> afterFragments = new TreeMap<Long, DBCodeFragmentInfo>();
-				afterFragments.putAll(codeFragments
-						.get(afterCombinedRevisionId));
-
-				final Map<Long, DBCodeFragmentLinkInfo> links = linker
-						.detectFragmentPairs(beforeFragments, afterFragments,
-								similarityCalculator, similarityThreshold,
-								currentCrds, beforeCombinedRevisionId,
-								afterCombinedRevisionId,
-								onlyFragmentInClonesInBeforeRevision,
-								clonesInBeforeRevision);
-
-				detectedLinks.putAll(links);
+				final CodeFragmentStore beforeFragments = codeFragments
+						.get(beforeCombinedRevisionId);
+				final CodeFragmentStore afterFragments = codeFragments
+						.get(afterCombinedRevisionId);
 
-				processedCombinedCommits.put(targetCombinedCommit.getId(),
-						targetCombinedCommit);
-				logger.info("[" + processedCombinedCommits.size() + "/"
-						+ targetCombinedCommits.length
-						+ "] processed the combined commit "
-						+ targetCombinedCommit.getId());
+				links = detectLinks(beforeFragments, afterFragments,
+						currentCrds, beforeCombinedRevisionId,
+						afterCombinedRevisionId, clonesInBeforeRevision);
 
 			} catch (Exception e) {
-				eLogger.warn("something is wrong in processing the combined commit "
-						+ targetCombinedCommit.getId());
-				e.printStackTrace();
+				eLogger.warn(
+						"something is wrong in processing the combined commit "
+								+ targetCombinedCommit.getId(), e);
+				continue;
+			}
+
+			// an IllegalStateException thrown by the queue means that the
+			// writer has stopped, so that it stops this worker too
+			try {
+				linkQueue.putAll(links.values());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(
+						"interrupted while registering the links of the combined commit "
+								+ targetCombinedCommit.getId(), e);
 			}
 
+			processedCombinedCommits.put(targetCombinedCommit.getId(),
+					targetCombinedCommit);
+			releaseElements(beforeCombinedRevisionId);
+			releaseElements(afterCombinedRevisionId);
+			logger.info("[" + processedCombinedCommits.size() + "/"
+					+ targetCombinedCommits.length
+					+ "] processed the combined commit "
+					+ targetCombinedCommit.getId());
 		}
 	}
 
 	/**
-	 * retrieve elements if they have not been stored into the maps
+	 * detect links between the given revisions <br>
+	 * if the pool is given, they are detected in a worker of the pool so that
+	 * the linker splits the work into subtasks
 	 * 
-	 * @param combinedRevisionId
-	 * @throws SQLException
+	 * @param beforeFragments
+	 * @param afterFragments
+	 * @param currentCrds
+	 * @param beforeCombinedRevisionId
+	 * @param afterCombinedRevisionId
+	 * @param clonesInBeforeRevision
+	 * @return
 	 */
-	protected void retrieveElements(final long combinedRevisionId)
-			throws SQLException {
-		synchronized (codeFragments) {
-			if (!codeFragments.containsKey(combinedRevisionId)) {
-				final Map<Long, DBCodeFragmentInfo> retrievedFragments = fragmentRetriever
-						.retrieveElementsInSpecifiedCombinedRevision(combinedRevisionId);
-				final Map<Long, DBCodeFragmentInfo> concurrentRetrievedFragments = new ConcurrentHashMap<Long, DBCodeFragmentInfo>();
-				concurrentRetrievedFragments.putAll(retrievedFragments);
-				codeFragments.put(combinedRevisionId,
-						concurrentRetrievedFragments);
-			}
+	private Map<Long, DBCodeFragmentLinkInfo> detectLinks(
+			final CodeFragmentStore beforeFragments,
+			final CodeFragmentStore afterFragments,
+			final Map<Long, DBCrdInfo> currentCrds,
+			final long beforeCombinedRevisionId,
+			final long afterCombinedRevisionId,
+			final Map<Long, DBCloneSetInfo> clonesInBeforeRevision) {
+		if (pool == null) {
+			return linker.detectFragmentPairs(beforeFragments, afterFragments,
+					similarityCalculator, similarityThreshold, currentCrds,
+					beforeCombinedRevisionId, afterCombinedRevisionId,
+					onlyFragmentInClonesInBeforeRevision,
+					clonesInBeforeRevision);
 		}
 
-		synchronized (crds) {
-			if (!crds.containsKey(combinedRevisionId)) {
-				final Map<Long, DBCodeFragmentInfo> fragments = codeFragments
-						.get(combinedRevisionId);
-				final List<Long> crdIds = new ArrayList<Long>();
-				for (final Map.Entry<Long, DBCodeFragmentInfo> entry : fragments
-						.entrySet()) {
-					crdIds.add(entry.getValue().getCrdId());
-				}
+		return pool.invoke(new RecursiveTask<Map<Long, DBCodeFragmentLinkInfo>>() {
 
-				final Map<Long, DBCrdInfo> retrievedCrds = crdRetriever
-						.retrieveWithIds(crdIds);
-				final Map<Long, DBCrdInfo> concurrentRetrievedCrds = new ConcurrentHashMap<Long, DBCrdInfo>();
-				concurrentRetrievedCrds.putAll(retrievedCrds);
-				crds.put(combinedRevisionId, concurrentRetrievedCrds);
-			}
-		}
-	}
+			private static final long serialVersionUID = 1L;
 
-	public Map<Long, DBCodeFragmentInfo> getTargetFragmentsInBeforeRevision(
-			final long beforeCombinedRevisionId) throws SQLException {
-		final Map<Long, DBCodeFragmentInfo> result = new TreeMap<Long, DBCodeFragmentInfo>();
+			@Override
+			protected Map<Long, DBCodeFragmentLinkInfo> compute() {
+				return linker.detectFragmentPairs(beforeFragments,
+						afterFragments, similarityCalculator,
+						similarityThreshold, currentCrds,
+						beforeCombinedRevisionId, afterCombinedRevisionId,
+						onlyFragmentInClonesInBeforeRevision,
+						clonesInBeforeRevision);
+			}
 
-		if (onlyFragmentInClonesInBeforeRevision) {
-			final Map<Long, DBCloneSetInfo> clones = cloneRetriever
-					.retrieveElementsInSpecifiedRevision(beforeCombinedRevisionId);
+		});
+	}
 
-			final Set<Long> fragmentIdsInClones = new TreeSet<Long>();
-			for (final Map.Entry<Long, DBCloneSetInfo> cloneEntry : clones
-					.entrySet()) {
-				fragmentIdsInClones.addAll(cloneEntry.getValue().getElements());
-			}
+	/**
+	 * start loading elements in the combined revisions of the combined commit
+	 * at the given index in the background
+	 * 
+	 * @param commitIndex
+	 */
+	protected void prefetchElements(final int commitIndex) {
+		if (commitIndex >= targetCombinedCommits.length) {
+			return;
+		}
 
-			for (final Map.Entry<Long, DBCodeFragmentInfo> fragmentEntry : codeFragments
-					.get(beforeCombinedRevisionId).entrySet()) {
-				final long fragmentId = fragmentEntry.getKey();
-				if (fragmentIdsInClones.contains(fragmentId)) {
-					result.put(fragmentEntry.getKey(), fragmentEntry.getValue());
-				}
+		final DBCombinedCommitInfo combinedCommit = targetCombinedCommits[commitIndex];
+		for (final long combinedRevisionId : new long[] {
+				combinedCommit.getBeforeCombinedRevisionId(),
+				combinedCommit.getAfterCombinedRevisionId() }) {
+			if (combinedRevisionId != -1) {
+				codeFragments.prefetch(combinedRevisionId);
+				crds.prefetch(combinedRevisionId);
 			}
+		}
+	}
 
-		} else {
-			result.putAll(codeFragments.get(beforeCombinedRevisionId));
+	/**
+	 * remove elements in the given combined revision from the caches if all
+	 * the combined commits related to the revision have been processed
+	 * 
+	 * @param combinedRevisionId
+	 */
+	protected void releaseElements(final long combinedRevisionId) {
+		final Collection<Long> relatedCombinedCommits = combinedRevisionAndRelatedCombinedCommits
+				.get(combinedRevisionId);
+		if (relatedCombinedCommits == null
+				|| !processedCombinedCommits.keySet().containsAll(
+						relatedCombinedCommits)) {
+			return;
 		}
 
-		return Collections.unmodifiableMap(result);
+		codeFragments.invalidate(combinedRevisionId);
+		crds.invalidate(combinedRevisionId);
 	}
 
 }
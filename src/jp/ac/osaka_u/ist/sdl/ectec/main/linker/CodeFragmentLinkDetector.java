@@ -6,6 +6,8 @@ import java.util.Map;
 import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
 import jp.ac.osaka_u.ist.sdl.ectec.db.DBConnectionManager;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedCommitInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.AbstractLevenshteinBasedCRDSimilarityCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ICRDSimilarityCalculator;
 
 import org.apache.log4j.Logger;
 
@@ -66,8 +68,17 @@ public class CodeFragmentLinkDetector {
 				settings.getCrdSimilarityMode().getCalculator(),
 				settings.getMaxBatchCount(),
 				settings.isDetectCrossProjectLinks(),
-				settings.isOnlyFragmentInClonesInBeforeRevision());
+				settings.isOnlyFragmentInClonesInBeforeRevision(),
+				settings.getCacheCapacity(), settings.isForkJoin());
 		identifier.run();
+
+		final ICRDSimilarityCalculator calculator = settings
+				.getCrdSimilarityMode().getCalculator();
+		if (calculator instanceof AbstractLevenshteinBasedCRDSimilarityCalculator) {
+			((AbstractLevenshteinBasedCRDSimilarityCalculator) calculator)
+					.report(logger);
+		}
+
 		logger.info("complete");
 	}
 
@@ -84,7 +84,8 @@ public class CodeFragmentLinkDetectorMain {
 			throws Exception {
 		// make a connection between the db file
 		dbManager = new DBConnectionManager(settings.getDBConfig(),
-				settings.getMaxBatchCount());
+				settings.getMaxBatchCount(),
+				settings.getMaxLookupConnections());
 		logger.info("connected to the db");
 
 		dbManager.initializeElementCounters(settings.getHeaderOfId());
@@ -129,7 +130,8 @@ public class CodeFragmentLinkDetectorMain {
 			calculator.setup(repositoryManagerManager,
 					dbManager.getFileRetriever(),
 					dbManager.getRevisionRetriever(),
-					dbManager.getCombinedRevisionRetriever());
+					dbManager.getCombinedRevisionRetriever(),
+					settings.getContentCacheCapacity());
 		}
 	}
 
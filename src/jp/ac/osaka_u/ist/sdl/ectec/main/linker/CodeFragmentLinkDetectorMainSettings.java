@@ -54,6 +54,17 @@ public class CodeFragmentLinkDetectorMainSettings extends AbstractSettings {
 	 */
 	private CodeFragmentLinkMode fragmentLinkMode;
 
+	/**
+	 * the maximum total number of characters of cached source files
+	 */
+	private long contentCacheCapacity;
+
+	/**
+	 * whether the fragments of each combined commit are linked as fork-join
+	 * subtasks
+	 */
+	private boolean forkJoin;
+
 	/**
 	 * get the list of combined commit ids
 	 * 
@@ -109,6 +120,25 @@ public class CodeFragmentLinkDetectorMainSettings extends AbstractSettings {
 		return fragmentLinkMode;
 	}
 
+	/**
+	 * get the maximum total number of characters of cached source files
+	 * 
+	 * @return
+	 */
+	public final long getContentCacheCapacity() {
+		return contentCacheCapacity;
+	}
+
+	/**
+	 * whether the fragments of each combined commit are linked as fork-join
+	 * subtasks
+	 * 
+	 * @return
+	 */
+	public final boolean isForkJoin() {
+		return forkJoin;
+	}
+
 	@Override
 	protected Options addParticularOptions(Options options) {
 		{
@@ -159,6 +189,23 @@ public class CodeFragmentLinkDetectorMainSettings extends AbstractSettings {
 			options.addOption(fl);
 		}
 
+		{
+			final Option ccc = new Option("ccc", "content-cache-capacity",
+					true,
+					"the maximum total number of characters of cached source files");
+			ccc.setArgs(1);
+			ccc.setRequired(false);
+			options.addOption(ccc);
+		}
+
+		{
+			final Option fj = new Option("fj", "fork-join", true,
+					"whether link the fragments of each commit as fork-join subtasks");
+			fj.setArgs(1);
+			fj.setRequired(false);
+			options.addOption(fj);
+		}
+
 		return options;
 	}
 
@@ -230,6 +277,36 @@ public class CodeFragmentLinkDetectorMainSettings extends AbstractSettings {
 					"unknown fragment link mode: " + fragmentLinkMode);
 		}
 		logger.info("fragment link mode: " + fragmentLinkMode);
+
+		final String cccStr = (cmd.hasOption("ccc")) ? cmd
+				.getOptionValue("ccc") : propReader
+				.getProperty(CONTENT_CACHE_CAPACITY);
+		try {
+			contentCacheCapacity = (cccStr != null) ? Long.parseLong(cccStr)
+					: 64L * 1024L * 1024L;
+		} catch (Exception e) {
+			throw new IllegalSettingValueException("illegal value " + cccStr
+					+ " was specified with -ccc, it must be a long value");
+		}
+		if (contentCacheCapacity <= 0) {
+			throw new IllegalSettingValueException(
+					"the capacity of the content cache must be more than 0 but the specified value is "
+							+ contentCacheCapacity);
+		}
+		logger.info("the capacity of the content cache: "
+				+ contentCacheCapacity);
+
+		final String fjStr = (cmd.hasOption("fj")) ? cmd.getOptionValue("fj")
+				: propReader.getProperty(FORK_JOIN);
+		if (fjStr == null || fjStr.equalsIgnoreCase("no")) {
+			forkJoin = false;
+		} else if (fjStr.equalsIgnoreCase("yes")) {
+			forkJoin = true;
+		} else {
+			throw new IllegalSettingValueException("illegal value " + fjStr
+					+ " for -fj");
+		}
+		logger.info("link fragments as fork-join subtasks: " + forkJoin);
 	}
 
 }
@@ -1,14 +1,20 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.linker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+import jp.ac.osaka_u.ist.sdl.ectec.db.cache.IRevisionElementLoader;
+import jp.ac.osaka_u.ist.sdl.ectec.db.cache.RevisionElementCache;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedCommitInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
@@ -16,8 +22,13 @@ import jp.ac.osaka_u.ist.sdl.ectec.db.data.registerer.CodeFragmentLinkRegisterer
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CRDRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CloneSetRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentRetriever;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CodeFragmentSweep;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindPipeline;
+import jp.ac.osaka_u.ist.sdl.ectec.db.writer.WriteBehindQueue;
 import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ICRDSimilarityCalculator;
 
+import org.apache.log4j.Logger;
+
 /**
  * A class for managing threads that detects links of code fragments
  * 
@@ -26,6 +37,12 @@ import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ICRDSimilarityCalculat
  */
 public class CodeFragmentLinkIdentifier {
 
+	/**
+	 * the logger
+	 */
+	private static final Logger logger = LoggingManager
+			.getLogger(CodeFragmentLinkIdentifier.class.getName());
+
 	/**
 	 * the target commits
 	 */
@@ -72,7 +89,7 @@ public class CodeFragmentLinkIdentifier {
 	private final ICRDSimilarityCalculator similarityCalculator;
 
 	/**
-	 * the threshold for storing elements
+	 * the number of elements registered into db at once
 	 */
 	private final int maxElementsCount;
 
@@ -81,12 +98,23 @@ public class CodeFragmentLinkIdentifier {
 	 */
 	private final boolean detectCrossProjectLinks;
 
+	/**
+	 * the maximum number of elements kept in each cache
+	 */
+	private final long cacheCapacity;
+
 	/**
 	 * whether detect links from fragments that are not in any clones in before
 	 * revision
 	 */
 	private final boolean onlyFragmentInClonesInBeforeRevision;
 
+	/**
+	 * whether the fragments of each combined commit are linked as fork-join
+	 * subtasks
+	 */
+	private final boolean forkJoin;
+
 	public CodeFragmentLinkIdentifier(
 			final Map<Long, DBCombinedCommitInfo> combinedCommits,
 			final int threadsCount,
@@ -97,7 +125,8 @@ public class CodeFragmentLinkIdentifier {
 			final ICodeFragmentLinker linker, final double similarityThreshold,
 			final ICRDSimilarityCalculator similarityCalculator,
 			final int maxElementsCount, final boolean detectCrossProjectLinks,
-			final boolean onlyFragmentInClonesInBeforeRevision) {
+			final boolean onlyFragmentInClonesInBeforeRevision,
+			final long cacheCapacity, final boolean forkJoin) {
 		this.combinedCommits = combinedCommits;
 		this.threadsCount = threadsCount;
 		this.fragmentLinkRegisterer = fragmentLinkRegisterer;
@@ -110,6 +139,8 @@ public class CodeFragmentLinkIdentifier {
 		this.maxElementsCount = maxElementsCount;
 		this.detectCrossProjectLinks = detectCrossProjectLinks;
 		this.onlyFragmentInClonesInBeforeRevision = onlyFragmentInClonesInBeforeRevision;
+		this.cacheCapacity = cacheCapacity;
+		this.forkJoin = forkJoin;
 	}
 
 	private Map<Long, Collection<Long>> detectCombinedRevisionAndRelatedCombinedCommits() {
@@ -151,32 +182,92 @@ public class CodeFragmentLinkIdentifier {
 		final int tailoredThreadsCount = Math.max(
 				Math.min(combinedCommits.size(), threadsCount), 2);
 
-		final ConcurrentMap<Long, DBCodeFragmentLinkInfo> detectedLinks = new ConcurrentHashMap<Long, DBCodeFragmentLinkInfo>();
-		final ConcurrentMap<Long, Map<Long, DBCodeFragmentInfo>> codeFragments = new ConcurrentHashMap<Long, Map<Long, DBCodeFragmentInfo>>();
-		final ConcurrentMap<Long, Map<Long, DBCrdInfo>> crds = new ConcurrentHashMap<Long, Map<Long, DBCrdInfo>>();
+		// combined commits are processed nearly in order, so most of the
+		// fragments are loaded by moving the sweep forward
+		final CodeFragmentSweep sweep = fragmentRetriever.openSweep();
+		final RevisionElementCache<CodeFragmentStore> codeFragments = new RevisionElementCache<CodeFragmentStore>(
+				"Code Fragment", new IRevisionElementLoader<CodeFragmentStore>() {
+					@Override
+					public CodeFragmentStore load(final long combinedRevisionId)
+							throws Exception {
+						synchronized (sweep) {
+							if (sweep.canAdvanceTo(combinedRevisionId)) {
+								sweep.advanceTo(combinedRevisionId);
+								return sweep.getLiveFragments();
+							}
+						}
+						return fragmentRetriever
+								.retrieveStoreInSpecifiedCombinedRevision(combinedRevisionId);
+					}
+
+					@Override
+					public long weigh(final CodeFragmentStore elements) {
+						return elements.size();
+					}
+				}, cacheCapacity);
+		final RevisionElementCache<Map<Long, DBCrdInfo>> crds = new RevisionElementCache<Map<Long, DBCrdInfo>>(
+				"CRD", new IRevisionElementLoader<Map<Long, DBCrdInfo>>() {
+					@Override
+					public Map<Long, DBCrdInfo> load(
+							final long combinedRevisionId) throws Exception {
+						final List<Long> crdIds = new ArrayList<Long>();
+						for (final long crdId : codeFragments.get(
+								combinedRevisionId).getCrdIds()) {
+							crdIds.add(crdId);
+						}
+						return crdRetriever.retrieveWithIds(crdIds);
+					}
+
+					@Override
+					public long weigh(final Map<Long, DBCrdInfo> elements) {
+						return elements.size();
+					}
+				}, cacheCapacity);
 		final ConcurrentMap<Long, DBCombinedCommitInfo> processedCombinedCommits = new ConcurrentHashMap<Long, DBCombinedCommitInfo>();
 		final AtomicInteger index = new AtomicInteger(0);
 
 		final ICodeFragmentLinker selectedLinker = (detectCrossProjectLinks) ? linker
 				: new ByRepositoryCodeFragmentLinker(linker);
 
+		final WriteBehindPipeline pipeline = new WriteBehindPipeline(
+				maxElementsCount);
+		final WriteBehindQueue<DBCodeFragmentLinkInfo> linkQueue = pipeline
+				.createQueue("Fragment Link", fragmentLinkRegisterer);
+		pipeline.start();
+
+		// with fork-join, the threads only feed combined commits to the pool
+		// and its workers steal the subtasks of large ones from each other
+		final ForkJoinPool pool = (forkJoin) ? new ForkJoinPool(
+				tailoredThreadsCount - 1) : null;
+
 		final Thread[] threads = new Thread[tailoredThreadsCount - 1];
 		for (int i = 0; i < tailoredThreadsCount - 1; i++) {
 			threads[i] = new Thread(new CodeFragmentLinkDetectingThread(
-					detectedLinks, combinedCommitsArray, fragmentRetriever,
-					crdRetriever, cloneRetriever, codeFragments, crds,
-					processedCombinedCommits, index, selectedLinker,
+					linkQueue, combinedCommitsArray, cloneRetriever,
+					codeFragments, crds, threads.length,
+					processedCombinedCommits,
+					combinedRevisionAndRelatedCombinedCommits, index,
+					selectedLinker,
 					similarityThreshold, similarityCalculator,
-					onlyFragmentInClonesInBeforeRevision));
+					onlyFragmentInClonesInBeforeRevision, pool));
 			threads[i].start();
 		}
 
-		final CodeFragmentLinkDetectingThreadMonitor monitor = new CodeFragmentLinkDetectingThreadMonitor(
-				detectedLinks, fragmentLinkRegisterer, codeFragments, crds,
-				processedCombinedCommits,
-				combinedRevisionAndRelatedCombinedCommits, maxElementsCount,
-				threads);
-		monitor.monitor();
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		logger.info("all threads have finished their work");
+		if (pool != null) {
+			pool.shutdown();
+		}
+		codeFragments.report(logger);
+		crds.report(logger);
+		codeFragments.close();
+		crds.close();
+
+		logger.info("registering all the remaining elements into db ");
+		pipeline.close();
 	}
 
 }
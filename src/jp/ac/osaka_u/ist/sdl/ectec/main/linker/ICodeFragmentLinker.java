@@ -2,8 +2,8 @@ package jp.ac.osaka_u.ist.sdl.ectec.main.linker;
 
 import java.util.Map;
 
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
-import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentLinkInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ICRDSimilarityCalculator;
@@ -32,8 +32,8 @@ public interface ICodeFragmentLinker {
 	 * @return
 	 */
 	public Map<Long, DBCodeFragmentLinkInfo> detectFragmentPairs(
-			final Map<Long, DBCodeFragmentInfo> beforeBlocks,
-			final Map<Long, DBCodeFragmentInfo> afterBlocks,
+			final CodeFragmentStore beforeBlocks,
+			final CodeFragmentStore afterBlocks,
 			final ICRDSimilarityCalculator similarityCalculator,
 			final double similarityThreshold, final Map<Long, DBCrdInfo> crds,
 			final long beforeRevisionId, final long afterRevisionId,
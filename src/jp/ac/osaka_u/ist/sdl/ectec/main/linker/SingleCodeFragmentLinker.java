@@ -9,6 +9,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.BlockType;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
@@ -25,13 +26,12 @@ import jp.ac.osaka_u.ist.sdl.ectec.util.Table;
 public class SingleCodeFragmentLinker extends
 		AbstractLocationLimitedCodeFragmentLinker {
 
-	private final Table<Long, Long, Double> similarityTable;
-
-	private final Map<DBCodeFragmentInfo, Queue<DBCodeFragmentInfo>> wishLists;
-
-	public SingleCodeFragmentLinker() {
-		this.similarityTable = new Table<Long, Long, Double>();
-		this.wishLists = new TreeMap<DBCodeFragmentInfo, Queue<DBCodeFragmentInfo>>();
+	/**
+	 * only the deleted and the added fragments are linked
+	 */
+	@Override
+	protected boolean usesStayedFragments() {
+		return false;
 	}
 
 	@Override
@@ -52,8 +52,12 @@ public class SingleCodeFragmentLinker extends
 			Map<BlockType, Map<Integer, List<DBCodeFragmentInfo>>> fragmentsAdded,
 			Map<BlockType, Map<Integer, List<DBCodeFragmentInfo>>> afterFragmentsSorted,
 			Map<Long, DBCrdInfo> crds) {
-		makeSimilarityTableAndWishList(maker, fragmentsDeleted, fragmentsAdded,
-				crds);
+		// the similarity table and the wish lists are filled by the maker,
+		// which is created for every pair of revisions
+		final SingleCodeFragmentLinkMaker singleMaker = (SingleCodeFragmentLinkMaker) maker;
+		makeSimilarityTableAndWishList(singleMaker, fragmentsDeleted,
+				fragmentsAdded, crds);
+		singleMaker.processRequests();
 
 		// the result (detected pairs of fragments) with the shuffled
 		// the key is an AFTER fragment and the value is a BEFORE
@@ -78,7 +82,7 @@ public class SingleCodeFragmentLinker extends
 			// will
 			// change by this method call
 			if (processAllProposes(reversedResult, unmarriedBeforeFragments,
-					similarityTable, wishLists)) {
+					singleMaker.similarityTable, singleMaker.wishLists)) {
 				break;
 			}
 
@@ -86,7 +90,7 @@ public class SingleCodeFragmentLinker extends
 
 		final Map<DBCodeFragmentInfo, DBCodeFragmentInfo> result = tailorReversedMap(reversedResult);
 
-		maker.makeLinkInstances(result);
+		singleMaker.makeLinkInstances(result);
 	}
 
 	/**
@@ -251,12 +255,21 @@ public class SingleCodeFragmentLinker extends
 	private class SingleCodeFragmentLinkMaker extends
 			AbstractLocationLimitedCodeFragmentLinkMaker {
 
+		/**
+		 * the similarities between before fragments and after ones
+		 */
+		private final Table<Long, Long, Double> similarityTable;
+
+		private final Map<DBCodeFragmentInfo, Queue<DBCodeFragmentInfo>> wishLists;
+
 		public SingleCodeFragmentLinkMaker(FragmentLinkConditionUmpire umpire,
 				ICRDSimilarityCalculator similarityCalculator,
 				double similarityThreshold, Map<Long, DBCrdInfo> crds,
 				long beforeRevisionId, long afterRevisionId) {
 			super(umpire, similarityCalculator, similarityThreshold, crds,
 					beforeRevisionId, afterRevisionId);
+			this.similarityTable = new Table<Long, Long, Double>();
+			this.wishLists = new ConcurrentSkipListMap<DBCodeFragmentInfo, Queue<DBCodeFragmentInfo>>();
 		}
 
 		@Override
@@ -275,7 +288,8 @@ public class SingleCodeFragmentLinker extends
 			for (final DBCodeFragmentInfo afterFragment : afterCandidates) {
 				final DBCrdInfo afterCrd = crds.get(afterFragment.getCrdId());
 				final double similarity = similarityCalculator.calcSimilarity(
-						beforeCrd, beforeCandidate, afterCrd, afterFragment);
+						beforeCrd, beforeCandidate, afterCrd, afterFragment,
+						similarityThreshold);
 
 				// register the similarity into the table
 				// if the similarity is equal to or over than the threshold
@@ -0,0 +1,65 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity;
+
+import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An abstract class for calculators of crd similarities with Levenshtein
+ * distances <br>
+ * pairs whose similarities cannot reach the threshold are removed by the
+ * filter before calculating the distances
+ * 
+ * @author k-hotta
+ * 
+ */
+public abstract class AbstractLevenshteinBasedCRDSimilarityCalculator
+		implements ICRDSimilarityCalculator {
+
+	/**
+	 * the filter of pairs
+	 */
+	protected final SimilarityCandidateFilter filter;
+
+	public AbstractLevenshteinBasedCRDSimilarityCalculator() {
+		this.filter = new SimilarityCandidateFilter();
+	}
+
+	public final SimilarityCandidateFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * write the statistics of the calculation with the given logger
+	 * 
+	 * @param logger
+	 */
+	public void report(final Logger logger) {
+		logger.info(filter.getLengthFilteredCount()
+				+ " pairs were removed by the length filter");
+		logger.info(filter.getQgramFilteredCount()
+				+ " pairs were removed by the q-gram filter");
+		logger.info(filter.getPassedCount() + " pairs passed the filters");
+	}
+
+	/**
+	 * calculate the similarity between the given two strings if the pair
+	 * passes the filter
+	 * 
+	 * @param str1
+	 * @param str2
+	 * @param threshold
+	 * @return
+	 */
+	protected final double calcFilteredSimilarity(final CharSequence str1,
+			final CharSequence str2, final double threshold) {
+		final double upperBound = filter.calcUpperBound(str1, str2, threshold);
+		if (upperBound < threshold) {
+			return upperBound;
+		}
+
+		return StringUtils.calcLebenshteinDistanceBasedSimilarity(str1, str2,
+				threshold);
+	}
+
+}
@@ -1,26 +1,34 @@
 package jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.StringReader;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.AbstractDBElement;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCombinedRevisionInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBFileInfo;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBRevisionInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.AbstractElementRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.CombinedRevisionRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.FileRetriever;
 import jp.ac.osaka_u.ist.sdl.ectec.db.data.retriever.RevisionRetriever;
-import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
 import jp.ac.osaka_u.ist.sdl.ectec.vcs.AbstractRepositoryManager;
 import jp.ac.osaka_u.ist.sdl.ectec.vcs.RepositoryManagerManager;
 
-public class ContentBasedCRDSimilarityCalculator implements
-		ICRDSimilarityCalculator {
+import org.apache.log4j.Logger;
+
+/**
+ * A class that calculates crd similarities with Levenshtein distances between
+ * the source code of fragments <br>
+ * the contents of files are cached, and the files and revisions retrieved
+ * from the db are memoized, because the same ones are used for many pairs
+ * 
+ * @author k-hotta
+ * 
+ */
+public class ContentBasedCRDSimilarityCalculator extends
+		AbstractLevenshteinBasedCRDSimilarityCalculator {
 
 	private RepositoryManagerManager repositoryManagerManager;
 
@@ -30,49 +38,57 @@ public class ContentBasedCRDSimilarityCalculator implements
 
 	private CombinedRevisionRetriever combinedRevisionRetriever;
 
+	private SourceContentCache contentCache;
+
+	private final ConcurrentMap<Long, DBFileInfo> files;
+
+	private final ConcurrentMap<Long, DBCombinedRevisionInfo> combinedRevisions;
+
+	private final ConcurrentMap<Long, DBRevisionInfo> revisions;
+
+	public ContentBasedCRDSimilarityCalculator() {
+		super();
+		this.files = new ConcurrentHashMap<Long, DBFileInfo>();
+		this.combinedRevisions = new ConcurrentHashMap<Long, DBCombinedRevisionInfo>();
+		this.revisions = new ConcurrentHashMap<Long, DBRevisionInfo>();
+	}
+
 	public void setup(final RepositoryManagerManager repositoryManagerManager,
 			final FileRetriever fileRetriever,
 			final RevisionRetriever revisionRetriever,
-			final CombinedRevisionRetriever combinedRevisionRetriever) {
+			final CombinedRevisionRetriever combinedRevisionRetriever,
+			final long contentCacheCapacity) {
 		this.repositoryManagerManager = repositoryManagerManager;
 		this.fileRetriever = fileRetriever;
 		this.revisionRetriever = revisionRetriever;
 		this.combinedRevisionRetriever = combinedRevisionRetriever;
+		this.contentCache = new SourceContentCache(contentCacheCapacity);
+		this.files.clear();
+		this.combinedRevisions.clear();
+		this.revisions.clear();
 	}
 
 	@Override
 	public double calcSimilarity(DBCrdInfo crd, DBCodeFragmentInfo fragment,
 			DBCrdInfo anotherCrd, DBCodeFragmentInfo anotherFragment) {
+		return calcSimilarity(crd, fragment, anotherCrd, anotherFragment,
+				Double.NaN);
+	}
+
+	@Override
+	public double calcSimilarity(DBCrdInfo crd, DBCodeFragmentInfo fragment,
+			DBCrdInfo anotherCrd, DBCodeFragmentInfo anotherFragment,
+			double threshold) {
 		try {
-			final Map<Long, DBFileInfo> files = fileRetriever
-					.retrieveWithIds(fragment.getOwnerFileId(),
-							anotherFragment.getOwnerFileId());
-
-			final Map<Long, DBCombinedRevisionInfo> combinedRevisions = combinedRevisionRetriever
-					.retrieveWithIds(fragment.getStartCombinedRevisionId(),
-							anotherFragment.getStartCombinedRevisionId());
-
-			final Set<Long> revisionIds = new HashSet<Long>();
-			for (final Map.Entry<Long, DBCombinedRevisionInfo> entry : combinedRevisions
-					.entrySet()) {
-				revisionIds.addAll(entry.getValue().getOriginalRevisions());
+			final CharSequence fragmentContent = getFragmentContent(fragment);
+			final CharSequence anotherFragmentContent = getFragmentContent(anotherFragment);
+			if (fragmentContent == null || anotherFragmentContent == null) {
+				return 0;
 			}
 
-			final Map<Long, DBRevisionInfo> revisions = revisionRetriever
-					.retrieveWithIds(revisionIds);
-
-			final String fragmentContent = getFragmentContent(
-					files.get(fragment.getOwnerFileId()),
-					fragment,
-					combinedRevisions.get(fragment.getStartCombinedRevisionId()),
-					revisions);
-			final String anotherFragmentContent = getFragmentContent(
-					files.get(anotherFragment.getOwnerFileId()),
-					anotherFragment, combinedRevisions.get(anotherFragment
-							.getStartCombinedRevisionId()), revisions);
-
-			return StringUtils.calcLebenshteinDistanceBasedSimilarity(
-					fragmentContent, anotherFragmentContent);
+			// a NaN threshold never bounds the distance
+			return calcFilteredSimilarity(fragmentContent,
+					anotherFragmentContent, threshold);
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -80,16 +96,26 @@ public class ContentBasedCRDSimilarityCalculator implements
 		}
 	}
 
-	private final String getFragmentContent(final DBFileInfo file,
-			final DBCodeFragmentInfo fragment,
-			DBCombinedRevisionInfo combinedRevision,
-			final Map<Long, DBRevisionInfo> revisions) throws Exception {
-		final AbstractRepositoryManager repositoryManager = repositoryManagerManager
-				.getRepositoryManager(file.getOwnerRepositoryId());
+	@Override
+	public void report(final Logger logger) {
+		super.report(logger);
+		if (contentCache != null) {
+			contentCache.report(logger);
+		}
+	}
+
+	private final CharSequence getFragmentContent(
+			final DBCodeFragmentInfo fragment) throws Exception {
+		final DBFileInfo file = lookup(files, fileRetriever,
+				fragment.getOwnerFileId());
+		final DBCombinedRevisionInfo combinedRevision = lookup(
+				combinedRevisions, combinedRevisionRetriever,
+				fragment.getStartCombinedRevisionId());
 
 		DBRevisionInfo revision = null;
 		for (final long revisionId : combinedRevision.getOriginalRevisions()) {
-			final DBRevisionInfo tmpRevision = revisions.get(revisionId);
+			final DBRevisionInfo tmpRevision = lookup(revisions,
+					revisionRetriever, revisionId);
 			if (tmpRevision.getRepositoryId() == file.getOwnerRepositoryId()) {
 				revision = tmpRevision;
 				break;
@@ -100,34 +126,45 @@ public class ContentBasedCRDSimilarityCalculator implements
 			return null;
 		}
 
-		final String src = repositoryManager.getFileContents(
+		final AbstractRepositoryManager repositoryManager = repositoryManagerManager
+				.getRepositoryManager(file.getOwnerRepositoryId());
+		final SourceContent content = contentCache.get(repositoryManager,
 				revision.getIdentifier(), file.getPath());
+		if (content == null) {
+			return null;
+		}
 
-		return cutSrc(fragment, src);
+		return content.getLines(fragment.getStartLine(),
+				fragment.getEndLine());
 	}
 
-	private String cutSrc(final DBCodeFragmentInfo fragment, final String src)
-			throws IOException {
-		final StringBuilder builder = new StringBuilder();
-		int lineCount = 1;
-
-		final BufferedReader br = new BufferedReader(new StringReader(src));
-		String line;
-
-		while ((line = br.readLine()) != null) {
-			if (lineCount < fragment.getStartLine()) {
-				continue;
-			}
-			if (lineCount > fragment.getEndLine()) {
-				break;
-			}
-
-			builder.append(line + "\n");
-			lineCount++;
+	/**
+	 * get the element having the given id from the memo, or retrieve it from
+	 * the db if it is not in the memo
+	 * 
+	 * @param memo
+	 * @param retriever
+	 * @param id
+	 * @return
+	 * @throws Exception
+	 */
+	private <T extends AbstractDBElement> T lookup(
+			final ConcurrentMap<Long, T> memo,
+			final AbstractElementRetriever<T> retriever, final long id)
+			throws Exception {
+		final T memoized = memo.get(id);
+		if (memoized != null) {
+			return memoized;
 		}
 
-		br.close();
+		final T element = retriever.retrieveWithIds(id).get(id);
+		if (element == null) {
+			throw new IllegalStateException("cannot retrieve the element "
+					+ id);
+		}
+		memo.putIfAbsent(id, element);
 
-		return builder.toString();
+		return element;
 	}
+
 }
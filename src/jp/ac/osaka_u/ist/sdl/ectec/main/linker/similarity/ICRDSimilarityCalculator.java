@@ -25,4 +25,23 @@ public interface ICRDSimilarityCalculator {
 			final DBCodeFragmentInfo fragment, final DBCrdInfo anotherCrd,
 			final DBCodeFragmentInfo anotherFragment);
 
+	/**
+	 * calculate hash values between the given two crds with the threshold
+	 * <br>
+	 * the result must be equal to that of
+	 * {@link #calcSimilarity(DBCrdInfo, DBCodeFragmentInfo, DBCrdInfo, DBCodeFragmentInfo)}
+	 * if it is equal to or larger than the threshold, or any value less than
+	 * the threshold otherwise, so that the calculation can be stopped early
+	 * 
+	 * @param crd
+	 * @param fragment
+	 * @param anotherCrd
+	 * @param anotherFragment
+	 * @param threshold
+	 * @return
+	 */
+	public double calcSimilarity(final DBCrdInfo crd,
+			final DBCodeFragmentInfo fragment, final DBCrdInfo anotherCrd,
+			final DBCodeFragmentInfo anotherFragment, final double threshold);
+
 }
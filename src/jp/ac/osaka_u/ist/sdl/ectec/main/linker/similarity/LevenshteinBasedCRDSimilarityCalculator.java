@@ -10,8 +10,8 @@ import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
  * @author k-hotta
  * 
  */
-public class LevenshteinBasedCRDSimilarityCalculator implements
-		ICRDSimilarityCalculator {
+public class LevenshteinBasedCRDSimilarityCalculator extends
+		AbstractLevenshteinBasedCRDSimilarityCalculator {
 
 	@Override
 	public double calcSimilarity(DBCrdInfo crd, DBCodeFragmentInfo fragment,
@@ -20,4 +20,12 @@ public class LevenshteinBasedCRDSimilarityCalculator implements
 				crd.getFullText(), anotherCrd.getFullText());
 	}
 
+	@Override
+	public double calcSimilarity(DBCrdInfo crd, DBCodeFragmentInfo fragment,
+			DBCrdInfo anotherCrd, DBCodeFragmentInfo anotherFagment,
+			double threshold) {
+		return calcFilteredSimilarity(crd.getFullText(),
+				anotherCrd.getFullText(), threshold);
+	}
+
 }
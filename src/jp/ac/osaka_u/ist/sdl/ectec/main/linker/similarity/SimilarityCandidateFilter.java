@@ -0,0 +1,170 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
+
+/**
+ * A class that filters out pairs of strings whose Levenshtein distance based
+ * similarities cannot reach the threshold before calculating them <br>
+ * the filters give lower bounds of the distance as follows, and a pair is
+ * removed if the bound exceeds the maximum distance allowed by the threshold
+ * <ul>
+ * <li>the length filter: the distance is at least the difference of the
+ * lengths</li>
+ * <li>the q-gram filter: an edit operation changes at most q q-grams, so
+ * that the distance is at least the number of the q-grams of the longer
+ * string that are not shared with the other divided by q</li>
+ * </ul>
+ * this class is shared by threads
+ * 
+ * @author k-hotta
+ * 
+ */
+public class SimilarityCandidateFilter {
+
+	/**
+	 * the length of q-grams
+	 */
+	private static final int Q = 3;
+
+	/**
+	 * the number of the buckets to count q-grams <br>
+	 * q-grams are counted with their hash values, which can only increase
+	 * the shared q-grams and so never remove a pair wrongly
+	 */
+	private static final int BUCKETS_COUNT = 1 << 14;
+
+	/**
+	 * the q-gram filter is applied only to the pairs of strings longer than
+	 * this length, because shorter ones are compared with the bit-parallel
+	 * algorithm as fast as the filter
+	 */
+	private static final int QGRAM_FILTER_LENGTH = Long.SIZE;
+
+	/**
+	 * the buckets to count q-grams for each thread
+	 */
+	private static final ThreadLocal<int[]> BUCKETS = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[BUCKETS_COUNT];
+		}
+	};
+
+	/**
+	 * the number of the pairs removed by the length filter
+	 */
+	private final AtomicLong lengthFilteredCount;
+
+	/**
+	 * the number of the pairs removed by the q-gram filter
+	 */
+	private final AtomicLong qgramFilteredCount;
+
+	/**
+	 * the number of the pairs that passed all the filters
+	 */
+	private final AtomicLong passedCount;
+
+	public SimilarityCandidateFilter() {
+		this.lengthFilteredCount = new AtomicLong(0);
+		this.qgramFilteredCount = new AtomicLong(0);
+		this.passedCount = new AtomicLong(0);
+	}
+
+	public final long getLengthFilteredCount() {
+		return lengthFilteredCount.get();
+	}
+
+	public final long getQgramFilteredCount() {
+		return qgramFilteredCount.get();
+	}
+
+	public final long getPassedCount() {
+		return passedCount.get();
+	}
+
+	/**
+	 * get an upper bound of the Levenshtein distance based similarity
+	 * between the given two strings <br>
+	 * the result is less than the threshold if the pair is removed by a
+	 * filter
+	 * 
+	 * @param str1
+	 * @param str2
+	 * @param threshold
+	 * @return
+	 */
+	public double calcUpperBound(final CharSequence str1,
+			final CharSequence str2, final double threshold) {
+		final int len1 = str1.length();
+		final int len2 = str2.length();
+		final int maxDistance = StringUtils.calcMaxLevenshteinDistance(len1,
+				len2, threshold);
+		if (maxDistance == Integer.MAX_VALUE) {
+			passedCount.incrementAndGet();
+			return 1.0;
+		}
+
+		final int lengthBound = Math.abs(len1 - len2);
+		if (lengthBound > maxDistance) {
+			lengthFilteredCount.incrementAndGet();
+			return calcSimilarity(lengthBound, len1, len2);
+		}
+
+		if (Math.min(len1, len2) > QGRAM_FILTER_LENGTH) {
+			final int qgramBound = calcQgramBound(str1, str2);
+			if (qgramBound > maxDistance) {
+				qgramFilteredCount.incrementAndGet();
+				return calcSimilarity(qgramBound, len1, len2);
+			}
+		}
+
+		passedCount.incrementAndGet();
+		return 1.0;
+	}
+
+	private double calcSimilarity(final int distance, final int len1,
+			final int len2) {
+		return ((double) 1) - (((double) distance) * 2)
+				/ (((double) len1) + ((double) len2));
+	}
+
+	/**
+	 * get the lower bound of the distance with the q-grams
+	 */
+	private int calcQgramBound(final CharSequence str1,
+			final CharSequence str2) {
+		final int[] buckets = BUCKETS.get();
+
+		for (int i = 0; i + Q <= str1.length(); i++) {
+			buckets[hash(str1, i)]++;
+		}
+
+		int shared = 0;
+		for (int i = 0; i + Q <= str2.length(); i++) {
+			final int bucket = hash(str2, i);
+			if (buckets[bucket] > 0) {
+				buckets[bucket]--;
+				shared++;
+			}
+		}
+
+		for (int i = 0; i + Q <= str1.length(); i++) {
+			buckets[hash(str1, i)] = 0;
+		}
+
+		final int qgrams = Math.max(str1.length(), str2.length()) - Q + 1;
+		return (qgrams - shared + Q - 1) / Q;
+	}
+
+	private int hash(final CharSequence str, final int start) {
+		int result = 0;
+		for (int i = start; i < start + Q; i++) {
+			result = result * 31 + str.charAt(i);
+		}
+		return (result ^ (result >>> 14)) & (BUCKETS_COUNT - 1);
+	}
+
+}
@@ -0,0 +1,112 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity;
+
+import java.nio.CharBuffer;
+
+/**
+ * A class that represents the contents of a source file with the offsets of
+ * its lines <br>
+ * the lines in a range are given as a view of the contents without copying
+ * them
+ * 
+ * @author k-hotta
+ * 
+ */
+public class SourceContent {
+
+	/**
+	 * the contents of the file
+	 */
+	private final String contents;
+
+	/**
+	 * the offset of the first character of each line <br>
+	 * the last element is the length of the contents
+	 */
+	private final int[] lineStarts;
+
+	public SourceContent(final String contents) {
+		this.contents = contents;
+		this.lineStarts = calcLineStarts(contents);
+	}
+
+	/**
+	 * get the offsets of lines, in which a line ends with "\n", "\r\n", or
+	 * "\r" as well as BufferedReader
+	 * 
+	 * @param contents
+	 * @return
+	 */
+	private static int[] calcLineStarts(final String contents) {
+		final int length = contents.length();
+
+		int linesCount = 0;
+		for (int i = 0; i < length; i++) {
+			if (isLineEnd(contents, i)) {
+				linesCount++;
+			}
+		}
+		if (length > 0 && !isLineEnd(contents, length - 1)) {
+			linesCount++;
+		}
+
+		final int[] result = new int[linesCount + 1];
+		int line = 1;
+		for (int i = 0; i < length; i++) {
+			if (isLineEnd(contents, i) && line < linesCount) {
+				result[line++] = i + 1;
+			}
+		}
+		result[linesCount] = length;
+
+		return result;
+	}
+
+	private static boolean isLineEnd(final String contents, final int index) {
+		final char c = contents.charAt(index);
+		if (c == '\n') {
+			return true;
+		}
+		return c == '\r'
+				&& (index + 1 == contents.length() || contents
+						.charAt(index + 1) != '\n');
+	}
+
+	/**
+	 * get the number of the lines
+	 * 
+	 * @return
+	 */
+	public final int getLinesCount() {
+		return lineStarts.length - 1;
+	}
+
+	/**
+	 * get the number of characters, which is used as the weight in caches
+	 * 
+	 * @return
+	 */
+	public final int length() {
+		return contents.length();
+	}
+
+	/**
+	 * get the lines from the start line to the end line including their line
+	 * terminators <br>
+	 * the line numbers start from 1, and lines out of the file are ignored
+	 * 
+	 * @param startLine
+	 * @param endLine
+	 * @return
+	 */
+	public CharSequence getLines(final int startLine, final int endLine) {
+		final int first = Math.max(startLine, 1);
+		final int last = Math.min(endLine, getLinesCount());
+		if (first > last) {
+			return "";
+		}
+
+		return CharBuffer.wrap(contents, lineStarts[first - 1],
+				lineStarts[last]);
+	}
+
+}
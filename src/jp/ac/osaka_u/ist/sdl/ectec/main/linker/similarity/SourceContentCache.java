@@ -0,0 +1,101 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity;
+
+import java.util.concurrent.Callable;
+
+import jp.ac.osaka_u.ist.sdl.ectec.util.MemoizingLruCache;
+import jp.ac.osaka_u.ist.sdl.ectec.vcs.AbstractRepositoryManager;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A cache of contents of source files shared by threads <br>
+ * the contents are identified with their repositories, revisions, and paths
+ * <br>
+ * the least recently used contents are evicted when the total number of
+ * characters exceeds the capacity, and each content is retrieved from the
+ * repository only once even if some threads request it at the same time
+ * 
+ * @author k-hotta
+ * 
+ */
+public class SourceContentCache {
+
+	/**
+	 * the cached contents
+	 */
+	private final MemoizingLruCache<String, SourceContent> cache;
+
+	public SourceContentCache(final long capacity) {
+		this.cache = new MemoizingLruCache<String, SourceContent>(
+				"source contents", capacity) {
+			@Override
+			protected long weigh(final SourceContent content) {
+				return content.length();
+			}
+		};
+	}
+
+	/**
+	 * get the content of the file at the given path in the given revision of
+	 * the repository <br>
+	 * it is retrieved if it is not cached, and the current thread waits for
+	 * it if another thread is retrieving it
+	 * 
+	 * @param repositoryManager
+	 * @param revisionIdentifier
+	 * @param path
+	 * @return
+	 * @throws Exception
+	 */
+	public SourceContent get(final AbstractRepositoryManager repositoryManager,
+			final String revisionIdentifier, final String path)
+			throws Exception {
+		final String key = repositoryManager.getRepositoryId() + ":"
+				+ revisionIdentifier + ":" + path;
+
+		return cache.get(key, new Callable<SourceContent>() {
+			@Override
+			public SourceContent call() throws Exception {
+				final String src = repositoryManager.getFileContents(
+						revisionIdentifier, path);
+				return (src == null) ? null : new SourceContent(src);
+			}
+		});
+	}
+
+	public final long getHits() {
+		return cache.getHits();
+	}
+
+	public final long getMisses() {
+		return cache.getMisses();
+	}
+
+	public final long getEvictions() {
+		return cache.getEvictions();
+	}
+
+	/**
+	 * write the statistics of this cache with the given logger
+	 * 
+	 * @param logger
+	 */
+	public void report(final Logger logger) {
+		final long hitCount = getHits();
+		final long requestCount = hitCount + getMisses();
+		final double hitRatio = (requestCount == 0) ? 0.0
+				: ((double) hitCount) * 100.0 / ((double) requestCount);
+
+		logger.info("source contents: " + hitCount + " hits, " + getMisses()
+				+ " misses (" + String.format("%.1f", hitRatio)
+				+ "% hit ratio), " + getEvictions() + " evictions");
+	}
+
+	/**
+	 * remove all the cached contents
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+}
@@ -0,0 +1,143 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity;
+
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCrdInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.util.SequenceUtils;
+import jp.ac.osaka_u.ist.sdl.instantcdt.JavaLexer;
+import jp.ac.osaka_u.ist.sdl.instantcdt.Symbol;
+import jp.ac.osaka_u.ist.sdl.instantcdt.Token;
+
+/**
+ * A class that calculates crd similarities with Levenshtein distances between
+ * the sequences of tokens in the full texts of crds <br>
+ * each token is represented as an integer, in which keywords and operators
+ * are identified with their symbols, literals are normalized into their
+ * symbols, and identifiers are identified with their names <br>
+ * the sequence of a crd is created when it is requested at the first time,
+ * and the sequences created recently are cached
+ * 
+ * @author k-hotta
+ * 
+ */
+public class TokenBasedCRDSimilarityCalculator implements
+		ICRDSimilarityCalculator {
+
+	/**
+	 * the maximum number of cached sequences
+	 */
+	private static final int CACHE_CAPACITY = 32768;
+
+	private static final int SYMBOLS_COUNT = Symbol.values().length;
+
+	/**
+	 * the sequences of tokens with the hash values of the full texts
+	 */
+	private final Map<String, int[]> sequences;
+
+	/**
+	 * the ids of identifiers, which follow the ids of symbols
+	 */
+	private final ConcurrentMap<String, Integer> identifierIds;
+
+	private final AtomicInteger identifiersCount;
+
+	public TokenBasedCRDSimilarityCalculator() {
+		this.sequences = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, int[]> eldest) {
+				return size() > CACHE_CAPACITY;
+			}
+
+		};
+		this.identifierIds = new ConcurrentHashMap<String, Integer>();
+		this.identifiersCount = new AtomicInteger(0);
+	}
+
+	@Override
+	public double calcSimilarity(DBCrdInfo crd, DBCodeFragmentInfo fragment,
+			DBCrdInfo anotherCrd, DBCodeFragmentInfo anotherFragment) {
+		return calcSimilarity(crd, fragment, anotherCrd, anotherFragment,
+				Double.NaN);
+	}
+
+	@Override
+	public double calcSimilarity(DBCrdInfo crd, DBCodeFragmentInfo fragment,
+			DBCrdInfo anotherCrd, DBCodeFragmentInfo anotherFragment,
+			double threshold) {
+		// a NaN threshold never bounds the distance
+		return SequenceUtils.calcLevenshteinDistanceBasedSimilarity(
+				getSequence(crd), getSequence(anotherCrd), threshold);
+	}
+
+	/**
+	 * get the sequence of tokens of the given crd
+	 * 
+	 * @param crd
+	 * @return
+	 */
+	private int[] getSequence(final DBCrdInfo crd) {
+		final String textHash = crd.getFullTextHash();
+		synchronized (sequences) {
+			final int[] cached = sequences.get(textHash);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		final int[] sequence = createSequence(crd.getFullText());
+
+		synchronized (sequences) {
+			sequences.put(textHash, sequence);
+		}
+		return sequence;
+	}
+
+	private int[] createSequence(final String text) {
+		final List<Token> tokens = new JavaLexer(new StringReader(text))
+				.runLexicalAnalysis();
+		if (tokens == null) {
+			throw new IllegalStateException("cannot tokenize the crd " + text);
+		}
+
+		final int[] result = new int[tokens.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = toId(tokens.get(i));
+		}
+		return result;
+	}
+
+	private int toId(final Token token) {
+		final Symbol symbol = token.getSymbol();
+		switch (symbol) {
+		case IDENTIFIER:
+		case UNKNOWN:
+			return SYMBOLS_COUNT + getIdentifierId(token.getStr());
+		default:
+			return symbol.ordinal();
+		}
+	}
+
+	private int getIdentifierId(final String identifier) {
+		final Integer id = identifierIds.get(identifier);
+		if (id != null) {
+			return id;
+		}
+
+		final Integer newId = identifiersCount.getAndIncrement();
+		final Integer previous = identifierIds.putIfAbsent(identifier, newId);
+		return (previous == null) ? newId : previous;
+	}
+
+}
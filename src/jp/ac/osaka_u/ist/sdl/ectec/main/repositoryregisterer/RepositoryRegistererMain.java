@@ -82,7 +82,8 @@ public class RepositoryRegistererMain {
 	private static void preprocess(
 			final RepositoryRegistererMainSettings settings) throws Exception {
 		dbManager = new DBConnectionManager(settings.getDBConfig(),
-				settings.getMaxBatchCount());
+				settings.getMaxBatchCount(),
+				settings.getMaxLookupConnections());
 		logger.info("connected to the database");
 
 		dbManager.initializeElementCounters(settings.getHeaderOfId());
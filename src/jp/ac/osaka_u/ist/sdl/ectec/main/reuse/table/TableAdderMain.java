@@ -84,7 +84,8 @@ public class TableAdderMain {
 	private static void preprocess(final AbstractSettings settings)
 			throws Exception {
 		dbManager = new DBConnectionManager(settings.getDBConfig(),
-				settings.getMaxBatchCount());
+				settings.getMaxBatchCount(),
+				settings.getMaxLookupConnections());
 		logger.info("connected to the database");
 	}
 
@@ -3,6 +3,7 @@ package jp.ac.osaka_u.ist.sdl.ectec.settings;
 import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ContentBasedCRDSimilarityCalculator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.ICRDSimilarityCalculator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.LevenshteinBasedCRDSimilarityCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity.TokenBasedCRDSimilarityCalculator;
 
 /**
  * An enum that represents how to calculate crd similarities
@@ -19,7 +20,14 @@ public enum CRDSimilarityCalculateMode {
 			new LevenshteinBasedCRDSimilarityCalculator()),
 
 	CONTENT_LEVENSHTEIN(new String[] { "c", "content" },
-			new ContentBasedCRDSimilarityCalculator());
+			new ContentBasedCRDSimilarityCalculator()),
+
+	/**
+	 * calculate crd similarities with levenshtein distances between
+	 * sequences of tokens
+	 */
+	TOKEN_LEVENSHTEIN(new String[] { "t", "token" },
+			new TokenBasedCRDSimilarityCalculator());
 
 	private final String[] correspondingStrs;
 
@@ -50,6 +58,8 @@ public enum CRDSimilarityCalculateMode {
 			return LEVENSHTEIN;
 		} else if (CONTENT_LEVENSHTEIN.correspond(str)) {
 			return CONTENT_LEVENSHTEIN;
+		} else if (TOKEN_LEVENSHTEIN.correspond(str)) {
+			return TOKEN_LEVENSHTEIN;
 		} else {
 			return null;
 		}
@@ -18,5 +18,7 @@ public interface Constants {
 	public static int MAX_ELEMENTS_COUNT = 10000;
 	
 	public static int MAX_BATCH_COUNT = 10000;
+	
+	public static int DEFAULT_FETCH_SIZE = 1000;
 
 }
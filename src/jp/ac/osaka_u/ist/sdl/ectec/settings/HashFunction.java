@@ -0,0 +1,54 @@
+package jp.ac.osaka_u.ist.sdl.ectec.settings;
+
+/**
+ * An enum that represents which function calculates hash values of code
+ * fragments
+ * 
+ * @author k-hotta
+ * 
+ */
+public enum HashFunction {
+
+	/**
+	 * String.hashCode(), which has only 32 bits
+	 */
+	DEFAULT(new String[] { "d", "default", "java" }),
+
+	/**
+	 * 64-bit xxHash
+	 */
+	XXHASH64(new String[] { "x", "xx", "xxhash", "xxhash64" }),
+
+	/**
+	 * 128-bit MurmurHash3, whose first 64 bits are used
+	 */
+	MURMUR3_128(new String[] { "m", "murmur", "murmur3", "murmur3-128" });
+
+	/**
+	 * an array of strings which are used to choose this function
+	 */
+	private final String[] correspondingStrs;
+
+	private HashFunction(final String[] correspondingStrs) {
+		this.correspondingStrs = correspondingStrs;
+	}
+
+	public final boolean correspond(final String str) {
+		for (final String tmp : correspondingStrs) {
+			if (tmp.equalsIgnoreCase(str)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static final HashFunction getCorrespondingFunction(final String str) {
+		for (final HashFunction function : HashFunction.values()) {
+			if (function.correspond(str)) {
+				return function;
+			}
+		}
+		return null;
+	}
+
+}
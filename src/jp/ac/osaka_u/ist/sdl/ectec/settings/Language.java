@@ -1,6 +1,7 @@
 package jp.ac.osaka_u.ist.sdl.ectec.settings;
 
 import java.io.InputStream;
+import java.io.Reader;
 
 import jp.ac.osaka_u.ist.sdl.instantcdt.CPPLexer;
 import jp.ac.osaka_u.ist.sdl.instantcdt.JavaLexer;
@@ -85,4 +86,20 @@ public enum Language {
 		}
 	}
 
+	/**
+	 * create a new lexer
+	 * 
+	 * @param in
+	 * @return
+	 */
+	public Lexer createLexer(final Reader in) {
+		if (this == JAVA) {
+			return new JavaLexer(in);
+		} else if (this == CPP) {
+			return new CPPLexer(in);
+		} else {
+			return null;
+		}
+	}
+
 }
@@ -0,0 +1,83 @@
+package jp.ac.osaka_u.ist.sdl.ectec.util;
+
+/**
+ * A comparator for primitive int values such as indexes of arrays <br>
+ * this class sorts int arrays without boxing their values
+ *
+ * @author k-hotta
+ *
+ */
+public abstract class IntComparator {
+
+	/**
+	 * the length of ranges sorted with insertion sort
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	/**
+	 * compare the given two values
+	 *
+	 * @param i1
+	 * @param i2
+	 * @return a negative integer, zero, or a positive integer as the first
+	 *         value is less than, equal to, or greater than the second
+	 */
+	public abstract int compare(final int i1, final int i2);
+
+	/**
+	 * sort the given array with this comparator <br>
+	 * the sort is stable
+	 *
+	 * @param values
+	 */
+	public final void sort(final int[] values) {
+		final int[] buffer = values.clone();
+		mergeSort(buffer, values, 0, values.length);
+	}
+
+	/**
+	 * sort src[from, to) into dest[from, to) <br>
+	 * both the arrays must have the same values in the range
+	 *
+	 * @param src
+	 * @param dest
+	 * @param from
+	 * @param to
+	 */
+	private void mergeSort(final int[] src, final int[] dest, final int from,
+			final int to) {
+		final int length = to - from;
+		if (length <= INSERTION_SORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				final int value = dest[i];
+				int j = i - 1;
+				while (j >= from && compare(dest[j], value) > 0) {
+					dest[j + 1] = dest[j];
+					j--;
+				}
+				dest[j + 1] = value;
+			}
+			return;
+		}
+
+		final int middle = (from + to) >>> 1;
+		mergeSort(dest, src, from, middle);
+		mergeSort(dest, src, middle, to);
+
+		if (compare(src[middle - 1], src[middle]) <= 0) {
+			System.arraycopy(src, from, dest, from, length);
+			return;
+		}
+
+		int p = from;
+		int q = middle;
+		for (int i = from; i < to; i++) {
+			if (q >= to || (p < middle && compare(src[p], src[q]) <= 0)) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,307 @@
+package jp.ac.osaka_u.ist.sdl.ectec.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jp.ac.osaka_u.ist.sdl.ectec.LoggingManager;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A cache of values shared by threads <br>
+ * each value is loaded only once even if some threads request it at the same
+ * time, and the least recently used values are evicted when the total weight
+ * of the cached values exceeds the capacity <br>
+ * a value whose loading has failed is removed, so that the next request
+ * loads it again
+ *
+ * @author k-hotta
+ *
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public abstract class MemoizingLruCache<K, V> {
+
+	/**
+	 * the logger for errors
+	 */
+	private static final Logger eLogger = LoggingManager.getLogger("error");
+
+	/**
+	 * the name of this cache used in logs
+	 */
+	private final String name;
+
+	/**
+	 * the maximum total weight of the cached values
+	 */
+	private final long capacity;
+
+	/**
+	 * the cached values in the order of accesses <br>
+	 * this map contains values being loaded
+	 */
+	private final LinkedHashMap<K, Entry<V>> entries;
+
+	/**
+	 * the total weight of the loaded values
+	 */
+	private long totalWeight;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong misses;
+
+	private final AtomicLong evictions;
+
+	public MemoizingLruCache(final String name, final long capacity) {
+		this.name = name;
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+		this.totalWeight = 0;
+		this.hits = new AtomicLong(0);
+		this.misses = new AtomicLong(0);
+		this.evictions = new AtomicLong(0);
+	}
+
+	/**
+	 * get the weight of the given value, which is compared with the capacity
+	 *
+	 * @param value
+	 * @return
+	 */
+	protected abstract long weigh(final V value);
+
+	/**
+	 * get the value of the given key <br>
+	 * it is loaded with the given loader in the current thread if it is not
+	 * cached, and the current thread waits for it if another thread is
+	 * loading it
+	 *
+	 * @param key
+	 * @param loader
+	 * @return
+	 * @throws Exception
+	 *             the exception thrown by the loader
+	 */
+	public V get(final K key, final Callable<V> loader) throws Exception {
+		final Entry<V> entry;
+		final boolean loading;
+		synchronized (this) {
+			final Entry<V> cached = entries.get(key);
+			if (cached == null) {
+				entry = new Entry<V>(loader);
+				entries.put(key, entry);
+				loading = true;
+			} else {
+				entry = cached;
+				loading = false;
+			}
+		}
+
+		if (loading) {
+			misses.incrementAndGet();
+			load(key, entry);
+		} else {
+			hits.incrementAndGet();
+		}
+
+		try {
+			return entry.task.get();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * register the value of the given key as being loaded, and get the task
+	 * that loads it with the given loader <br>
+	 * the task has to be run by the caller, or cancelled with cancel(key) if
+	 * it cannot be run, since requests for the value wait for it
+	 *
+	 * @param key
+	 * @param loader
+	 * @return the task, or null if the value is cached or being loaded
+	 */
+	public synchronized Runnable reserve(final K key, final Callable<V> loader) {
+		if (entries.containsKey(key)) {
+			return null;
+		}
+
+		final Entry<V> entry = new Entry<V>(loader);
+		entries.put(key, entry);
+
+		return new Runnable() {
+			@Override
+			public void run() {
+				load(key, entry);
+			}
+		};
+	}
+
+	/**
+	 * cancel loading the value of the given key that has not been started,
+	 * and remove it
+	 *
+	 * @param key
+	 */
+	public synchronized void cancel(final K key) {
+		final Entry<V> entry = entries.get(key);
+		if (entry != null && entry.weight < 0) {
+			entry.task.cancel(false);
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * remove the value of the given key from this cache
+	 *
+	 * @param key
+	 */
+	public synchronized void invalidate(final K key) {
+		final Entry<V> entry = entries.remove(key);
+		if (entry != null && entry.weight >= 0) {
+			totalWeight -= entry.weight;
+		}
+	}
+
+	/**
+	 * remove all the cached values <br>
+	 * the values being loaded are cancelled
+	 */
+	public synchronized void clear() {
+		for (final Entry<V> entry : entries.values()) {
+			entry.task.cancel(false);
+		}
+		entries.clear();
+		totalWeight = 0;
+	}
+
+	/**
+	 * load the value with the given entry, and evict the least recently used
+	 * values if the capacity is exceeded
+	 *
+	 * @param key
+	 * @param entry
+	 */
+	private void load(final K key, final Entry<V> entry) {
+		entry.task.run();
+
+		V value = null;
+		boolean loaded = false;
+		try {
+			value = entry.task.get();
+			loaded = true;
+		} catch (ExecutionException e) {
+			eLogger.warn(name + ": cannot load " + key, e.getCause());
+		} catch (CancellationException e) {
+			// this cache has been cleared
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			if (entries.get(key) != entry) {
+				// invalidated while being loaded
+				return;
+			}
+
+			if (!loaded || value == null) {
+				// the failed entry is removed so that the next request loads
+				// the value again instead of getting the same failure
+				entries.remove(key);
+				return;
+			}
+
+			entry.weight = weigh(value);
+			totalWeight += entry.weight;
+			evict(key);
+		}
+	}
+
+	/**
+	 * evict the least recently used values except the given one while the
+	 * total weight exceeds the capacity <br>
+	 * values being loaded are never evicted
+	 *
+	 * @param retainedKey
+	 */
+	private void evict(final K retainedKey) {
+		final Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet()
+				.iterator();
+		while (totalWeight > capacity && it.hasNext()) {
+			final Map.Entry<K, Entry<V>> eldest = it.next();
+			final Entry<V> entry = eldest.getValue();
+			if (eldest.getKey().equals(retainedKey) || entry.weight < 0) {
+				continue;
+			}
+
+			it.remove();
+			totalWeight -= entry.weight;
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * get the number of requests that have been answered with the cached
+	 * values including ones being loaded
+	 *
+	 * @return
+	 */
+	public final long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * get the number of requests that have loaded values
+	 *
+	 * @return
+	 */
+	public final long getMisses() {
+		return misses.get();
+	}
+
+	public final long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * An entry of the cache
+	 *
+	 * @author k-hotta
+	 *
+	 * @param <V>
+	 */
+	private static class Entry<V> {
+
+		/**
+		 * the task to load the value
+		 */
+		private final FutureTask<V> task;
+
+		/**
+		 * the weight of the value <br>
+		 * a negative value means that the value is being loaded
+		 */
+		private long weight;
+
+		private Entry(final Callable<V> loader) {
+			this.task = new FutureTask<V>(loader);
+			this.weight = -1;
+		}
+
+	}
+
+}
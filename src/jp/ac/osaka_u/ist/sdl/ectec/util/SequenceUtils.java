@@ -0,0 +1,153 @@
+package jp.ac.osaka_u.ist.sdl.ectec.util;
+
+/**
+ * A class equipped with utility methods for sequences of integers
+ * 
+ * @author k-hotta
+ * 
+ */
+public class SequenceUtils {
+
+	/**
+	 * the rows of the dynamic programming for each thread
+	 */
+	private static final ThreadLocal<int[][]> ROWS = new ThreadLocal<int[][]>() {
+		@Override
+		protected int[][] initialValue() {
+			return new int[][] { new int[0], new int[0] };
+		}
+	};
+
+	/**
+	 * calculate Levenshtein distance based similarity between the given two
+	 * sequences in the same way as strings only if the similarity can be
+	 * equal to or larger than the given threshold
+	 * 
+	 * @param seq1
+	 * @param seq2
+	 * @param threshold
+	 * @return the similarity, or a value less than the threshold if the
+	 *         similarity is less than the threshold
+	 * @see StringUtils#calcLebenshteinDistanceBasedSimilarity(CharSequence,
+	 *      CharSequence, double)
+	 */
+	public static double calcLevenshteinDistanceBasedSimilarity(
+			final int[] seq1, final int[] seq2, final double threshold) {
+		final int maxDistance = StringUtils.calcMaxLevenshteinDistance(
+				seq1.length, seq2.length, threshold);
+		final int ld = calcLevenshteinDistance(seq1, seq2, maxDistance);
+
+		return ((double) 1) - (((double) ld) * 2)
+				/ (((double) seq1.length) + ((double) seq2.length));
+	}
+
+	/**
+	 * calculate the Levenshtein distance between the given two sequences if
+	 * it is not larger than the given maximum distance <br>
+	 * only the cells within the maximum distance from the diagonal are filled
+	 * 
+	 * @param seq1
+	 * @param seq2
+	 * @param maxDistance
+	 * @return the distance, or maxDistance + 1 if the distance is larger than
+	 *         maxDistance
+	 */
+	public static int calcLevenshteinDistance(final int[] seq1,
+			final int[] seq2, final int maxDistance) {
+		final int[] pattern = (seq1.length <= seq2.length) ? seq1 : seq2;
+		final int[] text = (pattern == seq1) ? seq2 : seq1;
+		final int m = pattern.length;
+		final int n = text.length;
+
+		if (n - m > maxDistance) {
+			return maxDistance + 1;
+		}
+		if (m == 0) {
+			return n;
+		}
+
+		// the distance never exceeds the length of the longer one
+		return calcBandedDistance(pattern, m, text, n,
+				Math.min(maxDistance, n));
+	}
+
+	/**
+	 * calculate the distance between the first m elements of the pattern and
+	 * the first n elements of the text with the dynamic programming in which
+	 * only the cells within the given distance from the diagonal are filled
+	 * <br>
+	 * the pattern must not be longer than the text nor empty <br>
+	 * StringUtils also calculates the distances between long strings with
+	 * this method
+	 * 
+	 * @param pattern
+	 * @param m
+	 * @param text
+	 * @param n
+	 * @param maxDistance
+	 * @return the distance, or maxDistance + 1 if the distance is larger than
+	 *         maxDistance
+	 */
+	static int calcBandedDistance(final int[] pattern, final int m,
+			final int[] text, final int n, final int maxDistance) {
+		final int over = maxDistance + 1;
+
+		final int[][] rows = ROWS.get();
+		if (rows[0].length < n + 1) {
+			rows[0] = new int[n + 1];
+			rows[1] = new int[n + 1];
+		}
+		int[] previous = rows[0];
+		int[] current = rows[1];
+
+		int previousHigh = Math.min(n, maxDistance);
+		for (int j = 0; j <= previousHigh; j++) {
+			previous[j] = j;
+		}
+
+		for (int i = 1; i <= m; i++) {
+			final int low = Math.max(0, i - maxDistance);
+			final int high = Math.min(n, i + maxDistance);
+			final int element = pattern[i - 1];
+			int rowMin = over;
+
+			for (int j = low; j <= high; j++) {
+				int value;
+				if (j == 0) {
+					value = i;
+				} else {
+					// the cell in the previous row and column is always in
+					// the band of the previous row
+					value = previous[j - 1]
+							+ ((element == text[j - 1]) ? 0 : 1);
+					if (j <= previousHigh && previous[j] + 1 < value) {
+						value = previous[j] + 1;
+					}
+					if (j > low && current[j - 1] + 1 < value) {
+						value = current[j - 1] + 1;
+					}
+				}
+				if (value > over) {
+					value = over;
+				}
+
+				current[j] = value;
+				if (value < rowMin) {
+					rowMin = value;
+				}
+			}
+
+			if (rowMin > maxDistance) {
+				return over;
+			}
+
+			previousHigh = high;
+			final int[] tmp = previous;
+			previous = current;
+			current = tmp;
+		}
+
+		return (previous[n] > maxDistance) ? over : previous[n];
+	}
+
+}
@@ -129,6 +129,255 @@ public class StringUtils {
 				/ (((double) str1.length()) + ((double) str2.length()));
 	}
 
+	/**
+	 * calculate Levenshtein distance based similarity between the given two
+	 * strings only if the similarity can be equal to or larger than the given
+	 * threshold <br>
+	 * the distance is bounded by the maximum one that satisfies the
+	 * threshold, so that the calculation stops as soon as the bound is
+	 * exceeded <br>
+	 * the result is identical to
+	 * {@link #calcLebenshteinDistanceBasedSimilarity(String, String)} if the
+	 * distance is within the bound, or a value less than the threshold
+	 * otherwise
+	 * 
+	 * @param str1
+	 * @param str2
+	 * @param threshold
+	 * @return
+	 */
+	public static double calcLebenshteinDistanceBasedSimilarity(
+			final CharSequence str1, final CharSequence str2,
+			final double threshold) {
+		final int len1 = str1.length();
+		final int len2 = str2.length();
+		final int maxDistance = calcMaxLevenshteinDistance(len1, len2,
+				threshold);
+
+		final int ld = calcLevenshteinDistance(str1, str2, maxDistance);
+
+		return ((double) 1) - (((double) ld) * 2)
+				/ (((double) len1) + ((double) len2));
+	}
+
+	/**
+	 * get the maximum Levenshtein distance between two strings with the given
+	 * lengths with which the similarity between them can be equal to or
+	 * larger than the given threshold <br>
+	 * the result has one more edit than the exact one, so that rounding
+	 * errors never change the judgement
+	 * 
+	 * @param len1
+	 * @param len2
+	 * @param threshold
+	 * @return the distance, or Integer.MAX_VALUE if the threshold does not
+	 *         bound the distance
+	 */
+	public static int calcMaxLevenshteinDistance(final int len1,
+			final int len2, final double threshold) {
+		final double bound = Math.floor((1.0 - threshold)
+				* (((double) len1) + ((double) len2)) / 2.0) + 1.0;
+		if (!(bound < Math.max(len1, len2))) {
+			return Integer.MAX_VALUE;
+		}
+		return Math.max(0, (int) bound);
+	}
+
+	/**
+	 * calculate the Levenshtein distance between given two strings if it is
+	 * not larger than the given maximum distance <br>
+	 * the bit-parallel algorithm of Myers and Hyyro is used if the shorter
+	 * string fits in a word, or the dynamic programming limited in the band
+	 * of the maximum distance is used otherwise
+	 * 
+	 * @param str1
+	 * @param str2
+	 * @param maxDistance
+	 * @return the distance, or maxDistance + 1 if the distance is larger than
+	 *         maxDistance
+	 */
+	public static int calcLevenshteinDistance(final CharSequence str1,
+			final CharSequence str2, final int maxDistance) {
+		final CharSequence pattern = (str1.length() <= str2.length()) ? str1
+				: str2;
+		final CharSequence text = (pattern == str1) ? str2 : str1;
+
+		if (text.length() - pattern.length() > maxDistance) {
+			return maxDistance + 1;
+		}
+		if (pattern.length() == 0) {
+			return text.length();
+		}
+
+		// the distance never exceeds the length of the longer one
+		final int bound = Math.min(maxDistance, text.length());
+		final LevenshteinBuffer buffer = LEVENSHTEIN_BUFFERS.get();
+		if (pattern.length() <= Long.SIZE) {
+			return calcBitParallelDistance(pattern, text, bound, buffer);
+		} else {
+			return calcBandedDistance(pattern, text, bound, buffer);
+		}
+	}
+
+	/**
+	 * the buffers to calculate Levenshtein distances for each thread
+	 */
+	private static final ThreadLocal<LevenshteinBuffer> LEVENSHTEIN_BUFFERS = new ThreadLocal<LevenshteinBuffer>() {
+		@Override
+		protected LevenshteinBuffer initialValue() {
+			return new LevenshteinBuffer();
+		}
+	};
+
+	private static class LevenshteinBuffer {
+
+		/**
+		 * the positions of each ascii character in the pattern as bits
+		 */
+		private final long[] asciiMasks = new long[128];
+
+		/**
+		 * the characters out of ascii in the pattern and their positions
+		 */
+		private final char[] otherChars = new char[Long.SIZE];
+
+		private final long[] otherMasks = new long[Long.SIZE];
+
+		private int otherCharsCount;
+
+		/**
+		 * the codes of the characters in the pattern and the text compared
+		 * with the banded dynamic programming
+		 */
+		private int[] patternCodes = new int[0];
+
+		private int[] textCodes = new int[0];
+
+		private void setCodes(final CharSequence pattern,
+				final CharSequence text) {
+			if (patternCodes.length < pattern.length()) {
+				patternCodes = new int[pattern.length()];
+			}
+			if (textCodes.length < text.length()) {
+				textCodes = new int[text.length()];
+			}
+			for (int i = 0; i < pattern.length(); i++) {
+				patternCodes[i] = pattern.charAt(i);
+			}
+			for (int i = 0; i < text.length(); i++) {
+				textCodes[i] = text.charAt(i);
+			}
+		}
+
+		private void setPattern(final CharSequence pattern) {
+			otherCharsCount = 0;
+			for (int i = 0; i < pattern.length(); i++) {
+				final char c = pattern.charAt(i);
+				if (c < asciiMasks.length) {
+					asciiMasks[c] |= 1L << i;
+					continue;
+				}
+
+				int index = 0;
+				while (index < otherCharsCount && otherChars[index] != c) {
+					index++;
+				}
+				if (index == otherCharsCount) {
+					otherChars[index] = c;
+					otherMasks[index] = 0L;
+					otherCharsCount++;
+				}
+				otherMasks[index] |= 1L << i;
+			}
+		}
+
+		private void clearPattern(final CharSequence pattern) {
+			for (int i = 0; i < pattern.length(); i++) {
+				final char c = pattern.charAt(i);
+				if (c < asciiMasks.length) {
+					asciiMasks[c] = 0L;
+				}
+			}
+			otherCharsCount = 0;
+		}
+
+		private long getMask(final char c) {
+			if (c < asciiMasks.length) {
+				return asciiMasks[c];
+			}
+			for (int i = 0; i < otherCharsCount; i++) {
+				if (otherChars[i] == c) {
+					return otherMasks[i];
+				}
+			}
+			return 0L;
+		}
+
+	}
+
+	/**
+	 * calculate the distance with the bit-parallel algorithm <br>
+	 * the pattern must not be longer than the text nor a word
+	 */
+	private static int calcBitParallelDistance(final CharSequence pattern,
+			final CharSequence text, final int maxDistance,
+			final LevenshteinBuffer buffer) {
+		final int m = pattern.length();
+		final int n = text.length();
+		final long last = 1L << (m - 1);
+
+		buffer.setPattern(pattern);
+		try {
+			long pv = -1L;
+			long mv = 0L;
+			int score = m;
+
+			for (int j = 0; j < n; j++) {
+				final long eq = buffer.getMask(text.charAt(j));
+				final long xv = eq | mv;
+				final long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+
+				if ((ph & last) != 0) {
+					score++;
+				} else if ((mh & last) != 0) {
+					score--;
+				}
+
+				// the score can decrease at most by one for each remaining
+				// character
+				if (score - (n - j - 1) > maxDistance) {
+					return maxDistance + 1;
+				}
+
+				ph = (ph << 1) | 1L;
+				mh = mh << 1;
+				pv = mh | ~(xv | ph);
+				mv = ph & xv;
+			}
+
+			return (score > maxDistance) ? maxDistance + 1 : score;
+
+		} finally {
+			buffer.clearPattern(pattern);
+		}
+	}
+
+	/**
+	 * calculate the distance with the banded dynamic programming of
+	 * SequenceUtils over the codes of the characters <br>
+	 * the pattern must not be longer than the text
+	 */
+	private static int calcBandedDistance(final CharSequence pattern,
+			final CharSequence text, final int maxDistance,
+			final LevenshteinBuffer buffer) {
+		buffer.setCodes(pattern, text);
+		return SequenceUtils.calcBandedDistance(buffer.patternCodes,
+				pattern.length(), buffer.textCodes, text.length(),
+				maxDistance);
+	}
+
 	/**
 	 * judge whether the given two paths equal to each other except for
 	 * differences of abstarct path and full path
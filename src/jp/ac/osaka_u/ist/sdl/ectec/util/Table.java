@@ -2,6 +2,7 @@ package jp.ac.osaka_u.ist.sdl.ectec.util;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A class to represent a table.
@@ -20,7 +21,7 @@ public class Table<K1, K2, V> {
 	/**
 	 * contents of this table
 	 */
-	private final Map<K1, Map<K2, V>> contents;
+	private final ConcurrentMap<K1, Map<K2, V>> contents;
 
 	/**
 	 * A constructor
@@ -92,13 +93,12 @@ public class Table<K1, K2, V> {
 			throw new IllegalArgumentException("k1 and k2 must not be null");
 		}
 
-		if (!contents.containsKey(k1)) {
-			contents.put(k1, new ConcurrentHashMap<K2, V>());
-		}
-
-		final Map<K2, V> row = contents.get(k1);
-		if (row.containsKey(k2)) {
-			row.remove(k2);
+		Map<K2, V> row = contents.get(k1);
+		if (row == null) {
+			// another thread may create the row at the same time
+			final Map<K2, V> newRow = new ConcurrentHashMap<K2, V>();
+			final Map<K2, V> previous = contents.putIfAbsent(k1, newRow);
+			row = (previous == null) ? newRow : previous;
 		}
 
 		row.put(k2, value);
@@ -1,12 +1,14 @@
 package jp.ac.osaka_u.ist.sdl.instantcdt;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Collection;
 import java.util.Map;
 
 import jp.ac.osaka_u.ist.sdl.ectec.settings.Language;
 
-public class CCFinderClonePairWriter implements IClonePairWriter {
+public class CCFinderClonePairWriter implements IClonePairWriter,
+		IClonePairStreamWriter {
 
 	private final PrintWriter pw;
 
@@ -20,10 +22,62 @@ public class CCFinderClonePairWriter implements IClonePairWriter {
 	@Override
 	public void write(Collection<ClonePair> clonePairs,
 			Map<Long, InstantFileInfo> files) throws Exception {
+		begin(files);
+		for (final ClonePair clonePair : clonePairs) {
+			write(clonePair);
+		}
+		end();
+	}
+
+	@Override
+	public void begin(Map<Long, InstantFileInfo> files) {
 		printOptions();
 		printFileDescriptions(files);
-		printClones(clonePairs);
+		pw.println("#begin{clone}");
+	}
+
+	@Override
+	public void write(ClonePair clonePair) {
+		final InstantCodeFragmentInfo fragment1 = clonePair.getFragment1();
+		final InstantCodeFragmentInfo fragment2 = clonePair.getFragment2();
+
+		pw.println("#begin{set}");
+
+		pw.println("0." + fragment1.getFileId() + "\t"
+				+ fragment1.getStartLine() + "," + fragment1.getStartColumn()
+				+ ",1\t" + fragment1.getEndLine() + ","
+				+ fragment1.getEndColumn() + ",2\t1");
+		pw.println("0." + fragment2.getFileId() + "\t"
+				+ fragment2.getStartLine() + "," + fragment2.getStartColumn()
+				+ ",1\t" + fragment2.getEndLine() + ","
+				+ fragment2.getEndColumn() + ",2\t1");
+
+		pw.println("#end{set}");
+	}
+
+	@Override
+	public void write(CloneSet cloneSet) {
+		pw.println("#begin{set}");
+
+		for (final InstantCodeFragmentInfo fragment : cloneSet.getElements()) {
+			pw.println("0." + fragment.getFileId() + "\t"
+					+ fragment.getStartLine() + ","
+					+ fragment.getStartColumn() + ",1\t"
+					+ fragment.getEndLine() + "," + fragment.getEndColumn()
+					+ ",2\t1");
+		}
+
+		pw.println("#end{set}");
+	}
+
+	@Override
+	public void end() throws IOException {
+		pw.println("#end{clone}");
 		pw.close();
+
+		if (pw.checkError()) {
+			throw new IOException("cannot write the results");
+		}
 	}
 
 	private void printOptions() {
@@ -46,29 +100,4 @@ public class CCFinderClonePairWriter implements IClonePairWriter {
 		pw.println("#end{file description}");
 	}
 
-	private void printClones(final Collection<ClonePair> clonePairs) {
-		pw.println("#begin{clone}");
-
-		for (final ClonePair clonePair : clonePairs) {
-			final InstantCodeFragmentInfo fragment1 = clonePair.getFragment1();
-			final InstantCodeFragmentInfo fragment2 = clonePair.getFragment2();
-
-			pw.println("#begin{set}");
-			
-			pw.println("0." + fragment1.getFileId() + "\t"
-					+ fragment1.getStartLine() + ","
-					+ fragment1.getStartColumn() + ",1\t"
-					+ fragment1.getEndLine() + "," + fragment1.getEndColumn()
-					+ ",2\t1");
-			pw.println("0." + fragment2.getFileId() + "\t"
-					+ fragment2.getStartLine() + ","
-					+ fragment2.getStartColumn() + ",1\t"
-					+ fragment2.getEndLine() + "," + fragment2.getEndColumn()
-					+ ",2\t1");
-			
-			pw.println("#end{set}");
-		}
-
-		pw.println("#end{clone}");
-	}
 }
@@ -1,12 +1,14 @@
 package jp.ac.osaka_u.ist.sdl.instantcdt;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Collection;
 import java.util.Map;
 
 import jp.ac.osaka_u.ist.sdl.ectec.settings.Language;
 
-public class CCFinderCloneSetWriter implements ICloneSetWriter {
+public class CCFinderCloneSetWriter implements ICloneSetWriter,
+		ICloneSetStreamWriter {
 
 	private final PrintWriter pw;
 
@@ -20,10 +22,43 @@ public class CCFinderCloneSetWriter implements ICloneSetWriter {
 	@Override
 	public void write(Collection<CloneSet> cloneSets,
 			Map<Long, InstantFileInfo> files) throws Exception {
+		begin(files);
+		for (final CloneSet cloneSet : cloneSets) {
+			write(cloneSet);
+		}
+		end();
+	}
+
+	@Override
+	public void begin(Map<Long, InstantFileInfo> files) {
 		printOptions();
 		printFileDescriptions(files);
-		printClones(cloneSets);
+		pw.println("#begin{clone}");
+	}
+
+	@Override
+	public void write(CloneSet cloneSet) {
+		pw.println("#begin{set}");
+
+		for (final InstantCodeFragmentInfo fragment : cloneSet.getElements()) {
+			pw.println("0." + fragment.getFileId() + "\t"
+					+ fragment.getStartLine() + ","
+					+ fragment.getStartColumn() + ",1\t"
+					+ fragment.getEndLine() + "," + fragment.getEndColumn()
+					+ ",2\t1");
+		}
+
+		pw.println("#end{set}");
+	}
+
+	@Override
+	public void end() throws IOException {
+		pw.println("#end{clone}");
 		pw.close();
+
+		if (pw.checkError()) {
+			throw new IOException("cannot write the results");
+		}
 	}
 
 	private void printOptions() {
@@ -46,27 +81,4 @@ public class CCFinderCloneSetWriter implements ICloneSetWriter {
 		pw.println("#end{file description}");
 	}
 
-	private void printClones(final Collection<CloneSet> cloneSets) {
-		pw.println("#begin{clone}");
-
-		for (final CloneSet cloneSet : cloneSets) {
-
-			pw.println("#begin{set}");
-
-			for (final InstantCodeFragmentInfo fragment : cloneSet
-					.getElements()) {
-				pw.println("0." + fragment.getFileId() + "\t"
-						+ fragment.getStartLine() + ","
-						+ fragment.getStartColumn() + ",1\t"
-						+ fragment.getEndLine() + ","
-						+ fragment.getEndColumn() + ",2\t1");
-			}
-
-
-			pw.println("#end{set}");
-		}
-
-		pw.println("#end{clone}");
-	}
-
 }
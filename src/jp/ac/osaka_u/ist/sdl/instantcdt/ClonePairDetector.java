@@ -1,119 +1,142 @@
 package jp.ac.osaka_u.ist.sdl.instantcdt;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
+import jp.ac.osaka_u.ist.sdl.ectec.util.IntComparator;
+
+/**
+ * A class to detect clone pairs from fragments with multi threads <br>
+ * fragments are identified with their indexes in the order of their
+ * locations, and the pairs are encoded as long values and grouped by the
+ * pairs of files that they are in <br>
+ * subsumed pairs are removed in each group
+ * 
+ * @author k-hotta
+ * 
+ */
 public class ClonePairDetector {
 
+	private static final Comparator<InstantCodeFragmentInfo> LOCATION_COMPARATOR = new Comparator<InstantCodeFragmentInfo>() {
+		@Override
+		public int compare(InstantCodeFragmentInfo f1,
+				InstantCodeFragmentInfo f2) {
+			final int comparePath = f1.getFilePath().compareTo(
+					f2.getFilePath());
+			if (comparePath != 0) {
+				return comparePath;
+			}
+
+			// a fragment comes before the fragments that it subsumes
+			if (f1.getStartLine() != f2.getStartLine()) {
+				return (f1.getStartLine() < f2.getStartLine()) ? -1 : 1;
+			}
+			if (f1.getEndLine() != f2.getEndLine()) {
+				return (f1.getEndLine() > f2.getEndLine()) ? -1 : 1;
+			}
+			if (f1.getStartColumn() != f2.getStartColumn()) {
+				return (f1.getStartColumn() < f2.getStartColumn()) ? -1 : 1;
+			}
+			if (f1.getEndColumn() != f2.getEndColumn()) {
+				return (f1.getEndColumn() < f2.getEndColumn()) ? -1 : 1;
+			}
+			return 0;
+		}
+	};
+
 	private final int threadsCount;
 
+	/**
+	 * the number of fragments in a hash bucket above which the bucket is
+	 * reported as a clone set instead of the pairs in it <br>
+	 * a non-positive value means that every bucket is expanded into pairs
+	 */
+	private final int largeBucketThreshold;
+
 	public ClonePairDetector(final int threadsCount) {
+		this(threadsCount, 0);
+	}
+
+	public ClonePairDetector(final int threadsCount,
+			final int largeBucketThreshold) {
 		this.threadsCount = threadsCount;
+		this.largeBucketThreshold = largeBucketThreshold;
 	}
 
-	public Collection<ClonePair> detectClonePairs(
-			final Map<String, List<InstantCodeFragmentInfo>> fragments) {
+	public long detectClonePairs(
+			final Map<String, List<InstantCodeFragmentInfo>> fragments,
+			final IClonePairStreamWriter writer) {
 		final Set<InstantCodeFragmentInfo> fragmentsAsSet = new HashSet<InstantCodeFragmentInfo>();
 		for (Map.Entry<String, List<InstantCodeFragmentInfo>> entry : fragments
 				.entrySet()) {
 			fragmentsAsSet.addAll(entry.getValue());
 		}
 
-		return detectClonePairs(fragmentsAsSet);
+		return detectClonePairs(fragmentsAsSet, writer);
 	}
 
-	public Collection<ClonePair> detectClonePairs(
-			final Collection<InstantCodeFragmentInfo> fragments) {
-		final ConcurrentMap<Long, Set<InstantCodeFragmentInfo>> fragmentsCategorizedByHash = categorizeFragments(fragments);
+	/**
+	 * detect clone pairs and pass them to the given writer
+	 * 
+	 * @param fragments
+	 * @param writer
+	 * @return the number of the detected clone pairs
+	 */
+	public long detectClonePairs(
+			final Collection<InstantCodeFragmentInfo> fragments,
+			final IClonePairStreamWriter writer) {
+		final InstantCodeFragmentInfo[] sortedFragments = fragments
+				.toArray(new InstantCodeFragmentInfo[0]);
 		fragments.clear();
+		Arrays.sort(sortedFragments, LOCATION_COMPARATOR);
 
-		final Long[] keys = fragmentsCategorizedByHash.keySet().toArray(
-				new Long[] {});
-		final AtomicInteger index = new AtomicInteger(0);
+		final int length = sortedFragments.length;
+		final int[] fileIds = new int[length];
+		final int[] startLines = new int[length];
+		final int[] endLines = new int[length];
+		final int[] heads = new int[length];
 
-		final ClonePairMakingThread[] makingThreads = new ClonePairMakingThread[threadsCount];
-		final Thread[] threads = new Thread[threadsCount];
-
-		for (int i = 0; i < threadsCount; i++) {
-			final ClonePairMakingThread makingThread = new ClonePairMakingThread(
-					index, keys, fragmentsCategorizedByHash);
-			makingThreads[i] = makingThread;
-			threads[i] = new Thread(makingThread);
-			threads[i].start();
-		}
+		for (int i = 0; i < length; i++) {
+			final InstantCodeFragmentInfo fragment = sortedFragments[i];
+			startLines[i] = fragment.getStartLine();
+			endLines[i] = fragment.getEndLine();
 
-		for (final Thread thread : threads) {
-			try {
-				thread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+			if (i == 0) {
+				continue;
 			}
-		}
-
-		fragmentsCategorizedByHash.clear();
-
-		System.out.println();
-		System.out.println("merging the results of all the threads ... ");
-
-		final ConcurrentMap<Long, ClonePair> detectedPairs = new ConcurrentHashMap<Long, ClonePair>();
-		final ConcurrentMap<String, Set<ClonePair>> clonePairsCategorizedByPath = new ConcurrentHashMap<String, Set<ClonePair>>();
-		long pairsCount = 0;
-
-		for (int i = 0; i < makingThreads.length; i++) {
-			final List<ClonePair> pairs = makingThreads[i]
-					.getCreatedClonePairs();
-			final Map<String, Set<ClonePair>> categorizedByPath = makingThreads[i]
-					.getClonePairsCategoriedByHash();
 
-			for (final ClonePair pair : pairs) {
-				detectedPairs.put(pairsCount++, pair);
-			}
-			for (final Map.Entry<String, Set<ClonePair>> entry : categorizedByPath
-					.entrySet()) {
-				if (clonePairsCategorizedByPath.containsKey(entry.getKey())) {
-					clonePairsCategorizedByPath.get(entry.getKey()).addAll(
-							entry.getValue());
-				} else {
-					clonePairsCategorizedByPath.put(entry.getKey(),
-							entry.getValue());
-				}
+			final InstantCodeFragmentInfo previous = sortedFragments[i - 1];
+			if (!fragment.getFilePath().equals(previous.getFilePath())) {
+				fileIds[i] = fileIds[i - 1] + 1;
+				heads[i] = i;
+			} else {
+				fileIds[i] = fileIds[i - 1];
+				final boolean sameLines = startLines[i] == startLines[i - 1]
+						&& endLines[i] == endLines[i - 1];
+				heads[i] = sameLines ? heads[i - 1] : i;
 			}
-
-			makingThreads[i] = null;
 		}
 
-		System.out.println("\t" + detectedPairs.size()
-				+ " clone pairs are detected");
-		System.out.println();
+		final ClonePairGroup[] groups = makePairs(sortedFragments, fileIds,
+				writer);
 
-		return refinePairs(detectedPairs, clonePairsCategorizedByPath);
-	}
-
-	private Collection<ClonePair> refinePairs(
-			final ConcurrentMap<Long, ClonePair> detectedPairs,
-			final ConcurrentMap<String, Set<ClonePair>> clonePairsCategorizedByPath) {
 		System.out.println("removing subsumed clone pairs ...");
-
-		final AtomicLong index = new AtomicLong();
-
+		final AtomicInteger index = new AtomicInteger(0);
 		final ClonePairRefiningThread[] refiningThreads = new ClonePairRefiningThread[threadsCount];
 		final Thread[] threads = new Thread[threadsCount];
 
 		for (int i = 0; i < threadsCount; i++) {
-			final ClonePairRefiningThread refiningThread = new ClonePairRefiningThread(
-					index, detectedPairs, clonePairsCategorizedByPath);
-			refiningThreads[i] = refiningThread;
-			threads[i] = new Thread(refiningThread);
+			refiningThreads[i] = new ClonePairRefiningThread(index, groups,
+					startLines, endLines, heads);
+			threads[i] = new Thread(refiningThreads[i]);
 			threads[i].start();
 		}
 
@@ -125,144 +148,107 @@ public class ClonePairDetector {
 			}
 		}
 
-		for (final ClonePairRefiningThread thread : refiningThreads) {
-			for (final long subsumedClonePair : thread.getSubsumedClonePairs()) {
-				detectedPairs.remove(subsumedClonePair);
+		long subsumedPairsCount = 0;
+		for (final ClonePairRefiningThread refiningThread : refiningThreads) {
+			subsumedPairsCount += refiningThread.getSubsumedPairsCount();
+		}
+		System.out.println("\t" + subsumedPairsCount
+				+ " clone pairs are subsumed by others");
+		System.out.println();
+
+		long pairsCount = 0;
+		for (final ClonePairGroup group : groups) {
+			for (int i = 0; i < group.size(); i++) {
+				final long pair = group.get(i);
+				writer.write(new ClonePair(sortedFragments[ClonePairGroup
+						.getFragment1(pair)], sortedFragments[ClonePairGroup
+						.getFragment2(pair)]));
+				pairsCount++;
 			}
 		}
 
-		return Collections.unmodifiableCollection(detectedPairs.values());
+		return pairsCount;
 	}
 
-	public List<ClonePair> detectClonePairsOld(
-			final Collection<InstantCodeFragmentInfo> fragments) {
-		final Map<Long, Set<InstantCodeFragmentInfo>> fragmentsCategorizedByHash = categorizeFragments(fragments);
-
-		final List<ClonePair> result = new ArrayList<ClonePair>();
-		final Map<String, Set<ClonePair>> clonePairsCategorizedByPath = new HashMap<String, Set<ClonePair>>();
-
-		final long length = fragmentsCategorizedByHash.size();
-		long count = 0;
+	/**
+	 * make the clone pairs in each hash bucket <br>
+	 * large buckets are passed to the writer as clone sets
+	 * 
+	 * @return the groups of the clone pairs
+	 */
+	private ClonePairGroup[] makePairs(
+			final InstantCodeFragmentInfo[] sortedFragments,
+			final int[] fileIds, final IClonePairStreamWriter writer) {
+		final int length = sortedFragments.length;
+		final int[] indexes = new int[length];
+		for (int i = 0; i < length; i++) {
+			indexes[i] = i;
+		}
 
-		for (final Map.Entry<Long, Set<InstantCodeFragmentInfo>> entry : fragmentsCategorizedByHash
-				.entrySet()) {
-			if (++count % 10000 == 0) {
-				System.out.println("\t[" + count + "/" + length
-						+ "] 2nd step processed " + count + " elements");
-			}
-			final Set<InstantCodeFragmentInfo> cloneSet = entry.getValue();
-			if (cloneSet.size() < 2) {
-				continue;
+		// each bucket is sorted with the indexes
+		new IntComparator() {
+			@Override
+			public int compare(int i1, int i2) {
+				final long hash1 = sortedFragments[i1].getHash();
+				final long hash2 = sortedFragments[i2].getHash();
+				if (hash1 != hash2) {
+					return (hash1 < hash2) ? -1 : 1;
+				}
+				return (i1 < i2) ? -1 : ((i1 == i2) ? 0 : 1);
 			}
+		}.sort(indexes);
 
-			final Set<InstantCodeFragmentInfo> processed = new HashSet<InstantCodeFragmentInfo>();
-
-			for (final InstantCodeFragmentInfo fragment1 : cloneSet) {
-				for (final InstantCodeFragmentInfo fragment2 : cloneSet) {
-					if (fragment1 == fragment2) {
-						continue;
-					}
-					if (processed.contains(fragment2)) {
-						continue;
-					}
-
-					if (count == 27412) {
-						System.out.println(cloneSet.size());
-					}
-					System.out.println(count);
-					final ClonePair clonePair = new ClonePair(fragment1,
-							fragment2);
-					final Set<ClonePair> subsumedPairs = new HashSet<ClonePair>();
-					boolean subsumed = false;
-
-					if (clonePairsCategorizedByPath.containsKey(fragment1
-							.getFilePath())) {
-						final Set<ClonePair> tmpPairs = clonePairsCategorizedByPath
-								.get(fragment1.getFilePath());
-
-						for (final ClonePair tmpPair : tmpPairs) {
-							if (tmpPair.subsume(clonePair)) {
-								subsumed = true;
-								break;
-							}
-							if (clonePair.subsume(tmpPair)) {
-								subsumedPairs.add(tmpPair);
-							}
-						}
-					}
-
-					if (!subsumed) {
-						result.add(clonePair);
-
-						if (clonePairsCategorizedByPath.containsKey(fragment1
-								.getFilePath())) {
-							clonePairsCategorizedByPath.get(
-									fragment1.getFilePath()).add(clonePair);
-						} else {
-							final Set<ClonePair> newSet = new HashSet<ClonePair>();
-							newSet.add(clonePair);
-							clonePairsCategorizedByPath.put(
-									fragment1.getFilePath(), newSet);
-						}
+		final Map<Long, ClonePairGroup> groups = new HashMap<Long, ClonePairGroup>();
+		long pairsCount = 0;
+		long setsCount = 0;
+
+		int start = 0;
+		while (start < length) {
+			int end = start + 1;
+			while (end < length
+					&& sortedFragments[indexes[end]].getHash() == sortedFragments[indexes[start]]
+							.getHash()) {
+				end++;
+			}
 
-						if (clonePairsCategorizedByPath.containsKey(fragment2
-								.getFilePath())) {
-							clonePairsCategorizedByPath.get(
-									fragment2.getFilePath()).add(clonePair);
-						} else {
-							final Set<ClonePair> newSet = new HashSet<ClonePair>();
-							newSet.add(clonePair);
-							clonePairsCategorizedByPath.put(
-									fragment2.getFilePath(), newSet);
+			if (largeBucketThreshold > 0 && end - start > largeBucketThreshold) {
+				final List<InstantCodeFragmentInfo> elements = new ArrayList<InstantCodeFragmentInfo>();
+				for (int i = start; i < end; i++) {
+					elements.add(sortedFragments[indexes[i]]);
+				}
+				writer.write(new CloneSet(elements));
+				setsCount++;
+			} else {
+				for (int i = start; i < end; i++) {
+					for (int j = i + 1; j < end; j++) {
+						final int fragment1 = indexes[i];
+						final int fragment2 = indexes[j];
+						final long key = ClonePairGroup.encode(
+								fileIds[fragment1], fileIds[fragment2]);
+
+						ClonePairGroup group = groups.get(key);
+						if (group == null) {
+							group = new ClonePairGroup(fileIds[fragment1],
+									fileIds[fragment2]);
+							groups.put(key, group);
 						}
+						group.add(ClonePairGroup.encode(fragment1, fragment2));
+						pairsCount++;
 					}
-
-					for (final ClonePair subsumedPair : subsumedPairs) {
-						result.remove(subsumedPair);
-						clonePairsCategorizedByPath.get(
-								subsumedPair.getFragment1().getFilePath())
-								.remove(subsumedPair);
-						clonePairsCategorizedByPath.get(
-								subsumedPair.getFragment2().getFilePath())
-								.remove(subsumedPair);
-					}
-
 				}
-				processed.add(fragment1);
 			}
-		}
-
-		System.out.println("\t[" + count + "/" + length
-				+ "] 2nd step processed all elements");
 
-		return result;
-	}
-
-	private ConcurrentMap<Long, Set<InstantCodeFragmentInfo>> categorizeFragments(
-			Collection<InstantCodeFragmentInfo> fragments) {
-		final ConcurrentMap<Long, Set<InstantCodeFragmentInfo>> result = new ConcurrentHashMap<Long, Set<InstantCodeFragmentInfo>>();
-
-		final long length = fragments.size();
-		long count = 0;
-
-		for (final InstantCodeFragmentInfo fragment : fragments) {
-			if (result.containsKey(fragment.getHash())) {
-				result.get(fragment.getHash()).add(fragment);
-			} else {
-				final Set<InstantCodeFragmentInfo> newSet = new HashSet<InstantCodeFragmentInfo>();
-				newSet.add(fragment);
-				result.put(fragment.getHash(), newSet);
-			}
-			if (++count % 10000 == 0) {
-				System.out.println("\t[" + count + "/" + length
-						+ "] 1st step processed " + count + " elements");
-			}
+			start = end;
 		}
 
-		System.out.println("\t[" + count + "/" + length
-				+ "] 1st step processed all elements");
+		System.out.println("\t" + pairsCount + " clone pairs are detected");
+		if (setsCount > 0) {
+			System.out.println("\t" + setsCount
+					+ " large buckets are reported as clone sets");
+		}
+		System.out.println();
 
-		return result;
+		return groups.values().toArray(new ClonePairGroup[0]);
 	}
 
 }
@@ -1,12 +1,14 @@
 package jp.ac.osaka_u.ist.sdl.instantcdt;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Collection;
 import java.util.Map;
 
 import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
 
-public class ClonePairForEvaluationWriter implements IClonePairWriter {
+public class ClonePairForEvaluationWriter implements IClonePairWriter,
+		IClonePairStreamWriter {
 
 	private final PrintWriter pw;
 
@@ -21,22 +23,53 @@ public class ClonePairForEvaluationWriter implements IClonePairWriter {
 	@Override
 	public void write(Collection<ClonePair> clonePairs,
 			Map<Long, InstantFileInfo> files) throws Exception {
+		begin(files);
 		for (final ClonePair clonePair : clonePairs) {
-			// pw.print(clonePair.getId() + "\t");
-			pw.print(StringUtils.translateToCpf(clonePair.getFragment1()
-					.getFilePath(), rootPath)
-					+ "\t");
-			pw.print(clonePair.getFragment1().getStartLine() + "\t");
-			pw.print(clonePair.getFragment1().getEndLine() + "\t");
-			pw.print(StringUtils.translateToCpf(clonePair.getFragment2()
-					.getFilePath(), rootPath)
-					+ "\t");
-			pw.print(clonePair.getFragment2().getStartLine() + "\t");
-			pw.print(clonePair.getFragment2().getEndLine() + "\t");
-			pw.println("0");
+			write(clonePair);
 		}
+		end();
+	}
+
+	@Override
+	public void begin(Map<Long, InstantFileInfo> files) {
+		// this format has no header
+	}
+
+	@Override
+	public void write(ClonePair clonePair) {
+		// pw.print(clonePair.getId() + "\t");
+		pw.print(StringUtils.translateToCpf(clonePair.getFragment1()
+				.getFilePath(), rootPath)
+				+ "\t");
+		pw.print(clonePair.getFragment1().getStartLine() + "\t");
+		pw.print(clonePair.getFragment1().getEndLine() + "\t");
+		pw.print(StringUtils.translateToCpf(clonePair.getFragment2()
+				.getFilePath(), rootPath)
+				+ "\t");
+		pw.print(clonePair.getFragment2().getStartLine() + "\t");
+		pw.print(clonePair.getFragment2().getEndLine() + "\t");
+		pw.println("0");
+	}
 
+	@Override
+	public void write(CloneSet cloneSet) {
+		// this format has only clone pairs
+		final InstantCodeFragmentInfo[] elements = cloneSet.getElements()
+				.toArray(new InstantCodeFragmentInfo[0]);
+		for (int i = 0; i < elements.length; i++) {
+			for (int j = i + 1; j < elements.length; j++) {
+				write(new ClonePair(elements[i], elements[j]));
+			}
+		}
+	}
+
+	@Override
+	public void end() throws IOException {
 		pw.close();
+
+		if (pw.checkError()) {
+			throw new IOException("cannot write the results");
+		}
 	}
 
 }
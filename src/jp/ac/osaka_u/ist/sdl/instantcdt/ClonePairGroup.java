@@ -0,0 +1,73 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.util.Arrays;
+
+/**
+ * A class that represents the clone pairs between a pair of files <br>
+ * each pair is encoded as a long value having the indexes of the two
+ * fragments, and the index of the first fragment is less than the other
+ * 
+ * @author k-hotta
+ * 
+ */
+public class ClonePairGroup {
+
+	private final int fileId1;
+
+	private final int fileId2;
+
+	private long[] pairs;
+
+	private int size;
+
+	public ClonePairGroup(final int fileId1, final int fileId2) {
+		this.fileId1 = fileId1;
+		this.fileId2 = fileId2;
+		this.pairs = new long[4];
+		this.size = 0;
+	}
+
+	public static long encode(final int fragment1, final int fragment2) {
+		return ((long) fragment1 << 32) | fragment2;
+	}
+
+	public static int getFragment1(final long pair) {
+		return (int) (pair >>> 32);
+	}
+
+	public static int getFragment2(final long pair) {
+		return (int) pair;
+	}
+
+	public final boolean isInSameFile() {
+		return fileId1 == fileId2;
+	}
+
+	public final int size() {
+		return size;
+	}
+
+	public final long get(final int index) {
+		return pairs[index];
+	}
+
+	public void add(final long pair) {
+		if (size == pairs.length) {
+			pairs = Arrays.copyOf(pairs, size * 2);
+		}
+		pairs[size++] = pair;
+	}
+
+	/**
+	 * replace the pairs with the given ones
+	 * 
+	 * @param newPairs
+	 * @param newSize
+	 *            the number of the pairs in the array
+	 */
+	public void set(final long[] newPairs, final int newSize) {
+		this.pairs = newPairs;
+		this.size = newSize;
+	}
+
+}
@@ -1,70 +1,136 @@
 package jp.ac.osaka_u.ist.sdl.instantcdt;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import jp.ac.osaka_u.ist.sdl.ectec.util.IntComparator;
+
+/**
+ * A thread class that removes subsumed clone pairs from each group of clone
+ * pairs between a pair of files <br>
+ * the pairs in a group are sorted with the line ranges of their fragments,
+ * so that every pair subsuming another one comes before it and a pair needs
+ * to be compared only with the pairs that have survived
+ * 
+ * @author k-hotta
+ * 
+ */
 public class ClonePairRefiningThread implements Runnable {
 
-	private final AtomicLong index;
+	private final AtomicInteger index;
+
+	private final ClonePairGroup[] groups;
+
+	private final int[] startLines;
 
-	private final ConcurrentMap<Long, ClonePair> clonePairs;
+	private final int[] endLines;
 
-	private final ConcurrentMap<String, Set<ClonePair>> clonePairsCategorizedByPath;
+	/**
+	 * the index of the first fragment that has the same file and the same
+	 * lines as each fragment
+	 */
+	private final int[] heads;
 
-	private final Set<Long> subsumedClonePairs;
-	
-	private final int length;
+	private long subsumedPairsCount;
 
-	public ClonePairRefiningThread(
-			final AtomicLong index,
-			final ConcurrentMap<Long, ClonePair> clonePairs,
-			final ConcurrentMap<String, Set<ClonePair>> clonePairsCategorizedByPath) {
+	public ClonePairRefiningThread(final AtomicInteger index,
+			final ClonePairGroup[] groups, final int[] startLines,
+			final int[] endLines, final int[] heads) {
 		this.index = index;
-		this.clonePairs = clonePairs;
-		this.clonePairsCategorizedByPath = clonePairsCategorizedByPath;
-		this.subsumedClonePairs = new HashSet<Long>();
-		this.length = clonePairs.size();
+		this.groups = groups;
+		this.startLines = startLines;
+		this.endLines = endLines;
+		this.heads = heads;
+		this.subsumedPairsCount = 0;
 	}
 
-	public final Set<Long> getSubsumedClonePairs() {
-		return Collections.unmodifiableSet(subsumedClonePairs);
+	public final long getSubsumedPairsCount() {
+		return subsumedPairsCount;
 	}
 
 	@Override
 	public void run() {
 		while (true) {
-			final long currentIndex = index.getAndIncrement();
-			if (currentIndex >= length) {
+			final int currentIndex = index.getAndIncrement();
+			if (currentIndex >= groups.length) {
 				break;
 			}
 
-			System.out.println("\t[" + currentIndex + "/"
-					+ length + "] judging " + currentIndex
-					+ " elements");
-
-			final ClonePair currentClonePair = clonePairs.get(currentIndex);
-			final InstantCodeFragmentInfo fragment1 = currentClonePair
-					.getFragment1();
-
-			if (clonePairsCategorizedByPath
-					.containsKey(fragment1.getFilePath())) {
-				final Set<ClonePair> tmpPairs = clonePairsCategorizedByPath
-						.get(fragment1.getFilePath());
-
-				for (final ClonePair tmpPair : tmpPairs) {
-					if (tmpPair.equals(currentClonePair)) {
-						continue;
-					}
-					if (tmpPair.subsume(currentClonePair)) {
-						subsumedClonePairs.add(currentIndex);
-						break;
-					}
+			refine(groups[currentIndex]);
+		}
+	}
+
+	private void refine(final ClonePairGroup group) {
+		final int size = group.size();
+		final long[] pairs = new long[size];
+		final long[] keys = new long[size];
+		final int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			final long pair = group.get(i);
+			pairs[i] = pair;
+			keys[i] = ClonePairGroup.encode(
+					heads[ClonePairGroup.getFragment1(pair)],
+					heads[ClonePairGroup.getFragment2(pair)]);
+			order[i] = i;
+		}
+
+		new IntComparator() {
+			@Override
+			public int compare(int i1, int i2) {
+				if (keys[i1] != keys[i2]) {
+					return (keys[i1] < keys[i2]) ? -1 : 1;
+				}
+				if (pairs[i1] != pairs[i2]) {
+					return (pairs[i1] < pairs[i2]) ? -1 : 1;
 				}
+				return 0;
+			}
+		}.sort(order);
+
+		// pairs whose fragments have the same lines subsume each other, and
+		// the first one survives
+		final long[] survivors = new long[size];
+		int survivorsCount = 0;
+		for (final int i : order) {
+			if (isSubsumed(pairs[i], survivors, survivorsCount,
+					group.isInSameFile())) {
+				subsumedPairsCount++;
+			} else {
+				survivors[survivorsCount++] = pairs[i];
 			}
 		}
+
+		group.set(survivors, survivorsCount);
+	}
+
+	private boolean isSubsumed(final long pair, final long[] survivors,
+			final int survivorsCount, final boolean inSameFile) {
+		final int fragment1 = ClonePairGroup.getFragment1(pair);
+		final int fragment2 = ClonePairGroup.getFragment2(pair);
+
+		for (int i = 0; i < survivorsCount; i++) {
+			final int another1 = ClonePairGroup.getFragment1(survivors[i]);
+			final int another2 = ClonePairGroup.getFragment2(survivors[i]);
+
+			if (subsume(another1, fragment1) && subsume(another2, fragment2)) {
+				return true;
+			}
+
+			if (inSameFile && subsume(another1, fragment2)
+					&& subsume(another2, fragment1)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * the fragments in a group are always in the same file if they are
+	 * compared
+	 */
+	private boolean subsume(final int fragment, final int another) {
+		return startLines[fragment] <= startLines[another]
+				&& endLines[fragment] >= endLines[another];
 	}
 
 }
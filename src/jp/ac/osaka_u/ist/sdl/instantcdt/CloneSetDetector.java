@@ -1,103 +1,158 @@
 package jp.ac.osaka_u.ist.sdl.instantcdt;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
+import jp.ac.osaka_u.ist.sdl.ectec.util.IntComparator;
+
+/**
+ * A class to detect clone sets from fragments <br>
+ * the fragments in each hash bucket make a clone set, and the set is passed
+ * to the writer as soon as it turns out not to be subsumed by another set
+ * <br>
+ * a set can be subsumed only by sets whose fragments are not shorter than its
+ * own ones, so that the buckets are processed in the descending order of the
+ * lengths of their shortest fragments, and each set is judged once all the
+ * sets whose shortest fragments are as long as its own have been made
+ * 
+ * @author k-hotta
+ * 
+ */
 public class CloneSetDetector {
 
-	private final int threadsCount;
-
-	public CloneSetDetector(final int threadsCount) {
-		this.threadsCount = threadsCount;
-	}
-
-	public Collection<CloneSet> detectCloneSets(
-			final Map<String, List<InstantCodeFragmentInfo>> fragments) {
+	public long detectCloneSets(
+			final Map<String, List<InstantCodeFragmentInfo>> fragments,
+			final ICloneSetStreamWriter writer) {
 		final Set<InstantCodeFragmentInfo> fragmentsAsSet = new HashSet<InstantCodeFragmentInfo>();
 		for (Map.Entry<String, List<InstantCodeFragmentInfo>> entry : fragments
 				.entrySet()) {
 			fragmentsAsSet.addAll(entry.getValue());
 		}
 
-		return detectCloneSets(fragmentsAsSet);
+		return detectCloneSets(fragmentsAsSet, writer);
 	}
 
-	public Collection<CloneSet> detectCloneSets(
-			final Collection<InstantCodeFragmentInfo> fragments) {
-		final ConcurrentMap<Long, Set<InstantCodeFragmentInfo>> fragmentsCategorizedByHash = categorizeFragments(fragments);
-		final Long[] keys = fragmentsCategorizedByHash.keySet().toArray(
-				new Long[] {});
-		final AtomicInteger index = new AtomicInteger(0);
-		final CloneSetMakingThread[] makingThreads = new CloneSetMakingThread[threadsCount];
-		final Thread[] threads = new Thread[threadsCount];
-		final ConcurrentMap<Long, CloneSet> detectedSets = new ConcurrentHashMap<Long, CloneSet>();
-		final ConcurrentMap<String, Set<CloneSet>> cloneSetsCategorizedByPath = new ConcurrentHashMap<String, Set<CloneSet>>();
-
-		for (int i = 0; i < threadsCount; i++) {
-			final CloneSetMakingThread makingThread = new CloneSetMakingThread(
-					index, keys, fragmentsCategorizedByHash, detectedSets,
-					cloneSetsCategorizedByPath);
-			makingThreads[i] = makingThread;
-			threads[i] = new Thread(makingThread);
-			threads[i].start();
+	/**
+	 * detect clone sets and pass the ones not subsumed by others to the given
+	 * writer
+	 * 
+	 * @param fragments
+	 * @param writer
+	 * @return the number of the written clone sets
+	 */
+	public long detectCloneSets(
+			final Collection<InstantCodeFragmentInfo> fragments,
+			final ICloneSetStreamWriter writer) {
+		final List<Set<InstantCodeFragmentInfo>> buckets = new ArrayList<Set<InstantCodeFragmentInfo>>();
+		for (final Set<InstantCodeFragmentInfo> bucket : categorizeFragments(
+				fragments).values()) {
+			if (bucket.size() >= 2) {
+				buckets.add(bucket);
+			}
 		}
 
-		for (final Thread thread : threads) {
-			try {
-				thread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+		final int length = buckets.size();
+		final int[] shortestLengths = new int[length];
+		final int[] order = new int[length];
+		for (int i = 0; i < length; i++) {
+			shortestLengths[i] = getShortestLength(buckets.get(i));
+			order[i] = i;
 		}
 
-		System.out.println("\t" + detectedSets.size()
-				+ " clone sets are detected");
-		System.out.println();
+		new IntComparator() {
+			@Override
+			public int compare(int i1, int i2) {
+				if (shortestLengths[i1] != shortestLengths[i2]) {
+					return (shortestLengths[i1] > shortestLengths[i2]) ? -1 : 1;
+				}
+				return (i1 < i2) ? -1 : ((i1 == i2) ? 0 : 1);
+			}
+		}.sort(order);
+
+		// the sets are categorized by the paths of their first elements,
+		// which must be the same as the ones of the sets subsuming them
+		final Map<String, List<CloneSet>> cloneSetsCategorizedByPath = new HashMap<String, List<CloneSet>>();
+		final List<CloneSet> cloneSets = new ArrayList<CloneSet>();
+		long writtenCount = 0;
+
+		int start = 0;
+		while (start < length) {
+			int end = start + 1;
+			while (end < length
+					&& shortestLengths[order[end]] == shortestLengths[order[start]]) {
+				end++;
+			}
 
-		return refineSets(detectedSets, cloneSetsCategorizedByPath);
-	}
+			cloneSets.clear();
+			for (int i = start; i < end; i++) {
+				final CloneSet cloneSet = new CloneSet(buckets.get(order[i]));
+				buckets.set(order[i], null);
+				cloneSets.add(cloneSet);
+
+				final String path = cloneSet.getFirstElement().getFilePath();
+				List<CloneSet> cloneSetsInPath = cloneSetsCategorizedByPath
+						.get(path);
+				if (cloneSetsInPath == null) {
+					cloneSetsInPath = new ArrayList<CloneSet>();
+					cloneSetsCategorizedByPath.put(path, cloneSetsInPath);
+				}
+				cloneSetsInPath.add(cloneSet);
+			}
 
-	private Collection<CloneSet> refineSets(
-			final ConcurrentMap<Long, CloneSet> cloneSets,
-			final ConcurrentMap<String, Set<CloneSet>> cloneSetsCategorizedByPath) {
-		System.out.println("removing subsumed clone sets ...");
+			for (final CloneSet cloneSet : cloneSets) {
+				if (!isSubsumed(cloneSet, cloneSetsCategorizedByPath)) {
+					writer.write(cloneSet);
+					writtenCount++;
+				}
+			}
 
-		final AtomicLong index = new AtomicLong();
+			System.out.println("\t[" + end + "/" + length
+					+ "] 2nd step processed " + end + " hash values");
+			start = end;
+		}
 
-		final CloneSetRefiningThread[] refiningThreads = new CloneSetRefiningThread[threadsCount];
-		final Thread[] threads = new Thread[threadsCount];
+		System.out.println("\t" + length + " clone sets are detected, "
+				+ (length - writtenCount) + " of them are subsumed by others");
+		System.out.println();
 
-		for (int i = 0; i < threadsCount; i++) {
-			final CloneSetRefiningThread refiningThread = new CloneSetRefiningThread(
-					index, cloneSets, cloneSetsCategorizedByPath);
-			refiningThreads[i] = refiningThread;
-			threads[i] = new Thread(refiningThread);
-			threads[i].start();
-		}
+		return writtenCount;
+	}
 
-		for (final Thread thread : threads) {
-			try {
-				thread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+	/**
+	 * get the number of lines of the shortest fragment in the given bucket
+	 * 
+	 * @param bucket
+	 * @return
+	 */
+	private int getShortestLength(final Set<InstantCodeFragmentInfo> bucket) {
+		int result = Integer.MAX_VALUE;
+		for (final InstantCodeFragmentInfo fragment : bucket) {
+			result = Math.min(result,
+					fragment.getEndLine() - fragment.getStartLine());
 		}
+		return result;
+	}
+
+	private boolean isSubsumed(final CloneSet cloneSet,
+			final Map<String, List<CloneSet>> cloneSetsCategorizedByPath) {
+		final List<CloneSet> candidates = cloneSetsCategorizedByPath
+				.get(cloneSet.getFirstElement().getFilePath());
 
-		for (final CloneSetRefiningThread thread : refiningThreads) {
-			for (final long subsumedCloneSet : thread.getSubsumedCloneSets()) {
-				cloneSets.remove(subsumedCloneSet);
+		for (final CloneSet candidate : candidates) {
+			if (candidate.getId() != cloneSet.getId()
+					&& candidate.subsume(cloneSet)) {
+				return true;
 			}
 		}
 
-		return Collections.unmodifiableCollection(cloneSets.values());
+		return false;
 	}
 
 	private ConcurrentMap<Long, Set<InstantCodeFragmentInfo>> categorizeFragments(
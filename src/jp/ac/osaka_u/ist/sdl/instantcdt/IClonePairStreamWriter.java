@@ -0,0 +1,47 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * An interface of writers that receive clone pairs one by one while they
+ * are being detected, so that detected pairs need not be kept in memory
+ * <br>
+ * the methods are called by a single thread
+ * 
+ * @author k-hotta
+ * 
+ */
+public interface IClonePairStreamWriter {
+
+	/**
+	 * write the header, which is called before any clone pairs are written
+	 * 
+	 * @param files
+	 */
+	public void begin(Map<Long, InstantFileInfo> files);
+
+	/**
+	 * write a clone pair
+	 * 
+	 * @param clonePair
+	 */
+	public void write(ClonePair clonePair);
+
+	/**
+	 * write a set of fragments every two of which are a clone pair, instead
+	 * of writing the pairs one by one
+	 * 
+	 * @param cloneSet
+	 */
+	public void write(CloneSet cloneSet);
+
+	/**
+	 * write the footer and close the output
+	 * 
+	 * @throws IOException
+	 *             if an error has occurred in writing the output
+	 */
+	public void end() throws IOException;
+
+}
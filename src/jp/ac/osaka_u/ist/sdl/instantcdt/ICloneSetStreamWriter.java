@@ -0,0 +1,39 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * An interface of writers that receive clone sets one by one while they
+ * are being detected, so that detected sets need not be kept in memory
+ * <br>
+ * the methods are called by a single thread
+ * 
+ * @author k-hotta
+ * 
+ */
+public interface ICloneSetStreamWriter {
+
+	/**
+	 * write the header, which is called before any clone sets are written
+	 * 
+	 * @param files
+	 */
+	public void begin(Map<Long, InstantFileInfo> files);
+
+	/**
+	 * write a clone set
+	 * 
+	 * @param cloneSet
+	 */
+	public void write(CloneSet cloneSet);
+
+	/**
+	 * write the footer and close the output
+	 * 
+	 * @throws IOException
+	 *             if an error has occurred in writing the output
+	 */
+	public void end() throws IOException;
+
+}
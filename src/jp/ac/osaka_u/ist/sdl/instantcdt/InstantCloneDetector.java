@@ -2,15 +2,21 @@ package jp.ac.osaka_u.ist.sdl.instantcdt;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
-import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.DefaultHashCalculator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.IllegalSettingValueException;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.HashCalculatorCreator;
+import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.IHashCalculator;
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.normalizer.NormalizerCreator;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.AnalyzeGranularity;
+import jp.ac.osaka_u.ist.sdl.ectec.settings.HashFunction;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.Language;
 import jp.ac.osaka_u.ist.sdl.ectec.settings.StringNormalizeMode;
 
@@ -22,13 +28,18 @@ import org.apache.commons.cli.PosixParser;
 
 public class InstantCloneDetector {
 
+	/**
+	 * the size of the buffers for the output
+	 */
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
 	private static String inputDir;
 
 	private static String outputFile;
 
-	private static IClonePairWriter pairWriter;
+	private static IClonePairStreamWriter pairWriter;
 
-	private static ICloneSetWriter setWriter;
+	private static ICloneSetStreamWriter setWriter;
 
 	private static Language language;
 
@@ -38,12 +49,18 @@ public class InstantCloneDetector {
 
 	private static NormalizerCreator normalizerCreator;
 
+	private static IHashCalculator hashCalculator;
+
 	private static AnalyzeGranularity granularity;
 
 	private static int threadsCount;
 
 	private static boolean useFileList;
 
+	private static boolean detectTokenClones;
+
+	private static int largeBucketThreshold;
+
 	public static void main(String[] args) {
 		try {
 			final long start = System.nanoTime();
@@ -66,42 +83,56 @@ public class InstantCloneDetector {
 					+ " files have been detected");
 			System.out.println();
 
-			System.out.println("parsing each file ...");
-			final InstantCodeFragmentDetector fragmentDetector = new InstantCodeFragmentDetector(
-					new DefaultHashCalculator(), normalizerCreator,
-					tokenThreshold, granularity, threadsCount, lineThreshold);
-			fragmentDetector.analyzeFiles(paths);
-			final Map<String, List<InstantCodeFragmentInfo>> fragments = fragmentDetector
-					.getDetectedFragments();
-			final Map<Long, InstantFileInfo> files = fragmentDetector
-					.getDetectedFiles();
+			InstantCodeFragmentDetector fragmentDetector = null;
+			TokenCloneDetector tokenDetector = null;
+			Map<Long, InstantFileInfo> files = null;
+
+			if (detectTokenClones) {
+				System.out.println("lexing each file ...");
+				tokenDetector = new TokenCloneDetector(language,
+						tokenThreshold, lineThreshold, threadsCount);
+				tokenDetector.analyzeFiles(paths);
+				files = tokenDetector.getDetectedFiles();
+			} else {
+				System.out.println("parsing each file ...");
+				fragmentDetector = new InstantCodeFragmentDetector(
+						hashCalculator, normalizerCreator, tokenThreshold,
+						granularity, threadsCount, lineThreshold);
+				fragmentDetector.analyzeFiles(paths);
+				files = fragmentDetector.getDetectedFiles();
+			}
 			System.out.println();
 
+			// the results are written as soon as they are detected
 			if (pairWriter != null) {
-				System.out.println("detecting clone pairs ...");
-				final ClonePairDetector detector = new ClonePairDetector(
-						threadsCount);
-				final Collection<ClonePair> clonePairs = detector
-						.detectClonePairs(fragments);
-				System.out.println("\t" + clonePairs.size()
+				System.out.println("detecting and writing clone pairs ...");
+				pairWriter.begin(files);
+				long pairsCount = 0;
+				if (tokenDetector != null) {
+					pairsCount = tokenDetector.detectClonePairs(pairWriter);
+				} else {
+					pairsCount = new ClonePairDetector(threadsCount,
+							largeBucketThreshold).detectClonePairs(
+							fragmentDetector.getDetectedFragments(),
+							pairWriter);
+				}
+				pairWriter.end();
+				System.out.println("\t" + pairsCount
 						+ " clone pairs have been detected");
-				System.out.println();
-
-				System.out.println("writing the results ...");
-				pairWriter.write(clonePairs, files);
 				System.out.println("\tcomplete");
 			} else if (setWriter != null) {
-				System.out.println("detecting clone sets ...");
-				final CloneSetDetector detector = new CloneSetDetector(
-						threadsCount);
-				final Collection<CloneSet> cloneSets = detector
-						.detectCloneSets(fragments);
-				System.out.println("\t" + cloneSets.size()
+				System.out.println("detecting and writing clone sets ...");
+				setWriter.begin(files);
+				long setsCount = 0;
+				if (tokenDetector != null) {
+					setsCount = tokenDetector.detectCloneSets(setWriter);
+				} else {
+					setsCount = new CloneSetDetector().detectCloneSets(
+							fragmentDetector.getDetectedFragments(), setWriter);
+				}
+				setWriter.end();
+				System.out.println("\t" + setsCount
 						+ " clone sets have been detected");
-				System.out.println();
-
-				System.out.println("writing the results ...");
-				setWriter.write(cloneSets, files);
 				System.out.println("\tcomplete");
 			}
 
@@ -133,27 +164,26 @@ public class InstantCloneDetector {
 			rootDir = cmd.getOptionValue("r");
 		}
 
+		final boolean compress = cmd.hasOption("z")
+				|| outputFile.endsWith(".gz");
+
 		final String write = cmd.getOptionValue("w");
 		if (write != null) {
 			if (write.equals("pair-evaluation")) {
 				pairWriter = new ClonePairForEvaluationWriter(
-						new PrintWriter(new BufferedWriter(new FileWriter(
-								new File(outputFile)))), rootDir);
+						createPrintWriter(outputFile, compress), rootDir);
 			} else if (write.equals("pair-ccfinder")) {
-				pairWriter = new CCFinderClonePairWriter(
-						new PrintWriter(new BufferedWriter(new FileWriter(
-								new File(outputFile)))), language);
+				pairWriter = new CCFinderClonePairWriter(createPrintWriter(
+						outputFile, compress), language);
 			} else {
 				// default
-				setWriter = new CCFinderCloneSetWriter(
-						new PrintWriter(new BufferedWriter(new FileWriter(
-								new File(outputFile)))), language);
+				setWriter = new CCFinderCloneSetWriter(createPrintWriter(
+						outputFile, compress), language);
 			}
 		} else {
 			// default
-			setWriter = new CCFinderCloneSetWriter(
-					new PrintWriter(new BufferedWriter(new FileWriter(
-							new File(outputFile)))), language);
+			setWriter = new CCFinderCloneSetWriter(createPrintWriter(
+					outputFile, compress), language);
 		}
 
 		tokenThreshold = 0;
@@ -172,6 +202,16 @@ public class InstantCloneDetector {
 				: StringNormalizeMode.IDENTIFIER_NORMALIZED;
 		normalizerCreator = new NormalizerCreator(cloneHashMode);
 
+		final HashFunction hashFunction = (cmd.hasOption("hf")) ? HashFunction
+				.getCorrespondingFunction(cmd.getOptionValue("hf"))
+				: HashFunction.DEFAULT;
+		if (hashFunction == null) {
+			throw new IllegalSettingValueException("unknown hash function: "
+					+ cmd.getOptionValue("hf"));
+		}
+		hashCalculator = new HashCalculatorCreator(hashFunction)
+				.createNewCalculator();
+
 		granularity = (cmd.hasOption("g")) ? AnalyzeGranularity
 				.getCorrespondingGranularity(cmd.getOptionValue("g"))
 				: AnalyzeGranularity.ALL;
@@ -180,6 +220,32 @@ public class InstantCloneDetector {
 				.getOptionValue("th")) : 1;
 
 		useFileList = cmd.hasOption("list");
+
+		detectTokenClones = cmd.hasOption("m")
+				&& cmd.getOptionValue("m").equals("token");
+
+		largeBucketThreshold = (cmd.hasOption("lb")) ? Integer.parseInt(cmd
+				.getOptionValue("lb")) : 0;
+	}
+
+	/**
+	 * create a buffered writer to the given file
+	 * 
+	 * @param outputFile
+	 * @param compress
+	 *            whether the output is compressed with gzip
+	 * @return
+	 * @throws IOException
+	 */
+	private static PrintWriter createPrintWriter(final String outputFile,
+			final boolean compress) throws IOException {
+		OutputStream out = new FileOutputStream(new File(outputFile));
+		if (compress) {
+			out = new GZIPOutputStream(out, OUTPUT_BUFFER_SIZE);
+		}
+
+		return new PrintWriter(new BufferedWriter(new OutputStreamWriter(out),
+				OUTPUT_BUFFER_SIZE));
 	}
 
 	private static Options defineOptions() {
@@ -255,6 +321,14 @@ public class InstantCloneDetector {
 			options.addOption(ch);
 		}
 
+		{
+			final Option hf = new Option("hf", "hash-function", true,
+					"the function to calculate hash values");
+			hf.setArgs(1);
+			hf.setRequired(false);
+			options.addOption(hf);
+		}
+
 		{
 			final Option g = new Option("g", "granularity", true,
 					"granularity of the analysis");
@@ -271,6 +345,30 @@ public class InstantCloneDetector {
 			options.addOption(list);
 		}
 
+		{
+			final Option m = new Option("m", "mode", true,
+					"the unit of clones (block or token)");
+			m.setArgs(1);
+			m.setRequired(false);
+			options.addOption(m);
+		}
+
+		{
+			final Option z = new Option("z", "gzip", false,
+					"compress the output with gzip");
+			z.setArgs(0);
+			z.setRequired(false);
+			options.addOption(z);
+		}
+
+		{
+			final Option lb = new Option("lb", "large-bucket", true,
+					"the size of hash buckets reported as clone sets");
+			lb.setArgs(1);
+			lb.setRequired(false);
+			options.addOption(lb);
+		}
+
 		return options;
 	}
 
@@ -1,8 +1,7 @@
 package jp.ac.osaka_u.ist.sdl.instantcdt;
 
+import java.io.CharArrayReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -72,15 +71,14 @@ public class InstantCodeFragmentDetectingThread implements Runnable {
 			System.out.println("\t[" + (currentIndex + 1) + "/"
 					+ filePaths.length + "] analyzing " + filePath + "...");
 
-			final File file = new File(filePath);
-			FileReader reader = null;
-
 			try {
-				final CompilationUnit root = ASTCreator.createAST(file);
-
-				reader = new FileReader(file);
+				// the contents are read only once for both the parser and the
+				// lexer
+				final char[] contents = SourceFileLoader.load(new File(
+						filePath));
+				final CompilationUnit root = ASTCreator.createAST(contents);
 
-				final Lexer lexer = new JavaLexer(reader);
+				final Lexer lexer = new JavaLexer(new CharArrayReader(contents));
 				final List<Token> tokens = lexer.runLexicalAnalysis();
 
 				final InstantCodeFragmentDetectingVisitor visitor = new InstantCodeFragmentDetectingVisitor(
@@ -103,14 +101,6 @@ public class InstantCodeFragmentDetectingThread implements Runnable {
 				e.printStackTrace();
 				System.err.println("something is wrong in processing "
 						+ filePath);
-			} finally {
-				if (reader != null) {
-					try {
-						reader.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
 			}
 		}
 	}
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Set;
 
 import jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash.IHashCalculator;
@@ -35,6 +34,8 @@ public class InstantCodeFragmentDetectingVisitor extends ASTVisitor {
 
 	private final List<Token> tokens;
 
+	private final TokenIndex tokenIndex;
+
 	private final String filePath;
 
 	private final long fileId;
@@ -61,6 +62,7 @@ public class InstantCodeFragmentDetectingVisitor extends ASTVisitor {
 			final int lineThreshold) {
 		this.detectedFragments = new ArrayList<InstantCodeFragmentInfo>();
 		this.tokens = tokens;
+		this.tokenIndex = new TokenIndex(tokens);
 		this.filePath = filePath;
 		this.fileId = fileId;
 		this.hashCalculator = hashCalculator;
@@ -81,56 +83,31 @@ public class InstantCodeFragmentDetectingVisitor extends ASTVisitor {
 	}
 
 	/**
-	 * get the token that locates just after the given position
+	 * get the index of the token that locates just after the given position
 	 * 
 	 * @param position
-	 * @return
+	 * @return the index, or -1 if no token has been found
 	 */
-	private final Token getHeadToken(final int position) {
+	private final int getHeadIndex(final int position) {
 		final int startLine = root.getLineNumber(position);
 		// + 1 is needed to fix mismatch between positions of ast and java lexer
 		final int startColumn = root.getColumnNumber(position) + 1;
 
-		for (final Token token : tokens) {
-			if (token.getLine() > startLine) {
-				return token;
-			}
-
-			if (token.getLine() == startLine
-					&& token.getColumn() >= startColumn) {
-				return token;
-			}
-		}
-
-		return null; // no token has been found
+		return tokenIndex.getHeadIndex(startLine, startColumn);
 	}
 
 	/**
-	 * get the token that locates just before the given position
+	 * get the index of the token that locates just before the given position
 	 * 
 	 * @param position
-	 * @return
+	 * @return the index, or -1 if no token has been found
 	 */
-	private final Token getTailToken(final int position) {
+	private final int getTailIndex(final int position) {
 		final int endLine = root.getLineNumber(position);
 		// + 1 is needed to fix mismatch between positions of ast and java lexer
 		final int endColumn = root.getColumnNumber(position) + 1;
 
-		int size = tokens.size();
-		ListIterator<Token> iter = tokens.listIterator(size);
-		while (iter.hasPrevious()) {
-			final Token token = iter.previous();
-
-			if (token.getLine() < endLine) {
-				return token;
-			}
-
-			if (token.getLine() == endLine && token.getColumn() <= endColumn) {
-				return token;
-			}
-		}
-
-		return null; // no token has been found
+		return tokenIndex.getTailIndex(endLine, endColumn);
 	}
 
 	@Override
@@ -164,24 +141,25 @@ public class InstantCodeFragmentDetectingVisitor extends ASTVisitor {
 	 * @return
 	 */
 	private InstantCodeFragmentInfo createFragmentInstance(final ASTNode node) {
-		final Token headToken = getHeadToken(node.getStartPosition());
-		final Token tailToken = getTailToken(node.getStartPosition()
+		final int headIndex = getHeadIndex(node.getStartPosition());
+		final int tailIndex = getTailIndex(node.getStartPosition()
 				+ node.getLength());
 
-		if (headToken == null || tailToken == null) {
+		if (headIndex < 0 || tailIndex < 0) {
 			System.err.println("cannot find corresponding token to "
 					+ node.getClass().getName() + " in position "
 					+ node.getStartPosition() + " of " + filePath);
 			return null;
 		}
 
-		final int size = tokens.indexOf(tailToken) - tokens.indexOf(headToken)
-				+ 1;
+		final int size = tailIndex - headIndex + 1;
 
 		if (size < tokenThreshold) {
 			return null;
 		}
 
+		final Token headToken = tokens.get(headIndex);
+		final Token tailToken = tokens.get(tailIndex);
 		final int lines = tailToken.getLine() - headToken.getLine() + 1;
 		if (lines < lineThreshold) {
 			return null;
@@ -279,26 +257,27 @@ public class InstantCodeFragmentDetectingVisitor extends ASTVisitor {
 			return true;
 		}
 
-		final Token headToken = getHeadToken(node.getStartPosition());
-//		final Token tailToken = getTailToken(node
+		final int headIndex = getHeadIndex(node.getStartPosition());
+//		final int tailIndex = getTailIndex(node
 //				.getStartPosition() + node.getThenStatement().getLength());
-		final Token tailToken = getTailToken(node.getThenStatement()
+		final int tailIndex = getTailIndex(node.getThenStatement()
 				.getStartPosition() + node.getThenStatement().getLength());
 
-		if (headToken == null || tailToken == null) {
+		if (headIndex < 0 || tailIndex < 0) {
 			System.err.println("cannot find corresponding token to "
 					+ node.getClass().getName() + " in position "
 					+ node.getStartPosition() + " of " + filePath);
 			return true;
 		}
 
-		final int size = tokens.indexOf(tailToken) - tokens.indexOf(headToken)
-				+ 1;
+		final int size = tailIndex - headIndex + 1;
 
 		if (size < tokenThreshold) {
 			return true;
 		}
 
+		final Token headToken = tokens.get(headIndex);
+		final Token tailToken = tokens.get(tailIndex);
 		final int lines = tailToken.getLine() - headToken.getLine() + 1;
 		if (lines < lineThreshold) {
 			return true;
@@ -347,26 +326,27 @@ public class InstantCodeFragmentDetectingVisitor extends ASTVisitor {
 			return true;
 		}
 
-		final Token headToken = getHeadToken(node.getStartPosition());
-//		final Token tailToken = getTailToken(node.getStartPosition()
+		final int headIndex = getHeadIndex(node.getStartPosition());
+//		final int tailIndex = getTailIndex(node.getStartPosition()
 //				+ node.getBody().getLength());
-		final Token tailToken = getTailToken(node.getBody().getStartPosition()
+		final int tailIndex = getTailIndex(node.getBody().getStartPosition()
 				+ node.getBody().getLength());
 
-		if (headToken == null || tailToken == null) {
+		if (headIndex < 0 || tailIndex < 0) {
 			System.err.println("cannot find corresponding token to "
 					+ node.getClass().getName() + " in position "
 					+ node.getStartPosition() + " of " + filePath);
 			return true;
 		}
 
-		final int size = tokens.indexOf(tailToken) - tokens.indexOf(headToken)
-				+ 1;
+		final int size = tailIndex - headIndex + 1;
 
 		if (size < tokenThreshold) {
 			return true;
 		}
 
+		final Token headToken = tokens.get(headIndex);
+		final Token tailToken = tokens.get(tailIndex);
 		final int lines = tailToken.getLine() - headToken.getLine() + 1;
 		if (lines < lineThreshold) {
 			return true;
@@ -0,0 +1,150 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A class to load the contents of source files into char arrays <br>
+ * each file is read only once, and the loaded array is shared by the parser
+ * and the lexer <br>
+ * large files are memory-mapped, so that the page cache of the OS is used
+ * directly on re-runs <br>
+ * the charset of a file is detected with its byte order mark, and a file
+ * without a byte order mark is decoded as UTF-8 if it is valid in UTF-8, or
+ * with the default charset otherwise
+ * 
+ * @author k-hotta
+ * 
+ */
+public class SourceFileLoader {
+
+	/**
+	 * files larger than this size are memory-mapped
+	 */
+	private static final long MAPPING_THRESHOLD = 64 * 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final Charset UTF16BE = Charset.forName("UTF-16BE");
+
+	private static final Charset UTF16LE = Charset.forName("UTF-16LE");
+
+	/**
+	 * load the contents of the given file
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static char[] load(final File file) throws IOException {
+		FileInputStream in = null;
+
+		try {
+			in = new FileInputStream(file);
+			final FileChannel channel = in.getChannel();
+			final long size = channel.size();
+
+			ByteBuffer bytes = null;
+			if (size > MAPPING_THRESHOLD) {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				bytes = ByteBuffer.allocate((int) size);
+				while (bytes.hasRemaining()) {
+					if (channel.read(bytes) < 0) {
+						break;
+					}
+				}
+				bytes.flip();
+			}
+
+			return decode(bytes);
+
+		} finally {
+			if (in != null) {
+				in.close();
+			}
+		}
+	}
+
+	private static char[] decode(final ByteBuffer bytes)
+			throws CharacterCodingException {
+		final Charset charset = detectCharset(bytes);
+		if (charset != null) {
+			return toArray(newDecoder(charset, CodingErrorAction.REPLACE)
+					.decode(bytes));
+		}
+
+		try {
+			return toArray(newDecoder(UTF8, CodingErrorAction.REPORT).decode(
+					bytes));
+		} catch (CharacterCodingException e) {
+			// as well as FileReader, malformed bytes are replaced
+			bytes.rewind();
+			return toArray(newDecoder(Charset.defaultCharset(),
+					CodingErrorAction.REPLACE).decode(bytes));
+		}
+	}
+
+	/**
+	 * detect the charset with the byte order mark and skip it
+	 * 
+	 * @param bytes
+	 * @return the charset, or null if there is no byte order mark
+	 */
+	private static Charset detectCharset(final ByteBuffer bytes) {
+		if (bytes.remaining() >= 3 && (bytes.get(0) & 0xff) == 0xef
+				&& (bytes.get(1) & 0xff) == 0xbb
+				&& (bytes.get(2) & 0xff) == 0xbf) {
+			bytes.position(3);
+			return UTF8;
+		}
+
+		if (bytes.remaining() >= 2) {
+			final int first = bytes.get(0) & 0xff;
+			final int second = bytes.get(1) & 0xff;
+			if (first == 0xfe && second == 0xff) {
+				bytes.position(2);
+				return UTF16BE;
+			}
+			if (first == 0xff && second == 0xfe) {
+				bytes.position(2);
+				return UTF16LE;
+			}
+		}
+
+		return null;
+	}
+
+	private static CharsetDecoder newDecoder(final Charset charset,
+			final CodingErrorAction action) {
+		return charset.newDecoder().onMalformedInput(action)
+				.onUnmappableCharacter(action);
+	}
+
+	/**
+	 * get the array of the given buffer without copying it if possible
+	 * 
+	 * @param chars
+	 * @return
+	 */
+	private static char[] toArray(final CharBuffer chars) {
+		final char[] array = chars.array();
+		if (chars.arrayOffset() == 0 && chars.position() == 0
+				&& chars.limit() == array.length) {
+			return array;
+		}
+
+		final char[] result = new char[chars.remaining()];
+		chars.get(result);
+		return result;
+	}
+
+}
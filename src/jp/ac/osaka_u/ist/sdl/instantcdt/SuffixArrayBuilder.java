@@ -0,0 +1,412 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class to build the suffix array and the lcp array of a sequence of
+ * token ids with multi threads <br>
+ * the suffixes are sorted with prefix doubling, in which the groups of
+ * suffixes that have the same prefix are sorted independently of each other
+ * by the threads <br>
+ * the last element of the sequence must be unique in the sequence
+ * 
+ * @author k-hotta
+ * 
+ */
+public class SuffixArrayBuilder {
+
+	/**
+	 * the number of groups or positions that a thread takes at a time
+	 */
+	private static final int CHUNK_SIZE = 256;
+
+	private final int threadsCount;
+
+	private int[] suffixArray;
+
+	private int[] lcpArray;
+
+	public SuffixArrayBuilder(final int threadsCount) {
+		this.threadsCount = threadsCount;
+	}
+
+	/**
+	 * get the suffix array
+	 * 
+	 * @return
+	 */
+	public final int[] getSuffixArray() {
+		return suffixArray;
+	}
+
+	/**
+	 * get the lcp array, whose i-th element is the length of the longest
+	 * common prefix between the (i-1)-th and the i-th suffixes in the suffix
+	 * array <br>
+	 * the first element is always zero
+	 * 
+	 * @return
+	 */
+	public final int[] getLcpArray() {
+		return lcpArray;
+	}
+
+	/**
+	 * build the suffix array and the lcp array of the given sequence
+	 * 
+	 * @param sequence
+	 * @param alphabetSize
+	 *            every element of the sequence must be in [0, alphabetSize)
+	 */
+	public void build(final int[] sequence, final int alphabetSize) {
+		final int length = sequence.length;
+		final int[] sa = new int[length];
+
+		// the rank of a suffix is the head of the group in the suffix array
+		// that the suffix belongs to
+		final int[] rank = new int[length];
+
+		long[] groups = sortByFirstElements(sequence, alphabetSize, sa, rank);
+
+		final long[] keys = new long[length];
+		int offset = 1;
+		while (groups.length > 0) {
+			final AtomicInteger index = new AtomicInteger(0);
+
+			final Thread[] sortingThreads = new Thread[threadsCount];
+			for (int i = 0; i < threadsCount; i++) {
+				sortingThreads[i] = new Thread(new GroupSortingThread(index,
+						groups, sa, rank, keys, offset));
+				sortingThreads[i].start();
+			}
+			join(sortingThreads);
+
+			// ranks must not be updated until all the groups have been sorted
+			index.set(0);
+			final GroupSplittingThread[] splittingThreads = new GroupSplittingThread[threadsCount];
+			final Thread[] threads = new Thread[threadsCount];
+			for (int i = 0; i < threadsCount; i++) {
+				splittingThreads[i] = new GroupSplittingThread(index, groups,
+						sa, rank, keys);
+				threads[i] = new Thread(splittingThreads[i]);
+				threads[i].start();
+			}
+			join(threads);
+
+			groups = mergeGroups(splittingThreads);
+			offset *= 2;
+		}
+
+		// every group has only one suffix, so the ranks are the inverse of the
+		// suffix array
+		this.suffixArray = sa;
+		this.lcpArray = calcLcpArray(sequence, sa, rank);
+	}
+
+	/**
+	 * sort the suffixes with their first elements by counting sort
+	 * 
+	 * @return the groups having two or more suffixes
+	 */
+	private long[] sortByFirstElements(final int[] sequence,
+			final int alphabetSize, final int[] sa, final int[] rank) {
+		final int[] heads = new int[alphabetSize + 1];
+		for (final int element : sequence) {
+			heads[element + 1]++;
+		}
+
+		int groupsCount = 0;
+		for (int i = 0; i < alphabetSize; i++) {
+			if (heads[i + 1] > 1) {
+				groupsCount++;
+			}
+			heads[i + 1] += heads[i];
+		}
+
+		final long[] groups = new long[groupsCount];
+		int groupIndex = 0;
+		for (int i = 0; i < alphabetSize; i++) {
+			if (heads[i + 1] - heads[i] > 1) {
+				groups[groupIndex++] = toGroup(heads[i], heads[i + 1]);
+			}
+		}
+
+		final int[] positions = heads.clone();
+		for (int i = 0; i < sequence.length; i++) {
+			sa[positions[sequence[i]]++] = i;
+			rank[i] = heads[sequence[i]];
+		}
+
+		return groups;
+	}
+
+	private long[] mergeGroups(final GroupSplittingThread[] threads) {
+		int count = 0;
+		for (final GroupSplittingThread thread : threads) {
+			count += thread.getNextGroupsCount();
+		}
+
+		final long[] result = new long[count];
+		int position = 0;
+		for (final GroupSplittingThread thread : threads) {
+			System.arraycopy(thread.getNextGroups(), 0, result, position,
+					thread.getNextGroupsCount());
+			position += thread.getNextGroupsCount();
+		}
+		return result;
+	}
+
+	/**
+	 * calculate the lcp array with Kasai's algorithm <br>
+	 * the positions in the sequence are split into chunks, each of which is
+	 * processed by a thread from scratch
+	 */
+	private int[] calcLcpArray(final int[] sequence, final int[] sa,
+			final int[] rank) {
+		final int[] lcp = new int[sequence.length];
+		final AtomicInteger index = new AtomicInteger(0);
+
+		final Thread[] threads = new Thread[threadsCount];
+		for (int i = 0; i < threadsCount; i++) {
+			threads[i] = new Thread(new LcpCalculatingThread(index, sequence,
+					sa, rank, lcp));
+			threads[i].start();
+		}
+		join(threads);
+
+		return lcp;
+	}
+
+	private void join(final Thread[] threads) {
+		for (final Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * a group [start, end) of the suffix array is represented as a long value
+	 */
+	private static long toGroup(final int start, final int end) {
+		return ((long) start << 32) | end;
+	}
+
+	private static int getStart(final long group) {
+		return (int) (group >>> 32);
+	}
+
+	private static int getEnd(final long group) {
+		return (int) group;
+	}
+
+	/**
+	 * a thread class that sorts the suffixes in each group with the ranks of
+	 * the suffixes starting at the given offset after them
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private static class GroupSortingThread implements Runnable {
+
+		private final AtomicInteger index;
+
+		private final long[] groups;
+
+		private final int[] sa;
+
+		private final int[] rank;
+
+		private final long[] keys;
+
+		private final int offset;
+
+		private GroupSortingThread(final AtomicInteger index,
+				final long[] groups, final int[] sa, final int[] rank,
+				final long[] keys, final int offset) {
+			this.index = index;
+			this.groups = groups;
+			this.sa = sa;
+			this.rank = rank;
+			this.keys = keys;
+			this.offset = offset;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final int first = index.getAndAdd(CHUNK_SIZE);
+				if (first >= groups.length) {
+					break;
+				}
+
+				final int last = Math.min(first + CHUNK_SIZE, groups.length);
+				for (int i = first; i < last; i++) {
+					final int start = getStart(groups[i]);
+					final int end = getEnd(groups[i]);
+
+					// the suffixes in a group share a prefix without the
+					// unique last element, so that the offset never exceeds
+					// the sequence
+					for (int j = start; j < end; j++) {
+						keys[j] = ((long) rank[sa[j] + offset] << 32) | sa[j];
+					}
+					Arrays.sort(keys, start, end);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * a thread class that splits the sorted groups and updates the ranks
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private static class GroupSplittingThread implements Runnable {
+
+		private final AtomicInteger index;
+
+		private final long[] groups;
+
+		private final int[] sa;
+
+		private final int[] rank;
+
+		private final long[] keys;
+
+		private long[] nextGroups;
+
+		private int nextGroupsCount;
+
+		private GroupSplittingThread(final AtomicInteger index,
+				final long[] groups, final int[] sa, final int[] rank,
+				final long[] keys) {
+			this.index = index;
+			this.groups = groups;
+			this.sa = sa;
+			this.rank = rank;
+			this.keys = keys;
+			this.nextGroups = new long[16];
+			this.nextGroupsCount = 0;
+		}
+
+		public final long[] getNextGroups() {
+			return nextGroups;
+		}
+
+		public final int getNextGroupsCount() {
+			return nextGroupsCount;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final int first = index.getAndAdd(CHUNK_SIZE);
+				if (first >= groups.length) {
+					break;
+				}
+
+				final int last = Math.min(first + CHUNK_SIZE, groups.length);
+				for (int i = first; i < last; i++) {
+					split(getStart(groups[i]), getEnd(groups[i]));
+				}
+			}
+		}
+
+		private void split(final int start, final int end) {
+			int head = start;
+			for (int j = start; j < end; j++) {
+				sa[j] = (int) keys[j];
+				if (j > start && (keys[j] >>> 32) != (keys[j - 1] >>> 32)) {
+					addGroup(head, j);
+					head = j;
+				}
+				rank[sa[j]] = head;
+			}
+			addGroup(head, end);
+		}
+
+		private void addGroup(final int start, final int end) {
+			if (end - start < 2) {
+				return;
+			}
+
+			if (nextGroupsCount == nextGroups.length) {
+				nextGroups = Arrays.copyOf(nextGroups, nextGroups.length * 2);
+			}
+			nextGroups[nextGroupsCount++] = toGroup(start, end);
+		}
+
+	}
+
+	/**
+	 * a thread class that calculates the lcp values of the suffixes starting
+	 * at a chunk of positions
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private static class LcpCalculatingThread implements Runnable {
+
+		private final AtomicInteger index;
+
+		private final int[] sequence;
+
+		private final int[] sa;
+
+		private final int[] rank;
+
+		private final int[] lcp;
+
+		private LcpCalculatingThread(final AtomicInteger index,
+				final int[] sequence, final int[] sa, final int[] rank,
+				final int[] lcp) {
+			this.index = index;
+			this.sequence = sequence;
+			this.sa = sa;
+			this.rank = rank;
+			this.lcp = lcp;
+		}
+
+		@Override
+		public void run() {
+			final int length = sequence.length;
+			final int chunkSize = CHUNK_SIZE * 64;
+
+			while (true) {
+				final int first = index.getAndAdd(chunkSize);
+				if (first >= length) {
+					break;
+				}
+
+				final int last = Math.min(first + chunkSize, length);
+				int common = 0;
+				for (int i = first; i < last; i++) {
+					final int r = rank[i];
+					if (r == 0) {
+						common = 0;
+						continue;
+					}
+
+					final int j = sa[r - 1];
+					while (i + common < length && j + common < length
+							&& sequence[i + common] == sequence[j + common]) {
+						common++;
+					}
+					lcp[r] = common;
+
+					if (common > 0) {
+						common--;
+					}
+				}
+			}
+		}
+
+	}
+
+}
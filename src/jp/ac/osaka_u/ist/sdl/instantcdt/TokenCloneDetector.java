@@ -0,0 +1,380 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.ac.osaka_u.ist.sdl.ectec.settings.Language;
+
+/**
+ * A class to detect clones as sequences of tokens in the way of CCFinder <br>
+ * the tokens of all the files are normalized into a sequence of ids, in
+ * which identifiers and literals of the same kind have the same id and each
+ * file ends with a unique separator <br>
+ * every maximal repeat in the sequence whose length is not less than the
+ * threshold is found as a lcp interval in the suffix array
+ * 
+ * @author k-hotta
+ * 
+ */
+public class TokenCloneDetector {
+
+	/**
+	 * the number of kinds of tokens <br>
+	 * the id of a token is the ordinal of its symbol, and the ids of the
+	 * separators follow it
+	 */
+	private static final int SYMBOLS_COUNT = Symbol.values().length;
+
+	private final Language language;
+
+	private final int tokenThreshold;
+
+	private final int lineThreshold;
+
+	private final int threadsCount;
+
+	private final Map<Long, InstantFileInfo> files;
+
+	private String[] filePaths;
+
+	/**
+	 * the normalized ids of all the tokens
+	 */
+	private int[] sequence;
+
+	private int[] lines;
+
+	private int[] columns;
+
+	/**
+	 * the positions of the separators, that is, the ends of the files
+	 */
+	private int[] separators;
+
+	private int[] suffixArray;
+
+	private int[] lcpArray;
+
+	public TokenCloneDetector(final Language language,
+			final int tokenThreshold, final int lineThreshold,
+			final int threadsCount) {
+		this.language = language;
+		this.tokenThreshold = Math.max(tokenThreshold, 1);
+		this.lineThreshold = lineThreshold;
+		this.threadsCount = threadsCount;
+		this.files = new TreeMap<Long, InstantFileInfo>();
+	}
+
+	public final Map<Long, InstantFileInfo> getDetectedFiles() {
+		return Collections.unmodifiableMap(files);
+	}
+
+	/**
+	 * run lexical analysis on the given files and build the suffix array of
+	 * their tokens
+	 * 
+	 * @param paths
+	 */
+	public void analyzeFiles(final Collection<String> paths) {
+		this.filePaths = paths.toArray(new String[0]);
+
+		final ConcurrentMap<Integer, List<Token>> tokens = new ConcurrentHashMap<Integer, List<Token>>();
+		final AtomicInteger index = new AtomicInteger(0);
+
+		final Thread[] threads = new Thread[threadsCount];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new TokenLexingThread(filePaths, tokens,
+					index, language));
+			threads[i].start();
+		}
+
+		for (final Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+
+		createSequence(tokens);
+		tokens.clear();
+
+		System.out.println();
+		System.out.println("building the suffix array of " + sequence.length
+				+ " tokens ...");
+		final SuffixArrayBuilder builder = new SuffixArrayBuilder(
+				threadsCount);
+		builder.build(sequence, SYMBOLS_COUNT + filePaths.length);
+		this.suffixArray = builder.getSuffixArray();
+		this.lcpArray = builder.getLcpArray();
+	}
+
+	private void createSequence(final Map<Integer, List<Token>> tokens) {
+		int length = filePaths.length;
+		for (final List<Token> tokensInFile : tokens.values()) {
+			length += tokensInFile.size();
+		}
+
+		this.sequence = new int[length];
+		this.lines = new int[length];
+		this.columns = new int[length];
+		this.separators = new int[filePaths.length];
+
+		int position = 0;
+		for (int fileId = 0; fileId < filePaths.length; fileId++) {
+			final List<Token> tokensInFile = tokens.get(fileId);
+
+			if (tokensInFile != null) {
+				for (final Token token : tokensInFile) {
+					sequence[position] = token.getSymbol().ordinal();
+					lines[position] = token.getLine();
+					columns[position] = token.getColumn();
+					position++;
+				}
+
+				final int lineCount = tokensInFile.isEmpty() ? 0
+						: tokensInFile.get(tokensInFile.size() - 1).getLine();
+				files.put((long) fileId, new InstantFileInfo(fileId,
+						filePaths[fileId], tokensInFile.size(), lineCount));
+			}
+
+			sequence[position] = SYMBOLS_COUNT + fileId;
+			separators[fileId] = position;
+			position++;
+		}
+	}
+
+	/**
+	 * detect clone pairs <br>
+	 * a pair is reported only if it can be extended neither forward nor
+	 * backward <br>
+	 * the pairs are passed to the given writer as soon as they are detected
+	 * 
+	 * @param writer
+	 * @return the number of the detected pairs
+	 */
+	public long detectClonePairs(final IClonePairStreamWriter writer) {
+		final long[] count = new long[1];
+		final IntervalVisitor visitor = new IntervalVisitor() {
+			@Override
+			public void visit(final int start, final int end,
+					final int length) {
+				count[0] += detectClonePairs(start, end, length, writer);
+			}
+		};
+		traverseIntervals(visitor);
+
+		return count[0];
+	}
+
+	/**
+	 * detect clone sets <br>
+	 * each clone set is the occurrences of a maximal repeat <br>
+	 * the sets are passed to the given writer as soon as they are detected
+	 * 
+	 * @param writer
+	 * @return the number of the detected sets
+	 */
+	public long detectCloneSets(final ICloneSetStreamWriter writer) {
+		final long[] count = new long[1];
+		final IntervalVisitor visitor = new IntervalVisitor() {
+			@Override
+			public void visit(final int start, final int end,
+					final int length) {
+				final CloneSet cloneSet = detectCloneSet(start, end, length);
+				if (cloneSet != null) {
+					writer.write(cloneSet);
+					count[0]++;
+				}
+			}
+		};
+		traverseIntervals(visitor);
+
+		return count[0];
+	}
+
+	/**
+	 * traverse the lcp intervals whose lcp values are not less than the
+	 * threshold and whose suffixes are preceded by different tokens
+	 * 
+	 * @param visitor
+	 */
+	private void traverseIntervals(final IntervalVisitor visitor) {
+		final int length = suffixArray.length;
+
+		// the lcp values and the left bounds of the open intervals
+		int[] stackLcps = new int[64];
+		int[] stackStarts = new int[64];
+		int top = 0;
+		stackLcps[0] = 0;
+		stackStarts[0] = 0;
+
+		for (int i = 1; i <= length; i++) {
+			final int lcp = (i < length) ? lcpArray[i] : 0;
+			int start = i - 1;
+
+			while (lcp < stackLcps[top]) {
+				start = stackStarts[top];
+				if (stackLcps[top] >= tokenThreshold
+						&& isLeftDiverse(start, i)) {
+					visitor.visit(start, i, stackLcps[top]);
+				}
+				top--;
+			}
+
+			if (lcp > stackLcps[top]) {
+				top++;
+				if (top == stackLcps.length) {
+					stackLcps = Arrays.copyOf(stackLcps, top * 2);
+					stackStarts = Arrays.copyOf(stackStarts, top * 2);
+				}
+				stackLcps[top] = lcp;
+				stackStarts[top] = start;
+			}
+		}
+	}
+
+	/**
+	 * check whether the suffixes in the given interval are not preceded by
+	 * the same token, that is, the repeat cannot be extended backward
+	 */
+	private boolean isLeftDiverse(final int start, final int end) {
+		final int first = getPrecedingToken(suffixArray[start]);
+		for (int i = start + 1; i < end; i++) {
+			if (getPrecedingToken(suffixArray[i]) != first) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * get the id of the token preceding the given position <br>
+	 * the beginning of a file gives a unique value
+	 */
+	private int getPrecedingToken(final int position) {
+		if (position == 0 || sequence[position - 1] >= SYMBOLS_COUNT) {
+			return -1 - position;
+		}
+		return sequence[position - 1];
+	}
+
+	private long detectClonePairs(final int start, final int end,
+			final int length, final IClonePairStreamWriter writer) {
+		// a pair in the same child interval shares a longer prefix, so that
+		// it is reported in the child
+		final int[] children = new int[end - start];
+		for (int i = start + 1; i < end; i++) {
+			children[i - start] = children[i - start - 1]
+					+ ((lcpArray[i] == length) ? 1 : 0);
+		}
+
+		final InstantCodeFragmentInfo[] fragments = new InstantCodeFragmentInfo[end
+				- start];
+		for (int i = start; i < end; i++) {
+			fragments[i - start] = createFragment(suffixArray[i], length,
+					start);
+		}
+
+		long count = 0;
+		for (int i = start; i < end; i++) {
+			if (fragments[i - start] == null) {
+				continue;
+			}
+
+			for (int j = i + 1; j < end; j++) {
+				if (fragments[j - start] == null
+						|| children[i - start] == children[j - start]
+						|| getPrecedingToken(suffixArray[i]) == getPrecedingToken(suffixArray[j])
+						|| Math.abs(suffixArray[i] - suffixArray[j]) < length) {
+					continue;
+				}
+				writer.write(new ClonePair(fragments[i - start],
+						fragments[j - start]));
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private CloneSet detectCloneSet(final int start, final int end,
+			final int length) {
+		final int[] positions = Arrays.copyOfRange(suffixArray, start, end);
+		Arrays.sort(positions);
+
+		final List<InstantCodeFragmentInfo> elements = new ArrayList<InstantCodeFragmentInfo>();
+		int lastEnd = -1;
+		for (final int position : positions) {
+			// an occurrence overlapping the previous one is ignored
+			if (position < lastEnd) {
+				continue;
+			}
+
+			final InstantCodeFragmentInfo fragment = createFragment(position,
+					length, start);
+			if (fragment != null) {
+				elements.add(fragment);
+				lastEnd = position + length;
+			}
+		}
+
+		if (elements.size() < 2) {
+			return null;
+		}
+		return new CloneSet(elements);
+	}
+
+	/**
+	 * create a fragment of the tokens starting at the given position <br>
+	 * the head of the lcp interval is used as the hash value, because all the
+	 * fragments in an interval have the same sequence of tokens
+	 * 
+	 * @return the fragment, or null if it is shorter than the line threshold
+	 */
+	private InstantCodeFragmentInfo createFragment(final int position,
+			final int length, final int intervalStart) {
+		final int last = position + length - 1;
+		if (lines[last] - lines[position] + 1 < lineThreshold) {
+			return null;
+		}
+
+		final int fileId = getFileId(position);
+		return new InstantCodeFragmentInfo(filePaths[fileId], fileId,
+				lines[position], columns[position], lines[last],
+				columns[last], intervalStart, length);
+	}
+
+	/**
+	 * get the id of the file that has the given position <br>
+	 * the id is the index of the first separator after the position
+	 */
+	private int getFileId(final int position) {
+		return -Arrays.binarySearch(separators, position) - 1;
+	}
+
+	/**
+	 * a visitor of lcp intervals
+	 * 
+	 * @author k-hotta
+	 * 
+	 */
+	private interface IntervalVisitor {
+
+		/**
+		 * visit the interval [start, end) of the suffix array whose suffixes
+		 * share the given number of tokens
+		 */
+		public void visit(final int start, final int end, final int length);
+
+	}
+
+}
@@ -0,0 +1,117 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.util.List;
+
+/**
+ * A class to find tokens in a file with their locations <br>
+ * it has the index of the first token in each line and the columns of all
+ * the tokens, so that a token is found by a binary search in its line
+ * 
+ * @author k-hotta
+ * 
+ */
+public class TokenIndex {
+
+	/**
+	 * the columns of the tokens
+	 */
+	private final int[] columns;
+
+	/**
+	 * the index of the first token whose line is not less than each line
+	 * <br>
+	 * the last element is the number of the tokens
+	 */
+	private final int[] lineStarts;
+
+	public TokenIndex(final List<Token> tokens) {
+		final int size = tokens.size();
+		final int lastLine = (size == 0) ? 0 : tokens.get(size - 1).getLine();
+
+		this.columns = new int[size];
+		this.lineStarts = new int[lastLine + 2];
+
+		int line = 0;
+		for (int i = 0; i < size; i++) {
+			final Token token = tokens.get(i);
+			columns[i] = token.getColumn();
+			while (line <= token.getLine()) {
+				lineStarts[line++] = i;
+			}
+		}
+		while (line < lineStarts.length) {
+			lineStarts[line++] = size;
+		}
+	}
+
+	/**
+	 * get the index of the first token that locates at or after the given
+	 * location
+	 * 
+	 * @param line
+	 * @param column
+	 * @return the index, or -1 if no token has been found
+	 */
+	public int getHeadIndex(final int line, final int column) {
+		if (line < 0) {
+			return (columns.length > 0) ? 0 : -1;
+		}
+		if (line >= lineStarts.length - 1) {
+			return -1;
+		}
+
+		final int start = lineStarts[line];
+		final int end = lineStarts[line + 1];
+
+		// the first token in the line whose column is not less than the given
+		// one, or the first token in the following lines
+		int low = start;
+		int high = end;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (columns[middle] >= column) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+
+		return (low < columns.length) ? low : -1;
+	}
+
+	/**
+	 * get the index of the last token that locates at or before the given
+	 * location
+	 * 
+	 * @param line
+	 * @param column
+	 * @return the index, or -1 if no token has been found
+	 */
+	public int getTailIndex(final int line, final int column) {
+		if (line < 0) {
+			return -1;
+		}
+		if (line >= lineStarts.length - 1) {
+			return columns.length - 1;
+		}
+
+		final int start = lineStarts[line];
+		final int end = lineStarts[line + 1];
+
+		// the last token in the line whose column is not greater than the
+		// given one, or the last token in the preceding lines
+		int low = start;
+		int high = end;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (columns[middle] <= column) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low - 1;
+	}
+
+}
@@ -0,0 +1,74 @@
+package jp.ac.osaka_u.ist.sdl.instantcdt;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.ac.osaka_u.ist.sdl.ectec.settings.Language;
+
+/**
+ * A thread class that runs lexical analysis on files
+ * 
+ * @author k-hotta
+ * 
+ */
+public class TokenLexingThread implements Runnable {
+
+	private final String[] filePaths;
+
+	private final ConcurrentMap<Integer, List<Token>> tokens;
+
+	private final AtomicInteger index;
+
+	private final Language language;
+
+	public TokenLexingThread(final String[] filePaths,
+			final ConcurrentMap<Integer, List<Token>> tokens,
+			final AtomicInteger index, final Language language) {
+		this.filePaths = filePaths;
+		this.tokens = tokens;
+		this.index = index;
+		this.language = language;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			final int currentIndex = index.getAndIncrement();
+
+			if (currentIndex >= filePaths.length) {
+				break;
+			}
+
+			final String filePath = filePaths[currentIndex];
+			System.out.println("\t[" + (currentIndex + 1) + "/"
+					+ filePaths.length + "] lexing " + filePath + "...");
+
+			try {
+				final char[] contents = SourceFileLoader.load(new File(
+						filePath));
+
+				final Lexer lexer = language.createLexer(new CharArrayReader(
+						contents));
+				if (lexer == null) {
+					System.err.println("no lexer is available for "
+							+ filePath);
+					continue;
+				}
+
+				final List<Token> result = lexer.runLexicalAnalysis();
+				if (result != null) {
+					tokens.put(currentIndex, result);
+				}
+
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.err.println("something is wrong in processing "
+						+ filePath);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.clonedetector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.CodeFragmentStore;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCloneSetInfo;
+import jp.ac.osaka_u.ist.sdl.ectec.db.data.DBCodeFragmentInfo;
+
+import org.junit.Test;
+
+/**
+ * compares the clone sets detected by FragmentComparator with the ones
+ * detected by the former algorithm that compared every pair of groups
+ *
+ * @author k-hotta
+ *
+ */
+public class FragmentComparatorTest {
+
+	private static final int SIZE_THRESHOLD = 8;
+
+	@Test
+	public void testWithCrossProjectClones() {
+		for (int seed = 0; seed < 50; seed++) {
+			final CodeFragmentStore codeFragments = createFragments(seed);
+			assertEquals(detectWithPairwiseComparison(codeFragments, false),
+					detect(codeFragments, false));
+		}
+	}
+
+	@Test
+	public void testWithoutCrossProjectClones() {
+		for (int seed = 0; seed < 50; seed++) {
+			final CodeFragmentStore codeFragments = createFragments(seed);
+			assertEquals(detectWithPairwiseComparison(codeFragments, true),
+					detect(codeFragments, true));
+		}
+	}
+
+	@Test
+	public void testMutualSubsumption() {
+		final List<DBCodeFragmentInfo> fragments = new ArrayList<DBCodeFragmentInfo>();
+		// two groups having fragments at the same locations
+		fragments.add(createFragment(1, 1, 1, 2, 10, 20));
+		fragments.add(createFragment(2, 1, 2, 2, 10, 20));
+		fragments.add(createFragment(4, 1, 1, 1, 10, 20));
+		fragments.add(createFragment(5, 1, 2, 1, 10, 20));
+		final CodeFragmentStore codeFragments = CodeFragmentStore
+				.of(fragments);
+
+		// only the group having the smaller hash value survives
+		final Set<List<Long>> result = detect(codeFragments, false);
+		assertEquals(1, result.size());
+		assertEquals(Arrays.asList(4L, 5L), result.iterator().next());
+		assertEquals(detectWithPairwiseComparison(codeFragments, false),
+				result);
+	}
+
+	private Set<List<Long>> detect(final CodeFragmentStore codeFragments,
+			final boolean separateRepositories) {
+		final Set<List<Long>> result = new HashSet<List<Long>>();
+		for (final DBCloneSetInfo cloneSet : new FragmentComparator(0,
+				SIZE_THRESHOLD).detectClones(codeFragments,
+				separateRepositories).values()) {
+			result.add(new ArrayList<Long>(cloneSet.getElements()));
+		}
+		return result;
+	}
+
+	/**
+	 * create fragments in nested blocks, so that some groups subsume others
+	 *
+	 * @param seed
+	 * @return
+	 */
+	private CodeFragmentStore createFragments(final int seed) {
+		final Random random = new Random(seed);
+		final List<DBCodeFragmentInfo> fragments = new ArrayList<DBCodeFragmentInfo>();
+		long id = 0;
+
+		for (int family = 0; family < 60; family++) {
+			final int count = 2 + random.nextInt(3);
+			final long outerHash = random.nextInt(20);
+			final long innerHash = 100 + random.nextInt(20);
+
+			for (int i = 0; i < count; i++) {
+				final long fileId = random.nextInt(6);
+				final long repositoryId = fileId % 2;
+				final int startLine = random.nextInt(50);
+
+				if (random.nextInt(5) > 0) {
+					fragments.add(createFragment(id++, repositoryId, fileId,
+							outerHash, startLine, startLine + 10));
+				}
+				if (random.nextInt(3) > 0) {
+					fragments.add(createFragment(id++, repositoryId, fileId,
+							innerHash, startLine + random.nextInt(2),
+							startLine + 10 - random.nextInt(2)));
+				}
+			}
+		}
+
+		return CodeFragmentStore.of(fragments);
+	}
+
+	private DBCodeFragmentInfo createFragment(final long id,
+			final long repositoryId, final long fileId, final long hash,
+			final int startLine, final int endLine) {
+		return new DBCodeFragmentInfo(id, fileId, repositoryId, 0, 0, 0, hash,
+				hash, startLine, endLine, SIZE_THRESHOLD + (int) (id % 3) - 1,
+				false, false);
+	}
+
+	/**
+	 * the former algorithm, which compares every pair of groups having the
+	 * same size
+	 *
+	 * @param codeFragments
+	 * @param separateRepositories
+	 * @return
+	 */
+	private Set<List<Long>> detectWithPairwiseComparison(
+			final CodeFragmentStore codeFragments,
+			final boolean separateRepositories) {
+		final List<List<Integer>> groups = new ArrayList<List<Integer>>();
+		final TreeSet<Integer> sortedIndexes = new TreeSet<Integer>(
+				new Comparator<Integer>() {
+					@Override
+					public int compare(Integer i1, Integer i2) {
+						final long[] values1 = getSortKey(codeFragments, i1);
+						final long[] values2 = getSortKey(codeFragments, i2);
+						for (int i = 0; i < values1.length; i++) {
+							if (values1[i] != values2[i]) {
+								return (values1[i] < values2[i]) ? -1 : 1;
+							}
+						}
+						return 0;
+					}
+				});
+		for (int i = 0; i < codeFragments.size(); i++) {
+			if (codeFragments.getSize(i) >= SIZE_THRESHOLD) {
+				sortedIndexes.add(i);
+			}
+		}
+
+		Integer previous = null;
+		for (final int index : sortedIndexes) {
+			if (previous == null
+					|| codeFragments.getHashForClone(previous) != codeFragments
+							.getHashForClone(index)
+					|| (separateRepositories && codeFragments
+							.getOwnerRepositoryId(previous) != codeFragments
+							.getOwnerRepositoryId(index))) {
+				groups.add(new ArrayList<Integer>());
+			}
+			groups.get(groups.size() - 1).add(index);
+			previous = index;
+		}
+
+		final boolean[] processed = new boolean[groups.size()];
+		final boolean[] toBeRemoved = new boolean[groups.size()];
+
+		for (int group1 = 0; group1 < groups.size(); group1++) {
+			if (processed[group1]) {
+				continue;
+			}
+			processed[group1] = true;
+
+			if (groups.get(group1).size() < 2) {
+				toBeRemoved[group1] = true;
+				continue;
+			}
+
+			for (int group2 = 0; group2 < groups.size(); group2++) {
+				if (processed[group2]
+						|| groups.get(group1).size() != groups.get(group2)
+								.size()) {
+					continue;
+				}
+
+				if (subsume(codeFragments, groups.get(group1),
+						groups.get(group2))) {
+					toBeRemoved[group2] = true;
+					processed[group2] = true;
+				} else if (subsume(codeFragments, groups.get(group2),
+						groups.get(group1))) {
+					toBeRemoved[group1] = true;
+				}
+			}
+		}
+
+		final Set<List<Long>> result = new HashSet<List<Long>>();
+		for (int group = 0; group < groups.size(); group++) {
+			if (toBeRemoved[group]) {
+				continue;
+			}
+			final List<Long> elements = new ArrayList<Long>();
+			for (final int index : groups.get(group)) {
+				elements.add(codeFragments.getId(index));
+			}
+			result.add(Collections.unmodifiableList(elements));
+		}
+		return result;
+	}
+
+	private long[] getSortKey(final CodeFragmentStore codeFragments,
+			final int index) {
+		return new long[] { codeFragments.getHashForClone(index),
+				codeFragments.getOwnerRepositoryId(index),
+				codeFragments.getOwnerFileId(index),
+				codeFragments.getStartLine(index),
+				codeFragments.getEndLine(index), index };
+	}
+
+	private boolean subsume(final CodeFragmentStore codeFragments,
+			final List<Integer> group1, final List<Integer> group2) {
+		for (int i = 0; i < group1.size(); i++) {
+			final int fragment1 = group1.get(i);
+			final int fragment2 = group2.get(i);
+			if (codeFragments.getOwnerFileId(fragment1) != codeFragments
+					.getOwnerFileId(fragment2)
+					|| codeFragments.getOwnerRepositoryId(fragment1) != codeFragments
+							.getOwnerRepositoryId(fragment2)
+					|| codeFragments.getStartLine(fragment1) > codeFragments
+							.getStartLine(fragment2)
+					|| codeFragments.getEndLine(fragment1) < codeFragments
+							.getEndLine(fragment2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,76 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * pins the values of MurmurHash3 x64_128 with seed 0 for the UTF-16LE bytes
+ * of prefixes of a string <br>
+ * the expected values are calculated by hashing the bytes with a byte-wise
+ * implementation of the reference algorithm, so that any change of the
+ * values, which would invalidate the hash values stored in dbs, fails this
+ * test
+ *
+ * @author k-hotta
+ *
+ */
+public class Murmur3Hash128CalculatorTest {
+
+	/**
+	 * the characters whose prefixes are hashed, the last two of which are
+	 * not ASCII ones
+	 */
+	private static final String SOURCE = "for (int i = 0; i < n; i++) { sum += a[i]; } // \u3042\u3044 end";
+
+	/**
+	 * the triples of the length of a prefix and the lower and the upper 64
+	 * bits of its expected hash value <br>
+	 * the lengths cover every tail of 2 to 14 bytes without blocks and after
+	 * a block of 16 bytes, and longer strings with several blocks
+	 */
+	private static final long[][] VECTORS = new long[][] {
+			{ 0, 0x0000000000000000L, 0x0000000000000000L },
+			{ 1, 0x49046F30EF957156L, 0xAC3D6B534A91D093L },
+			{ 2, 0x3C677F27E57A86EFL, 0xC29DFE33C0D25DD0L },
+			{ 3, 0xA5AE35C489E3ED4FL, 0xE88A8285249D1FC0L },
+			{ 4, 0x9121706EB554B780L, 0xB8BB1DD2B2761D2AL },
+			{ 5, 0x475261DE2126CC32L, 0x1F02D859504C228DL },
+			{ 6, 0x0A87A7F866289AB8L, 0x6385DA02BC4B9893L },
+			{ 7, 0x2CFDE7F6A91CB7CDL, 0xE9D73E1FC7AE4BCEL },
+			{ 8, 0x5A01BFE5DB1F5E00L, 0x58282B7CFE5B33D1L },
+			{ 9, 0x684DE3C8B834D386L, 0xAF9B8FEF6D9027E5L },
+			{ 10, 0xAFC3FA87865AB868L, 0x1198283E5B67CB39L },
+			{ 11, 0x736A478F1F5B76B2L, 0xDD3765C7CAD99955L },
+			{ 12, 0x68B3F10D3D641AA6L, 0x8AC4417F4F8C8E30L },
+			{ 13, 0x8D07677B890BEFE5L, 0xFD322E5F06B85E5DL },
+			{ 14, 0xE934E8FA496EB8B7L, 0xDDD04663A0EE33A9L },
+			{ 15, 0x93F40252010E9B79L, 0xDEBA75FC647DF83CL },
+			{ 16, 0x097ED56FFDF58B87L, 0x5E9E03A7211136B8L },
+			{ 17, 0x560C63684EFE3338L, 0xF2A5AB5C4F640EA3L },
+			{ 31, 0xBEF0B0E567A9962FL, 0xE39B31EC2532A0EAL },
+			{ 32, 0xB2116C821AFF7227L, 0xC562050B3290CDCBL },
+			{ 47, 0x913BBC81F1E206CEL, 0xDBA5B3001D76F56CL },
+			{ 54, 0x784CA4315C6727CBL, 0xBD05EADD6D5C7E56L } };
+
+	@Test
+	public void testEmpty() {
+		final long[] result = new Murmur3Hash128Calculator()
+				.calcHashValues("");
+		assertEquals(0L, result[0]);
+		assertEquals(0L, result[1]);
+	}
+
+	@Test
+	public void testVectors() {
+		final Murmur3Hash128Calculator calculator = new Murmur3Hash128Calculator();
+		for (final long[] vector : VECTORS) {
+			final String str = SOURCE.substring(0, (int) vector[0]);
+			final long[] result = calculator.calcHashValues(str);
+			assertEquals(vector[1], result[0]);
+			assertEquals(vector[2], result[1]);
+			assertEquals(vector[1], calculator.calcHashValue(str));
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.fragmentdetector.hash;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * pins the values of XXH64 with seed 0 for the UTF-16LE bytes of prefixes of
+ * a string <br>
+ * the expected values are calculated by hashing the bytes with a byte-wise
+ * implementation of the reference algorithm, so that any change of the
+ * values, which would invalidate the hash values stored in dbs, fails this
+ * test
+ *
+ * @author k-hotta
+ *
+ */
+public class XXHash64CalculatorTest {
+
+	/**
+	 * the characters whose prefixes are hashed, the last two of which are
+	 * not ASCII ones
+	 */
+	private static final String SOURCE = "for (int i = 0; i < n; i++) { sum += a[i]; } // \u3042\u3044 end";
+
+	/**
+	 * the pairs of the length of a prefix and its expected hash value <br>
+	 * the lengths cover every tail of 2 to 30 bytes without stripes, and
+	 * one, two, and three stripes of 32 bytes with tails
+	 */
+	private static final long[][] VECTORS = new long[][] {
+			{ 0, 0xEF46DB3751D8E999L },
+			{ 1, 0x6F7EDCC621762F0EL },
+			{ 2, 0xEBBA7B61156BF024L },
+			{ 3, 0x44F3BB9E7C1B0FCAL },
+			{ 4, 0xAAB7153A536E62B0L },
+			{ 5, 0x25F4F2DDFA87B6E6L },
+			{ 6, 0xEFF23D1CE8F2E41AL },
+			{ 7, 0x67DEC480A59F126FL },
+			{ 8, 0xC259A5DE2269C994L },
+			{ 9, 0x55D827ECA6D4452DL },
+			{ 10, 0x1E6FFA64C7E730B7L },
+			{ 11, 0xC31A4641DC90737BL },
+			{ 12, 0x4640ABD85E3B1085L },
+			{ 13, 0x47DFF28369E0C669L },
+			{ 14, 0x9EA5A7F8ECB34B24L },
+			{ 15, 0xDC4F7432226A6837L },
+			{ 16, 0x8471A6BC2102A356L },
+			{ 17, 0xBD1DF9CCB1EDB9E3L },
+			{ 31, 0x509A7C9ECB3897CBL },
+			{ 32, 0x574491DE137EA57EL },
+			{ 47, 0x767033C31E751608L },
+			{ 54, 0x966E538C27F139FEL } };
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0xEF46DB3751D8E999L,
+				new XXHash64Calculator().calcHashValue(""));
+	}
+
+	@Test
+	public void testVectors() {
+		final XXHash64Calculator calculator = new XXHash64Calculator();
+		for (final long[] vector : VECTORS) {
+			final String str = SOURCE.substring(0, (int) vector[0]);
+			assertEquals(vector[1], calculator.calcHashValue(str));
+		}
+	}
+
+	@Test
+	public void testCharSequence() {
+		final XXHash64Calculator calculator = new XXHash64Calculator();
+		assertEquals(calculator.calcHashValue(SOURCE),
+				calculator.calcHashValue(new StringBuilder(SOURCE)));
+	}
+
+}
@@ -0,0 +1,126 @@
+package jp.ac.osaka_u.ist.sdl.ectec.main.linker.similarity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import jp.ac.osaka_u.ist.sdl.ectec.util.StringUtils;
+
+import org.junit.Test;
+
+/**
+ * checks that the filters never remove a pair whose similarity reaches the
+ * threshold, and that each pair is counted by exactly one of the counters
+ *
+ * @author k-hotta
+ *
+ */
+public class SimilarityCandidateFilterTest {
+
+	private static final double[] THRESHOLDS = new double[] { 0.5, 0.7, 0.8,
+			0.9, 0.95 };
+
+	@Test
+	public void testLengthFilter() {
+		final SimilarityCandidateFilter filter = new SimilarityCandidateFilter();
+
+		assertTrue(filter.calcUpperBound("a", "aaaaaaaaaa", 0.9) < 0.9);
+		assertEquals(1, filter.getLengthFilteredCount());
+		assertEquals(0, filter.getQgramFilteredCount());
+		assertEquals(0, filter.getPassedCount());
+	}
+
+	@Test
+	public void testQgramFilter() {
+		final SimilarityCandidateFilter filter = new SimilarityCandidateFilter();
+		final String str1 = repeat("abcdefghij", 10);
+		final String str2 = repeat("0123456789", 10);
+
+		assertTrue(filter.calcUpperBound(str1, str2, 0.8) < 0.8);
+		assertEquals(0, filter.getLengthFilteredCount());
+		assertEquals(1, filter.getQgramFilteredCount());
+		assertEquals(0, filter.getPassedCount());
+	}
+
+	@Test
+	public void testPassed() {
+		final SimilarityCandidateFilter filter = new SimilarityCandidateFilter();
+		final String str = repeat("if (a == b) { return c; }\n", 5);
+
+		assertEquals(1.0, filter.calcUpperBound(str, str, 0.9), 0.0);
+		assertEquals(1.0, filter.calcUpperBound("a", "b", 0.0), 0.0);
+		assertEquals(0, filter.getLengthFilteredCount());
+		assertEquals(0, filter.getQgramFilteredCount());
+		assertEquals(2, filter.getPassedCount());
+	}
+
+	@Test
+	public void testNeverRemoveSimilarPairs() {
+		final SimilarityCandidateFilter filter = new SimilarityCandidateFilter();
+		final Random random = new Random(0);
+		long pairs = 0;
+
+		for (int trial = 0; trial < 1000; trial++) {
+			final String str1 = createString(random,
+					1 + random.nextInt(200));
+			final String str2 = mutate(random, str1, random.nextInt(40));
+			final double similarity = StringUtils
+					.calcLebenshteinDistanceBasedSimilarity(str1, str2);
+
+			for (final double threshold : THRESHOLDS) {
+				final double upperBound = filter.calcUpperBound(str1, str2,
+						threshold);
+				pairs++;
+
+				assertTrue(upperBound >= similarity - 1e-9);
+				if (similarity >= threshold) {
+					assertTrue(upperBound >= threshold);
+				}
+			}
+		}
+
+		assertEquals(pairs, filter.getLengthFilteredCount()
+				+ filter.getQgramFilteredCount() + filter.getPassedCount());
+		assertTrue(filter.getLengthFilteredCount() > 0);
+		assertTrue(filter.getQgramFilteredCount() > 0);
+		assertTrue(filter.getPassedCount() > 0);
+	}
+
+	private String repeat(final String str, final int times) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			builder.append(str);
+		}
+		return builder.toString();
+	}
+
+	private String createString(final Random random, final int length) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			builder.append((char) ('a' + random.nextInt(6)));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * apply the given number of random edit operations to the given string
+	 */
+	private String mutate(final Random random, final String str,
+			final int operations) {
+		final StringBuilder builder = new StringBuilder(str);
+		for (int k = 0; k < operations; k++) {
+			final int operation = random.nextInt(3);
+			final char c = (char) ('a' + random.nextInt(6));
+			if (operation == 0 || builder.length() == 0) {
+				builder.insert(random.nextInt(builder.length() + 1), c);
+			} else if (operation == 1) {
+				builder.deleteCharAt(random.nextInt(builder.length()));
+			} else {
+				builder.setCharAt(random.nextInt(builder.length()), c);
+			}
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,131 @@
+package jp.ac.osaka_u.ist.sdl.ectec.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * compares the distances calculated in the band around the diagonal with the
+ * ones calculated with the full dynamic programming
+ *
+ * @author k-hotta
+ *
+ */
+public class SequenceUtilsTest {
+
+	@Test
+	public void testBoundedLevenshteinDistance() {
+		final int[] seq1 = new int[] { 1, 2, 3, 4, 5 };
+		final int[] seq2 = new int[] { 1, 3, 4, 6, 5, 7 };
+
+		assertEquals(3, SequenceUtils.calcLevenshteinDistance(seq1, seq2, 3));
+		assertEquals(3, SequenceUtils.calcLevenshteinDistance(seq1, seq2, 2));
+		assertEquals(2, SequenceUtils.calcLevenshteinDistance(new int[0],
+				new int[] { 1, 2 }, 5));
+		assertEquals(0, SequenceUtils.calcLevenshteinDistance(seq1, seq1, 0));
+	}
+
+	@Test
+	public void testBoundedLevenshteinDistanceWithRandomSequences() {
+		final Random random = new Random(0);
+		for (int trial = 0; trial < 2000; trial++) {
+			final int[] seq1 = createSequence(random, random.nextInt(40));
+			final int[] seq2 = mutate(random, seq1, random.nextInt(15));
+			final int distance = calcFullLevenshteinDistance(seq1, seq2);
+
+			for (int maxDistance = 0; maxDistance <= distance + 2; maxDistance++) {
+				final int expected = (distance <= maxDistance) ? distance
+						: maxDistance + 1;
+				assertEquals(expected, SequenceUtils.calcLevenshteinDistance(
+						seq1, seq2, maxDistance));
+				assertEquals(expected, SequenceUtils.calcLevenshteinDistance(
+						seq2, seq1, maxDistance));
+			}
+			assertEquals(distance, SequenceUtils.calcLevenshteinDistance(seq1,
+					seq2, Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testBoundedSimilarity() {
+		final Random random = new Random(1);
+		for (int trial = 0; trial < 500; trial++) {
+			final int[] seq1 = createSequence(random, 1 + random.nextInt(40));
+			final int[] seq2 = mutate(random, seq1, random.nextInt(10));
+			final double similarity = 1.0
+					- ((double) calcFullLevenshteinDistance(seq1, seq2) * 2)
+					/ ((double) seq1.length + (double) seq2.length);
+
+			for (final double threshold : new double[] { 0.5, 0.7, 0.9 }) {
+				final double result = SequenceUtils
+						.calcLevenshteinDistanceBasedSimilarity(seq1, seq2,
+								threshold);
+				if (similarity >= threshold) {
+					assertEquals(similarity, result, 0.0);
+				} else {
+					assertTrue(result < threshold);
+				}
+			}
+		}
+	}
+
+	private int[] createSequence(final Random random, final int length) {
+		final int[] result = new int[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = random.nextInt(5);
+		}
+		return result;
+	}
+
+	/**
+	 * apply the given number of random edit operations to the given sequence
+	 */
+	private int[] mutate(final Random random, final int[] seq,
+			final int operations) {
+		int[] result = seq.clone();
+		for (int k = 0; k < operations; k++) {
+			final int operation = random.nextInt(3);
+			if (operation == 0 || result.length == 0) {
+				final int position = random.nextInt(result.length + 1);
+				final int[] inserted = new int[result.length + 1];
+				System.arraycopy(result, 0, inserted, 0, position);
+				inserted[position] = random.nextInt(5);
+				System.arraycopy(result, position, inserted, position + 1,
+						result.length - position);
+				result = inserted;
+			} else if (operation == 1) {
+				final int position = random.nextInt(result.length);
+				final int[] deleted = new int[result.length - 1];
+				System.arraycopy(result, 0, deleted, 0, position);
+				System.arraycopy(result, position + 1, deleted, position,
+						result.length - position - 1);
+				result = deleted;
+			} else {
+				result[random.nextInt(result.length)] = random.nextInt(5);
+			}
+		}
+		return result;
+	}
+
+	private int calcFullLevenshteinDistance(final int[] seq1, final int[] seq2) {
+		final int[][] d = new int[seq1.length + 1][seq2.length + 1];
+		for (int i = 0; i <= seq1.length; i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= seq2.length; j++) {
+			d[0][j] = j;
+		}
+		for (int i = 1; i <= seq1.length; i++) {
+			for (int j = 1; j <= seq2.length; j++) {
+				final int cost = (seq1[i - 1] == seq2[j - 1]) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1),
+						d[i - 1][j - 1] + cost);
+			}
+		}
+		return d[seq1.length][seq2.length];
+	}
+
+}
@@ -1,5 +1,6 @@
 package jp.ac.osaka_u.ist.sdl.ectec.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -36,4 +37,47 @@ public class StringUtilsTest {
 		assertTrue(result.get(2) == 3);
 	}
 
+	@Test
+	public void testBoundedLevenshteinDistance() {
+		assertEquals(3, StringUtils.calcLevenshteinDistance("kitten",
+				"sitting", 3));
+		assertEquals(3, StringUtils.calcLevenshteinDistance("kitten",
+				"sitting", 2));
+		assertEquals(2, StringUtils.calcLevenshteinDistance("", "ab", 5));
+	}
+
+	@Test
+	public void testBoundedLevenshteinDistanceWithLongStrings() {
+		final StringBuilder builder1 = new StringBuilder();
+		final StringBuilder builder2 = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			builder1.append((char) ('a' + i % 26));
+			builder2.append((char) ('a' + (i % 10 == 0 ? 25 - i % 26
+					: i % 26)));
+		}
+		final String str1 = builder1.toString();
+		final String str2 = builder2.toString();
+		final int distance = StringUtils.calcLevenshteinDistance(str1, str2);
+
+		assertEquals(distance,
+				StringUtils.calcLevenshteinDistance(str1, str2, distance));
+		assertEquals(distance, StringUtils.calcLevenshteinDistance(str1, str2,
+				distance - 1));
+		assertEquals(6, StringUtils.calcLevenshteinDistance(str1, str2, 5));
+	}
+
+	@Test
+	public void testBoundedSimilarity() {
+		final String str1 = "if (a == b) { return c; }";
+		final String str2 = "if (a != b) { return d; }";
+		final double similarity = StringUtils
+				.calcLebenshteinDistanceBasedSimilarity(str1, str2);
+
+		assertEquals(similarity,
+				StringUtils.calcLebenshteinDistanceBasedSimilarity(str1,
+						str2, similarity), 0.0);
+		assertTrue(StringUtils.calcLebenshteinDistanceBasedSimilarity(str1,
+				"while (true) {}", 0.8) < 0.8);
+	}
+
 }